@@ -1,19 +1,122 @@
 package com.br.infnet.app;
 
+import com.br.infnet.controller.AdminController;
 import com.br.infnet.controller.EmprestimoController;
 import com.br.infnet.controller.LivroController;
+import com.br.infnet.controller.ProntidaoController;
+import com.br.infnet.repository.historico.HistoricoEmprestimos;
+import com.br.infnet.repository.implementations.BibliotecaDuravel;
+import com.br.infnet.repository.implementations.BibliotecaJdbc;
+import com.br.infnet.repository.implementations.EmprestimoRepositoryEscritaAdiadaImpl;
+import com.br.infnet.repository.implementations.EmprestimoRepositoryImpl;
+import com.br.infnet.repository.implementations.LivroRepositoryEscritaAdiadaImpl;
 import com.br.infnet.repository.implementations.LivroRepositoryImpl;
+import com.br.infnet.repository.interfaces.iEmprestimoRepository;
 import com.br.infnet.repository.interfaces.iLivroRepository;
+import com.br.infnet.repository.persistencia.PoliticaDurabilidade;
+import com.br.infnet.service.CarregamentoAcervo;
+import com.br.infnet.service.LivroService;
 import io.javalin.Javalin;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         String host = System.getenv().getOrDefault("JAVALIN_HOST", "0.0.0.0");
         int port = Integer.parseInt(System.getenv().getOrDefault("JAVALIN_PORT", "7000"));
+        //Com BIBLIOTECA_DADOS definido, livros e empréstimos são persistidos nesse diretório (instantâneo + logs)
+        String diretorioDados = System.getenv("BIBLIOTECA_DADOS");
+        PoliticaDurabilidade durabilidade = PoliticaDurabilidade.doParametro(System.getenv("BIBLIOTECA_DURABILIDADE"));
+        //Com BIBLIOTECA_CARGA_EM_SEGUNDO_PLANO, o servidor sobe antes de o catálogo em memória ser carregado
+        boolean cargaEmSegundoPlano = Boolean.parseBoolean(System.getenv("BIBLIOTECA_CARGA_EM_SEGUNDO_PLANO"));
+        //Com BIBLIOTECA_BANCO definido (e BIBLIOTECA_DADOS não), livros e empréstimos ficam num banco H2 embutido
+        String diretorioBanco = System.getenv("BIBLIOTECA_BANCO");
+        //Com BIBLIOTECA_ESCRITA_ADIADA, as escritas num armazenamento durável respondem ao aplicar em memória e
+        //chegam ao disco em lotes, por uma thread de fundo
+        boolean escritaAdiada = Boolean.parseBoolean(System.getenv("BIBLIOTECA_ESCRITA_ADIADA"));
+        //BIBLIOTECA_HISTORICO arquiva os empréstimos devolvidos nesse diretório; com BIBLIOTECA_DADOS, o padrão é
+        //o subdiretório historico dele
+        String diretorioHistorico = System.getenv("BIBLIOTECA_HISTORICO");
+        if ((diretorioHistorico == null || diretorioHistorico.isBlank())
+                && diretorioDados != null && !diretorioDados.isBlank()) {
+            diretorioHistorico = Path.of(diretorioDados, "historico").toString();
+        }
         Javalin app = Javalin.create();
-        iLivroRepository livroRepository = new LivroRepositoryImpl();
+
+        iLivroRepository livroRepository;
+        iEmprestimoRepository emprestimoRepository;
+        CarregamentoAcervo carregamento = CarregamentoAcervo.concluido();
+        //Fechados em ordem inversa à de abertura ao encerrar, depois de parar o servidor
+        Deque<Closeable> recursos = new ArrayDeque<>();
+        BibliotecaDuravel biblioteca = null;
+        if ((diretorioDados == null || diretorioDados.isBlank()) && diretorioBanco != null && !diretorioBanco.isBlank()) {
+            BibliotecaJdbc banco = BibliotecaJdbc.abrir(Path.of(diretorioBanco));
+            recursos.push(banco);
+            livroRepository = banco.getLivros();
+            emprestimoRepository = banco.getEmprestimos();
+        } else if (diretorioDados == null || diretorioDados.isBlank()) {
+            if (cargaEmSegundoPlano) {
+                LivroRepositoryImpl repositorio = new LivroRepositoryImpl(false);
+                carregamento = new CarregamentoAcervo(repositorio, Runtime.getRuntime().availableProcessors(), 1_000);
+                livroRepository = repositorio;
+            } else {
+                livroRepository = new LivroRepositoryImpl();
+            }
+            emprestimoRepository = new EmprestimoRepositoryImpl(new LivroService(livroRepository));
+        } else {
+            biblioteca = BibliotecaDuravel.abrir(Path.of(diretorioDados), durabilidade);
+            recursos.push(biblioteca);
+            livroRepository = biblioteca.getLivros();
+            emprestimoRepository = biblioteca.getEmprestimos();
+            //Rotas administrativas só existem com um token configurado
+            String tokenAdmin = System.getenv("BIBLIOTECA_ADMIN_TOKEN");
+            if (tokenAdmin != null && !tokenAdmin.isBlank()) {
+                //BIBLIOTECA_COPIAS muda o destino das cópias de segurança de POST /admin/backup
+                String diretorioCopias = System.getenv("BIBLIOTECA_COPIAS");
+                new AdminController(app, biblioteca, tokenAdmin,
+                        diretorioCopias == null || diretorioCopias.isBlank() ? null : Path.of(diretorioCopias));
+            }
+        }
+        if (escritaAdiada && !recursos.isEmpty()) {
+            LivroRepositoryEscritaAdiadaImpl livrosAdiados = new LivroRepositoryEscritaAdiadaImpl(livroRepository);
+            EmprestimoRepositoryEscritaAdiadaImpl emprestimosAdiados = new EmprestimoRepositoryEscritaAdiadaImpl(
+                    emprestimoRepository, new LivroService(livrosAdiados));
+            recursos.push(livrosAdiados);
+            recursos.push(emprestimosAdiados);
+            if (biblioteca != null) {
+                biblioteca.usarEscritaAdiada(emprestimosAdiados, livrosAdiados);
+            }
+            livroRepository = livrosAdiados;
+            emprestimoRepository = emprestimosAdiados;
+        }
+        HistoricoEmprestimos historico = null;
+        if (diretorioHistorico != null && !diretorioHistorico.isBlank()) {
+            historico = HistoricoEmprestimos.abrir(Path.of(diretorioHistorico), durabilidade);
+            recursos.push(historico);
+        }
+        if (!recursos.isEmpty()) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                app.stop();
+                while (!recursos.isEmpty()) {
+                    try {
+                        recursos.pop().close();
+                    } catch (IOException | RuntimeException e) {
+                        System.out.println("Erro ao fechar o armazenamento: " + e.getMessage());
+                    }
+                }
+            }));
+        }
+
+        new ProntidaoController(app, carregamento);
         new LivroController(app, livroRepository);
-        new EmprestimoController(app, livroRepository);
+        new EmprestimoController(app, livroRepository, emprestimoRepository, historico);
         app.start(host, port);
+        if (!carregamento.isPronto()) {
+            carregamento.iniciar();
+        }
     }
-}
\ No newline at end of file
+}
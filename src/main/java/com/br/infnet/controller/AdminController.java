@@ -0,0 +1,68 @@
+package com.br.infnet.controller;
+
+import com.br.infnet.repository.implementations.BibliotecaDuravel;
+import com.br.infnet.repository.persistencia.ArquivoInstantaneo;
+import com.br.infnet.repository.persistencia.CopiaSeguranca;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+//Rotas administrativas da persistência, protegidas por um token enviado no cabeçalho X-Admin-Token
+public class AdminController {
+    public static final String CABECALHO_TOKEN = "X-Admin-Token";
+    private final byte[] token;
+
+    public AdminController(Javalin app, BibliotecaDuravel biblioteca, String token) {
+        this(app, biblioteca, token, null);
+    }
+
+    //diretorioCopias == null grava as cópias de segurança no diretório padrão, dentro do diretório de dados
+    public AdminController(Javalin app, BibliotecaDuravel biblioteca, String token, Path diretorioCopias) {
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("Token administrativo não pode ser vazio");
+        }
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+
+        app.post("/admin/instantaneo", ctx -> {
+            if (!autorizado(ctx)) {
+                return;
+            }
+            try {
+                ArquivoInstantaneo.Resumo resumo = biblioteca.gravarInstantaneo();
+                ctx.result("Instantâneo gravado: " + resumo.livros() + " livros e "
+                        + resumo.emprestimos() + " empréstimos");
+            } catch (Exception e) {
+                ctx.status(500).result("Falha ao gravar o instantâneo: " + e.getMessage());
+            }
+        });
+
+        //Não suspende as escritas durante a cópia, só pelo instante em que marca a posição dos logs
+        app.post("/admin/backup", ctx -> {
+            if (!autorizado(ctx)) {
+                return;
+            }
+            try {
+                CopiaSeguranca.Resumo resumo = diretorioCopias == null ? biblioteca.gravarCopiaSeguranca()
+                        : biblioteca.gravarCopiaSeguranca(diretorioCopias);
+                ctx.result("Cópia de segurança gravada em " + resumo.arquivo() + ": " + resumo.bytesOriginais()
+                        + " bytes (" + resumo.bytesCompactados() + " compactados) em " + resumo.duracaoMs()
+                        + " ms; escritas suspensas por " + resumo.pausaEscritasMicros() + " µs");
+            } catch (Exception e) {
+                ctx.status(500).result("Falha ao gravar a cópia de segurança: " + e.getMessage());
+            }
+        });
+    }
+
+    //Comparação em tempo constante, para o tempo de resposta não revelar o token
+    private boolean autorizado(Context ctx) {
+        String recebido = ctx.header(CABECALHO_TOKEN);
+        if (recebido != null && MessageDigest.isEqual(token, recebido.getBytes(StandardCharsets.UTF_8))) {
+            return true;
+        }
+        ctx.status(401).result("Não autorizado");
+        return false;
+    }
+}
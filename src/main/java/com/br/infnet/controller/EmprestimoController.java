@@ -1,7 +1,10 @@
 package com.br.infnet.controller;
 
+import com.br.infnet.model.Emprestimo;
 import com.br.infnet.model.Livro;
+import com.br.infnet.repository.historico.HistoricoEmprestimos;
 import com.br.infnet.repository.implementations.EmprestimoRepositoryImpl;
+import com.br.infnet.repository.interfaces.iEmprestimoRepository;
 import com.br.infnet.repository.interfaces.iLivroRepository;
 import com.br.infnet.service.EmprestimoService;
 import com.br.infnet.service.LivroService;
@@ -11,14 +14,27 @@ import com.br.infnet.service.MultaPendenteException;
 import com.br.infnet.view.EmprestimoView;
 import io.javalin.Javalin;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
 
 public class EmprestimoController {
+    private static final int DIAS_HISTORICO_PADRAO = 30;
     private final EmprestimoService emprestimoService;
 
     public EmprestimoController(Javalin app, iLivroRepository livroRepository) {
-        LivroService livroService = new LivroService(livroRepository);
-        EmprestimoRepositoryImpl emprestimoRepository = new EmprestimoRepositoryImpl(livroService);
-        this.emprestimoService = new EmprestimoService(emprestimoRepository, livroRepository);
+        this(app, livroRepository, new EmprestimoRepositoryImpl(new LivroService(livroRepository)));
+    }
+
+    public EmprestimoController(Javalin app, iLivroRepository livroRepository, iEmprestimoRepository emprestimoRepository) {
+        this(app, livroRepository, emprestimoRepository, null);
+    }
+
+    //Com historico nulo os empréstimos devolvidos não são arquivados e a rota de histórico não é registrada
+    public EmprestimoController(Javalin app, iLivroRepository livroRepository, iEmprestimoRepository emprestimoRepository,
+                                HistoricoEmprestimos historico) {
+        this.emprestimoService = new EmprestimoService(emprestimoRepository, livroRepository, historico);
 
         app.get("/emprestimos", ctx -> {
             try {
@@ -116,5 +132,46 @@ public class EmprestimoController {
                 ctx.html(ErrorHandler.handleError(e));
             }
         });
+
+        if (emprestimoService.isHistoricoHabilitado()) {
+            app.get("/emprestimos/historico", ctx -> {
+                try {
+                    LocalDate ate;
+                    LocalDate de;
+                    try {
+                        String ateStr = ctx.queryParam("ate");
+                        String deStr = ctx.queryParam("de");
+                        ate = ateStr == null || ateStr.isBlank() ? LocalDate.now() : LocalDate.parse(ateStr.trim());
+                        de = deStr == null || deStr.isBlank() ? ate.minusDays(DIAS_HISTORICO_PADRAO) : LocalDate.parse(deStr.trim());
+                    } catch (DateTimeParseException e) {
+                        ctx.html(ErrorHandler.handleValidationError("Datas devem estar no formato AAAA-MM-DD"));
+                        return;
+                    }
+                    if (de.isAfter(ate)) {
+                        ctx.html(ErrorHandler.handleValidationError("A data inicial deve ser anterior à final"));
+                        return;
+                    }
+
+                    Integer livroId = null;
+                    String livroStr = ctx.queryParam("livroId");
+                    if (livroStr != null && !livroStr.isBlank()) {
+                        try {
+                            livroId = Integer.parseInt(livroStr.trim());
+                        } catch (NumberFormatException e) {
+                            ctx.html(ErrorHandler.handleValidationError("ID do livro é inválido"));
+                            return;
+                        }
+                    }
+
+                    List<Emprestimo> emprestimos = livroId == null
+                            ? emprestimoService.listarHistoricoPorPeriodo(de, ate)
+                            : emprestimoService.listarHistoricoDoLivro(livroId, de, ate);
+                    ctx.html(EmprestimoView.renderHistorico(emprestimos, de, ate, livroId));
+
+                } catch (Exception e) {
+                    ctx.html(ErrorHandler.handleError(e));
+                }
+            });
+        }
     }
 }
\ No newline at end of file
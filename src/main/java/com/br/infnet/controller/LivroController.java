@@ -1,16 +1,27 @@
 package com.br.infnet.controller;
 
 import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
 import com.br.infnet.repository.interfaces.iLivroRepository;
 import com.br.infnet.service.LivroService;
 import com.br.infnet.utils.FormValidator;
 import com.br.infnet.utils.ErrorHandler;
+import com.br.infnet.view.LivroCsvView;
 import com.br.infnet.view.LivroView;
 import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.validation.ValidationException;
+import org.eclipse.jetty.server.Request;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
 public class LivroController {
+    //cursor ou limite não numéricos: o queryParamAsClass lança ValidationException
+    private static final String PAGINACAO_INVALIDA = "Cursor e limite devem ser números inteiros";
     private final LivroService service;
     public LivroController(Javalin app, iLivroRepository livroRepository) {
         this.service = new LivroService(livroRepository);
@@ -19,12 +30,40 @@ public class LivroController {
 
         app.get("/livros", ctx -> {
             try {
-                ctx.html(LivroView.renderList(service.listarLivrosDoAcervo()));
+                int cursor = ctx.queryParamAsClass("cursor", Integer.class).getOrDefault(0);
+                int limite = ctx.queryParamAsClass("limite", Integer.class).getOrDefault(LivroService.LIMITE_PAGINA_PADRAO);
+                OrdemListagem ordem = OrdemListagem.doParametro(ctx.queryParam("orderBy"));
+                String textoCursor = ctx.queryParam("cursorTexto");
+                ctx.html(LivroView.renderList(service.listarLivrosDoAcervo(cursor, textoCursor, limite, ordem), ordem));
+            } catch (ValidationException e) {
+                ctx.html(ErrorHandler.handleValidationError(PAGINACAO_INVALIDA));
+            } catch (IllegalArgumentException e) {
+                ctx.html(ErrorHandler.handleValidationError(e.getMessage()));
             } catch (Exception e) {
                 ctx.html(ErrorHandler.handleDatabaseError());
             }
         });
 
+        app.get("/livros/exportar", ctx -> {
+            try {
+                ctx.contentType("text/csv; charset=UTF-8");
+                ctx.header("Content-Disposition", "attachment; filename=\"acervo.csv\"");
+                Writer writer = new BufferedWriter(new OutputStreamWriter(ctx.outputStream(), StandardCharsets.UTF_8));
+                LivroCsvView.writeAcervo(writer, service);
+                writer.flush();
+            } catch (Exception e) {
+                System.out.println("Erro ao exportar o acervo: " + e.getMessage());
+                if (ctx.res().isCommitted()) {
+                    //Parte do CSV já foi enviada: aborta a conexão para o cliente não tomar um arquivo truncado por completo
+                    abortarResposta(ctx, e);
+                } else {
+                    ctx.res().reset();
+                    ctx.status(500);
+                    ctx.html(ErrorHandler.handleDatabaseError());
+                }
+            }
+        });
+
         app.get("/livros/novo", ctx -> {
             try {
                 ctx.html(LivroView.renderForm(new HashMap<>()));
@@ -169,11 +208,24 @@ public class LivroController {
                     }
                 }
 
-                ctx.html(LivroView.renderBusca(tipo, termo, service));
+                int cursor = ctx.queryParamAsClass("cursor", Integer.class).getOrDefault(0);
+                int limite = ctx.queryParamAsClass("limite", Integer.class).getOrDefault(LivroService.LIMITE_PAGINA_PADRAO);
+                ctx.html(LivroView.renderBusca(tipo, termo, service, cursor, limite));
 
+            } catch (ValidationException e) {
+                ctx.html(ErrorHandler.handleValidationError(PAGINACAO_INVALIDA));
+            } catch (IllegalArgumentException e) {
+                ctx.html(ErrorHandler.handleValidationError(e.getMessage()));
             } catch (Exception e) {
                 ctx.html(ErrorHandler.handleError(e));
             }
         });
     }
+
+    private static void abortarResposta(Context ctx, Exception erro) {
+        Request request = Request.getBaseRequest(ctx.req());
+        if (request != null) {
+            request.getHttpChannel().abort(erro);
+        }
+    }
 }
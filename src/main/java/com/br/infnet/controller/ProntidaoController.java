@@ -0,0 +1,53 @@
+package com.br.infnet.controller;
+
+import com.br.infnet.service.CarregamentoAcervo;
+import io.javalin.Javalin;
+
+//Prontidão para orquestradores: GET /ready responde 200 quando o acervo está carregado e 503 antes disso.
+//Enquanto a carga não termina, todas as outras rotas respondem 503 com Retry-After: durante a carga em lote
+//o repositório não tem índices de texto, e uma busca responderia 200 com resultados vazios ou parciais.
+//Se a carga falhar, /ready e as demais rotas respondem 500, sem Retry-After: a carga não será retomada.
+public class ProntidaoController {
+
+    public ProntidaoController(Javalin app, CarregamentoAcervo carregamento) {
+        app.get("/ready", ctx -> {
+            if (carregamento.isFalhou()) {
+                ctx.status(500);
+            } else if (!carregamento.isPronto()) {
+                ctx.status(503).header("Retry-After", String.valueOf(carregamento.segundosParaNovaTentativa()));
+            }
+            ctx.contentType("application/json").result(descrever(carregamento));
+        });
+
+        app.before(ctx -> {
+            if (carregamento.isPronto() || !dependeDoAcervo(ctx.path())) {
+                return;
+            }
+            if (carregamento.isFalhou()) {
+                ctx.status(500).result("Falha ao carregar o acervo");
+            } else {
+                ctx.status(503).header("Retry-After", String.valueOf(carregamento.segundosParaNovaTentativa()));
+                ctx.result("Acervo em carregamento, tente novamente em instantes");
+            }
+            ctx.skipRemainingHandlers();
+        });
+    }
+
+    //A aplicação não serve arquivos estáticos, então só a própria rota de prontidão fica de fora
+    static boolean dependeDoAcervo(String caminho) {
+        return !caminho.equals("/ready");
+    }
+
+    static String descrever(CarregamentoAcervo carregamento) {
+        StringBuilder json = new StringBuilder()
+                .append("{\"pronto\":").append(carregamento.isPronto())
+                .append(",\"etapa\":\"").append(carregamento.getEtapa().getParametro()).append('"')
+                .append(",\"linhasValidadas\":").append(carregamento.getLinhasValidadas())
+                .append(",\"totalLinhas\":").append(carregamento.getTotalLinhas());
+        if (carregamento.getErro() != null) {
+            json.append(",\"erro\":\"").append(carregamento.getErro().replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append('"');
+        }
+        return json.append('}').toString();
+    }
+}
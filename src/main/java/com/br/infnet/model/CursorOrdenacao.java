@@ -0,0 +1,20 @@
+package com.br.infnet.model;
+
+//Posição de retomada de uma listagem ordenada por título ou autor: o texto do campo e o id do último livro
+//entregue. A próxima página começa na primeira chave (texto, id) maior que esta, então o cursor continua
+//válido se esse livro for removido ou mudar de título depois.
+public record CursorOrdenacao(String texto, int id) {
+
+    public CursorOrdenacao {
+        if (texto == null) {
+            throw new IllegalArgumentException("Cursor de paginação inválido");
+        }
+        if (id <= 0) {
+            throw new IllegalArgumentException("Cursor de paginação inválido");
+        }
+    }
+
+    public static CursorOrdenacao doLivro(Livro livro, OrdemListagem ordem) {
+        return new CursorOrdenacao(ordem == OrdemListagem.AUTOR ? livro.getAutor() : livro.getTitulo(), livro.getId());
+    }
+}
@@ -1,5 +1,7 @@
 package com.br.infnet.model;
 
+import com.br.infnet.utils.NormalizadorTexto;
+
 import java.time.LocalDate;
 
 public class Livro {
@@ -7,6 +9,11 @@ public class Livro {
     private String titulo;
     private String autor;
     private String isbn;
+    //Chaves de busca normalizadas, recalculadas apenas quando título ou autor são escritos
+    private String tituloNormalizado;
+    private String autorNormalizado;
+    //Código do autor normalizado no dicionário do repositório; -1 enquanto o livro não passou por um
+    private int codigoAutor = -1;
     private LocalDate dataEmprestimo;
     private LocalDate dataEstimadaDevolucao;
     private LocalDate dataEfetivaDevolucao;
@@ -48,6 +55,8 @@ public class Livro {
         this.titulo = titulo;
         this.autor = autor;
         this.isbn = isbn;
+        this.tituloNormalizado = NormalizadorTexto.normalizar(titulo);
+        this.autorNormalizado = NormalizadorTexto.normalizar(autor);
         this.dataEmprestimo = null;
         this.prazoDevolucao = 0;
         this.dataEstimadaDevolucao = null;
@@ -55,6 +64,28 @@ public class Livro {
         this.multa = 0;
     }
 
+    private Livro(int id, String titulo, String autor, String isbn, String tituloNormalizado, String autorNormalizado) {
+        this.id = id;
+        this.titulo = titulo;
+        this.autor = autor;
+        this.isbn = isbn;
+        this.tituloNormalizado = tituloNormalizado;
+        this.autorNormalizado = autorNormalizado;
+        this.disponivel = true;
+    }
+
+    //Recria um livro que já foi validado ao ser gravado (ex.: lido de um repositório), sem repetir as validações
+    public static Livro restaurar(int id, String titulo, String autor, String isbn) {
+        return new Livro(id, titulo, autor, isbn,
+                NormalizadorTexto.normalizar(titulo), NormalizadorTexto.normalizar(autor));
+    }
+
+    //Variante que reaproveita chaves normalizadas já armazenadas pelo repositório
+    public static Livro restaurar(int id, String titulo, String autor, String isbn,
+                                  String tituloNormalizado, String autorNormalizado) {
+        return new Livro(id, titulo, autor, isbn, tituloNormalizado, autorNormalizado);
+    }
+
     public int getId() {
         return id;
     }
@@ -68,6 +99,7 @@ public class Livro {
             throw new IllegalArgumentException("Título inválido");
         }
         this.titulo = titulo;
+        this.tituloNormalizado = NormalizadorTexto.normalizar(titulo);
     }
 
     public String getAutor() {
@@ -79,6 +111,31 @@ public class Livro {
             throw new IllegalArgumentException("Autor inválido");
         }
         this.autor = autor;
+        this.autorNormalizado = NormalizadorTexto.normalizar(autor);
+        this.codigoAutor = -1;
+    }
+
+    //Troca autor e chave normalizada por instâncias iguais compartilhadas (ex.: as de um dicionário de textos)
+    //e guarda o código do autor, para que buscas comparem ints em vez de strings
+    public void compartilharAutor(String autor, String autorNormalizado, int codigoAutor) {
+        if (!this.autor.equals(autor) || !this.autorNormalizado.equals(autorNormalizado)) {
+            throw new IllegalArgumentException("Autor compartilhado difere do autor do livro");
+        }
+        this.autor = autor;
+        this.autorNormalizado = autorNormalizado;
+        this.codigoAutor = codigoAutor;
+    }
+
+    public int getCodigoAutor() {
+        return codigoAutor;
+    }
+
+    public String getTituloNormalizado() {
+        return tituloNormalizado;
+    }
+
+    public String getAutorNormalizado() {
+        return autorNormalizado;
     }
 
     public String getIsbn() {
@@ -0,0 +1,34 @@
+package com.br.infnet.model;
+
+import java.util.Locale;
+
+//Critério de ordenação da listagem do acervo, recebido no parâmetro "orderBy"
+public enum OrdemListagem {
+    ID("id"),
+    TITULO("titulo"),
+    AUTOR("autor");
+
+    private final String parametro;
+
+    OrdemListagem(String parametro) {
+        this.parametro = parametro;
+    }
+
+    public String getParametro() {
+        return parametro;
+    }
+
+    //Parâmetro ausente ou vazio equivale à ordem por id
+    public static OrdemListagem doParametro(String valor) {
+        if (valor == null || valor.isBlank()) {
+            return ID;
+        }
+        String normalizado = valor.trim().toLowerCase(Locale.ROOT);
+        for (OrdemListagem ordem : values()) {
+            if (ordem.parametro.equals(normalizado)) {
+                return ordem;
+            }
+        }
+        throw new IllegalArgumentException("Ordenação inválida: use id, titulo ou autor");
+    }
+}
@@ -0,0 +1,15 @@
+package com.br.infnet.model;
+
+import java.util.List;
+
+//Página de uma listagem por cursor: proximoCursor é o último id da página, ou null se não houver mais itens
+public record Pagina<T>(List<T> itens, int cursor, int limite, Integer proximoCursor) {
+
+    public boolean temProxima() {
+        return proximoCursor != null;
+    }
+
+    public boolean isPrimeira() {
+        return cursor <= 0;
+    }
+}
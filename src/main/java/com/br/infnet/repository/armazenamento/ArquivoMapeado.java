@@ -0,0 +1,82 @@
+package com.br.infnet.repository.armazenamento;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Arquivo mapeado inteiro em memória, que cresce sob demanda. Ao crescer, o arquivo é estendido e remapeado:
+//quem guarda o buffer deve obtê-lo de novo depois de garantirCapacidade.
+//As páginas são lidas e gravadas pelo cache do sistema operacional; forcar() as leva ao disco.
+//Não é thread-safe: quem usa deve impedir leituras durante o crescimento.
+public class ArquivoMapeado implements Closeable {
+    private static final long CAPACIDADE_MAXIMA = Integer.MAX_VALUE;
+
+    private final Path arquivo;
+    private final FileChannel canal;
+    private final boolean novo;
+    private MappedByteBuffer buffer;
+
+    public ArquivoMapeado(Path arquivo, int capacidadeInicial) throws IOException {
+        if (capacidadeInicial < 1) {
+            throw new IllegalArgumentException("Capacidade inicial deve ser positiva");
+        }
+        Files.createDirectories(arquivo.toAbsolutePath().getParent());
+        this.arquivo = arquivo;
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long tamanho = canal.size();
+        if (tamanho > CAPACIDADE_MAXIMA) {
+            canal.close();
+            throw new IllegalStateException("Arquivo mapeado maior que 2 GB não é suportado: " + arquivo);
+        }
+        this.novo = tamanho == 0;
+        mapear(Math.max(tamanho, capacidadeInicial));
+    }
+
+    //Verdadeiro quando o arquivo não existia (ou estava vazio) ao ser aberto
+    public boolean isNovo() {
+        return novo;
+    }
+
+    public MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    public int capacidade() {
+        return buffer.capacity();
+    }
+
+    public Path getArquivo() {
+        return arquivo;
+    }
+
+    //Dobra o arquivo até caber "necessario" bytes; o conteúdo existente é preservado e o excedente vem zerado
+    public void garantirCapacidade(long necessario) throws IOException {
+        if (necessario <= buffer.capacity()) {
+            return;
+        }
+        if (necessario > CAPACIDADE_MAXIMA) {
+            throw new IllegalStateException("Arquivo mapeado excedeu a capacidade máxima: " + arquivo);
+        }
+        mapear(Math.min(CAPACIDADE_MAXIMA, Math.max(necessario, buffer.capacity() * 2L)));
+    }
+
+    public void forcar() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        canal.close();
+    }
+
+    //Mapear além do fim estende o arquivo
+    private void mapear(long tamanho) throws IOException {
+        buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+    }
+}
@@ -0,0 +1,42 @@
+package com.br.infnet.repository.armazenamento;
+
+import com.br.infnet.model.Emprestimo;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+//Formato binário de tamanho fixo de um empréstimo:
+//  [id int][livroId int][3 datas int (dias desde a época)][prazo int][multa double]
+public final class CodificadorEmprestimo {
+    public static final int TAMANHO_REGISTRO = 4 + 4 + 3 * 4 + 4 + 8;
+    private static final int SEM_DATA = Integer.MIN_VALUE;
+
+    private CodificadorEmprestimo() {
+    }
+
+    public static void codificar(Emprestimo emprestimo, ByteBuffer destino) {
+        destino.putInt(emprestimo.getId())
+                .putInt(emprestimo.getLivroId())
+                .putInt(paraDias(emprestimo.getDataEmprestimo()))
+                .putInt(paraDias(emprestimo.getDataEstimadaDevolucao()))
+                .putInt(paraDias(emprestimo.getDataEfetivaDevolucao()))
+                .putInt(emprestimo.getPrazoDevolucao())
+                .putDouble(emprestimo.getMulta());
+    }
+
+    public static Emprestimo decodificar(ByteBuffer buffer, int posicao) {
+        Emprestimo emprestimo = new Emprestimo(buffer.getInt(posicao), buffer.getInt(posicao + 4),
+                paraData(buffer.getInt(posicao + 8)), paraData(buffer.getInt(posicao + 12)),
+                buffer.getInt(posicao + 20), buffer.getDouble(posicao + 24));
+        emprestimo.setDataEfetivaDevolucao(paraData(buffer.getInt(posicao + 16)));
+        return emprestimo;
+    }
+
+    private static int paraDias(LocalDate data) {
+        return data == null ? SEM_DATA : (int) data.toEpochDay();
+    }
+
+    private static LocalDate paraData(int dias) {
+        return dias == SEM_DATA ? null : LocalDate.ofEpochDay(dias);
+    }
+}
@@ -0,0 +1,163 @@
+package com.br.infnet.repository.armazenamento;
+
+import com.br.infnet.model.Livro;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+//Formato binário de um livro, compartilhado pelos repositórios que guardam registros fora de objetos Livro.
+//Layout: cabeçalho fixo seguido de título, autor e suas chaves normalizadas em UTF-8.
+//  [id int][isbn long][estado byte][prazo int][multa double][3 datas int (dias desde a época)]
+//  [4 tamanhos unsigned short][bytes das strings]
+//As leituras usam posições absolutas e não alteram o estado do buffer, podendo ser feitas em paralelo.
+public final class CodificadorLivro {
+    public static final int TAMANHO_CABECALHO = 4 + 8 + 1 + 4 + 8 + 3 * 4 + 4 * 2;
+    private static final int MAX_BYTES_CAMPO = 0xFFFF;
+    private static final int SEM_DATA = Integer.MIN_VALUE;
+    private static final byte DISPONIVEL = 1;
+
+    private static final int POS_ISBN = 4;
+    private static final int POS_ESTADO = 12;
+    private static final int POS_PRAZO = 13;
+    private static final int POS_MULTA = 17;
+    private static final int POS_DATAS = 25;
+    private static final int POS_TAMANHOS = 37;
+
+    private CodificadorLivro() {
+    }
+
+    public static byte[] codificar(Livro livro) {
+        byte[] titulo = utf8(livro.getTitulo());
+        byte[] autor = utf8(livro.getAutor());
+        byte[] tituloNormalizado = utf8(livro.getTituloNormalizado());
+        byte[] autorNormalizado = utf8(livro.getAutorNormalizado());
+        ByteBuffer registro = ByteBuffer.allocate(TAMANHO_CABECALHO + titulo.length + autor.length
+                + tituloNormalizado.length + autorNormalizado.length);
+        registro.putInt(livro.getId())
+                .putLong(converterISBN(livro.getIsbn()))
+                .put(livro.isDisponivel() ? DISPONIVEL : 0)
+                .putInt(livro.getPrazoDevolucao())
+                .putDouble(livro.getMulta())
+                .putInt(paraDias(livro.getDataEmprestimo()))
+                .putInt(paraDias(livro.getDataEstimadaDevolucao()))
+                .putInt(paraDias(livro.getDataEfetivaDevolucao()))
+                .putShort((short) titulo.length)
+                .putShort((short) autor.length)
+                .putShort((short) tituloNormalizado.length)
+                .putShort((short) autorNormalizado.length)
+                .put(titulo)
+                .put(autor)
+                .put(tituloNormalizado)
+                .put(autorNormalizado);
+        return registro.array();
+    }
+
+    public static Livro decodificar(ByteBuffer buffer, int posicao) {
+        int tamanhoTitulo = tamanhoCampo(buffer, posicao, 0);
+        int tamanhoAutor = tamanhoCampo(buffer, posicao, 1);
+        int inicio = posicao + TAMANHO_CABECALHO;
+        String titulo = lerString(buffer, inicio, tamanhoTitulo);
+        String autor = lerString(buffer, inicio + tamanhoTitulo, tamanhoAutor);
+
+        Livro livro = Livro.restaurar(lerId(buffer, posicao), titulo, autor, formatarISBN(lerISBN(buffer, posicao)),
+                lerTituloNormalizado(buffer, posicao), lerAutorNormalizado(buffer, posicao));
+        livro.setDisponivel((buffer.get(posicao + POS_ESTADO) & DISPONIVEL) != 0);
+        livro.setPrazoDevolucao(buffer.getInt(posicao + POS_PRAZO));
+        livro.setMulta(buffer.getDouble(posicao + POS_MULTA));
+        livro.setDataEmprestimo(paraData(buffer.getInt(posicao + POS_DATAS)));
+        livro.setDataEstimadaDevolucao(paraData(buffer.getInt(posicao + POS_DATAS + 4)));
+        livro.setDataEfetivaDevolucao(paraData(buffer.getInt(posicao + POS_DATAS + 8)));
+        return livro;
+    }
+
+    public static int tamanhoRegistro(ByteBuffer buffer, int posicao) {
+        return TAMANHO_CABECALHO + tamanhoCampo(buffer, posicao, 0) + tamanhoCampo(buffer, posicao, 1)
+                + tamanhoCampo(buffer, posicao, 2) + tamanhoCampo(buffer, posicao, 3);
+    }
+
+    public static int lerId(ByteBuffer buffer, int posicao) {
+        return buffer.getInt(posicao);
+    }
+
+    public static long lerISBN(ByteBuffer buffer, int posicao) {
+        return buffer.getLong(posicao + POS_ISBN);
+    }
+
+    //Leituras parciais usadas pelas buscas e índices, sem montar o Livro inteiro
+    public static String lerTitulo(ByteBuffer buffer, int posicao) {
+        return lerString(buffer, posicao + TAMANHO_CABECALHO, tamanhoCampo(buffer, posicao, 0));
+    }
+
+    public static String lerAutor(ByteBuffer buffer, int posicao) {
+        return lerString(buffer, posicao + TAMANHO_CABECALHO + tamanhoCampo(buffer, posicao, 0),
+                tamanhoCampo(buffer, posicao, 1));
+    }
+
+    public static String lerTituloNormalizado(ByteBuffer buffer, int posicao) {
+        int inicio = posicao + TAMANHO_CABECALHO + tamanhoCampo(buffer, posicao, 0) + tamanhoCampo(buffer, posicao, 1);
+        return lerString(buffer, inicio, tamanhoCampo(buffer, posicao, 2));
+    }
+
+    public static String lerAutorNormalizado(ByteBuffer buffer, int posicao) {
+        int inicio = posicao + TAMANHO_CABECALHO + tamanhoCampo(buffer, posicao, 0) + tamanhoCampo(buffer, posicao, 1)
+                + tamanhoCampo(buffer, posicao, 2);
+        return lerString(buffer, inicio, tamanhoCampo(buffer, posicao, 3));
+    }
+
+    //O ISBN é guardado como número de 13 dígitos; zeros à esquerda são recompostos na leitura
+    public static long converterISBN(String isbn) {
+        if (!isbnNumerico(isbn)) {
+            throw new IllegalArgumentException("ISBN tem exatos 13 caracteres");
+        }
+        return Long.parseLong(isbn);
+    }
+
+    public static boolean isbnNumerico(String isbn) {
+        if (isbn == null || isbn.length() != 13) {
+            return false;
+        }
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static String formatarISBN(long isbn) {
+        byte[] digitos = new byte[13];
+        for (int i = digitos.length - 1; i >= 0; i--) {
+            digitos[i] = (byte) ('0' + isbn % 10);
+            isbn /= 10;
+        }
+        return new String(digitos, StandardCharsets.US_ASCII);
+    }
+
+    private static int tamanhoCampo(ByteBuffer buffer, int posicao, int campo) {
+        return Short.toUnsignedInt(buffer.getShort(posicao + POS_TAMANHOS + campo * 2));
+    }
+
+    private static String lerString(ByteBuffer buffer, int inicio, int tamanho) {
+        byte[] bytes = new byte[tamanho];
+        buffer.get(inicio, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String valor) {
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_BYTES_CAMPO) {
+            throw new IllegalArgumentException("Campo excede o tamanho máximo do registro");
+        }
+        return bytes;
+    }
+
+    private static int paraDias(LocalDate data) {
+        return data == null ? SEM_DATA : (int) data.toEpochDay();
+    }
+
+    private static LocalDate paraData(int dias) {
+        return dias == SEM_DATA ? null : LocalDate.ofEpochDay(dias);
+    }
+}
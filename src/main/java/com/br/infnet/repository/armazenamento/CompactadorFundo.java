@@ -0,0 +1,184 @@
+package com.br.infnet.repository.armazenamento;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Compactação incremental numa thread de fundo. A tarefa divide o trabalho em passos curtos, cada um segurando
+//a trava de quem a implementa por pouco tempo; entre os passos a thread dorme o necessário para não processar
+//mais que bytesPorSegundo, então a compactação divide disco e CPU com as requisições em vez de disputá-los em
+//rajadas. Sem trabalho, a thread dorme um intervalo (ou até ser avisada) e pergunta de novo à tarefa.
+//compactar() roda uma rodada completa na thread de quem chama, sem limite de taxa; os passos das duas threads
+//nunca se sobrepõem.
+public class CompactadorFundo implements Closeable {
+    public static final long BYTES_POR_SEGUNDO_PADRAO = 16L << 20;
+    public static final long INTERVALO_PADRAO_MS = 1_000;
+
+    public interface Tarefa {
+        //Executa um passo curto; devolve null quando não há o que compactar. Forçado ignora os limiares que
+        //decidem se uma rodada vale a pena.
+        Passo passo(boolean forcado);
+
+        //Bytes que uma compactação ainda pode recuperar
+        long pendencia();
+    }
+
+    //Bytes lidos ou copiados pelo passo (o que o limite de taxa conta) e bytes que ele devolveu ao uso
+    public record Passo(long bytesProcessados, long bytesRecuperados) {
+    }
+
+    public record Metricas(long rodadas, long passos, long bytesProcessados, long bytesRecuperados,
+                           long tempoGastoMs, long pendenciaBytes) {
+    }
+
+    private final String nome;
+    private final Tarefa tarefa;
+    private final long bytesPorSegundo;
+    private final long intervaloNanos;
+    //Serializa os passos da thread de fundo e de compactar()
+    private final ReentrantLock execucao = new ReentrantLock();
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Condition acordar = trava.newCondition();
+    private boolean avisado;
+    private volatile boolean fechado;
+    private final Thread compactadora;
+
+    private boolean emRodada;
+    private volatile long rodadas;
+    private volatile long passos;
+    private volatile long bytesProcessados;
+    private volatile long bytesRecuperados;
+    private volatile long tempoGastoNanos;
+
+    public CompactadorFundo(String nome, Tarefa tarefa, long bytesPorSegundo, long intervaloMs) {
+        if (bytesPorSegundo < 1 || intervaloMs < 1) {
+            throw new IllegalArgumentException("Taxa e intervalo da compactação devem ser positivos");
+        }
+        this.nome = nome;
+        this.tarefa = tarefa;
+        this.bytesPorSegundo = bytesPorSegundo;
+        this.intervaloNanos = TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+        this.compactadora = new Thread(this::compactarEmLaco, "compactacao-" + nome);
+        compactadora.setDaemon(true);
+        compactadora.start();
+    }
+
+    //Antecipa a próxima verificação da thread de fundo
+    public void avisar() {
+        trava.lock();
+        try {
+            avisado = true;
+            acordar.signal();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    //Compacta agora tudo o que houver, sem limite de taxa, e devolve os bytes recuperados
+    public long compactar() {
+        long recuperados = 0;
+        while (true) {
+            Passo passo = executarPasso(true);
+            if (passo == null) {
+                return recuperados;
+            }
+            recuperados += passo.bytesRecuperados();
+        }
+    }
+
+    public Metricas getMetricas() {
+        return new Metricas(rodadas, passos, bytesProcessados, bytesRecuperados,
+                TimeUnit.NANOSECONDS.toMillis(tempoGastoNanos), tarefa.pendencia());
+    }
+
+    @Override
+    public void close() {
+        trava.lock();
+        try {
+            fechado = true;
+            acordar.signal();
+        } finally {
+            trava.unlock();
+        }
+        try {
+            compactadora.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido esperando a compactação de " + nome + " parar", e);
+        }
+    }
+
+    //A primeira verificação espera um intervalo, para não disputar a abertura de quem usa
+    private void compactarEmLaco() {
+        long inicioRodada = 0;
+        long processadosRodada = 0;
+        esperar(intervaloNanos, true);
+        while (!fechado) {
+            Passo passo;
+            try {
+                passo = executarPasso(false);
+            } catch (RuntimeException e) {
+                System.out.println("Falha na compactação de " + nome + ": " + e.getMessage());
+                passo = null;
+            }
+            long agora = System.nanoTime();
+            if (passo == null) {
+                processadosRodada = 0;
+                esperar(intervaloNanos, true);
+                continue;
+            }
+            if (processadosRodada == 0) {
+                inicioRodada = agora;
+            }
+            processadosRodada += passo.bytesProcessados();
+            //Dorme até o total processado na rodada caber na taxa
+            long devido = processadosRodada * 1_000_000_000L / bytesPorSegundo - (agora - inicioRodada);
+            if (devido > 0) {
+                esperar(devido, false);
+            }
+        }
+    }
+
+    private Passo executarPasso(boolean forcado) {
+        execucao.lock();
+        try {
+            long inicio = System.nanoTime();
+            Passo passo = tarefa.passo(forcado);
+            if (passo == null) {
+                if (emRodada) {
+                    emRodada = false;
+                    rodadas++;
+                }
+                return null;
+            }
+            emRodada = true;
+            passos++;
+            bytesProcessados += passo.bytesProcessados();
+            bytesRecuperados += passo.bytesRecuperados();
+            tempoGastoNanos += System.nanoTime() - inicio;
+            return passo;
+        } finally {
+            execucao.unlock();
+        }
+    }
+
+    //Um aviso só interrompe a espera entre rodadas, não a pausa do limite de taxa
+    private void esperar(long nanos, boolean atendeAviso) {
+        trava.lock();
+        try {
+            long restante = nanos;
+            while (restante > 0 && !fechado && !(atendeAviso && avisado)) {
+                restante = acordar.awaitNanos(restante);
+            }
+            if (atendeAviso) {
+                avisado = false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fechado = true;
+        } finally {
+            trava.unlock();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.br.infnet.repository.armazenamento;
+
+import com.br.infnet.repository.estruturas.MapaLongInt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//Cache limitado de páginas de tamanho fixo de um arquivo, lidas e gravadas com FileChannel (sem mapear o arquivo
+//inteiro): a memória usada é capacidade x tamanho da página, não importa o tamanho do arquivo.
+//Quem usa fixa a página, lê ou altera o buffer do quadro e a desafixa informando se a alterou. Páginas fixadas
+//nunca são despejadas; para as demais, o despejo é pelo algoritmo do relógio (clock), uma aproximação do LRU
+//que só custa um bit de referência por quadro. Páginas alteradas são gravadas ao serem despejadas ou em
+//descarregar().
+//Fixar e desafixar são sincronizados; o conteúdo de uma página fixada pode ser lido sem trava, mas alterações
+//devem ser coordenadas por quem usa.
+public class PoolPaginas implements Closeable {
+    public static final int TAMANHO_PAGINA_PADRAO = 4096;
+
+    private final Path arquivo;
+    private final FileChannel canal;
+    private final boolean novo;
+    private final int tamanhoPagina;
+    private final ByteBuffer[] quadros;
+    private final long[] paginaDoQuadro;
+    private final int[] fixacoes;
+    private final boolean[] referenciado;
+    private final boolean[] alterado;
+    //Página -> quadro das páginas presentes no pool
+    private final MapaLongInt quadroDaPagina;
+    private int ponteiroRelogio;
+    private int quadrosUsados;
+    private long quantidadePaginas;
+    private long acertos;
+    private long faltas;
+    private long leituras;
+    private long gravacoes;
+
+    public PoolPaginas(Path arquivo, int tamanhoPagina, int capacidade) throws IOException {
+        if (tamanhoPagina < 64 || capacidade < 1) {
+            throw new IllegalArgumentException("Tamanho de página e capacidade do pool devem ser positivos");
+        }
+        Files.createDirectories(arquivo.toAbsolutePath().getParent());
+        this.arquivo = arquivo;
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long tamanho = canal.size();
+        this.novo = tamanho == 0;
+        this.tamanhoPagina = tamanhoPagina;
+        this.quantidadePaginas = tamanho / tamanhoPagina;
+        this.quadros = new ByteBuffer[capacidade];
+        this.paginaDoQuadro = new long[capacidade];
+        this.fixacoes = new int[capacidade];
+        this.referenciado = new boolean[capacidade];
+        this.alterado = new boolean[capacidade];
+        this.quadroDaPagina = new MapaLongInt(capacidade);
+    }
+
+    //Verdadeiro quando o arquivo não existia (ou estava vazio) ao ser aberto
+    public boolean isNovo() {
+        return novo;
+    }
+
+    public int getTamanhoPagina() {
+        return tamanhoPagina;
+    }
+
+    public synchronized long quantidadePaginas() {
+        return quantidadePaginas;
+    }
+
+    //Fixa a página e devolve o quadro que a contém, lendo-a do disco se não estiver no pool
+    public synchronized int fixar(long pagina) {
+        if (pagina < 0 || pagina >= quantidadePaginas) {
+            throw new IllegalArgumentException("Página fora do arquivo: " + pagina);
+        }
+        int quadro = quadroDaPagina.get(pagina);
+        if (quadro != MapaLongInt.AUSENTE) {
+            acertos++;
+        } else {
+            faltas++;
+            quadro = liberarQuadro();
+            ler(pagina, quadros[quadro]);
+            ocupar(quadro, pagina);
+        }
+        fixacoes[quadro]++;
+        referenciado[quadro] = true;
+        return quadro;
+    }
+
+    //Acrescenta uma página zerada ao fim do arquivo e a devolve já fixada e marcada como alterada
+    public synchronized int alocar() {
+        long pagina = quantidadePaginas++;
+        int quadro = liberarQuadro();
+        ByteBuffer buffer = quadros[quadro];
+        Arrays.fill(buffer.array(), (byte) 0);
+        ocupar(quadro, pagina);
+        alterado[quadro] = true;
+        fixacoes[quadro] = 1;
+        referenciado[quadro] = true;
+        return quadro;
+    }
+
+    public ByteBuffer buffer(int quadro) {
+        return quadros[quadro];
+    }
+
+    public synchronized long pagina(int quadro) {
+        return paginaDoQuadro[quadro];
+    }
+
+    public synchronized void desafixar(int quadro, boolean alterou) {
+        if (fixacoes[quadro] == 0) {
+            throw new IllegalStateException("Página não estava fixada: " + paginaDoQuadro[quadro]);
+        }
+        fixacoes[quadro]--;
+        alterado[quadro] |= alterou;
+    }
+
+    //Grava as páginas alteradas e as leva ao disco
+    public synchronized void descarregar() {
+        for (int quadro = 0; quadro < quadrosUsados; quadro++) {
+            if (alterado[quadro]) {
+                gravar(quadro);
+            }
+        }
+        try {
+            canal.force(false);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao sincronizar " + arquivo + ": " + e.getMessage(), e);
+        }
+    }
+
+    //Esvazia o pool, gravando antes o que foi alterado; útil para medir leituras a frio
+    public synchronized void esvaziar() {
+        descarregar();
+        for (int quadro = 0; quadro < quadrosUsados; quadro++) {
+            if (fixacoes[quadro] > 0) {
+                throw new IllegalStateException("Não é possível esvaziar o pool com páginas fixadas");
+            }
+        }
+        for (int quadro = 0; quadro < quadrosUsados; quadro++) {
+            quadroDaPagina.remove(paginaDoQuadro[quadro]);
+            paginaDoQuadro[quadro] = -1;
+            referenciado[quadro] = false;
+        }
+    }
+
+    //Descarta as páginas do arquivo e do pool; exige que nenhuma esteja fixada
+    public synchronized void truncar() {
+        for (int quadro = 0; quadro < quadrosUsados; quadro++) {
+            if (fixacoes[quadro] > 0) {
+                throw new IllegalStateException("Não é possível truncar o pool com páginas fixadas");
+            }
+            if (paginaDoQuadro[quadro] >= 0) {
+                quadroDaPagina.remove(paginaDoQuadro[quadro]);
+            }
+            paginaDoQuadro[quadro] = -1;
+            referenciado[quadro] = false;
+            alterado[quadro] = false;
+        }
+        try {
+            canal.truncate(0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao truncar " + arquivo + ": " + e.getMessage(), e);
+        }
+        quantidadePaginas = 0;
+    }
+
+    public synchronized long getAcertos() {
+        return acertos;
+    }
+
+    public synchronized long getFaltas() {
+        return faltas;
+    }
+
+    public synchronized long getLeituras() {
+        return leituras;
+    }
+
+    public synchronized long getGravacoes() {
+        return gravacoes;
+    }
+
+    public long bytesEstimados() {
+        return (long) quadros.length * tamanhoPagina;
+    }
+
+    public Path getArquivo() {
+        return arquivo;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            descarregar();
+        } finally {
+            canal.close();
+        }
+    }
+
+    //Um quadro nunca usado, ou o primeiro que o relógio encontrar sem fixação e sem referência recente
+    private int liberarQuadro() {
+        if (quadrosUsados < quadros.length) {
+            quadros[quadrosUsados] = ByteBuffer.allocate(tamanhoPagina);
+            paginaDoQuadro[quadrosUsados] = -1;
+            return quadrosUsados++;
+        }
+        //Duas voltas bastam: a primeira limpa os bits de referência
+        for (int passo = 0; passo < quadros.length * 2; passo++) {
+            int quadro = ponteiroRelogio;
+            ponteiroRelogio = (ponteiroRelogio + 1) % quadros.length;
+            if (fixacoes[quadro] > 0) {
+                continue;
+            }
+            if (referenciado[quadro]) {
+                referenciado[quadro] = false;
+                continue;
+            }
+            if (paginaDoQuadro[quadro] >= 0) {
+                if (alterado[quadro]) {
+                    gravar(quadro);
+                }
+                quadroDaPagina.remove(paginaDoQuadro[quadro]);
+                paginaDoQuadro[quadro] = -1;
+            }
+            return quadro;
+        }
+        throw new IllegalStateException("Todas as " + quadros.length + " páginas do pool estão fixadas");
+    }
+
+    private void ocupar(int quadro, long pagina) {
+        paginaDoQuadro[quadro] = pagina;
+        quadroDaPagina.put(pagina, quadro);
+        alterado[quadro] = false;
+    }
+
+    private void ler(long pagina, ByteBuffer destino) {
+        destino.clear();
+        try {
+            long posicao = pagina * tamanhoPagina;
+            while (destino.hasRemaining()) {
+                //Uma página alocada e ainda não gravada termina além do fim do arquivo: o resto vem zerado
+                if (canal.read(destino, posicao + destino.position()) < 0) {
+                    Arrays.fill(destino.array(), destino.position(), tamanhoPagina, (byte) 0);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao ler a página " + pagina + " de " + arquivo + ": "
+                    + e.getMessage(), e);
+        }
+        leituras++;
+    }
+
+    private void gravar(int quadro) {
+        ByteBuffer origem = quadros[quadro].duplicate().clear();
+        long posicao = paginaDoQuadro[quadro] * tamanhoPagina;
+        try {
+            while (origem.hasRemaining()) {
+                canal.write(origem, posicao + origem.position());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao gravar a página " + paginaDoQuadro[quadro] + " de " + arquivo
+                    + ": " + e.getMessage(), e);
+        }
+        alterado[quadro] = false;
+        gravacoes++;
+    }
+}
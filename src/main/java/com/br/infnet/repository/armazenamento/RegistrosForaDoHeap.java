@@ -0,0 +1,289 @@
+package com.br.infnet.repository.armazenamento;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+//Registros de tamanho variável gravados em blocos de ByteBuffer direto (fora do heap), com um índice
+//id -> endereço também fora do heap. O coletor de lixo enxerga apenas alguns objetos por bloco,
+//independente da quantidade de registros.
+//Uma versão nova que cabe no lugar da atual (ex.: mudança de estado de empréstimo, que não muda o tamanho)
+//é regravada na mesma posição; as demais vão para o fim do bloco de escrita e a anterior fica obsoleta.
+//Cada bloco conta seus bytes vivos: um bloco sem nenhum registro vivo volta para a lista de livres e é
+//reaproveitado como próximo bloco de escrita, e os passos de passoCompactacao() esvaziam o bloco mais
+//fragmentado copiando os registros vivos para o bloco de escrita.
+//Não é thread-safe: quem usa deve sincronizar o acesso externamente.
+public class RegistrosForaDoHeap {
+    public static final int TAMANHO_BLOCO_PADRAO = 4 * 1024 * 1024;
+    private static final int CAPACIDADE_INICIAL_INDICE = 1024;
+    private static final long SEM_ENDERECO = 0;
+    private static final int SEM_BLOCO = -1;
+    private static final int IDS_POR_PASSO = 16 * 1024;
+    private static final double FRACAO_OBSOLETOS = 0.25;
+
+    @FunctionalInterface
+    public interface LeitorRegistro<T> {
+        T ler(ByteBuffer bloco, int posicao);
+    }
+
+    @FunctionalInterface
+    public interface MedidorRegistro {
+        int tamanho(ByteBuffer bloco, int posicao);
+    }
+
+    private final int tamanhoBloco;
+    private final MedidorRegistro medidor;
+    private final List<ByteBuffer> blocos = new ArrayList<>();
+    //Bytes de registros vivos em cada bloco
+    private int[] vivosPorBloco = new int[8];
+    private final Deque<Integer> blocosLivres = new ArrayDeque<>();
+    private int blocoEscrita = SEM_BLOCO;
+    private int posicaoEscrita;
+    //Endereço de cada id: (número do bloco + 1) nos 32 bits altos e posição no bloco nos baixos; 0 = ausente
+    private ByteBuffer indice;
+    private int fimIds;
+    private int quantidade;
+    private long bytesVivos;
+    private long bytesObsoletos;
+    private long bytesReciclados;
+    //Evacuação em andamento: bloco de origem e próximo id do índice a conferir
+    private int blocoEvacuado = SEM_BLOCO;
+    private int cursorEvacuacao;
+
+    public RegistrosForaDoHeap(MedidorRegistro medidor) {
+        this(TAMANHO_BLOCO_PADRAO, medidor);
+    }
+
+    public RegistrosForaDoHeap(int tamanhoBloco, MedidorRegistro medidor) {
+        this.tamanhoBloco = tamanhoBloco;
+        this.medidor = medidor;
+        this.indice = ByteBuffer.allocateDirect(CAPACIDADE_INICIAL_INDICE * Long.BYTES);
+        this.posicaoEscrita = tamanhoBloco;
+    }
+
+    public void gravar(int id, byte[] registro) {
+        if (id < 0) {
+            throw new IllegalArgumentException("ID inválido");
+        }
+        if (registro.length > tamanhoBloco) {
+            throw new IllegalArgumentException("Registro maior que o bloco de armazenamento");
+        }
+        long anterior = endereco(id);
+        if (anterior != SEM_ENDERECO) {
+            int bloco = numeroBloco(anterior);
+            int tamanhoAnterior = medidor.tamanho(blocos.get(bloco), (int) anterior);
+            if (registro.length <= tamanhoAnterior) {
+                blocos.get(bloco).put((int) anterior, registro);
+                liberar(bloco, tamanhoAnterior - registro.length);
+                bytesVivos -= tamanhoAnterior - registro.length;
+                return;
+            }
+        }
+        long novo = acrescentar(registro, 0, registro.length, null);
+        garantirCapacidadeIndice(id);
+        indice.putLong(id * Long.BYTES, novo);
+        if (anterior != SEM_ENDERECO) {
+            descartar(anterior);
+        } else {
+            quantidade++;
+            fimIds = Math.max(fimIds, id + 1);
+        }
+        bytesVivos += registro.length;
+    }
+
+    public boolean remover(int id) {
+        long anterior = endereco(id);
+        if (anterior == SEM_ENDERECO) {
+            return false;
+        }
+        indice.putLong(id * Long.BYTES, SEM_ENDERECO);
+        descartar(anterior);
+        quantidade--;
+        return true;
+    }
+
+    public boolean contem(int id) {
+        return endereco(id) != SEM_ENDERECO;
+    }
+
+    //Retorna null quando o id não existe
+    public <T> T ler(int id, LeitorRegistro<T> leitor) {
+        long endereco = endereco(id);
+        if (endereco == SEM_ENDERECO) {
+            return null;
+        }
+        return leitor.ler(blocos.get(numeroBloco(endereco)), (int) endereco);
+    }
+
+    //Um passo curto da compactação, para o CompactadorFundo: escolhe o bloco selado com menos bytes vivos (só se
+    //pelo menos metade dele estiver obsoleta) e copia para o bloco de escrita os registros vivos de até
+    //IDS_POR_PASSO ids do índice; quando o bloco fica vazio, ele volta para a lista de livres.
+    //Sem forçar, só começa quando os obsoletos passam de um bloco e de FRACAO_OBSOLETOS do espaço ocupado.
+    //Devolve null quando não há bloco que compense.
+    public CompactadorFundo.Passo passoCompactacao(boolean forcado) {
+        if (blocoEvacuado == SEM_BLOCO) {
+            if (!forcado && (bytesObsoletos < tamanhoBloco
+                    || bytesObsoletos < (bytesVivos + bytesObsoletos) * FRACAO_OBSOLETOS)) {
+                return null;
+            }
+            blocoEvacuado = blocoMenosOcupado();
+            cursorEvacuacao = 0;
+            if (blocoEvacuado == SEM_BLOCO) {
+                return null;
+            }
+        }
+        int alvo = blocoEvacuado;
+        long recicladosAntes = bytesReciclados;
+        long copiados = 0;
+        int fim = (int) Math.min(fimIds, (long) cursorEvacuacao + IDS_POR_PASSO);
+        int inicio = cursorEvacuacao;
+        for (int id = inicio; id < fim && blocoEvacuado == alvo; id++) {
+            long endereco = endereco(id);
+            if (endereco != SEM_ENDERECO && numeroBloco(endereco) == alvo) {
+                ByteBuffer origem = blocos.get(alvo);
+                int tamanho = medidor.tamanho(origem, (int) endereco);
+                indice.putLong(id * Long.BYTES, acrescentar(null, (int) endereco, tamanho, origem));
+                liberar(alvo, tamanho);
+                copiados += tamanho;
+            }
+        }
+        cursorEvacuacao = fim;
+        //Sem ids além do cursor, o bloco já está vazio (reciclar() encerra a evacuação)
+        if (blocoEvacuado == alvo && cursorEvacuacao >= fimIds) {
+            blocoEvacuado = SEM_BLOCO;
+        }
+        return new CompactadorFundo.Passo((long) (fim - inicio) * Long.BYTES + copiados,
+                bytesReciclados - recicladosAntes);
+    }
+
+    //Maior id já gravado + 1: limite das varreduras por id
+    public int fimIds() {
+        return fimIds;
+    }
+
+    public int quantidade() {
+        return quantidade;
+    }
+
+    //Memória direta reservada: blocos alocados (inclusive os livres, que são reaproveitados) mais o índice
+    public long bytesReservados() {
+        return (long) blocos.size() * tamanhoBloco + indice.capacity();
+    }
+
+    public long bytesVivos() {
+        return bytesVivos;
+    }
+
+    //Bytes de versões substituídas ou removidas em blocos ainda ocupados; blocos livres não entram na conta
+    public long bytesObsoletos() {
+        return bytesObsoletos;
+    }
+
+    public int blocosLivres() {
+        return blocosLivres.size();
+    }
+
+    private int blocoMenosOcupado() {
+        int alvo = SEM_BLOCO;
+        for (int bloco = 0; bloco < blocos.size(); bloco++) {
+            if (bloco != blocoEscrita && !blocosLivres.contains(bloco)
+                    && (alvo == SEM_BLOCO || vivosPorBloco[bloco] < vivosPorBloco[alvo])) {
+                alvo = bloco;
+            }
+        }
+        return alvo == SEM_BLOCO || vivosPorBloco[alvo] > tamanhoBloco / 2 ? SEM_BLOCO : alvo;
+    }
+
+    //Copia o registro (do array ou de outro bloco) para o fim do bloco de escrita e devolve o novo endereço
+    private long acrescentar(byte[] registro, int inicio, int tamanho, ByteBuffer origem) {
+        if (posicaoEscrita + tamanho > tamanhoBloco) {
+            trocarBlocoEscrita();
+        }
+        ByteBuffer bloco = blocos.get(blocoEscrita);
+        if (registro != null) {
+            bloco.put(posicaoEscrita, registro, inicio, tamanho);
+        } else {
+            bloco.put(posicaoEscrita, origem, inicio, tamanho);
+        }
+        long endereco = ((long) (blocoEscrita + 1) << 32) | posicaoEscrita;
+        posicaoEscrita += tamanho;
+        vivosPorBloco[blocoEscrita] += tamanho;
+        return endereco;
+    }
+
+    //O fim não usado do bloco selado passa a contar como obsoleto
+    private void trocarBlocoEscrita() {
+        int anterior = blocoEscrita;
+        if (anterior != SEM_BLOCO) {
+            bytesObsoletos += tamanhoBloco - posicaoEscrita;
+            blocoEscrita = SEM_BLOCO;
+            if (vivosPorBloco[anterior] == 0) {
+                reciclar(anterior);
+            }
+        }
+        Integer livre = blocosLivres.poll();
+        if (livre != null) {
+            blocoEscrita = livre;
+        } else {
+            blocos.add(ByteBuffer.allocateDirect(tamanhoBloco));
+            blocoEscrita = blocos.size() - 1;
+            if (blocoEscrita == vivosPorBloco.length) {
+                vivosPorBloco = Arrays.copyOf(vivosPorBloco, vivosPorBloco.length * 2);
+            }
+        }
+        posicaoEscrita = 0;
+    }
+
+    //A versão no endereço deixou de ser a atual de algum id
+    private void descartar(long endereco) {
+        int bloco = numeroBloco(endereco);
+        int tamanho = medidor.tamanho(blocos.get(bloco), (int) endereco);
+        liberar(bloco, tamanho);
+        bytesVivos -= tamanho;
+    }
+
+    private void liberar(int bloco, int tamanho) {
+        vivosPorBloco[bloco] -= tamanho;
+        bytesObsoletos += tamanho;
+        if (vivosPorBloco[bloco] == 0 && bloco != blocoEscrita) {
+            reciclar(bloco);
+        }
+    }
+
+    //Um bloco selado sem registros vivos é todo obsoleto; ao voltar para a lista de livres, sai da conta
+    private void reciclar(int bloco) {
+        bytesObsoletos -= tamanhoBloco;
+        bytesReciclados += tamanhoBloco;
+        blocosLivres.push(bloco);
+        if (bloco == blocoEvacuado) {
+            blocoEvacuado = SEM_BLOCO;
+        }
+    }
+
+    private static int numeroBloco(long endereco) {
+        return (int) (endereco >>> 32) - 1;
+    }
+
+    private long endereco(int id) {
+        if (id < 0 || id >= fimIds) {
+            return SEM_ENDERECO;
+        }
+        return indice.getLong(id * Long.BYTES);
+    }
+
+    private void garantirCapacidadeIndice(int id) {
+        long necessario = (id + 1L) * Long.BYTES;
+        if (necessario > indice.capacity()) {
+            long novaCapacidade = Math.max(necessario, indice.capacity() * 2L);
+            if (novaCapacidade > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Índice fora do heap excedeu a capacidade máxima");
+            }
+            ByteBuffer novo = ByteBuffer.allocateDirect((int) novaCapacidade);
+            novo.put(0, indice, 0, indice.capacity());
+            indice = novo;
+        }
+    }
+}
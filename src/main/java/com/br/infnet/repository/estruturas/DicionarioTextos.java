@@ -0,0 +1,131 @@
+package com.br.infnet.repository.estruturas;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Dicionário concorrente de textos canônicos: textos iguais passam a compartilhar uma única instância, e cada
+//instância canônica recebe um código int. As entradas são referências fracas, então um texto que nenhum objeto
+//usa mais é coletado e sai do dicionário; o código só é estável enquanto alguém segura a instância canônica.
+//Códigos nunca são reaproveitados: um texto coletado e visto de novo recebe um código novo.
+public class DicionarioTextos {
+    public static final int AUSENTE = -1;
+
+    //Chave e valor do mapa: referência fraca ao texto canônico com o hash guardado, já que o texto pode sumir
+    private static final class Entrada extends WeakReference<String> {
+        final int hash;
+        final int codigo;
+
+        Entrada(String texto, int codigo, ReferenceQueue<String> fila) {
+            super(texto, fila);
+            this.hash = texto.hashCode();
+            this.codigo = codigo;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        //Entradas coletadas só são iguais a si mesmas, o que permite removê-las pela fila
+        @Override
+        public boolean equals(Object outro) {
+            if (this == outro) {
+                return true;
+            }
+            if (!(outro instanceof Entrada entrada) || entrada.hash != hash) {
+                return false;
+            }
+            String texto = get();
+            return texto != null && texto.equals(entrada.get());
+        }
+    }
+
+    //Chave de consulta, sem criar uma referência fraca por busca; o mapa compara consulta.equals(entrada)
+    private record Consulta(String texto) {
+        @Override
+        public int hashCode() {
+            return texto.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object outro) {
+            return outro instanceof Entrada entrada && entrada.hash == texto.hashCode()
+                    && texto.equals(entrada.get());
+        }
+    }
+
+    private final ConcurrentHashMap<Object, Entrada> entradas = new ConcurrentHashMap<>();
+    private final ReferenceQueue<String> coletadas = new ReferenceQueue<>();
+    private final AtomicInteger proximoCodigo = new AtomicInteger();
+
+    //Instância canônica do texto; null continua null
+    public String canonizar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        return entradaDe(texto).texto;
+    }
+
+    //Código da instância canônica do texto, cadastrando-o se preciso
+    public int codigo(String texto) {
+        if (texto == null) {
+            throw new IllegalArgumentException("Texto nulo não tem código");
+        }
+        return entradaDe(texto).codigo;
+    }
+
+    //Código de um texto já cadastrado, sem cadastrá-lo; AUSENTE quando não está no dicionário
+    public int codigoExistente(String texto) {
+        if (texto == null) {
+            return AUSENTE;
+        }
+        Entrada entrada = entradas.get(new Consulta(texto));
+        return entrada != null && entrada.get() != null ? entrada.codigo : AUSENTE;
+    }
+
+    //Textos ainda no dicionário (inclui entradas coletadas que a fila ainda não limpou)
+    public int tamanho() {
+        limparColetadas();
+        return entradas.size();
+    }
+
+    //Maior código já entregue + 1, para quem indexa arrays ou BitSets pelo código
+    public int limiteCodigos() {
+        return proximoCodigo.get();
+    }
+
+    private record Canonico(String texto, int codigo) {
+    }
+
+    private Canonico entradaDe(String texto) {
+        limparColetadas();
+        Consulta consulta = new Consulta(texto);
+        while (true) {
+            Entrada existente = entradas.get(consulta);
+            if (existente != null) {
+                String canonico = existente.get();
+                if (canonico != null) {
+                    return new Canonico(canonico, existente.codigo);
+                }
+                //Coletada entre a busca e o get(): remove e tenta de novo
+                entradas.remove(existente, existente);
+                continue;
+            }
+            Entrada nova = new Entrada(texto, proximoCodigo.getAndIncrement(), coletadas);
+            if (entradas.putIfAbsent(nova, nova) == null) {
+                return new Canonico(texto, nova.codigo);
+            }
+            //Outra thread cadastrou o mesmo texto primeiro; o código reservado fica sem uso
+        }
+    }
+
+    private void limparColetadas() {
+        Reference<? extends String> coletada;
+        while ((coletada = coletadas.poll()) != null) {
+            entradas.remove(coletada, coletada);
+        }
+    }
+}
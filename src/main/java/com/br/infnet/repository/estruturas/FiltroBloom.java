@@ -0,0 +1,88 @@
+package com.br.infnet.repository.estruturas;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+//Filtro de Bloom sobre chaves long (ids e ISBNs numéricos): responde "talvez contenha" ou "certamente não contém".
+//Com 10 bits por chave e 7 funções de espalhamento, a taxa de falsos positivos fica perto de 1%.
+//As posições vêm de espalhamento duplo (h1 + i * h2) sobre uma única mistura de 64 bits da chave.
+//Não é thread-safe para escrita; depois de preenchido pode ser consultado em paralelo.
+public class FiltroBloom {
+    public static final int BITS_POR_CHAVE_PADRAO = 10;
+    private static final int FUNCOES_PADRAO = 7;
+
+    private final long[] bits;
+    private final int funcoes;
+
+    public FiltroBloom(int chavesEsperadas) {
+        this(chavesEsperadas, BITS_POR_CHAVE_PADRAO, FUNCOES_PADRAO);
+    }
+
+    public FiltroBloom(int chavesEsperadas, int bitsPorChave, int funcoes) {
+        if (bitsPorChave < 1 || funcoes < 1) {
+            throw new IllegalArgumentException("Bits por chave e funções devem ser positivos");
+        }
+        long totalBits = Math.max(64L, (long) Math.max(chavesEsperadas, 1) * bitsPorChave);
+        this.bits = new long[(int) ((totalBits + 63) / 64)];
+        this.funcoes = funcoes;
+    }
+
+    private FiltroBloom(long[] bits, int funcoes) {
+        this.bits = bits;
+        this.funcoes = funcoes;
+    }
+
+    public void adicionar(long chave) {
+        long h = misturar(chave);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        long totalBits = (long) bits.length * 64;
+        for (int i = 0; i < funcoes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % totalBits;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean talvezContenha(long chave) {
+        long h = misturar(chave);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        long totalBits = (long) bits.length * 64;
+        for (int i = 0; i < funcoes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % totalBits;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bytesEstimados() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    //Formato: [funções int][quantidade de longs int][longs...]
+    public void gravar(DataOutputStream saida) throws IOException {
+        saida.writeInt(funcoes);
+        saida.writeInt(bits.length);
+        for (long palavra : bits) {
+            saida.writeLong(palavra);
+        }
+    }
+
+    public static FiltroBloom ler(ByteBuffer buffer, int posicao) {
+        int funcoes = buffer.getInt(posicao);
+        long[] bits = new long[buffer.getInt(posicao + 4)];
+        buffer.slice(posicao + 8, bits.length * Long.BYTES).asLongBuffer().get(bits);
+        return new FiltroBloom(bits, funcoes);
+    }
+
+    //Finalizador do SplitMix64: espalha bem até chaves sequenciais como ids
+    private static long misturar(long chave) {
+        long z = chave + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
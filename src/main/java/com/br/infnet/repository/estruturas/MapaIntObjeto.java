@@ -0,0 +1,290 @@
+package com.br.infnet.repository.estruturas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+//Mapa int -> objeto com endereçamento aberto (sondagem linear) e chaves primitivas, sem Integer nem nós por entrada.
+//Dividido em segmentos com StampedLock: leituras otimistas não bloqueiam e escritas só travam o próprio segmento.
+//Valores nulos não são aceitos.
+public class MapaIntObjeto<V> {
+    private static final int SEGMENTOS_PADRAO = 64;
+    private static final int CAPACIDADE_INICIAL_SEGMENTO = 16;
+    private static final float FATOR_CARGA = 0.7f;
+
+    private final Segmento<V>[] segmentos;
+    private final int mascaraSegmentos;
+    private final int bitsSegmentos;
+
+    public MapaIntObjeto() {
+        this(SEGMENTOS_PADRAO);
+    }
+
+    @SuppressWarnings("unchecked")
+    public MapaIntObjeto(int quantidadeSegmentos) {
+        int potencia = quantidadeSegmentos <= 1 ? 1 : Integer.highestOneBit(quantidadeSegmentos - 1) << 1;
+        this.segmentos = (Segmento<V>[]) new Segmento<?>[potencia];
+        this.mascaraSegmentos = potencia - 1;
+        this.bitsSegmentos = Integer.numberOfTrailingZeros(potencia);
+        for (int i = 0; i < potencia; i++) {
+            segmentos[i] = new Segmento<>(bitsSegmentos);
+        }
+    }
+
+    public V get(int chave) {
+        int hash = espalhar(chave);
+        return segmentos[hash & mascaraSegmentos].get(chave, hash >>> bitsSegmentos);
+    }
+
+    public boolean containsKey(int chave) {
+        return get(chave) != null;
+    }
+
+    public V put(int chave, V valor) {
+        exigirValor(valor);
+        int hash = espalhar(chave);
+        return segmentos[hash & mascaraSegmentos].put(chave, hash >>> bitsSegmentos, valor, false);
+    }
+
+    public V putIfAbsent(int chave, V valor) {
+        exigirValor(valor);
+        int hash = espalhar(chave);
+        return segmentos[hash & mascaraSegmentos].put(chave, hash >>> bitsSegmentos, valor, true);
+    }
+
+    public V remove(int chave) {
+        int hash = espalhar(chave);
+        return segmentos[hash & mascaraSegmentos].remover(chave, hash >>> bitsSegmentos, null);
+    }
+
+    //Remove atomicamente apenas se o valor atual atender à condição
+    public boolean removerSe(int chave, Predicate<V> condicao) {
+        int hash = espalhar(chave);
+        return segmentos[hash & mascaraSegmentos].remover(chave, hash >>> bitsSegmentos, condicao) != null;
+    }
+
+    public int size() {
+        int total = 0;
+        for (Segmento<V> segmento : segmentos) {
+            total += segmento.tamanho();
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    //Iteração fracamente consistente: cada segmento é copiado sob leitura e entregue fora da trava,
+    //então a ação pode escrever no próprio mapa sem deadlock
+    public void paraCadaValor(Consumer<V> acao) {
+        for (Segmento<V> segmento : segmentos) {
+            for (Object valor : segmento.copiarValores()) {
+                @SuppressWarnings("unchecked")
+                V tipado = (V) valor;
+                acao.accept(tipado);
+            }
+        }
+    }
+
+    public List<V> valores() {
+        List<V> lista = new ArrayList<>(size());
+        paraCadaValor(lista::add);
+        return lista;
+    }
+
+    //Bytes ocupados pelos arrays de chaves e valores (referências de 4 bytes, com compressed oops)
+    public long bytesEstimados() {
+        long total = 0;
+        for (Segmento<V> segmento : segmentos) {
+            total += segmento.capacidade() * 8L + 32;
+        }
+        return total;
+    }
+
+    private static int espalhar(int chave) {
+        int h = chave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static void exigirValor(Object valor) {
+        if (valor == null) {
+            throw new IllegalArgumentException("Valor não pode ser nulo");
+        }
+    }
+
+    private static final class Segmento<V> {
+        private final StampedLock trava = new StampedLock();
+        private final int bitsSegmentos;
+        private int[] chaves = new int[CAPACIDADE_INICIAL_SEGMENTO];
+        private Object[] valores = new Object[CAPACIDADE_INICIAL_SEGMENTO];
+        private int tamanho;
+
+        Segmento(int bitsSegmentos) {
+            this.bitsSegmentos = bitsSegmentos;
+        }
+
+        //Bits do hash que sobram depois da escolha do segmento
+        private int hashLocal(int chave) {
+            return espalhar(chave) >>> bitsSegmentos;
+        }
+
+        V get(int chave, int hash) {
+            long carimbo = trava.tryOptimisticRead();
+            V valor = procurar(chave, hash);
+            if (!trava.validate(carimbo)) {
+                carimbo = trava.readLock();
+                try {
+                    valor = procurar(chave, hash);
+                } finally {
+                    trava.unlockRead(carimbo);
+                }
+            }
+            return valor;
+        }
+
+        //Tolera estado inconsistente durante leitura otimista: limita índices e número de sondagens
+        @SuppressWarnings("unchecked")
+        private V procurar(int chave, int hash) {
+            int[] ch = chaves;
+            Object[] vs = valores;
+            int capacidade = Math.min(ch.length, vs.length);
+            int mascara = capacidade - 1;
+            int posicao = hash & mascara;
+            for (int sondagens = 0; sondagens < capacidade; sondagens++) {
+                Object valor = vs[posicao];
+                if (valor == null) {
+                    return null;
+                }
+                if (ch[posicao] == chave) {
+                    return (V) valor;
+                }
+                posicao = (posicao + 1) & mascara;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(int chave, int hash, V valor, boolean somenteSeAusente) {
+            long carimbo = trava.writeLock();
+            try {
+                if (tamanho + 1 > valores.length * FATOR_CARGA) {
+                    redimensionar(valores.length * 2);
+                }
+                int mascara = valores.length - 1;
+                int posicao = hash & mascara;
+                while (valores[posicao] != null) {
+                    if (chaves[posicao] == chave) {
+                        V anterior = (V) valores[posicao];
+                        if (!somenteSeAusente) {
+                            valores[posicao] = valor;
+                        }
+                        return anterior;
+                    }
+                    posicao = (posicao + 1) & mascara;
+                }
+                chaves[posicao] = chave;
+                valores[posicao] = valor;
+                tamanho++;
+                return null;
+            } finally {
+                trava.unlockWrite(carimbo);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remover(int chave, int hash, Predicate<V> condicao) {
+            long carimbo = trava.writeLock();
+            try {
+                int mascara = valores.length - 1;
+                int posicao = hash & mascara;
+                while (valores[posicao] != null) {
+                    if (chaves[posicao] == chave) {
+                        V anterior = (V) valores[posicao];
+                        if (condicao != null && !condicao.test(anterior)) {
+                            return null;
+                        }
+                        deslocarParaTras(posicao, mascara);
+                        tamanho--;
+                        return anterior;
+                    }
+                    posicao = (posicao + 1) & mascara;
+                }
+                return null;
+            } finally {
+                trava.unlockWrite(carimbo);
+            }
+        }
+
+        //Remoção sem lápides: puxa para trás as entradas seguintes da mesma sequência de sondagem
+        private void deslocarParaTras(int livre, int mascara) {
+            int atual = (livre + 1) & mascara;
+            while (valores[atual] != null) {
+                int ideal = hashLocal(chaves[atual]) & mascara;
+                if (((atual - ideal) & mascara) >= ((atual - livre) & mascara)) {
+                    chaves[livre] = chaves[atual];
+                    valores[livre] = valores[atual];
+                    livre = atual;
+                }
+                atual = (atual + 1) & mascara;
+            }
+            valores[livre] = null;
+        }
+
+        private void redimensionar(int novaCapacidade) {
+            int[] chavesAntigas = chaves;
+            Object[] valoresAntigos = valores;
+            int[] novasChaves = new int[novaCapacidade];
+            Object[] novosValores = new Object[novaCapacidade];
+            int mascara = novaCapacidade - 1;
+            for (int i = 0; i < valoresAntigos.length; i++) {
+                if (valoresAntigos[i] != null) {
+                    int posicao = hashLocal(chavesAntigas[i]) & mascara;
+                    while (novosValores[posicao] != null) {
+                        posicao = (posicao + 1) & mascara;
+                    }
+                    novasChaves[posicao] = chavesAntigas[i];
+                    novosValores[posicao] = valoresAntigos[i];
+                }
+            }
+            chaves = novasChaves;
+            valores = novosValores;
+        }
+
+        Object[] copiarValores() {
+            long carimbo = trava.readLock();
+            try {
+                Object[] copia = new Object[tamanho];
+                int i = 0;
+                for (Object valor : valores) {
+                    if (valor != null) {
+                        copia[i++] = valor;
+                    }
+                }
+                return copia;
+            } finally {
+                trava.unlockRead(carimbo);
+            }
+        }
+
+        int tamanho() {
+            long carimbo = trava.tryOptimisticRead();
+            int atual = tamanho;
+            if (!trava.validate(carimbo)) {
+                carimbo = trava.readLock();
+                try {
+                    atual = tamanho;
+                } finally {
+                    trava.unlockRead(carimbo);
+                }
+            }
+            return atual;
+        }
+
+        int capacidade() {
+            return valores.length;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.br.infnet.repository.estruturas;
+
+import java.util.Arrays;
+
+//Mapa long -> int com endereçamento aberto e arrays primitivos (ex.: ISBN numérico -> id).
+//Não é thread-safe: quem usa deve sincronizar o acesso externamente.
+public class MapaLongInt {
+    public static final int AUSENTE = Integer.MIN_VALUE;
+    private static final int CAPACIDADE_INICIAL = 16;
+    private static final float FATOR_CARGA = 0.7f;
+
+    private long[] chaves;
+    //Posições vazias guardam AUSENTE, então o valor AUSENTE não pode ser armazenado
+    private int[] valores;
+    private int tamanho;
+
+    public MapaLongInt() {
+        this(CAPACIDADE_INICIAL);
+    }
+
+    public MapaLongInt(int capacidadeEsperada) {
+        int capacidade = Integer.highestOneBit(Math.max(CAPACIDADE_INICIAL, (int) (capacidadeEsperada / FATOR_CARGA)) - 1) << 1;
+        this.chaves = new long[capacidade];
+        this.valores = new int[capacidade];
+        Arrays.fill(valores, AUSENTE);
+    }
+
+    public int get(long chave) {
+        int mascara = chaves.length - 1;
+        for (int i = espalhar(chave) & mascara; valores[i] != AUSENTE; i = (i + 1) & mascara) {
+            if (chaves[i] == chave) {
+                return valores[i];
+            }
+        }
+        return AUSENTE;
+    }
+
+    public boolean containsKey(long chave) {
+        return get(chave) != AUSENTE;
+    }
+
+    //Retorna o valor anterior, ou AUSENTE
+    public int put(long chave, int valor) {
+        if (valor == AUSENTE) {
+            throw new IllegalArgumentException("Valor reservado não pode ser armazenado");
+        }
+        int mascara = chaves.length - 1;
+        int i = espalhar(chave) & mascara;
+        while (valores[i] != AUSENTE) {
+            if (chaves[i] == chave) {
+                int anterior = valores[i];
+                valores[i] = valor;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        chaves[i] = chave;
+        valores[i] = valor;
+        if (++tamanho > chaves.length * FATOR_CARGA) {
+            redimensionar();
+        }
+        return AUSENTE;
+    }
+
+    //Retorna o valor removido, ou AUSENTE
+    public int remove(long chave) {
+        int mascara = chaves.length - 1;
+        int i = espalhar(chave) & mascara;
+        while (valores[i] != AUSENTE) {
+            if (chaves[i] == chave) {
+                int removido = valores[i];
+                apagar(i);
+                tamanho--;
+                return removido;
+            }
+            i = (i + 1) & mascara;
+        }
+        return AUSENTE;
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    public long bytesEstimados() {
+        return 16L + chaves.length * 8L + 16L + valores.length * 4L;
+    }
+
+    //Remoção com deslocamento para trás, sem lápides: as entradas seguintes do cluster voltam para perto do início
+    private void apagar(int posicao) {
+        int mascara = chaves.length - 1;
+        int vazia = posicao;
+        int i = (posicao + 1) & mascara;
+        while (valores[i] != AUSENTE) {
+            int ideal = espalhar(chaves[i]) & mascara;
+            if (((i - ideal) & mascara) >= ((i - vazia) & mascara)) {
+                chaves[vazia] = chaves[i];
+                valores[vazia] = valores[i];
+                vazia = i;
+            }
+            i = (i + 1) & mascara;
+        }
+        valores[vazia] = AUSENTE;
+    }
+
+    private void redimensionar() {
+        long[] chavesAntigas = chaves;
+        int[] valoresAntigos = valores;
+        chaves = new long[chavesAntigas.length * 2];
+        valores = new int[valoresAntigos.length * 2];
+        Arrays.fill(valores, AUSENTE);
+        int mascara = chaves.length - 1;
+        for (int j = 0; j < chavesAntigas.length; j++) {
+            if (valoresAntigos[j] != AUSENTE) {
+                int i = espalhar(chavesAntigas[j]) & mascara;
+                while (valores[i] != AUSENTE) {
+                    i = (i + 1) & mascara;
+                }
+                chaves[i] = chavesAntigas[j];
+                valores[i] = valoresAntigos[j];
+            }
+        }
+    }
+
+    private static int espalhar(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
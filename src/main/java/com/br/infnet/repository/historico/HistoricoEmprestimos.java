@@ -0,0 +1,312 @@
+package com.br.infnet.repository.historico;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.repository.armazenamento.CodificadorEmprestimo;
+import com.br.infnet.repository.persistencia.LogEscritaAntecipada;
+import com.br.infnet.repository.persistencia.PoliticaDurabilidade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+//Histórico de empréstimos concluídos, fora das estruturas de empréstimos ativos: um segmento só-acréscimo por
+//mês da devolução (AAAA-MM.hist), com blocos compactados. Cada empréstimo arquivado vai primeiro para um log
+//de pendentes (durável segundo a PoliticaDurabilidade) e para a memória; quando os pendentes completam um
+//bloco, eles são gravados nos segmentos dos seus meses e o log é esvaziado. Na abertura, o log é reproduzido;
+//pendentes que já estão no último bloco do seu mês (queda entre gravar o bloco e esvaziar o log) são ignorados,
+//comparando id, livro e data do empréstimo.
+//Consultas por período abrem só os meses do intervalo; consultas por livro usam o filtro de Bloom de cada
+//bloco. Os resultados vêm em ordem de devolução e, no mesmo dia, de id.
+public class HistoricoEmprestimos implements Closeable {
+    public static final int TAMANHO_BLOCO_PADRAO = 1024;
+    public static final String ARQUIVO_PENDENTES = "pendentes.wal";
+    private static final String EXTENSAO_SEGMENTO = ".hist";
+    private static final Comparator<Emprestimo> ORDEM = Comparator
+            .comparing(Emprestimo::getDataEfetivaDevolucao)
+            .thenComparingInt(Emprestimo::getId);
+
+    private final Path diretorio;
+    private final int tamanhoBloco;
+    private final LogEscritaAntecipada log;
+    //Protege segmentos, pendentes e a ordem entre o log de pendentes e os blocos
+    private final ReentrantLock trava = new ReentrantLock();
+    private final TreeMap<Integer, SegmentoHistorico> segmentos = new TreeMap<>();
+    private final List<Emprestimo> pendentes = new ArrayList<>();
+    private boolean fechado;
+
+    private final AtomicLong blocosLidos = new AtomicLong();
+    private final AtomicLong blocosPulados = new AtomicLong();
+
+    public static HistoricoEmprestimos abrir(Path diretorio, PoliticaDurabilidade politica) throws IOException {
+        return new HistoricoEmprestimos(diretorio, politica, TAMANHO_BLOCO_PADRAO);
+    }
+
+    public HistoricoEmprestimos(Path diretorio, PoliticaDurabilidade politica, int tamanhoBloco) throws IOException {
+        if (tamanhoBloco < 1) {
+            throw new IllegalArgumentException("Tamanho do bloco deve ser positivo");
+        }
+        this.diretorio = diretorio;
+        this.tamanhoBloco = tamanhoBloco;
+        Files.createDirectories(diretorio);
+        long inicio = System.nanoTime();
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            for (Path arquivo : arquivos.filter(a -> a.getFileName().toString().endsWith(EXTENSAO_SEGMENTO)).toList()) {
+                String nome = arquivo.getFileName().toString();
+                YearMonth mes = YearMonth.parse(nome.substring(0, nome.length() - EXTENSAO_SEGMENTO.length()));
+                int chave = chaveDoMes(mes.getYear(), mes.getMonthValue());
+                segmentos.put(chave, new SegmentoHistorico(arquivo, chave));
+            }
+        }
+        this.log = new LogEscritaAntecipada(diretorio.resolve(ARQUIVO_PENDENTES), politica);
+        Map<Integer, Set<SegmentoHistorico.Chave>> jaGravados = new HashMap<>();
+        try {
+            log.reproduzir(registro -> {
+                Emprestimo emprestimo = CodificadorEmprestimo.decodificar(registro, 0);
+                SegmentoHistorico segmento = segmentos.get(chaveDoMes(emprestimo.getDataEfetivaDevolucao()));
+                Set<SegmentoHistorico.Chave> chaves = segmento == null ? Set.of()
+                        : jaGravados.computeIfAbsent(segmento.getMes(), mes -> lerChavesDoUltimoBloco(segmento));
+                if (!chaves.contains(SegmentoHistorico.Chave.de(emprestimo))) {
+                    pendentes.add(emprestimo);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            fecharSegmentos();
+            log.close();
+            throw e;
+        }
+        long blocos = segmentos.values().stream().mapToLong(segmento -> segmento.copiarBlocos().size()).sum();
+        System.out.printf("Histórico de empréstimos aberto: %d meses, %d blocos e %d pendentes em %d ms%n",
+                segmentos.size(), blocos, pendentes.size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    //Arquiva um empréstimo concluído. Só retorna depois que o registro está durável no log de pendentes.
+    public void arquivar(Emprestimo emprestimo) {
+        if (emprestimo.getDataEfetivaDevolucao() == null || emprestimo.getDataEmprestimo() == null
+                || emprestimo.getDataEstimadaDevolucao() == null) {
+            throw new IllegalArgumentException("Só empréstimos devolvidos, com todas as datas, podem ser arquivados");
+        }
+        byte[] registro = new byte[CodificadorEmprestimo.TAMANHO_REGISTRO];
+        CodificadorEmprestimo.codificar(emprestimo, ByteBuffer.wrap(registro));
+        long sequencia;
+        trava.lock();
+        try {
+            if (fechado) {
+                throw new IllegalStateException("Histórico de empréstimos já foi fechado");
+            }
+            sequencia = log.enfileirar(registro);
+            //A cópia decodificada não muda se quem chamou alterar o empréstimo depois
+            pendentes.add(CodificadorEmprestimo.decodificar(ByteBuffer.wrap(registro), 0));
+            if (pendentes.size() >= tamanhoBloco) {
+                gravarPendentes();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao arquivar o empréstimo: " + e.getMessage(), e);
+        } finally {
+            trava.unlock();
+        }
+        try {
+            log.aguardarDurabilidade(sequencia);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao arquivar o empréstimo: " + e.getMessage(), e);
+        }
+    }
+
+    //Grava agora os pendentes como blocos, mesmo que incompletos
+    public void descarregar() throws IOException {
+        trava.lock();
+        try {
+            if (!fechado) {
+                gravarPendentes();
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    //Empréstimos devolvidos entre de e ate, inclusive
+    public List<Emprestimo> listarPorPeriodo(LocalDate de, LocalDate ate) {
+        validarPeriodo(de, ate);
+        return buscar(de, ate, null);
+    }
+
+    public List<Emprestimo> listarPorLivro(int livroId) {
+        return buscar(LocalDate.MIN, LocalDate.MAX, livroId);
+    }
+
+    public List<Emprestimo> listarPorLivro(int livroId, LocalDate de, LocalDate ate) {
+        validarPeriodo(de, ate);
+        return buscar(de, ate, livroId);
+    }
+
+    public int getPendentes() {
+        trava.lock();
+        try {
+            return pendentes.size();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    //Blocos descompactados pelas consultas e blocos descartados só pelo cabeçalho (período ou filtro de livros)
+    public long getBlocosLidos() {
+        return blocosLidos.get();
+    }
+
+    public long getBlocosPulados() {
+        return blocosPulados.get();
+    }
+
+    public long tamanhoEmBytes() {
+        trava.lock();
+        try {
+            return segmentos.values().stream().mapToLong(SegmentoHistorico::tamanhoEmBytes).sum();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        trava.lock();
+        try {
+            if (fechado) {
+                return;
+            }
+            try {
+                gravarPendentes();
+            } finally {
+                fechado = true;
+                try {
+                    fecharSegmentos();
+                } finally {
+                    log.close();
+                }
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    //Os blocos e os pendentes são copiados sob a trava; a leitura dos arquivos acontece fora dela, já que os
+    //segmentos só crescem e os blocos copiados não mudam
+    private List<Emprestimo> buscar(LocalDate de, LocalDate ate, Integer livroId) {
+        int deDia = (int) Math.max(Integer.MIN_VALUE + 1L, de.toEpochDay());
+        int ateDia = (int) Math.min(Integer.MAX_VALUE, ate.toEpochDay());
+        List<Emprestimo> encontrados = new ArrayList<>();
+        Map<SegmentoHistorico, List<SegmentoHistorico.Bloco>> candidatos = new HashMap<>();
+        trava.lock();
+        try {
+            if (fechado) {
+                throw new IllegalStateException("Histórico de empréstimos já foi fechado");
+            }
+            int primeiroMes = chaveDoMes(LocalDate.ofEpochDay(deDia));
+            int ultimoMes = chaveDoMes(LocalDate.ofEpochDay(ateDia));
+            for (SegmentoHistorico segmento : segmentos.subMap(primeiroMes, true, ultimoMes, true).values()) {
+                candidatos.put(segmento, segmento.copiarBlocos());
+            }
+            for (Emprestimo emprestimo : pendentes) {
+                int dia = (int) emprestimo.getDataEfetivaDevolucao().toEpochDay();
+                if (dia >= deDia && dia <= ateDia && (livroId == null || emprestimo.getLivroId() == livroId)) {
+                    encontrados.add(emprestimo);
+                }
+            }
+        } finally {
+            trava.unlock();
+        }
+
+        long total = 0;
+        long lidos = 0;
+        try {
+            for (Map.Entry<SegmentoHistorico, List<SegmentoHistorico.Bloco>> entrada : candidatos.entrySet()) {
+                total += entrada.getValue().size();
+                lidos += entrada.getKey().percorrer(entrada.getValue(), deDia, ateDia, livroId, encontrados::add);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao ler o histórico de empréstimos: " + e.getMessage(), e);
+        }
+        blocosLidos.addAndGet(lidos);
+        blocosPulados.addAndGet(total - lidos);
+        encontrados.sort(ORDEM);
+        return encontrados;
+    }
+
+    //Exige a trava. Um bloco por mês presente nos pendentes; o log só é esvaziado depois de todos gravados.
+    private void gravarPendentes() throws IOException {
+        if (pendentes.isEmpty()) {
+            return;
+        }
+        TreeMap<Integer, List<Emprestimo>> porMes = new TreeMap<>();
+        for (Emprestimo emprestimo : pendentes) {
+            porMes.computeIfAbsent(chaveDoMes(emprestimo.getDataEfetivaDevolucao()), mes -> new ArrayList<>())
+                    .add(emprestimo);
+        }
+        for (Map.Entry<Integer, List<Emprestimo>> mes : porMes.entrySet()) {
+            List<Emprestimo> doMes = mes.getValue();
+            doMes.sort(Comparator.comparingInt(Emprestimo::getId));
+            segmento(mes.getKey()).anexar(doMes);
+        }
+        log.reiniciar();
+        pendentes.clear();
+    }
+
+    private SegmentoHistorico segmento(int mes) throws IOException {
+        SegmentoHistorico segmento = segmentos.get(mes);
+        if (segmento == null) {
+            YearMonth anoMes = YearMonth.of(Math.floorDiv(mes, 12), Math.floorMod(mes, 12) + 1);
+            segmento = new SegmentoHistorico(diretorio.resolve(anoMes + EXTENSAO_SEGMENTO), mes);
+            segmentos.put(mes, segmento);
+        }
+        return segmento;
+    }
+
+    private void fecharSegmentos() throws IOException {
+        IOException falha = null;
+        for (SegmentoHistorico segmento : segmentos.values()) {
+            try {
+                segmento.close();
+            } catch (IOException e) {
+                falha = e;
+            }
+        }
+        if (falha != null) {
+            throw falha;
+        }
+    }
+
+    private static Set<SegmentoHistorico.Chave> lerChavesDoUltimoBloco(SegmentoHistorico segmento) {
+        try {
+            return segmento.chavesDoUltimoBloco();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void validarPeriodo(LocalDate de, LocalDate ate) {
+        if (de == null || ate == null || de.isAfter(ate)) {
+            throw new IllegalArgumentException("Período inválido");
+        }
+    }
+
+    private static int chaveDoMes(LocalDate data) {
+        return chaveDoMes(data.getYear(), data.getMonthValue());
+    }
+
+    private static int chaveDoMes(int ano, int mes) {
+        return ano * 12 + mes - 1;
+    }
+}
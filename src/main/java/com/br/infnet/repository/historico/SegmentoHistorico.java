@@ -0,0 +1,361 @@
+package com.br.infnet.repository.historico;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.repository.estruturas.FiltroBloom;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+//Segmento de um mês do histórico de empréstimos: arquivo só-acréscimo de blocos compactados.
+//  [magia int][versão int][mês int (ano * 12 + mês - 1)]
+//  bloco: [quantidade int][menor dia int][maior dia int][filtro de Bloom dos livroIds]
+//         [tamanho original int][tamanho compactado int][conteúdo deflate][crc32 int do bloco até aqui]
+//Os dias são dias desde a época da devolução efetiva. Antes de compactado, o conteúdo traz os empréstimos em
+//ordem de id, em inteiros de tamanho variável: diferença para o id anterior, livroId, devolução menos o menor
+//dia do bloco, dias entre empréstimo e devolução, desvio da data estimada em relação ao prazo, prazo com um
+//bit de multa e a multa (double), só quando não é zero.
+//Ao abrir, só os cabeçalhos são lidos: o intervalo de dias e o filtro de livros de cada bloco ficam em memória
+//e permitem pular blocos sem ler nem descompactar. Um bloco final incompleto ou com CRC divergente, de uma
+//queda no meio da escrita, é descartado.
+final class SegmentoHistorico implements Closeable {
+    static final int MAGIA = 0x48495354;
+    static final int VERSAO = 1;
+    private static final int TAMANHO_CABECALHO = 12;
+    //quantidade, menor dia, maior dia, e o início do filtro (funções e quantidade de longs)
+    private static final int INICIO_BLOCO = 20;
+
+    record Bloco(long posicao, int tamanho, int quantidade, int menorDia, int maiorDia, FiltroBloom livros) {
+    }
+
+    private final Path arquivo;
+    private final int mes;
+    private final FileChannel canal;
+    //Protegida pela trava do HistoricoEmprestimos; consultas trabalham sobre cópias
+    private final List<Bloco> blocos = new ArrayList<>();
+    private long tamanho;
+
+    SegmentoHistorico(Path arquivo, int mes) throws IOException {
+        this.arquivo = arquivo;
+        this.mes = mes;
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (canal.size() < TAMANHO_CABECALHO) {
+                ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO).putInt(MAGIA).putInt(VERSAO).putInt(mes);
+                canal.truncate(0);
+                gravar(cabecalho.flip(), 0);
+                canal.force(false);
+                tamanho = TAMANHO_CABECALHO;
+            } else {
+                lerDiretorio();
+            }
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    int getMes() {
+        return mes;
+    }
+
+    List<Bloco> copiarBlocos() {
+        return List.copyOf(blocos);
+    }
+
+    long tamanhoEmBytes() {
+        return tamanho;
+    }
+
+    //Grava os empréstimos (já em ordem de id e todos deste mês) como um bloco novo no fim do arquivo
+    void anexar(List<Emprestimo> emprestimos) throws IOException {
+        int menorDia = Integer.MAX_VALUE;
+        int maiorDia = Integer.MIN_VALUE;
+        FiltroBloom livros = new FiltroBloom(emprestimos.size());
+        for (Emprestimo emprestimo : emprestimos) {
+            int dia = (int) emprestimo.getDataEfetivaDevolucao().toEpochDay();
+            menorDia = Math.min(menorDia, dia);
+            maiorDia = Math.max(maiorDia, dia);
+            livros.adicionar(emprestimo.getLivroId());
+        }
+
+        ByteArrayOutputStream conteudo = new ByteArrayOutputStream(emprestimos.size() * 12);
+        int idAnterior = 0;
+        for (Emprestimo emprestimo : emprestimos) {
+            int devolucao = (int) emprestimo.getDataEfetivaDevolucao().toEpochDay();
+            int dataEmprestimo = (int) emprestimo.getDataEmprestimo().toEpochDay();
+            int estimada = (int) emprestimo.getDataEstimadaDevolucao().toEpochDay();
+            boolean temMulta = emprestimo.getMulta() != 0;
+            escreverVarint(conteudo, Integer.toUnsignedLong(emprestimo.getId() - idAnterior));
+            escreverVarint(conteudo, zigzag(emprestimo.getLivroId()));
+            escreverVarint(conteudo, devolucao - menorDia);
+            escreverVarint(conteudo, zigzag(devolucao - dataEmprestimo));
+            escreverVarint(conteudo, zigzag(estimada - dataEmprestimo - emprestimo.getPrazoDevolucao()));
+            escreverVarint(conteudo, zigzag(emprestimo.getPrazoDevolucao()) << 1 | (temMulta ? 1 : 0));
+            if (temMulta) {
+                long bits = Double.doubleToLongBits(emprestimo.getMulta());
+                for (int i = 56; i >= 0; i -= 8) {
+                    conteudo.write((int) (bits >>> i));
+                }
+            }
+            idAnterior = emprestimo.getId();
+        }
+        byte[] original = conteudo.toByteArray();
+        byte[] compactado = compactar(original);
+
+        ByteArrayOutputStream bloco = new ByteArrayOutputStream(INICIO_BLOCO + compactado.length + 1024);
+        DataOutputStream saida = new DataOutputStream(bloco);
+        saida.writeInt(emprestimos.size());
+        saida.writeInt(menorDia);
+        saida.writeInt(maiorDia);
+        livros.gravar(saida);
+        saida.writeInt(original.length);
+        saida.writeInt(compactado.length);
+        saida.write(compactado);
+        CRC32 crc = new CRC32();
+        crc.update(bloco.toByteArray());
+        saida.writeInt((int) crc.getValue());
+
+        ByteBuffer bytes = ByteBuffer.wrap(bloco.toByteArray());
+        gravar(bytes, tamanho);
+        canal.force(false);
+        blocos.add(new Bloco(tamanho, bloco.size(), emprestimos.size(), menorDia, maiorDia, livros));
+        tamanho += bloco.size();
+    }
+
+    //Entrega os empréstimos dos blocos que podem conter devoluções entre deDia e ateDia (e do livro, se
+    //livroId != null), já filtrados. Retorna quantos blocos precisaram ser lidos.
+    int percorrer(List<Bloco> candidatos, int deDia, int ateDia, Integer livroId, Consumer<Emprestimo> acao)
+            throws IOException {
+        int lidos = 0;
+        for (Bloco bloco : candidatos) {
+            if (!podeConter(bloco, deDia, ateDia, livroId)) {
+                continue;
+            }
+            lidos++;
+            for (Emprestimo emprestimo : decodificar(bloco)) {
+                int dia = (int) emprestimo.getDataEfetivaDevolucao().toEpochDay();
+                if (dia >= deDia && dia <= ateDia && (livroId == null || emprestimo.getLivroId() == livroId)) {
+                    acao.accept(emprestimo);
+                }
+            }
+        }
+        return lidos;
+    }
+
+    static boolean podeConter(Bloco bloco, int deDia, int ateDia, Integer livroId) {
+        return bloco.maiorDia() >= deDia && bloco.menorDia() <= ateDia
+                && (livroId == null || bloco.livros().talvezContenha(livroId));
+    }
+
+    //Identifica um empréstimo arquivado: o id sozinho não basta, porque os ids de empréstimos em memória recomeçam
+    //a cada reinicialização
+    record Chave(int id, int livroId, LocalDate dataEmprestimo) {
+        static Chave de(Emprestimo emprestimo) {
+            return new Chave(emprestimo.getId(), emprestimo.getLivroId(), emprestimo.getDataEmprestimo());
+        }
+    }
+
+    //Chaves do último bloco: depois de uma queda, os pendentes que já chegaram a ele não são gravados de novo
+    Set<Chave> chavesDoUltimoBloco() throws IOException {
+        Set<Chave> chaves = new HashSet<>();
+        if (!blocos.isEmpty()) {
+            decodificar(blocos.get(blocos.size() - 1)).forEach(emprestimo -> chaves.add(Chave.de(emprestimo)));
+        }
+        return chaves;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    private void lerDiretorio() throws IOException {
+        ByteBuffer cabecalho = ler(0, TAMANHO_CABECALHO);
+        if (cabecalho.getInt(0) != MAGIA) {
+            throw new IllegalStateException("Arquivo não é um segmento do histórico: " + arquivo);
+        }
+        if (cabecalho.getInt(4) != VERSAO) {
+            throw new IllegalStateException("Versão de segmento do histórico não suportada: " + cabecalho.getInt(4));
+        }
+        if (cabecalho.getInt(8) != mes) {
+            throw new IllegalStateException("Segmento " + arquivo + " pertence a outro mês");
+        }
+        long tamanhoArquivo = canal.size();
+        long posicao = TAMANHO_CABECALHO;
+        while (posicao < tamanhoArquivo) {
+            Bloco bloco = lerCabecalhoBloco(posicao, tamanhoArquivo);
+            //Só o último bloco pode ter sido interrompido; os demais são conferidos ao serem lidos
+            if (bloco == null || (posicao + bloco.tamanho() == tamanhoArquivo && !crcConfere(bloco))) {
+                System.out.println("Aviso: bloco incompleto no fim de " + arquivo + "; descartando "
+                        + (tamanhoArquivo - posicao) + " bytes");
+                canal.truncate(posicao);
+                canal.force(false);
+                break;
+            }
+            blocos.add(bloco);
+            posicao += bloco.tamanho();
+        }
+        tamanho = posicao;
+    }
+
+    private Bloco lerCabecalhoBloco(long posicao, long tamanhoArquivo) throws IOException {
+        if (posicao + INICIO_BLOCO > tamanhoArquivo) {
+            return null;
+        }
+        ByteBuffer inicio = ler(posicao, INICIO_BLOCO);
+        int quantidadeLongs = inicio.getInt(16);
+        long tamanhoFiltro = 8 + (long) quantidadeLongs * Long.BYTES;
+        if (quantidadeLongs < 0 || posicao + 12 + tamanhoFiltro + 8 > tamanhoArquivo) {
+            return null;
+        }
+        ByteBuffer filtroETamanhos = ler(posicao + 12, (int) tamanhoFiltro + 8);
+        int tamanhoCompactado = filtroETamanhos.getInt((int) tamanhoFiltro + 4);
+        long tamanhoBloco = 12 + tamanhoFiltro + 8 + tamanhoCompactado + 4L;
+        if (tamanhoCompactado < 0 || posicao + tamanhoBloco > tamanhoArquivo) {
+            return null;
+        }
+        return new Bloco(posicao, (int) tamanhoBloco, inicio.getInt(0), inicio.getInt(4), inicio.getInt(8),
+                FiltroBloom.ler(filtroETamanhos, 0));
+    }
+
+    private boolean crcConfere(Bloco bloco) throws IOException {
+        ByteBuffer bytes = ler(bloco.posicao(), bloco.tamanho());
+        CRC32 crc = new CRC32();
+        crc.update(bytes.slice(0, bloco.tamanho() - 4));
+        return (int) crc.getValue() == bytes.getInt(bloco.tamanho() - 4);
+    }
+
+    private List<Emprestimo> decodificar(Bloco bloco) throws IOException {
+        ByteBuffer bytes = ler(bloco.posicao(), bloco.tamanho());
+        CRC32 crc = new CRC32();
+        crc.update(bytes.slice(0, bloco.tamanho() - 4));
+        if ((int) crc.getValue() != bytes.getInt(bloco.tamanho() - 4)) {
+            throw new IllegalStateException("Bloco corrompido (CRC divergente) em " + arquivo);
+        }
+        int posicaoTamanhos = 12 + 8 + bytes.getInt(16) * Long.BYTES;
+        int tamanhoOriginal = bytes.getInt(posicaoTamanhos);
+        int tamanhoCompactado = bytes.getInt(posicaoTamanhos + 4);
+        ByteBuffer conteudo = ByteBuffer.wrap(descompactar(bytes.slice(posicaoTamanhos + 8, tamanhoCompactado),
+                tamanhoOriginal));
+
+        List<Emprestimo> emprestimos = new ArrayList<>(bloco.quantidade());
+        int id = 0;
+        for (int i = 0; i < bloco.quantidade(); i++) {
+            id += (int) lerVarint(conteudo);
+            int livroId = (int) dezigzag(lerVarint(conteudo));
+            int devolucao = bloco.menorDia() + (int) lerVarint(conteudo);
+            int dataEmprestimo = devolucao - (int) dezigzag(lerVarint(conteudo));
+            int desvioEstimada = (int) dezigzag(lerVarint(conteudo));
+            long prazoEMulta = lerVarint(conteudo);
+            int prazo = (int) dezigzag(prazoEMulta >>> 1);
+            double multa = (prazoEMulta & 1) == 0 ? 0 : conteudo.getDouble();
+            Emprestimo emprestimo = new Emprestimo(id, livroId, LocalDate.ofEpochDay(dataEmprestimo),
+                    LocalDate.ofEpochDay(dataEmprestimo + prazo + desvioEstimada), prazo, multa);
+            emprestimo.setDataEfetivaDevolucao(LocalDate.ofEpochDay(devolucao));
+            emprestimos.add(emprestimo);
+        }
+        return emprestimos;
+    }
+
+    private ByteBuffer ler(long posicao, int quantidade) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(quantidade);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicao + buffer.position()) < 0) {
+                throw new EOFException("Fim inesperado de " + arquivo);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private void gravar(ByteBuffer bytes, long posicao) throws IOException {
+        while (bytes.hasRemaining()) {
+            canal.write(bytes, posicao + bytes.position());
+        }
+    }
+
+    private static byte[] compactar(byte[] original) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(original);
+            deflater.finish();
+            ByteArrayOutputStream saida = new ByteArrayOutputStream(original.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                saida.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return saida.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] descompactar(ByteBuffer compactado, int tamanhoOriginal) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compactado);
+            byte[] original = new byte[tamanhoOriginal];
+            int lidos = 0;
+            while (lidos < tamanhoOriginal && !inflater.finished()) {
+                int n = inflater.inflate(original, lidos, tamanhoOriginal - lidos);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                lidos += n;
+            }
+            if (lidos != tamanhoOriginal) {
+                throw new IllegalStateException("Bloco com tamanho divergente em " + arquivo);
+            }
+            return original;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Bloco corrompido em " + arquivo + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    private static long dezigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    private static void escreverVarint(ByteArrayOutputStream saida, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            saida.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        saida.write((int) valor);
+    }
+
+    private static long lerVarint(ByteBuffer entrada) {
+        long valor = 0;
+        for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+            byte b = entrada.get();
+            valor |= (long) (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IllegalStateException("Inteiro de tamanho variável malformado no histórico");
+    }
+}
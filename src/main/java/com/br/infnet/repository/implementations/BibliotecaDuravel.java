@@ -0,0 +1,235 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.model.Livro;
+import com.br.infnet.repository.estruturas.MapaIntObjeto;
+import com.br.infnet.repository.persistencia.ArquivoInstantaneo;
+import com.br.infnet.repository.persistencia.CopiaSeguranca;
+import com.br.infnet.repository.persistencia.LogEscritaAntecipada;
+import com.br.infnet.repository.persistencia.PoliticaDurabilidade;
+import com.br.infnet.service.LivroService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+//Acervo e empréstimos duráveis num diretório: um instantâneo do estado completo mais os logs do que
+//aconteceu depois dele. Ao abrir, o instantâneo é carregado e os logs reproduzidos por cima; gravar um novo
+//instantâneo (sob demanda ou ao fechar) esvazia os logs, o que mantém a inicialização rápida.
+public class BibliotecaDuravel implements Closeable {
+    public static final String ARQUIVO_INSTANTANEO = "biblioteca.snap";
+    public static final String ARQUIVO_LOG_LIVROS = "livros.wal";
+    public static final String ARQUIVO_LOG_EMPRESTIMOS = "emprestimos.wal";
+    //Destino padrão das cópias de segurança, dentro do diretório de dados
+    public static final String DIRETORIO_COPIAS = "copias";
+    private static final DateTimeFormatter FORMATO_NOME_COPIA = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Path diretorio;
+    private final LivroRepositoryDuravelImpl livros;
+    private final EmprestimoRepositoryDuravelImpl emprestimos;
+    //Filas de escrita adiada montadas sobre esta biblioteca, se houver
+    private EmprestimoRepositoryEscritaAdiadaImpl emprestimosAdiados;
+    private LivroRepositoryEscritaAdiadaImpl livrosAdiados;
+    private boolean fechada;
+
+    public static BibliotecaDuravel abrir(Path diretorio, PoliticaDurabilidade politica) throws IOException {
+        Path instantaneo = diretorio.resolve(ARQUIVO_INSTANTANEO);
+        LivroRepositoryImpl memoriaLivros = new LivroRepositoryImpl(false);
+        List<Emprestimo> emprestimosDoInstantaneo = new ArrayList<>();
+        ArquivoInstantaneo.Resumo resumo = null;
+
+        //Índices são reconstruídos uma vez só, depois do instantâneo e do log
+        memoriaLivros.iniciarCargaEmLote();
+        if (Files.exists(instantaneo)) {
+            long inicio = System.nanoTime();
+            resumo = ArquivoInstantaneo.ler(instantaneo, memoriaLivros::atualizarLivro, emprestimosDoInstantaneo::add);
+            memoriaLivros.restaurarProximoId(resumo.proximoIdLivro());
+            System.out.printf("Instantâneo %s carregado: %d livros e %d empréstimos em %d ms%n", instantaneo,
+                    resumo.livros(), resumo.emprestimos(), (System.nanoTime() - inicio) / 1_000_000);
+        }
+        LivroRepositoryDuravelImpl livros = new LivroRepositoryDuravelImpl(memoriaLivros,
+                new LogEscritaAntecipada(diretorio.resolve(ARQUIVO_LOG_LIVROS), politica));
+        livros.semearSeVazio();
+
+        EmprestimoRepositoryImpl memoriaEmprestimos = new EmprestimoRepositoryImpl(new LivroService(livros));
+        emprestimosDoInstantaneo.forEach(memoriaEmprestimos::restaurarEmprestimo);
+        if (resumo != null) {
+            memoriaEmprestimos.restaurarProximoId(resumo.proximoIdEmprestimo());
+        }
+        EmprestimoRepositoryDuravelImpl emprestimos = new EmprestimoRepositoryDuravelImpl(memoriaEmprestimos,
+                new LogEscritaAntecipada(diretorio.resolve(ARQUIVO_LOG_EMPRESTIMOS), politica));
+        int reconciliados = reconciliarLivros(memoriaLivros, emprestimos.listarEmprestimos());
+        if (reconciliados > 0) {
+            System.out.printf("Disponibilidade de %d livro(s) ajustada aos empréstimos ativos%n", reconciliados);
+        }
+        return new BibliotecaDuravel(diretorio, livros, emprestimos);
+    }
+
+    //Um empréstimo vai para o log de empréstimos antes de o estado do livro ir para o log do acervo. Uma queda
+    //entre as duas gravações deixaria o livro disponível com empréstimo ativo (ou emprestado sem empréstimo),
+    //e ele não poderia mais ser emprestado nem devolvido. Os empréstimos são a referência: a disponibilidade
+    //de cada livro é ajustada a eles, direto na memória; o próximo instantâneo torna o ajuste durável, e até lá
+    //uma nova abertura o refaz.
+    private static int reconciliarLivros(LivroRepositoryImpl memoriaLivros, List<Emprestimo> ativos) {
+        MapaIntObjeto<Emprestimo> ativosPorLivro = new MapaIntObjeto<>();
+        ativos.forEach(emprestimo -> ativosPorLivro.put(emprestimo.getLivroId(), emprestimo));
+        List<Livro> divergentes = new ArrayList<>();
+        memoriaLivros.paraCadaLivro(livro -> livro.isDisponivel() == ativosPorLivro.containsKey(livro.getId()),
+                divergentes::add);
+        for (Livro livro : divergentes) {
+            Emprestimo ativo = ativosPorLivro.get(livro.getId());
+            if (ativo != null) {
+                EmprestimoRepositoryImpl.marcarEmprestado(livro, ativo);
+            } else {
+                EmprestimoRepositoryImpl.marcarDevolvido(livro);
+            }
+            memoriaLivros.atualizarLivro(livro);
+        }
+        return divergentes.size();
+    }
+
+    private BibliotecaDuravel(Path diretorio, LivroRepositoryDuravelImpl livros,
+                              EmprestimoRepositoryDuravelImpl emprestimos) {
+        this.diretorio = diretorio;
+        this.livros = livros;
+        this.emprestimos = emprestimos;
+    }
+
+    public LivroRepositoryDuravelImpl getLivros() {
+        return livros;
+    }
+
+    public EmprestimoRepositoryDuravelImpl getEmprestimos() {
+        return emprestimos;
+    }
+
+    //Registra as filas de escrita adiada que gravam nesta biblioteca, para o instantâneo e a cópia de segurança
+    //as descarregarem antes da cerca
+    public synchronized void usarEscritaAdiada(EmprestimoRepositoryEscritaAdiadaImpl emprestimos,
+                                               LivroRepositoryEscritaAdiadaImpl livros) {
+        this.emprestimosAdiados = emprestimos;
+        this.livrosAdiados = livros;
+    }
+
+    //Grava o estado atual e esvazia os logs. As escritas ficam suspensas durante a gravação, na mesma ordem
+    //de travas de um empréstimo (empréstimos, depois livros). Se a queda acontecer depois de o instantâneo
+    //ser renomeado e antes de os logs serem esvaziados, a reprodução reaplica registros já incluídos nele,
+    //o que é inofensivo: cada registro grava o estado inteiro do livro ou empréstimo.
+    public synchronized ArquivoInstantaneo.Resumo gravarInstantaneo() throws IOException {
+        if (fechada) {
+            throw new IllegalStateException("Biblioteca já foi fechada");
+        }
+        descarregarEscritaAdiada();
+        emprestimos.suspenderEscritas();
+        try {
+            livros.suspenderEscritas();
+            try {
+                long inicio = System.nanoTime();
+                ArquivoInstantaneo.Resumo resumo = ArquivoInstantaneo.gravar(diretorio.resolve(ARQUIVO_INSTANTANEO),
+                        livros.consultarProximoId(), emprestimos.consultarProximoId(),
+                        acao -> livros.paraCadaLivro(livro -> true, acao), emprestimos.listarEmprestimos());
+                livros.reiniciarLog();
+                emprestimos.reiniciarLog();
+                System.out.printf("Instantâneo gravado: %d livros e %d empréstimos em %d ms%n", resumo.livros(),
+                        resumo.emprestimos(), (System.nanoTime() - inicio) / 1_000_000);
+                return resumo;
+            } finally {
+                livros.retomarEscritas();
+            }
+        } finally {
+            emprestimos.retomarEscritas();
+        }
+    }
+
+    public CopiaSeguranca.Resumo gravarCopiaSeguranca() throws IOException {
+        return gravarCopiaSeguranca(diretorio.resolve(DIRETORIO_COPIAS));
+    }
+
+    //Cópia de segurança online: as escritas são suspensas só para marcar a posição dos dois logs (uma cerca),
+    //e o instantâneo mais os logs até o marco são copiados, compactados, com as escritas já liberadas. Como o
+    //instantâneo só muda e os logs só são esvaziados em gravarInstantaneo, que espera a cópia terminar, esses
+    //arquivos descrevem exatamente o estado no instante da cerca. Restaurar a cópia num diretório vazio e
+    //abri-lo com abrir() reproduz esse estado.
+    public synchronized CopiaSeguranca.Resumo gravarCopiaSeguranca(Path diretorioCopias) throws IOException {
+        if (fechada) {
+            throw new IllegalStateException("Biblioteca já foi fechada");
+        }
+        long inicio = System.nanoTime();
+        descarregarEscritaAdiada();
+        LogEscritaAntecipada.Marco marcoLivros;
+        LogEscritaAntecipada.Marco marcoEmprestimos;
+        emprestimos.suspenderEscritas();
+        try {
+            livros.suspenderEscritas();
+            try {
+                marcoLivros = livros.marcarLog();
+                marcoEmprestimos = emprestimos.marcarLog();
+            } finally {
+                livros.retomarEscritas();
+            }
+        } finally {
+            emprestimos.retomarEscritas();
+        }
+        long pausaMicros = (System.nanoTime() - inicio) / 1_000;
+
+        Path arquivo = diretorioCopias.resolve("biblioteca-" + LocalDateTime.now().format(FORMATO_NOME_COPIA)
+                + CopiaSeguranca.EXTENSAO);
+        CopiaSeguranca copia = CopiaSeguranca.criar(arquivo);
+        long bytesCompactados;
+        try {
+            Path instantaneo = diretorio.resolve(ARQUIVO_INSTANTANEO);
+            if (Files.exists(instantaneo)) {
+                copia.adicionarArquivo(ARQUIVO_INSTANTANEO, instantaneo);
+            }
+            copia.adicionarSecao(ARQUIVO_LOG_LIVROS, marcoLivros.bytes(),
+                    saida -> livros.copiarLog(marcoLivros, saida));
+            copia.adicionarSecao(ARQUIVO_LOG_EMPRESTIMOS, marcoEmprestimos.bytes(),
+                    saida -> emprestimos.copiarLog(marcoEmprestimos, saida));
+            bytesCompactados = copia.concluir();
+        } catch (IOException | RuntimeException e) {
+            copia.descartar();
+            throw e;
+        }
+        CopiaSeguranca.Resumo resumo = new CopiaSeguranca.Resumo(arquivo, copia.getBytesOriginais(), bytesCompactados,
+                pausaMicros, (System.nanoTime() - inicio) / 1_000_000);
+        System.out.printf("Cópia de segurança %s: %d bytes compactados em %d em %d ms, escritas suspensas por %d µs%n",
+                arquivo, resumo.bytesOriginais(), resumo.bytesCompactados(), resumo.duracaoMs(),
+                resumo.pausaEscritasMicros());
+        return resumo;
+    }
+
+    //Com escrita adiada, escritas já confirmadas podem estar só nas filas: elas são descarregadas antes da cerca
+    //(empréstimos primeiro, como na ordem de travas), então o resultado inclui tudo o que foi confirmado até o
+    //pedido. Filas já fechadas retornam na hora.
+    private void descarregarEscritaAdiada() {
+        if (emprestimosAdiados != null) {
+            emprestimosAdiados.descarregar();
+        }
+        if (livrosAdiados != null) {
+            livrosAdiados.descarregar();
+        }
+    }
+
+    //Fechamento limpo: grava um instantâneo para a próxima inicialização não precisar reproduzir os logs
+    @Override
+    public synchronized void close() throws IOException {
+        if (fechada) {
+            return;
+        }
+        try {
+            gravarInstantaneo();
+        } finally {
+            fechada = true;
+            try {
+                emprestimos.close();
+            } finally {
+                livros.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.repository.persistencia.PoolConexoes;
+import com.br.infnet.service.LivroService;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+//Acervo e empréstimos num banco H2 embutido, gravado em arquivo no diretório informado. Os dois repositórios
+//compartilham o mesmo pool, o que põe o empréstimo e a atualização do livro na mesma transação.
+public class BibliotecaJdbc implements Closeable {
+    public static final String ARQUIVO_BANCO = "biblioteca";
+
+    private final PoolConexoes pool;
+    private final LivroRepositoryJdbcImpl livros;
+    private final EmprestimoRepositoryJdbcImpl emprestimos;
+
+    public static BibliotecaJdbc abrir(Path diretorio) {
+        return abrir(diretorio, Math.max(4, 2 * Runtime.getRuntime().availableProcessors()), true);
+    }
+
+    public static BibliotecaJdbc abrir(Path diretorio, int conexoes, boolean carregarCatalogo) {
+        //O H2 acrescenta a extensão .mv.db; DB_CLOSE_ON_EXIT=FALSE deixa o fechamento por conta do close()
+        String url = "jdbc:h2:file:" + diretorio.resolve(ARQUIVO_BANCO).toAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE";
+        long inicio = System.nanoTime();
+        PoolConexoes pool;
+        try {
+            pool = new PoolConexoes(url, conexoes);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Não foi possível abrir o banco em " + diretorio + ": " + e.getMessage(), e);
+        }
+        try {
+            LivroRepositoryJdbcImpl livros = new LivroRepositoryJdbcImpl(pool, carregarCatalogo);
+            EmprestimoRepositoryJdbcImpl emprestimos = new EmprestimoRepositoryJdbcImpl(pool, new LivroService(livros));
+            System.out.printf("Banco %s aberto com %d conexões em %d ms%n", url, conexoes,
+                    (System.nanoTime() - inicio) / 1_000_000);
+            return new BibliotecaJdbc(pool, livros, emprestimos);
+        } catch (RuntimeException e) {
+            pool.close();
+            throw e;
+        }
+    }
+
+    private BibliotecaJdbc(PoolConexoes pool, LivroRepositoryJdbcImpl livros, EmprestimoRepositoryJdbcImpl emprestimos) {
+        this.pool = pool;
+        this.livros = livros;
+        this.emprestimos = emprestimos;
+    }
+
+    public LivroRepositoryJdbcImpl getLivros() {
+        return livros;
+    }
+
+    public EmprestimoRepositoryJdbcImpl getEmprestimos() {
+        return emprestimos;
+    }
+
+    public PoolConexoes getPool() {
+        return pool;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
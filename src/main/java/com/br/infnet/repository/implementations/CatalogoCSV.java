@@ -0,0 +1,145 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.security.SecurityConfig;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+//Leitura do CSV inicial do acervo, compartilhada pelas implementações de repositório de livros
+final class CatalogoCSV {
+    static final String RECURSO_PADRAO = "test-data/livros-validos.csv";
+
+    //Recebe cada linha já sanitizada; retorna false quando o ISBN já existe no repositório
+    @FunctionalInterface
+    interface Destino {
+        boolean cadastrar(String titulo, String autor, String isbn);
+    }
+
+    private CatalogoCSV() {
+    }
+
+    static void carregar(Destino destino) {
+        carregar(RECURSO_PADRAO, destino);
+    }
+
+    //Populando o app com os dados do CSV
+    static void carregar(String recurso, Destino destino) {
+        try (InputStream is = CatalogoCSV.class.getClassLoader().getResourceAsStream(recurso)) {
+            assert is != null;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
+
+                String linha;
+                boolean primeiraLinha = true;
+
+                while ((linha = reader.readLine()) != null) {
+                    if (primeiraLinha) {
+                        primeiraLinha = false;
+                        continue;
+                    }
+
+                    String[] dados = parseCsvLine(linha);
+                    if (dados.length >= 3) {
+                        try {
+                            String titulo = processarCampoCSV(dados[0]);
+                            String autor = processarCampoCSV(dados[1]);
+                            String isbn = processarCampoCSV(dados[2]);
+                            if (!destino.cadastrar(titulo, autor, isbn)) {
+                                System.out.println("Livro ignorado do CSV (ISBN duplicado): " + isbn);
+                            }
+                        } catch (IllegalArgumentException e) {
+                            System.out.println("Livro ignorado do CSV (dados inválidos): " + e.getMessage());
+                        }
+                    }
+                }
+
+            }
+        } catch (IOException | NullPointerException e) {
+            System.out.println("Aviso: Não foi possível carregar livros do CSV: " + e.getMessage());
+            System.out.println("Iniciando com acervo vazio.");
+        }
+    }
+
+    //Linhas de dados do CSV (sem o cabeçalho), para a carga em paralelo
+    static List<String> lerLinhas(String recurso) {
+        List<String> linhas = new ArrayList<>();
+        try (InputStream is = CatalogoCSV.class.getClassLoader().getResourceAsStream(recurso)) {
+            if (is == null) {
+                throw new IOException("recurso não encontrado: " + recurso);
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
+                reader.readLine();
+                String linha;
+                while ((linha = reader.readLine()) != null) {
+                    linhas.add(linha);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Aviso: Não foi possível carregar livros do CSV: " + e.getMessage());
+            System.out.println("Iniciando com acervo vazio.");
+        }
+        return linhas;
+    }
+
+    //Resultado da validação de uma linha fora de ordem: o livro (com id 0) ou o erro. consomeId indica se a
+    //carga sequencial teria gerado um id para a linha, o que só não acontece quando a sanitização falha.
+    record LinhaValidada(Livro livro, String erro, boolean consomeId) {
+    }
+
+    //Sanitiza e valida uma linha sem tocar no repositório; null para linhas com menos de três campos
+    static LinhaValidada validarLinha(String linha) {
+        String[] dados = parseCsvLine(linha);
+        if (dados.length < 3) {
+            return null;
+        }
+        String titulo;
+        String autor;
+        String isbn;
+        try {
+            titulo = processarCampoCSV(dados[0]);
+            autor = processarCampoCSV(dados[1]);
+            isbn = processarCampoCSV(dados[2]);
+        } catch (IllegalArgumentException e) {
+            return new LinhaValidada(null, e.getMessage(), false);
+        }
+        try {
+            return new LinhaValidada(new Livro(0, titulo, autor, isbn), null, true);
+        } catch (IllegalArgumentException e) {
+            return new LinhaValidada(null, e.getMessage(), true);
+        }
+    }
+
+    //Aspas duplicadas ("") dentro de um campo entre aspas são uma aspa literal, como o LivroCsvView escreve
+    static String[] parseCsvLine(String linha) {
+        List<String> campos = new ArrayList<>();
+        boolean dentroAspas = false;
+        StringBuilder campoAtual = new StringBuilder();
+
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (c == '"' && dentroAspas && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                campoAtual.append('"');
+                i++;
+            } else if (c == '"') {
+                dentroAspas = !dentroAspas;
+            } else if (c == ',' && !dentroAspas) {
+                campos.add(campoAtual.toString());
+                campoAtual = new StringBuilder();
+            } else {
+                campoAtual.append(c);
+            }
+        }
+        campos.add(campoAtual.toString());
+
+        return campos.toArray(new String[0]);
+    }
+
+    private static String processarCampoCSV(String campo) {
+        String campoLimpo = campo.replace("\"", "").trim();
+        return SecurityConfig.processarEntrada(campoLimpo);
+    }
+}
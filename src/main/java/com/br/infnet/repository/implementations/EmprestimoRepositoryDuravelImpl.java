@@ -0,0 +1,192 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.repository.armazenamento.CodificadorEmprestimo;
+import com.br.infnet.repository.interfaces.iEmprestimoRepository;
+import com.br.infnet.repository.persistencia.LogEscritaAntecipada;
+import com.br.infnet.repository.persistencia.PoliticaDurabilidade;
+import com.br.infnet.service.LivroService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Empréstimos duráveis: cada empréstimo e devolução é gravado no log antes de ser aplicado.
+//O estado dos livros (disponibilidade, datas) é persistido pelo repositório de livros, depois do registro do
+//empréstimo; na reprodução os empréstimos são restaurados sem tocar nos livros, e a BibliotecaDuravel ajusta
+//a disponibilidade dos livros aos empréstimos ativos quando uma queda separou as duas gravações.
+//A memória é atualizada antes da espera pelo disco: na política LOTE (e na PERIODICA), outras threads podem
+//ler um empréstimo cuja gravação ainda não foi confirmada a quem o fez e que se perde numa queda.
+//Registros do log: [EMPRESTAR][empréstimo no formato do CodificadorEmprestimo] ou [DEVOLVER][id int][livroId int].
+public class EmprestimoRepositoryDuravelImpl implements iEmprestimoRepository, Closeable {
+    private static final byte OPERACAO_EMPRESTAR = 1;
+    private static final byte OPERACAO_DEVOLVER = 2;
+
+    private static final int QUANTIDADE_TRAVAS = 64;
+
+    private final EmprestimoRepositoryImpl memoria;
+    private final LogEscritaAntecipada log;
+    //Só empréstimos do mesmo livro precisam sair no log na ordem em que foram aplicados, então a trava é por
+    //livro (distribuída em faixas). Aplicar um empréstimo também grava o livro e espera o log do acervo;
+    //com uma trava única, essa espera serializaria todos os empréstimos.
+    private final ReentrantLock[] travasPorLivro = new ReentrantLock[QUANTIDADE_TRAVAS];
+
+    public static EmprestimoRepositoryDuravelImpl abrir(Path arquivo, LivroService livroService,
+                                                       PoliticaDurabilidade politica) throws IOException {
+        return new EmprestimoRepositoryDuravelImpl(new EmprestimoRepositoryImpl(livroService),
+                new LogEscritaAntecipada(arquivo, politica));
+    }
+
+    public EmprestimoRepositoryDuravelImpl(EmprestimoRepositoryImpl memoria, LogEscritaAntecipada log) throws IOException {
+        this.memoria = memoria;
+        this.log = log;
+        for (int i = 0; i < QUANTIDADE_TRAVAS; i++) {
+            travasPorLivro[i] = new ReentrantLock();
+        }
+        long inicio = System.nanoTime();
+        long registros = log.reproduzir(this::aplicar);
+        System.out.printf("Empréstimos restaurados de %s: %d registros em %d ms%n", log.getArquivo(), registros,
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    @Override
+    public Emprestimo buscarLivroPorId(int livroId) {
+        return memoria.buscarLivroPorId(livroId);
+    }
+
+    @Override
+    public void realizarEmprestimo(Emprestimo emprestimo) {
+        long sequencia;
+        ReentrantLock trava = travaDoLivro(emprestimo.getLivroId());
+        trava.lock();
+        try {
+            if (memoria.buscarLivroPorId(emprestimo.getLivroId()) != null) {
+                throw new IllegalStateException("Livro já está emprestado");
+            }
+            Emprestimo emprestimoComId = emprestimo.getId() != 0 ? emprestimo
+                    : new Emprestimo(memoria.gerarProximoId(), emprestimo.getLivroId(), emprestimo.getDataEmprestimo(),
+                    emprestimo.getDataEstimadaDevolucao(), emprestimo.getPrazoDevolucao(), emprestimo.getMulta());
+            ByteBuffer registro = ByteBuffer.allocate(1 + CodificadorEmprestimo.TAMANHO_REGISTRO).put(OPERACAO_EMPRESTAR);
+            CodificadorEmprestimo.codificar(emprestimoComId, registro);
+            sequencia = registrar(registro.array());
+            memoria.realizarEmprestimo(emprestimoComId);
+        } finally {
+            trava.unlock();
+        }
+        aguardarDurabilidade(sequencia);
+    }
+
+    @Override
+    public List<Emprestimo> listarEmprestimos() {
+        return memoria.listarEmprestimos();
+    }
+
+    @Override
+    public void removerEmprestimo(Emprestimo emprestimo) {
+        long sequencia;
+        ReentrantLock trava = travaDoLivro(emprestimo.getLivroId());
+        trava.lock();
+        try {
+            sequencia = registrar(ByteBuffer.allocate(9).put(OPERACAO_DEVOLVER)
+                    .putInt(emprestimo.getId()).putInt(emprestimo.getLivroId()).array());
+            memoria.removerEmprestimo(emprestimo);
+        } finally {
+            trava.unlock();
+        }
+        aguardarDurabilidade(sequencia);
+    }
+
+    //Mesmos registros do log, aplicados sem tocar no livro, como na reprodução
+    @Override
+    public void gravarEmprestimo(Emprestimo emprestimo) {
+        ByteBuffer registro = ByteBuffer.allocate(1 + CodificadorEmprestimo.TAMANHO_REGISTRO).put(OPERACAO_EMPRESTAR);
+        CodificadorEmprestimo.codificar(emprestimo, registro);
+        registrarEAplicar(emprestimo.getLivroId(), registro.array());
+    }
+
+    @Override
+    public void apagarEmprestimo(Emprestimo emprestimo) {
+        registrarEAplicar(emprestimo.getLivroId(), ByteBuffer.allocate(9).put(OPERACAO_DEVOLVER)
+                .putInt(emprestimo.getId()).putInt(emprestimo.getLivroId()).array());
+    }
+
+    //Trava todos os livros, na mesma ordem sempre, para um instantâneo consistente
+    public void suspenderEscritas() {
+        for (ReentrantLock trava : travasPorLivro) {
+            trava.lock();
+        }
+    }
+
+    public void retomarEscritas() {
+        for (int i = QUANTIDADE_TRAVAS - 1; i >= 0; i--) {
+            travasPorLivro[i].unlock();
+        }
+    }
+
+    public int consultarProximoId() {
+        return memoria.consultarProximoId();
+    }
+
+    public void reiniciarLog() throws IOException {
+        log.reiniciar();
+    }
+
+    //Posição atual do log, para uma cópia de segurança; exige escritas suspensas
+    public LogEscritaAntecipada.Marco marcarLog() throws IOException {
+        return log.marcar();
+    }
+
+    public long copiarLog(LogEscritaAntecipada.Marco marco, OutputStream saida) throws IOException {
+        return log.copiarAte(marco, saida);
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private ReentrantLock travaDoLivro(int livroId) {
+        return travasPorLivro[Math.floorMod(livroId, QUANTIDADE_TRAVAS)];
+    }
+
+    private void registrarEAplicar(int livroId, byte[] conteudo) {
+        long sequencia;
+        ReentrantLock trava = travaDoLivro(livroId);
+        trava.lock();
+        try {
+            sequencia = registrar(conteudo);
+            aplicar(ByteBuffer.wrap(conteudo));
+        } finally {
+            trava.unlock();
+        }
+        aguardarDurabilidade(sequencia);
+    }
+
+    private long registrar(byte[] conteudo) {
+        try {
+            return log.enfileirar(conteudo);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao gravar no log de empréstimos: " + e.getMessage(), e);
+        }
+    }
+
+    private void aguardarDurabilidade(long sequencia) {
+        try {
+            log.aguardarDurabilidade(sequencia);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao gravar no log de empréstimos: " + e.getMessage(), e);
+        }
+    }
+
+    private void aplicar(ByteBuffer registro) {
+        switch (registro.get(0)) {
+            case OPERACAO_EMPRESTAR -> memoria.restaurarEmprestimo(CodificadorEmprestimo.decodificar(registro, 1));
+            case OPERACAO_DEVOLVER -> memoria.restaurarDevolucao(registro.getInt(1), registro.getInt(5));
+            default -> throw new IllegalStateException("Operação desconhecida no log de empréstimos: " + registro.get(0));
+        }
+    }
+}
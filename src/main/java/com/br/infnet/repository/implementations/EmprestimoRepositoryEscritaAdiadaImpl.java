@@ -0,0 +1,152 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.repository.interfaces.iEmprestimoRepository;
+import com.br.infnet.repository.persistencia.FilaEscritaAdiada;
+import com.br.infnet.service.LivroService;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Escrita adiada dos empréstimos: os empréstimos ativos ficam em memória e os registros chegam ao destino pela
+//FilaEscritaAdiada, com gravarEmprestimo/apagarEmprestimo, que não tocam no livro. O estado do livro é
+//gravado pelo acervo que o LivroService recebe, normalmente um LivroRepositoryEscritaAdiadaImpl sobre o
+//mesmo armazenamento. As duas filas são independentes: depois de uma queda, o destino pode ter o livro marcado
+//como emprestado sem o registro do empréstimo (ou o contrário), dentro do atraso configurado.
+public class EmprestimoRepositoryEscritaAdiadaImpl implements iEmprestimoRepository, Closeable {
+    private static final int QUANTIDADE_TRAVAS = 64;
+
+    private record Escrita(Emprestimo emprestimo, boolean ativo) {
+    }
+
+    private final EmprestimoRepositoryImpl memoria;
+    private final iEmprestimoRepository destino;
+    private final FilaEscritaAdiada<Escrita> fila;
+    private final ReentrantLock[] travasPorLivro = new ReentrantLock[QUANTIDADE_TRAVAS];
+
+    public EmprestimoRepositoryEscritaAdiadaImpl(iEmprestimoRepository destino, LivroService livroService) {
+        this(destino, livroService, FilaEscritaAdiada.CAPACIDADE_PADRAO, FilaEscritaAdiada.TAMANHO_LOTE_PADRAO,
+                FilaEscritaAdiada.ATRASO_MAXIMO_PADRAO_MS, FilaEscritaAdiada.ESPERA_MAXIMA_PADRAO_MS);
+    }
+
+    public EmprestimoRepositoryEscritaAdiadaImpl(iEmprestimoRepository destino, LivroService livroService,
+                                                 int capacidade, int tamanhoLote, long atrasoMaximoMs,
+                                                 long esperaMaximaMs) {
+        this.memoria = new EmprestimoRepositoryImpl(livroService);
+        this.destino = destino;
+        for (int i = 0; i < QUANTIDADE_TRAVAS; i++) {
+            travasPorLivro[i] = new ReentrantLock();
+        }
+        destino.listarEmprestimos().forEach(memoria::restaurarEmprestimo);
+        this.fila = new FilaEscritaAdiada<>("emprestimos", this::gravarLote, capacidade, tamanhoLote,
+                atrasoMaximoMs, esperaMaximaMs);
+    }
+
+    @Override
+    public Emprestimo buscarLivroPorId(int livroId) {
+        return memoria.buscarLivroPorId(livroId);
+    }
+
+    @Override
+    public void realizarEmprestimo(Emprestimo emprestimo) {
+        Emprestimo emprestimoComId = emprestimo.getId() != 0 ? emprestimo
+                : new Emprestimo(memoria.gerarProximoId(), emprestimo.getLivroId(), emprestimo.getDataEmprestimo(),
+                emprestimo.getDataEstimadaDevolucao(), emprestimo.getPrazoDevolucao(), emprestimo.getMulta());
+        ReentrantLock trava = travaDoLivro(emprestimoComId.getLivroId());
+        trava.lock();
+        try {
+            memoria.realizarEmprestimo(emprestimoComId);
+            fila.enfileirar(emprestimoComId.getId(), new Escrita(copiar(emprestimoComId), true));
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public void removerEmprestimo(Emprestimo emprestimo) {
+        ReentrantLock trava = travaDoLivro(emprestimo.getLivroId());
+        trava.lock();
+        try {
+            memoria.removerEmprestimo(emprestimo);
+            fila.enfileirar(emprestimo.getId(), new Escrita(copiar(emprestimo), false));
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    //Só o registro do empréstimo, também pela fila
+    @Override
+    public void gravarEmprestimo(Emprestimo emprestimo) {
+        ReentrantLock trava = travaDoLivro(emprestimo.getLivroId());
+        trava.lock();
+        try {
+            memoria.gravarEmprestimo(emprestimo);
+            fila.enfileirar(emprestimo.getId(), new Escrita(copiar(emprestimo), true));
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public void apagarEmprestimo(Emprestimo emprestimo) {
+        ReentrantLock trava = travaDoLivro(emprestimo.getLivroId());
+        trava.lock();
+        try {
+            memoria.apagarEmprestimo(emprestimo);
+            fila.enfileirar(emprestimo.getId(), new Escrita(copiar(emprestimo), false));
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public List<Emprestimo> listarEmprestimos() {
+        return memoria.listarEmprestimos();
+    }
+
+    public void descarregar() {
+        fila.descarregar();
+    }
+
+    public FilaEscritaAdiada<?> getFila() {
+        return fila;
+    }
+
+    @Override
+    public void close() {
+        fila.close();
+    }
+
+    //Um empréstimo novo de um livro só é aceito depois que a devolução anterior chegou ao destino; como a
+    //devolução entrou antes na fila, basta tentar de novo mais tarde
+    private List<Escrita> gravarLote(List<Escrita> escritas) {
+        List<Escrita> recusadas = new ArrayList<>();
+        destino.executarEmLote(() -> {
+            for (Escrita escrita : escritas) {
+                if (!escrita.ativo()) {
+                    destino.apagarEmprestimo(escrita.emprestimo());
+                    continue;
+                }
+                try {
+                    destino.gravarEmprestimo(escrita.emprestimo());
+                } catch (IllegalStateException e) {
+                    recusadas.add(escrita);
+                }
+            }
+        });
+        return recusadas;
+    }
+
+    private ReentrantLock travaDoLivro(int livroId) {
+        return travasPorLivro[Math.floorMod(livroId, QUANTIDADE_TRAVAS)];
+    }
+
+    private static Emprestimo copiar(Emprestimo emprestimo) {
+        Emprestimo copia = new Emprestimo(emprestimo.getId(), emprestimo.getLivroId(), emprestimo.getDataEmprestimo(),
+                emprestimo.getDataEstimadaDevolucao(), emprestimo.getPrazoDevolucao(), emprestimo.getMulta());
+        copia.setDataEfetivaDevolucao(emprestimo.getDataEfetivaDevolucao());
+        return copia;
+    }
+}
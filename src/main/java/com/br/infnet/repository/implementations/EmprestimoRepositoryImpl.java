@@ -2,6 +2,7 @@ package com.br.infnet.repository.implementations;
 
 import com.br.infnet.model.Emprestimo;
 import com.br.infnet.model.Livro;
+import com.br.infnet.repository.estruturas.MapaIntObjeto;
 import com.br.infnet.repository.interfaces.iEmprestimoRepository;
 import com.br.infnet.service.LivroService;
 
@@ -10,7 +11,9 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class EmprestimoRepositoryImpl implements iEmprestimoRepository {
-    private final Map<Integer, Emprestimo> emprestimos = new HashMap<>();
+    private final MapaIntObjeto<Emprestimo> emprestimos = new MapaIntObjeto<>();
+    //Índice livroId -> empréstimo ativo; seus valores formam o conjunto de empréstimos ativos
+    private final MapaIntObjeto<Emprestimo> emprestimosAtivosPorLivro = new MapaIntObjeto<>();
     private final AtomicInteger proximoId = new AtomicInteger(1);
     private final LivroService livroService;
 
@@ -18,22 +21,34 @@ public class EmprestimoRepositoryImpl implements iEmprestimoRepository {
         this.livroService = livroService;
     }
 
+    public int gerarProximoId() {
+        return proximoId.getAndIncrement();
+    }
+
+    public int consultarProximoId() {
+        return proximoId.get();
+    }
+
+    public void restaurarProximoId(int id) {
+        proximoId.accumulateAndGet(id, Math::max);
+    }
+
     @Override
     public Emprestimo buscarLivroPorId(int livroId) {
-        return emprestimos.values().stream()
-                .filter(emprestimo -> emprestimo.getLivroId() == livroId && emprestimo.getDataEfetivaDevolucao() == null)
-                .findFirst()
-                .orElse(null);
+        return emprestimosAtivosPorLivro.get(livroId);
     }
 
     @Override
     public void realizarEmprestimo(Emprestimo emprestimo) {
         if (emprestimo.getId() == 0) {
-            emprestimo = new Emprestimo(proximoId.getAndIncrement(),
+            emprestimo = new Emprestimo(gerarProximoId(),
                     emprestimo.getLivroId(), emprestimo.getDataEmprestimo(),
                     emprestimo.getDataEstimadaDevolucao(), emprestimo.getPrazoDevolucao(),
                     emprestimo.getMulta());
         }
+        if (emprestimosAtivosPorLivro.putIfAbsent(emprestimo.getLivroId(), emprestimo) != null) {
+            throw new IllegalStateException("Livro já está emprestado");
+        }
         emprestimos.put(emprestimo.getId(), emprestimo);
         atualizarDadosAposEmprestimo(emprestimo);
     }
@@ -41,27 +56,59 @@ public class EmprestimoRepositoryImpl implements iEmprestimoRepository {
     @Override
     public void removerEmprestimo(Emprestimo emprestimo) {
         emprestimos.remove(emprestimo.getId());
+        emprestimosAtivosPorLivro.removerSe(emprestimo.getLivroId(), ativo -> ativo.getId() == emprestimo.getId());
         atualizarDadosAposDevolucao(emprestimo.getLivroId());
     }
 
     @Override
     public List<Emprestimo> listarEmprestimos() {
-        return emprestimos.values().stream()
-                .filter(emprestimo -> emprestimo.getDataEfetivaDevolucao() == null)
-                .toList();
+        return emprestimosAtivosPorLivro.valores();
+    }
+
+    //Reconstrução a partir de um log: registra o empréstimo sem alterar o livro, cujo estado já foi restaurado
+    public void restaurarEmprestimo(Emprestimo emprestimo) {
+        proximoId.accumulateAndGet(emprestimo.getId() + 1, Math::max);
+        emprestimos.put(emprestimo.getId(), emprestimo);
+        emprestimosAtivosPorLivro.put(emprestimo.getLivroId(), emprestimo);
+    }
+
+    public void restaurarDevolucao(int emprestimoId, int livroId) {
+        emprestimos.remove(emprestimoId);
+        emprestimosAtivosPorLivro.removerSe(livroId, ativo -> ativo.getId() == emprestimoId);
+    }
+
+    @Override
+    public void gravarEmprestimo(Emprestimo emprestimo) {
+        restaurarEmprestimo(emprestimo);
+    }
+
+    @Override
+    public void apagarEmprestimo(Emprestimo emprestimo) {
+        restaurarDevolucao(emprestimo.getId(), emprestimo.getLivroId());
     }
 
     private void atualizarDadosAposEmprestimo(Emprestimo emprestimo) {
         Livro livro = livroService.buscarLivroPorIDNoAcervo(emprestimo.getLivroId());
+        marcarEmprestado(livro, emprestimo);
+        livroService.salvarEstadoDoLivro(livro);
+    }
+
+    private void atualizarDadosAposDevolucao(int livroId) {
+        Livro livro = livroService.buscarLivroPorIDNoAcervo(livroId);
+        livro.setDataEfetivaDevolucao(LocalDate.now());
+        marcarDevolvido(livro);
+        livroService.salvarEstadoDoLivro(livro);
+    }
+
+    //Estado do livro enquanto o empréstimo está ativo; também usado para reconciliar livros após uma queda
+    static void marcarEmprestado(Livro livro, Emprestimo emprestimo) {
         livro.setDataEmprestimo(emprestimo.getDataEmprestimo());
         livro.setPrazoDevolucao(emprestimo.getPrazoDevolucao());
         livro.setDataEstimadaDevolucao(emprestimo.getDataEstimadaDevolucao());
         livro.setDisponivel(false);
     }
 
-    private void atualizarDadosAposDevolucao(int livroId) {
-        Livro livro = livroService.buscarLivroPorIDNoAcervo(livroId);
-        livro.setDataEfetivaDevolucao(LocalDate.now());
+    static void marcarDevolvido(Livro livro) {
         livro.setMulta(0);
         livro.setDisponivel(true);
         livro.setPrazoDevolucao(0);
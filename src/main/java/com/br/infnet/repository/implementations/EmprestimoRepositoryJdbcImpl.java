@@ -0,0 +1,160 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.model.Livro;
+import com.br.infnet.repository.interfaces.iEmprestimoRepository;
+import com.br.infnet.repository.persistencia.PoolConexoes;
+import com.br.infnet.service.LivroService;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+//Empréstimos ativos numa tabela do banco embutido. O índice único em livro_id garante um empréstimo ativo por
+//livro, inclusive entre instâncias da aplicação. Com o acervo no mesmo PoolConexoes, gravar o empréstimo e
+//atualizar o livro acontecem na mesma transação: ou os dois ficam gravados, ou nenhum.
+public class EmprestimoRepositoryJdbcImpl implements iEmprestimoRepository {
+    private static final String COLUNAS = "id, livro_id, data_emprestimo, data_estimada_devolucao, prazo_devolucao, multa";
+    private static final String[] ESQUEMA = {
+            "CREATE TABLE IF NOT EXISTS emprestimos ("
+                    + "id INT PRIMARY KEY, "
+                    + "livro_id INT NOT NULL, "
+                    + "data_emprestimo DATE, "
+                    + "data_estimada_devolucao DATE, "
+                    + "prazo_devolucao INT NOT NULL, "
+                    + "multa DOUBLE PRECISION NOT NULL)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS emprestimos_livro ON emprestimos (livro_id)"
+    };
+    private static final String INSERIR = "INSERT INTO emprestimos (" + COLUNAS + ") VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT = "MERGE INTO emprestimos (" + COLUNAS + ") KEY (id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String REMOVER = "DELETE FROM emprestimos WHERE id = ?";
+    private static final String POR_LIVRO = "SELECT " + COLUNAS + " FROM emprestimos WHERE livro_id = ?";
+    private static final String TODOS = "SELECT " + COLUNAS + " FROM emprestimos ORDER BY id";
+
+    private final PoolConexoes pool;
+    private final SequenciaIds sequencia;
+    private final LivroService livroService;
+
+    public EmprestimoRepositoryJdbcImpl(PoolConexoes pool, LivroService livroService) {
+        this.pool = pool;
+        this.livroService = livroService;
+        pool.executar(conexao -> {
+            try (Statement ddl = conexao.getConnection().createStatement()) {
+                for (String comando : ESQUEMA) {
+                    ddl.execute(comando);
+                }
+            }
+            return null;
+        });
+        this.sequencia = new SequenciaIds(pool, "emprestimos");
+    }
+
+    public int gerarProximoId() {
+        return sequencia.gerar();
+    }
+
+    @Override
+    public Emprestimo buscarLivroPorId(int livroId) {
+        return pool.executar(conexao -> {
+            PreparedStatement consulta = conexao.preparar(POR_LIVRO);
+            consulta.setInt(1, livroId);
+            try (ResultSet resultado = consulta.executeQuery()) {
+                return resultado.next() ? ler(resultado) : null;
+            }
+        });
+    }
+
+    @Override
+    public void realizarEmprestimo(Emprestimo emprestimo) {
+        Emprestimo emprestimoComId = emprestimo.getId() != 0 ? emprestimo
+                : new Emprestimo(gerarProximoId(), emprestimo.getLivroId(), emprestimo.getDataEmprestimo(),
+                emprestimo.getDataEstimadaDevolucao(), emprestimo.getPrazoDevolucao(), emprestimo.getMulta());
+        pool.executar(conexao -> {
+            gravar(conexao.preparar(INSERIR), emprestimoComId);
+            Livro livro = livroService.buscarLivroPorIDNoAcervo(emprestimoComId.getLivroId());
+            livro.setDataEmprestimo(emprestimoComId.getDataEmprestimo());
+            livro.setPrazoDevolucao(emprestimoComId.getPrazoDevolucao());
+            livro.setDataEstimadaDevolucao(emprestimoComId.getDataEstimadaDevolucao());
+            livro.setDisponivel(false);
+            livroService.salvarEstadoDoLivro(livro);
+            return null;
+        });
+    }
+
+    @Override
+    public void removerEmprestimo(Emprestimo emprestimo) {
+        pool.executar(conexao -> {
+            apagar(conexao.preparar(REMOVER), emprestimo);
+            Livro livro = livroService.buscarLivroPorIDNoAcervo(emprestimo.getLivroId());
+            livro.setMulta(0);
+            livro.setDisponivel(true);
+            livro.setPrazoDevolucao(0);
+            livro.setDataEmprestimo(null);
+            livro.setDataEstimadaDevolucao(null);
+            livro.setDataEfetivaDevolucao(null);
+            livroService.salvarEstadoDoLivro(livro);
+            return null;
+        });
+    }
+
+    //Só o registro, sem tocar no livro; o upsert torna a repetição inofensiva
+    @Override
+    public void gravarEmprestimo(Emprestimo emprestimo) {
+        pool.executar(conexao -> gravar(conexao.preparar(UPSERT), emprestimo));
+    }
+
+    @Override
+    public void apagarEmprestimo(Emprestimo emprestimo) {
+        pool.executar(conexao -> apagar(conexao.preparar(REMOVER), emprestimo));
+    }
+
+    @Override
+    public void executarEmLote(Runnable escritas) {
+        pool.executar(conexao -> {
+            escritas.run();
+            return null;
+        });
+    }
+
+    @Override
+    public List<Emprestimo> listarEmprestimos() {
+        return pool.executar(conexao -> {
+            List<Emprestimo> emprestimos = new ArrayList<>();
+            try (ResultSet resultado = conexao.preparar(TODOS).executeQuery()) {
+                while (resultado.next()) {
+                    emprestimos.add(ler(resultado));
+                }
+            }
+            return emprestimos;
+        });
+    }
+
+    private static int gravar(PreparedStatement escrita, Emprestimo emprestimo) throws SQLException {
+        escrita.setInt(1, emprestimo.getId());
+        escrita.setInt(2, emprestimo.getLivroId());
+        escrita.setObject(3, emprestimo.getDataEmprestimo());
+        escrita.setObject(4, emprestimo.getDataEstimadaDevolucao());
+        escrita.setInt(5, emprestimo.getPrazoDevolucao());
+        escrita.setDouble(6, emprestimo.getMulta());
+        try {
+            return escrita.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new IllegalStateException("Livro já está emprestado");
+        }
+    }
+
+    private static int apagar(PreparedStatement remocao, Emprestimo emprestimo) throws SQLException {
+        remocao.setInt(1, emprestimo.getId());
+        return remocao.executeUpdate();
+    }
+
+    private static Emprestimo ler(ResultSet resultado) throws SQLException {
+        return new Emprestimo(resultado.getInt(1), resultado.getInt(2), resultado.getObject(3, LocalDate.class),
+                resultado.getObject(4, LocalDate.class), resultado.getInt(5), resultado.getDouble(6));
+    }
+}
@@ -0,0 +1,390 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.CursorOrdenacao;
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.armazenamento.CodificadorLivro;
+import com.br.infnet.repository.estruturas.MapaLongInt;
+import com.br.infnet.repository.indices.IndiceOrdenado;
+import com.br.infnet.repository.indices.IndiceTrigramas;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import com.br.infnet.utils.NormalizadorTexto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+//Acervo armazenado por colunas: arrays paralelos indexados pelo id do livro (o slot), sem um objeto Livro por entrada.
+//ISBN vira long, datas viram dias desde a época e disponibilidade vira um bit. Objetos Livro só são
+//montados quando um resultado precisa ser devolvido; filtros de busca leem direto das colunas.
+//Os livros devolvidos são cópias: alterações só chegam ao acervo por atualizarLivro().
+public class LivroRepositoryColunarImpl implements iLivroRepository {
+    private static final String MENSAGEM_ISBN_DUPLICADO = "Já existe um livro cadastrado com este ISBN";
+    private static final int CAPACIDADE_INICIAL = 64;
+    private static final int SEM_DATA = Integer.MIN_VALUE;
+    private static final byte OCUPADO = 1;
+    private static final byte DISPONIVEL = 2;
+    //Quantidade de livros montados por vez sob a trava de leitura em paraCadaLivro()
+    private static final int BLOCO_ITERACAO = 256;
+
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    private final AtomicInteger proximoId = new AtomicInteger(1);
+
+    private String[] titulos;
+    private String[] autores;
+    private String[] titulosNormalizados;
+    private String[] autoresNormalizados;
+    private long[] isbns;
+    private int[] datasEmprestimo;
+    private int[] datasEstimadasDevolucao;
+    private int[] datasEfetivasDevolucao;
+    private int[] prazosDevolucao;
+    private double[] multas;
+    private byte[] estados;
+    //Maior slot já usado + 1: limite das varreduras
+    private int fimSlots;
+
+    private final MapaLongInt indiceISBN = new MapaLongInt();
+    private final IndiceTrigramas indiceTitulos = new IndiceTrigramas();
+    private final IndiceTrigramas indiceAutores = new IndiceTrigramas();
+    private final IndiceOrdenado ordemTitulos = new IndiceOrdenado();
+    private final IndiceOrdenado ordemAutores = new IndiceOrdenado();
+
+    public LivroRepositoryColunarImpl() {
+        this(true);
+    }
+
+    //Permite criar o repositório vazio, sem o CSV inicial
+    public LivroRepositoryColunarImpl(boolean carregarCatalogo) {
+        alocarColunas(CAPACIDADE_INICIAL);
+        if (carregarCatalogo) {
+            CatalogoCSV.carregar(this::cadastrarDoCSV);
+        }
+    }
+
+    @Override
+    public int gerarProximoId() {
+        return proximoId.getAndIncrement();
+    }
+
+    //O id (que é a posição nas colunas) só é gerado depois de o ISBN estar garantido: um cadastro recusado
+    //não consome ids nem deixa buracos nas colunas
+    @Override
+    public void salvarLivro(Livro livro) {
+        long isbn = CodificadorLivro.converterISBN(livro.getIsbn());
+        trava.writeLock().lock();
+        try {
+            if (indiceISBN.containsKey(isbn)) {
+                throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+            }
+            int novoId = gerarProximoId();
+            gravarCatalogo(novoId, livro.getTitulo(), livro.getAutor(), livro.getTituloNormalizado(),
+                    livro.getAutorNormalizado(), isbn);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void atualizarLivro(Livro livro) {
+        int id = livro.getId();
+        if (id < 0) {
+            throw new IllegalArgumentException("ID inválido");
+        }
+        long isbn = CodificadorLivro.converterISBN(livro.getIsbn());
+        //Ids gravados fora da sequência não podem ser reaproveitados por salvarLivro()
+        proximoId.accumulateAndGet(id + 1, Math::max);
+        trava.writeLock().lock();
+        try {
+            int dono = indiceISBN.get(isbn);
+            if (dono != MapaLongInt.AUSENTE && dono != id) {
+                throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+            }
+            if (ocupado(id)) {
+                desindexar(id);
+            }
+            gravarCatalogo(id, livro.getTitulo(), livro.getAutor(), livro.getTituloNormalizado(),
+                    livro.getAutorNormalizado(), isbn);
+            datasEmprestimo[id] = paraDias(livro.getDataEmprestimo());
+            datasEstimadasDevolucao[id] = paraDias(livro.getDataEstimadaDevolucao());
+            datasEfetivasDevolucao[id] = paraDias(livro.getDataEfetivaDevolucao());
+            prazosDevolucao[id] = livro.getPrazoDevolucao();
+            multas[id] = livro.getMulta();
+            estados[id] = (byte) (OCUPADO | (livro.isDisponivel() ? DISPONIVEL : 0));
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removerLivro(int id) {
+        trava.writeLock().lock();
+        try {
+            if (ocupado(id)) {
+                desindexar(id);
+                titulos[id] = null;
+                autores[id] = null;
+                titulosNormalizados[id] = null;
+                autoresNormalizados[id] = null;
+                estados[id] = 0;
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Livro buscarLivroPorId(int id) {
+        trava.readLock().lock();
+        try {
+            return ocupado(id) ? materializar(id) : null;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Livro buscarLivroPorISBN(String isbn) {
+        if (!CodificadorLivro.isbnNumerico(isbn)) {
+            return null;
+        }
+        long chave = Long.parseLong(isbn);
+        trava.readLock().lock();
+        try {
+            int id = indiceISBN.get(chave);
+            return id != MapaLongInt.AUSENTE ? materializar(id) : null;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existeISBN(String isbn) {
+        if (!CodificadorLivro.isbnNumerico(isbn)) {
+            return false;
+        }
+        long chave = Long.parseLong(isbn);
+        trava.readLock().lock();
+        try {
+            return indiceISBN.containsKey(chave);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Livro> listarLivros() {
+        return percorrerSlots(0, Integer.MAX_VALUE, slot -> true);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTitulo(String titulo) {
+        return listarLivrosPorTituloAPartirDe(titulo, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutor(String autor) {
+        return listarLivrosPorAutorAPartirDe(autor, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Livro> listarLivrosAPartirDe(int cursor, int limite) {
+        return percorrerSlots(cursor, limite, slot -> true);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTituloAPartirDe(String titulo, int cursor, int limite) {
+        return buscarPorTexto(indiceTitulos, titulo, true, cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutorAPartirDe(String autor, int cursor, int limite) {
+        return buscarPorTexto(indiceAutores, autor, false, cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosOrdenadosAPartirDe(OrdemListagem ordem, CursorOrdenacao cursor, int limite) {
+        IndiceOrdenado indice = switch (ordem) {
+            case TITULO -> ordemTitulos;
+            case AUTOR -> ordemAutores;
+            case ID -> null;
+        };
+        if (indice == null) {
+            return listarLivrosAPartirDe(cursor == null ? 0 : cursor.id(), limite);
+        }
+        int[] ids = cursor == null
+                ? indice.idsAPartirDe(null, 0, limite)
+                : indice.idsAPartirDe(cursor.texto(), cursor.id(), limite);
+        List<Livro> resultado = new ArrayList<>(ids.length);
+        trava.readLock().lock();
+        try {
+            for (int id : ids) {
+                if (ocupado(id)) {
+                    resultado.add(materializar(id));
+                }
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+        return resultado;
+    }
+
+    //Monta os livros em blocos sob a trava de leitura e entrega cada bloco fora dela,
+    //para que a ação possa chamar métodos de escrita do repositório sem travar
+    @Override
+    public void paraCadaLivro(Predicate<Livro> filtro, Consumer<Livro> acao) {
+        int cursor = 0;
+        List<Livro> bloco;
+        do {
+            bloco = percorrerSlots(cursor, BLOCO_ITERACAO, slot -> true);
+            for (Livro livro : bloco) {
+                if (filtro.test(livro)) {
+                    acao.accept(livro);
+                }
+            }
+            if (!bloco.isEmpty()) {
+                cursor = bloco.get(bloco.size() - 1).getId();
+            }
+        } while (bloco.size() == BLOCO_ITERACAO);
+    }
+
+    private List<Livro> buscarPorTexto(IndiceTrigramas indice, String termo, boolean porTitulo, int cursor, int limite) {
+        String termoBusca = NormalizadorTexto.normalizar(termo.trim());
+        IntPredicate confere = slot -> (porTitulo ? titulosNormalizados : autoresNormalizados)[slot].contains(termoBusca);
+        int[] candidatos = indice.buscarCandidatos(termoBusca);
+        if (candidatos == null) {
+            return percorrerSlots(cursor, limite, confere);
+        }
+        int inicio = Arrays.binarySearch(candidatos, cursor);
+        inicio = inicio >= 0 ? inicio + 1 : -inicio - 1;
+        List<Livro> resultado = new ArrayList<>(Math.min(limite, candidatos.length - inicio));
+        trava.readLock().lock();
+        try {
+            for (int i = inicio; i < candidatos.length && resultado.size() < limite; i++) {
+                int slot = candidatos[i];
+                if (ocupado(slot) && confere.test(slot)) {
+                    resultado.add(materializar(slot));
+                }
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+        return resultado;
+    }
+
+    //Varre os slots após o cursor aplicando o filtro sobre as colunas; só os aceitos viram objetos Livro
+    private List<Livro> percorrerSlots(int cursor, int limite, IntPredicate filtro) {
+        List<Livro> resultado = new ArrayList<>(Math.min(limite, 64));
+        trava.readLock().lock();
+        try {
+            for (int slot = Math.max(cursor, 0) + 1; slot < fimSlots && resultado.size() < limite; slot++) {
+                if (ocupado(slot) && filtro.test(slot)) {
+                    resultado.add(materializar(slot));
+                }
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+        return resultado;
+    }
+
+    private Livro materializar(int slot) {
+        Livro livro = Livro.restaurar(slot, titulos[slot], autores[slot], CodificadorLivro.formatarISBN(isbns[slot]),
+                titulosNormalizados[slot], autoresNormalizados[slot]);
+        livro.setDisponivel((estados[slot] & DISPONIVEL) != 0);
+        livro.setDataEmprestimo(paraData(datasEmprestimo[slot]));
+        livro.setDataEstimadaDevolucao(paraData(datasEstimadasDevolucao[slot]));
+        livro.setDataEfetivaDevolucao(paraData(datasEfetivasDevolucao[slot]));
+        livro.setPrazoDevolucao(prazosDevolucao[slot]);
+        livro.setMulta(multas[slot]);
+        return livro;
+    }
+
+    //Deve ser chamado com a trava de escrita. Grava os dados de catálogo com o estado de empréstimo zerado.
+    private void gravarCatalogo(int slot, String titulo, String autor, String tituloNormalizado,
+                                String autorNormalizado, long isbn) {
+        garantirCapacidade(slot);
+        titulos[slot] = titulo;
+        autores[slot] = autor;
+        titulosNormalizados[slot] = tituloNormalizado;
+        autoresNormalizados[slot] = autorNormalizado;
+        isbns[slot] = isbn;
+        datasEmprestimo[slot] = SEM_DATA;
+        datasEstimadasDevolucao[slot] = SEM_DATA;
+        datasEfetivasDevolucao[slot] = SEM_DATA;
+        prazosDevolucao[slot] = 0;
+        multas[slot] = 0;
+        estados[slot] = OCUPADO | DISPONIVEL;
+        fimSlots = Math.max(fimSlots, slot + 1);
+        indiceISBN.put(isbn, slot);
+        indiceTitulos.indexar(slot, tituloNormalizado);
+        indiceAutores.indexar(slot, autorNormalizado);
+        ordemTitulos.indexar(slot, titulo);
+        ordemAutores.indexar(slot, autor);
+    }
+
+    private void desindexar(int slot) {
+        indiceISBN.remove(isbns[slot]);
+        indiceTitulos.desindexar(slot, titulosNormalizados[slot]);
+        indiceAutores.desindexar(slot, autoresNormalizados[slot]);
+        ordemTitulos.desindexar(slot);
+        ordemAutores.desindexar(slot);
+    }
+
+    private boolean ocupado(int slot) {
+        return slot >= 0 && slot < fimSlots && (estados[slot] & OCUPADO) != 0;
+    }
+
+    private void garantirCapacidade(int slot) {
+        if (slot >= estados.length) {
+            alocarColunas(Math.max(slot + 1, estados.length + (estados.length >> 1)));
+        }
+    }
+
+    private void alocarColunas(int capacidade) {
+        int anterior = estados == null ? 0 : estados.length;
+        titulos = estados == null ? new String[capacidade] : Arrays.copyOf(titulos, capacidade);
+        autores = estados == null ? new String[capacidade] : Arrays.copyOf(autores, capacidade);
+        titulosNormalizados = estados == null ? new String[capacidade] : Arrays.copyOf(titulosNormalizados, capacidade);
+        autoresNormalizados = estados == null ? new String[capacidade] : Arrays.copyOf(autoresNormalizados, capacidade);
+        isbns = estados == null ? new long[capacidade] : Arrays.copyOf(isbns, capacidade);
+        datasEmprestimo = estados == null ? new int[capacidade] : Arrays.copyOf(datasEmprestimo, capacidade);
+        datasEstimadasDevolucao = estados == null ? new int[capacidade] : Arrays.copyOf(datasEstimadasDevolucao, capacidade);
+        datasEfetivasDevolucao = estados == null ? new int[capacidade] : Arrays.copyOf(datasEfetivasDevolucao, capacidade);
+        prazosDevolucao = estados == null ? new int[capacidade] : Arrays.copyOf(prazosDevolucao, capacidade);
+        multas = estados == null ? new double[capacidade] : Arrays.copyOf(multas, capacidade);
+        estados = estados == null ? new byte[capacidade] : Arrays.copyOf(estados, capacidade);
+        Arrays.fill(datasEmprestimo, anterior, capacidade, SEM_DATA);
+        Arrays.fill(datasEstimadasDevolucao, anterior, capacidade, SEM_DATA);
+        Arrays.fill(datasEfetivasDevolucao, anterior, capacidade, SEM_DATA);
+    }
+
+    private boolean cadastrarDoCSV(String titulo, String autor, String isbn) {
+        Livro livro = new Livro(0, titulo, autor, isbn);
+        try {
+            salvarLivro(livro);
+            return true;
+        } catch (IllegalArgumentException e) {
+            if (MENSAGEM_ISBN_DUPLICADO.equals(e.getMessage())) {
+                //Como a carga em memória, a linha duplicada consome um id, para os ids do catálogo coincidirem
+                gerarProximoId();
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static int paraDias(LocalDate data) {
+        return data == null ? SEM_DATA : (int) data.toEpochDay();
+    }
+
+    private static LocalDate paraData(int dias) {
+        return dias == SEM_DATA ? null : LocalDate.ofEpochDay(dias);
+    }
+}
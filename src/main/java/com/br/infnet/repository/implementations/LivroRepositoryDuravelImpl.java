@@ -0,0 +1,247 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.CursorOrdenacao;
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.armazenamento.CodificadorLivro;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import com.br.infnet.repository.persistencia.LogEscritaAntecipada;
+import com.br.infnet.repository.persistencia.PoliticaDurabilidade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+//Acervo durável: cada escrita é gravada no log antes de ser aplicada ao repositório em memória,
+//e o log é reproduzido ao abrir. Leituras vão direto ao repositório em memória, que é atualizado antes da
+//espera pelo disco: nas políticas LOTE e PERIODICA outras threads podem ver uma escrita ainda não confirmada.
+//Registros do log: [operação byte][livro no formato do CodificadorLivro] ou [REMOVER][id int].
+public class LivroRepositoryDuravelImpl implements iLivroRepository, Closeable {
+    private static final String MENSAGEM_ISBN_DUPLICADO = "Já existe um livro cadastrado com este ISBN";
+    private static final byte OPERACAO_GRAVAR = 1;
+    private static final byte OPERACAO_REMOVER = 2;
+
+    private final LivroRepositoryImpl memoria;
+    private final LogEscritaAntecipada log;
+    //Serializa as escritas para que a ordem do log seja a ordem em que foram aplicadas. A espera pelo disco
+    //fica fora da trava, o que permite ao log confirmar escritas concorrentes num mesmo fsync.
+    private final ReentrantLock escrita = new ReentrantLock();
+
+    //Abre (ou cria) o log em disco. Num log novo, o catálogo inicial do CSV é gravado nele como ponto de partida.
+    public static LivroRepositoryDuravelImpl abrir(Path arquivo, PoliticaDurabilidade politica) throws IOException {
+        LivroRepositoryDuravelImpl repositorio = new LivroRepositoryDuravelImpl(new LivroRepositoryImpl(false),
+                new LogEscritaAntecipada(arquivo, politica));
+        repositorio.semearSeVazio();
+        return repositorio;
+    }
+
+    //O repositório em memória deve estar vazio ou conter só o estado de um instantâneo, ainda em carga em lote;
+    //o log traz tudo o que aconteceu depois dele
+    public LivroRepositoryDuravelImpl(LivroRepositoryImpl memoria, LogEscritaAntecipada log) throws IOException {
+        this.memoria = memoria;
+        this.log = log;
+        long inicio = System.nanoTime();
+        long registros;
+        memoria.iniciarCargaEmLote();
+        try {
+            registros = log.reproduzir(this::aplicar);
+        } finally {
+            memoria.concluirCargaEmLote();
+        }
+        System.out.printf("Acervo restaurado de %s: %d registros em %d ms%n", log.getArquivo(), registros,
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    @Override
+    public int gerarProximoId() {
+        return memoria.gerarProximoId();
+    }
+
+    @Override
+    public void salvarLivro(Livro livro) {
+        long sequencia;
+        escrita.lock();
+        try {
+            if (memoria.existeISBN(livro.getIsbn())) {
+                throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+            }
+            Livro livroComId = Livro.restaurar(memoria.gerarProximoId(), livro.getTitulo(), livro.getAutor(),
+                    livro.getIsbn(), livro.getTituloNormalizado(), livro.getAutorNormalizado());
+            sequencia = registrar(OPERACAO_GRAVAR, CodificadorLivro.codificar(livroComId));
+            memoria.atualizarLivro(livroComId);
+        } finally {
+            escrita.unlock();
+        }
+        aguardarDurabilidade(sequencia);
+    }
+
+    @Override
+    public void atualizarLivro(Livro livro) {
+        long sequencia;
+        escrita.lock();
+        try {
+            Livro dono = memoria.buscarLivroPorISBN(livro.getIsbn());
+            if (dono != null && dono.getId() != livro.getId()) {
+                throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+            }
+            sequencia = registrar(OPERACAO_GRAVAR, CodificadorLivro.codificar(livro));
+            memoria.atualizarLivro(livro);
+        } finally {
+            escrita.unlock();
+        }
+        aguardarDurabilidade(sequencia);
+    }
+
+    @Override
+    public void removerLivro(int id) {
+        long sequencia;
+        escrita.lock();
+        try {
+            if (memoria.buscarLivroPorId(id) == null) {
+                return;
+            }
+            sequencia = registrar(OPERACAO_REMOVER, ByteBuffer.allocate(4).putInt(id).array());
+            memoria.removerLivro(id);
+        } finally {
+            escrita.unlock();
+        }
+        aguardarDurabilidade(sequencia);
+    }
+
+    @Override
+    public Livro buscarLivroPorId(int id) {
+        return memoria.buscarLivroPorId(id);
+    }
+
+    @Override
+    public Livro buscarLivroPorISBN(String isbn) {
+        return memoria.buscarLivroPorISBN(isbn);
+    }
+
+    @Override
+    public List<Livro> listarLivros() {
+        return memoria.listarLivros();
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTitulo(String titulo) {
+        return memoria.listarLivrosPorTitulo(titulo);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutor(String autor) {
+        return memoria.listarLivrosPorAutor(autor);
+    }
+
+    @Override
+    public boolean existeISBN(String isbn) {
+        return memoria.existeISBN(isbn);
+    }
+
+    @Override
+    public List<Livro> listarLivrosAPartirDe(int cursor, int limite) {
+        return memoria.listarLivrosAPartirDe(cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTituloAPartirDe(String titulo, int cursor, int limite) {
+        return memoria.listarLivrosPorTituloAPartirDe(titulo, cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutorAPartirDe(String autor, int cursor, int limite) {
+        return memoria.listarLivrosPorAutorAPartirDe(autor, cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosOrdenadosAPartirDe(OrdemListagem ordem, CursorOrdenacao cursor, int limite) {
+        return memoria.listarLivrosOrdenadosAPartirDe(ordem, cursor, limite);
+    }
+
+    @Override
+    public void paraCadaLivro(Predicate<Livro> filtro, Consumer<Livro> acao) {
+        memoria.paraCadaLivro(filtro, acao);
+    }
+
+    //Acervo sem nenhum histórico (log vazio e nenhum id já gerado): grava o catálogo inicial do CSV.
+    //O CSV serve só de semente; depois disso o estado vem do instantâneo e do log.
+    public void semearSeVazio() throws IOException {
+        if (log.tamanhoEmBytes() > 0 || memoria.consultarProximoId() > 1) {
+            return;
+        }
+        CatalogoCSV.carregar((titulo, autor, isbn) -> {
+            if (existeISBN(isbn)) {
+                return false;
+            }
+            salvarLivro(new Livro(0, titulo, autor, isbn));
+            return true;
+        });
+    }
+
+    //Suspende as escritas, por exemplo durante um instantâneo; leituras continuam normalmente
+    public void suspenderEscritas() {
+        escrita.lock();
+    }
+
+    public void retomarEscritas() {
+        escrita.unlock();
+    }
+
+    public int consultarProximoId() {
+        return memoria.consultarProximoId();
+    }
+
+    //Descarta o log depois que seu conteúdo foi incorporado a um instantâneo; exige escritas suspensas
+    public void reiniciarLog() throws IOException {
+        log.reiniciar();
+    }
+
+    //Posição atual do log, para uma cópia de segurança; exige escritas suspensas
+    public LogEscritaAntecipada.Marco marcarLog() throws IOException {
+        return log.marcar();
+    }
+
+    public long copiarLog(LogEscritaAntecipada.Marco marco, OutputStream saida) throws IOException {
+        return log.copiarAte(marco, saida);
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private long registrar(byte operacao, byte[] dados) {
+        byte[] conteudo = new byte[1 + dados.length];
+        conteudo[0] = operacao;
+        System.arraycopy(dados, 0, conteudo, 1, dados.length);
+        try {
+            return log.enfileirar(conteudo);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao gravar no log do acervo: " + e.getMessage(), e);
+        }
+    }
+
+    //A escrita já está visível em memória; o chamador só retorna quando ela estiver durável
+    private void aguardarDurabilidade(long sequencia) {
+        try {
+            log.aguardarDurabilidade(sequencia);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao gravar no log do acervo: " + e.getMessage(), e);
+        }
+    }
+
+    //Reprodução: os registros já foram validados quando gravados, então são aplicados sem revalidar
+    private void aplicar(ByteBuffer registro) {
+        switch (registro.get(0)) {
+            case OPERACAO_GRAVAR -> memoria.atualizarLivro(CodificadorLivro.decodificar(registro, 1));
+            case OPERACAO_REMOVER -> memoria.removerLivro(registro.getInt(1));
+            default -> throw new IllegalStateException("Operação desconhecida no log do acervo: " + registro.get(0));
+        }
+    }
+}
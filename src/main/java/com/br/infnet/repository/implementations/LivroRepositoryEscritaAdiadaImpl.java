@@ -0,0 +1,221 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.CursorOrdenacao;
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import com.br.infnet.repository.persistencia.FilaEscritaAdiada;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+//Escrita adiada (write-behind) na frente de um repositório durável: o acervo em memória é a visão oficial,
+//atualizada na hora, e as mudanças chegam ao repositório de destino depois, pela FilaEscritaAdiada. Cada
+//livro tem no máximo uma escrita pendente com o seu estado mais recente (ou a remoção), então várias edições
+//do mesmo livro viram uma gravação. Cada lote é aplicado com executarEmLote do destino (uma transação, no JDBC).
+//O destino precisa aceitar atualizarLivro com ids que ainda não conhece (upsert), já que os ids são gerados
+//aqui. Até a fila ser descarregada, uma queda perde as escritas pendentes: no máximo o atraso configurado.
+public class LivroRepositoryEscritaAdiadaImpl implements iLivroRepository, Closeable {
+    private static final int QUANTIDADE_TRAVAS = 64;
+
+    //Estado a gravar de um livro; livro == null significa remoção
+    private record Escrita(int id, Livro livro) {
+    }
+
+    private final LivroRepositoryImpl memoria = new LivroRepositoryImpl(false);
+    private final iLivroRepository destino;
+    private final FilaEscritaAdiada<Escrita> fila;
+    //Aplicar na memória e enfileirar acontecem sob a trava do livro, para a fila receber os estados do mesmo
+    //livro na ordem em que foram aplicados
+    private final ReentrantLock[] travasPorLivro = new ReentrantLock[QUANTIDADE_TRAVAS];
+
+    public LivroRepositoryEscritaAdiadaImpl(iLivroRepository destino) {
+        this(destino, FilaEscritaAdiada.CAPACIDADE_PADRAO, FilaEscritaAdiada.TAMANHO_LOTE_PADRAO,
+                FilaEscritaAdiada.ATRASO_MAXIMO_PADRAO_MS, FilaEscritaAdiada.ESPERA_MAXIMA_PADRAO_MS);
+    }
+
+    public LivroRepositoryEscritaAdiadaImpl(iLivroRepository destino, int capacidade, int tamanhoLote,
+                                            long atrasoMaximoMs, long esperaMaximaMs) {
+        this.destino = destino;
+        for (int i = 0; i < QUANTIDADE_TRAVAS; i++) {
+            travasPorLivro[i] = new ReentrantLock();
+        }
+        long inicio = System.nanoTime();
+        memoria.iniciarCargaEmLote();
+        destino.paraCadaLivro(livro -> true, memoria::atualizarLivro);
+        memoria.concluirCargaEmLote();
+        //Consome um id do destino só para saber até onde ele já gerou, inclusive ids de livros removidos
+        memoria.restaurarProximoId(destino.gerarProximoId());
+        System.out.printf("Acervo com escrita adiada carregado: %d livros em %d ms%n", memoria.listarLivros().size(),
+                (System.nanoTime() - inicio) / 1_000_000);
+        this.fila = new FilaEscritaAdiada<>("livros", this::gravarLote, capacidade, tamanhoLote, atrasoMaximoMs,
+                esperaMaximaMs);
+    }
+
+    @Override
+    public int gerarProximoId() {
+        return memoria.gerarProximoId();
+    }
+
+    @Override
+    public void salvarLivro(Livro livro) {
+        int novoId = memoria.gerarProximoId();
+        Livro livroComId = Livro.restaurar(novoId, livro.getTitulo(), livro.getAutor(), livro.getIsbn(),
+                livro.getTituloNormalizado(), livro.getAutorNormalizado());
+        ReentrantLock trava = travaDoLivro(novoId);
+        trava.lock();
+        try {
+            memoria.atualizarLivro(livroComId);
+            fila.enfileirar(novoId, new Escrita(novoId, copiar(livroComId)));
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public void atualizarLivro(Livro livro) {
+        ReentrantLock trava = travaDoLivro(livro.getId());
+        trava.lock();
+        try {
+            memoria.atualizarLivro(livro);
+            fila.enfileirar(livro.getId(), new Escrita(livro.getId(), copiar(livro)));
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public void removerLivro(int id) {
+        ReentrantLock trava = travaDoLivro(id);
+        trava.lock();
+        try {
+            memoria.removerLivro(id);
+            fila.enfileirar(id, new Escrita(id, null));
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public Livro buscarLivroPorId(int id) {
+        return memoria.buscarLivroPorId(id);
+    }
+
+    @Override
+    public Livro buscarLivroPorISBN(String isbn) {
+        return memoria.buscarLivroPorISBN(isbn);
+    }
+
+    @Override
+    public List<Livro> listarLivros() {
+        return memoria.listarLivros();
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTitulo(String titulo) {
+        return memoria.listarLivrosPorTitulo(titulo);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutor(String autor) {
+        return memoria.listarLivrosPorAutor(autor);
+    }
+
+    @Override
+    public boolean existeISBN(String isbn) {
+        return memoria.existeISBN(isbn);
+    }
+
+    @Override
+    public List<Livro> listarLivrosAPartirDe(int cursor, int limite) {
+        return memoria.listarLivrosAPartirDe(cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTituloAPartirDe(String titulo, int cursor, int limite) {
+        return memoria.listarLivrosPorTituloAPartirDe(titulo, cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutorAPartirDe(String autor, int cursor, int limite) {
+        return memoria.listarLivrosPorAutorAPartirDe(autor, cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosOrdenadosAPartirDe(OrdemListagem ordem, CursorOrdenacao cursor, int limite) {
+        return memoria.listarLivrosOrdenadosAPartirDe(ordem, cursor, limite);
+    }
+
+    @Override
+    public void paraCadaLivro(Predicate<Livro> filtro, Consumer<Livro> acao) {
+        memoria.paraCadaLivro(filtro, acao);
+    }
+
+    //Grava agora as escritas pendentes e espera o destino confirmá-las
+    public void descarregar() {
+        fila.descarregar();
+    }
+
+    public FilaEscritaAdiada<?> getFila() {
+        return fila;
+    }
+
+    //Descarrega o que estiver pendente; o destino continua aberto e deve ser fechado depois
+    @Override
+    public void close() {
+        fila.close();
+    }
+
+    //A combinação desfaz a ordem entre livros: um ISBN pode continuar, no destino, com o livro que só o cede numa
+    //escrita posterior. As recusadas são tentadas de novo no fim do lote; as que sobrarem, inclusive trocas de
+    //ISBN entre dois livros, são removidas do destino e regravadas. Se ainda assim falharem, voltam para a fila.
+    private List<Escrita> gravarLote(List<Escrita> escritas) {
+        List<Escrita> recusadas = new ArrayList<>();
+        destino.executarEmLote(() -> {
+            List<Escrita> conflitantes = aplicar(escritas);
+            conflitantes = aplicar(conflitantes);
+            if (!conflitantes.isEmpty()) {
+                conflitantes.forEach(escrita -> destino.removerLivro(escrita.id()));
+                recusadas.addAll(aplicar(conflitantes));
+            }
+        });
+        return recusadas;
+    }
+
+    private List<Escrita> aplicar(List<Escrita> escritas) {
+        List<Escrita> conflitantes = new ArrayList<>();
+        for (Escrita escrita : escritas) {
+            if (escrita.livro() == null) {
+                destino.removerLivro(escrita.id());
+                continue;
+            }
+            try {
+                destino.atualizarLivro(escrita.livro());
+            } catch (IllegalArgumentException e) {
+                conflitantes.add(escrita);
+            }
+        }
+        return conflitantes;
+    }
+
+    private ReentrantLock travaDoLivro(int id) {
+        return travasPorLivro[Math.floorMod(id, QUANTIDADE_TRAVAS)];
+    }
+
+    //Quem chama continua com a instância e pode alterá-la; a fila precisa do estado deste momento
+    private static Livro copiar(Livro livro) {
+        Livro copia = Livro.restaurar(livro.getId(), livro.getTitulo(), livro.getAutor(), livro.getIsbn(),
+                livro.getTituloNormalizado(), livro.getAutorNormalizado());
+        copia.setDisponivel(livro.isDisponivel());
+        copia.setDataEmprestimo(livro.getDataEmprestimo());
+        copia.setDataEstimadaDevolucao(livro.getDataEstimadaDevolucao());
+        copia.setDataEfetivaDevolucao(livro.getDataEfetivaDevolucao());
+        copia.setPrazoDevolucao(livro.getPrazoDevolucao());
+        copia.setMulta(livro.getMulta());
+        return copia;
+    }
+}
@@ -0,0 +1,403 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.CursorOrdenacao;
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.armazenamento.CodificadorLivro;
+import com.br.infnet.repository.armazenamento.CompactadorFundo;
+import com.br.infnet.repository.armazenamento.RegistrosForaDoHeap;
+import com.br.infnet.repository.estruturas.MapaLongInt;
+import com.br.infnet.repository.indices.IndiceOrdenadoCompacto;
+import com.br.infnet.repository.indices.IndiceTrigramas;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import com.br.infnet.utils.NormalizadorTexto;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+//Acervo para catálogos muito grandes: os registros ficam em ByteBuffers diretos, fora do heap, no formato
+//do CodificadorLivro, e o índice id -> registro também. No heap restam só arrays primitivos (índice de ISBN,
+//postagens de trigramas e os ids em ordem alfabética), que o coletor não precisa percorrer, então as pausas
+//não crescem com o acervo.
+//Atualizações que não mudam o tamanho do registro (ex.: empréstimo e devolução) são regravadas no lugar; o espaço
+//das demais versões substituídas e dos livros removidos é recuperado por um CompactadorFundo, em passos curtos
+//com taxa limitada, que esvazia os blocos mais fragmentados.
+//Os livros devolvidos são cópias decodificadas: alterações só chegam ao acervo por atualizarLivro().
+public class LivroRepositoryForaDoHeapImpl implements iLivroRepository, Closeable {
+    private static final String MENSAGEM_ISBN_DUPLICADO = "Já existe um livro cadastrado com este ISBN";
+    private static final int BLOCO_ITERACAO = 256;
+
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    private final AtomicInteger proximoId = new AtomicInteger(1);
+    private final RegistrosForaDoHeap registros;
+    private final MapaLongInt indiceISBN = new MapaLongInt();
+    private final IndiceTrigramas indiceTitulos = new IndiceTrigramas();
+    private final IndiceTrigramas indiceAutores = new IndiceTrigramas();
+    private final IndiceOrdenadoCompacto ordemTitulos;
+    private final IndiceOrdenadoCompacto ordemAutores;
+    private final CompactadorFundo compactador;
+
+    //Chaves de índice gravadas no registro atual de um livro
+    private record Indexacao(long isbn, String titulo, String autor, String tituloNormalizado, String autorNormalizado) {
+        static Indexacao ler(ByteBuffer bloco, int posicao) {
+            return new Indexacao(CodificadorLivro.lerISBN(bloco, posicao), CodificadorLivro.lerTitulo(bloco, posicao),
+                    CodificadorLivro.lerAutor(bloco, posicao), CodificadorLivro.lerTituloNormalizado(bloco, posicao),
+                    CodificadorLivro.lerAutorNormalizado(bloco, posicao));
+        }
+    }
+
+    public LivroRepositoryForaDoHeapImpl() {
+        this(RegistrosForaDoHeap.TAMANHO_BLOCO_PADRAO, true);
+    }
+
+    public LivroRepositoryForaDoHeapImpl(int tamanhoBloco, boolean carregarCatalogo) {
+        this(tamanhoBloco, carregarCatalogo, CompactadorFundo.BYTES_POR_SEGUNDO_PADRAO);
+    }
+
+    //bytesPorSegundoCompactacao limita o que a compactação de fundo confere e copia
+    public LivroRepositoryForaDoHeapImpl(int tamanhoBloco, boolean carregarCatalogo, long bytesPorSegundoCompactacao) {
+        this.registros = new RegistrosForaDoHeap(tamanhoBloco, CodificadorLivro::tamanhoRegistro);
+        this.ordemTitulos = new IndiceOrdenadoCompacto(id -> registros.ler(id, CodificadorLivro::lerTitulo));
+        this.ordemAutores = new IndiceOrdenadoCompacto(id -> registros.ler(id, CodificadorLivro::lerAutor));
+        if (carregarCatalogo) {
+            CatalogoCSV.carregar(this::cadastrarDoCSV);
+        }
+        this.compactador = new CompactadorFundo("acervo-fora-do-heap", new CompactadorFundo.Tarefa() {
+            @Override
+            public CompactadorFundo.Passo passo(boolean forcado) {
+                trava.writeLock().lock();
+                try {
+                    return registros.passoCompactacao(forcado);
+                } finally {
+                    trava.writeLock().unlock();
+                }
+            }
+
+            @Override
+            public long pendencia() {
+                return bytesObsoletosForaDoHeap();
+            }
+        }, bytesPorSegundoCompactacao, CompactadorFundo.INTERVALO_PADRAO_MS);
+    }
+
+    @Override
+    public int gerarProximoId() {
+        return proximoId.getAndIncrement();
+    }
+
+    //O id só é gerado depois de o ISBN estar garantido, então um cadastro recusado não consome ids
+    @Override
+    public void salvarLivro(Livro livro) {
+        long isbn = CodificadorLivro.converterISBN(livro.getIsbn());
+        trava.writeLock().lock();
+        try {
+            if (indiceISBN.containsKey(isbn)) {
+                throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+            }
+            Livro livroComId = Livro.restaurar(gerarProximoId(), livro.getTitulo(), livro.getAutor(), livro.getIsbn(),
+                    livro.getTituloNormalizado(), livro.getAutorNormalizado());
+            gravar(livroComId, isbn, CodificadorLivro.codificar(livroComId));
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void atualizarLivro(Livro livro) {
+        long isbn = CodificadorLivro.converterISBN(livro.getIsbn());
+        byte[] registro = CodificadorLivro.codificar(livro);
+        proximoId.accumulateAndGet(livro.getId() + 1, Math::max);
+        trava.writeLock().lock();
+        try {
+            int dono = indiceISBN.get(isbn);
+            if (dono != MapaLongInt.AUSENTE && dono != livro.getId()) {
+                throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+            }
+            Indexacao anterior = registros.ler(livro.getId(), Indexacao::ler);
+            if (anterior == null) {
+                gravar(livro, isbn, registro);
+            } else {
+                registros.gravar(livro.getId(), registro);
+                reindexar(livro, isbn, anterior);
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removerLivro(int id) {
+        trava.writeLock().lock();
+        try {
+            desindexar(id);
+            registros.remover(id);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Livro buscarLivroPorId(int id) {
+        trava.readLock().lock();
+        try {
+            return registros.ler(id, CodificadorLivro::decodificar);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Livro buscarLivroPorISBN(String isbn) {
+        if (!CodificadorLivro.isbnNumerico(isbn)) {
+            return null;
+        }
+        long chave = Long.parseLong(isbn);
+        trava.readLock().lock();
+        try {
+            int id = indiceISBN.get(chave);
+            return id != MapaLongInt.AUSENTE ? registros.ler(id, CodificadorLivro::decodificar) : null;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existeISBN(String isbn) {
+        if (!CodificadorLivro.isbnNumerico(isbn)) {
+            return false;
+        }
+        long chave = Long.parseLong(isbn);
+        trava.readLock().lock();
+        try {
+            return indiceISBN.containsKey(chave);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Livro> listarLivros() {
+        return percorrerIds(0, Integer.MAX_VALUE, null, null);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTitulo(String titulo) {
+        return listarLivrosPorTituloAPartirDe(titulo, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutor(String autor) {
+        return listarLivrosPorAutorAPartirDe(autor, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Livro> listarLivrosAPartirDe(int cursor, int limite) {
+        return percorrerIds(cursor, limite, null, null);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTituloAPartirDe(String titulo, int cursor, int limite) {
+        return buscarPorTexto(indiceTitulos, titulo, CodificadorLivro::lerTituloNormalizado, cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutorAPartirDe(String autor, int cursor, int limite) {
+        return buscarPorTexto(indiceAutores, autor, CodificadorLivro::lerAutorNormalizado, cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosOrdenadosAPartirDe(OrdemListagem ordem, CursorOrdenacao cursor, int limite) {
+        IndiceOrdenadoCompacto indice = switch (ordem) {
+            case TITULO -> ordemTitulos;
+            case AUTOR -> ordemAutores;
+            case ID -> null;
+        };
+        if (indice == null) {
+            return listarLivrosAPartirDe(cursor == null ? 0 : cursor.id(), limite);
+        }
+        trava.readLock().lock();
+        try {
+            int[] ids = cursor == null
+                    ? indice.idsAPartirDe(null, 0, limite)
+                    : indice.idsAPartirDe(cursor.texto(), cursor.id(), limite);
+            List<Livro> resultado = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                Livro livro = registros.ler(id, CodificadorLivro::decodificar);
+                if (livro != null) {
+                    resultado.add(livro);
+                }
+            }
+            return resultado;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void paraCadaLivro(Predicate<Livro> filtro, Consumer<Livro> acao) {
+        int cursor = 0;
+        List<Livro> bloco;
+        do {
+            bloco = percorrerIds(cursor, BLOCO_ITERACAO, null, null);
+            for (Livro livro : bloco) {
+                if (filtro.test(livro)) {
+                    acao.accept(livro);
+                }
+            }
+            if (!bloco.isEmpty()) {
+                cursor = bloco.get(bloco.size() - 1).getId();
+            }
+        } while (bloco.size() == BLOCO_ITERACAO);
+    }
+
+    //Memória direta reservada pelos blocos de registros e pelo índice de ids
+    public long bytesForaDoHeap() {
+        trava.readLock().lock();
+        try {
+            return registros.bytesReservados();
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    //Bytes ocupados por versões substituídas ou removidas, ainda não recuperados
+    public long bytesObsoletosForaDoHeap() {
+        trava.readLock().lock();
+        try {
+            return registros.bytesObsoletos();
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    //Recupera agora, sem limite de taxa, o espaço dos blocos fragmentados; devolve os bytes recuperados
+    public long compactar() {
+        return compactador.compactar();
+    }
+
+    public CompactadorFundo.Metricas getMetricasCompactacao() {
+        return compactador.getMetricas();
+    }
+
+    //Para a compactação de fundo; os blocos diretos são liberados pelo coletor junto com o repositório
+    @Override
+    public void close() {
+        compactador.close();
+    }
+
+    private List<Livro> buscarPorTexto(IndiceTrigramas indice, String termo,
+                                       RegistrosForaDoHeap.LeitorRegistro<String> chaveNormalizada,
+                                       int cursor, int limite) {
+        String termoBusca = NormalizadorTexto.normalizar(termo.trim());
+        int[] candidatos = indice.buscarCandidatos(termoBusca);
+        if (candidatos == null) {
+            return percorrerIds(cursor, limite, chaveNormalizada, termoBusca);
+        }
+        int inicio = Arrays.binarySearch(candidatos, cursor);
+        inicio = inicio >= 0 ? inicio + 1 : -inicio - 1;
+        List<Livro> resultado = new ArrayList<>(Math.min(limite, candidatos.length - inicio));
+        trava.readLock().lock();
+        try {
+            for (int i = inicio; i < candidatos.length && resultado.size() < limite; i++) {
+                Livro livro = lerSeContem(candidatos[i], chaveNormalizada, termoBusca);
+                if (livro != null) {
+                    resultado.add(livro);
+                }
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+        return resultado;
+    }
+
+    //Sem chave, aceita todos os ids existentes após o cursor
+    private List<Livro> percorrerIds(int cursor, int limite, RegistrosForaDoHeap.LeitorRegistro<String> chave,
+                                     String termoBusca) {
+        List<Livro> resultado = new ArrayList<>(Math.min(limite, 64));
+        trava.readLock().lock();
+        try {
+            int fim = registros.fimIds();
+            for (int id = Math.max(cursor, 0) + 1; id < fim && resultado.size() < limite; id++) {
+                Livro livro = chave == null
+                        ? registros.ler(id, CodificadorLivro::decodificar)
+                        : lerSeContem(id, chave, termoBusca);
+                if (livro != null) {
+                    resultado.add(livro);
+                }
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+        return resultado;
+    }
+
+    //Confere a chave normalizada direto no buffer e só decodifica o livro inteiro quando ela casa
+    private Livro lerSeContem(int id, RegistrosForaDoHeap.LeitorRegistro<String> chave, String termoBusca) {
+        return registros.ler(id, (bloco, posicao) -> chave.ler(bloco, posicao).contains(termoBusca)
+                ? CodificadorLivro.decodificar(bloco, posicao)
+                : null);
+    }
+
+    //Devem ser chamados com a trava de escrita
+    private void gravar(Livro livro, long isbn, byte[] registro) {
+        registros.gravar(livro.getId(), registro);
+        indiceISBN.put(isbn, livro.getId());
+        indiceTitulos.indexar(livro.getId(), livro.getTituloNormalizado());
+        indiceAutores.indexar(livro.getId(), livro.getAutorNormalizado());
+        ordemTitulos.indexar(livro.getId());
+        ordemAutores.indexar(livro.getId());
+    }
+
+    //Só os índices das chaves que mudaram são tocados: empréstimos e devoluções não mexem em nenhum
+    private void reindexar(Livro livro, long isbn, Indexacao anterior) {
+        if (isbn != anterior.isbn()) {
+            indiceISBN.remove(anterior.isbn());
+            indiceISBN.put(isbn, livro.getId());
+        }
+        if (!livro.getTituloNormalizado().equals(anterior.tituloNormalizado())) {
+            indiceTitulos.reindexar(livro.getId(), anterior.tituloNormalizado(), livro.getTituloNormalizado());
+        }
+        if (!livro.getAutorNormalizado().equals(anterior.autorNormalizado())) {
+            indiceAutores.reindexar(livro.getId(), anterior.autorNormalizado(), livro.getAutorNormalizado());
+        }
+        if (!livro.getTitulo().equals(anterior.titulo())) {
+            ordemTitulos.indexar(livro.getId());
+        }
+        if (!livro.getAutor().equals(anterior.autor())) {
+            ordemAutores.indexar(livro.getId());
+        }
+    }
+
+
+    private void desindexar(int id) {
+        registros.ler(id, (bloco, posicao) -> {
+            indiceISBN.remove(CodificadorLivro.lerISBN(bloco, posicao));
+            indiceTitulos.desindexar(id, CodificadorLivro.lerTituloNormalizado(bloco, posicao));
+            indiceAutores.desindexar(id, CodificadorLivro.lerAutorNormalizado(bloco, posicao));
+            ordemTitulos.desindexar(id);
+            ordemAutores.desindexar(id);
+            return null;
+        });
+    }
+
+    private boolean cadastrarDoCSV(String titulo, String autor, String isbn) {
+        try {
+            salvarLivro(new Livro(0, titulo, autor, isbn));
+            return true;
+        } catch (IllegalArgumentException e) {
+            if (MENSAGEM_ISBN_DUPLICADO.equals(e.getMessage())) {
+                //Como a carga em memória, a linha duplicada consome um id, para os ids do catálogo coincidirem
+                gerarProximoId();
+                return false;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,22 +1,64 @@
 package com.br.infnet.repository.implementations;
 
+import com.br.infnet.model.CursorOrdenacao;
 import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.estruturas.DicionarioTextos;
+import com.br.infnet.repository.estruturas.MapaIntObjeto;
+import com.br.infnet.repository.indices.IndiceOrdenado;
+import com.br.infnet.repository.indices.IndiceTrigramas;
 import com.br.infnet.repository.interfaces.iLivroRepository;
-import com.br.infnet.security.SecurityConfig;
+import com.br.infnet.utils.NormalizadorTexto;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class LivroRepositoryImpl implements iLivroRepository {
-    private final Map<Integer, Livro> acervo = new HashMap<>();
+    private static final String MENSAGEM_ISBN_DUPLICADO = "Já existe um livro cadastrado com este ISBN";
+    private static final int TRAVAS = 64;
+
+    //Mapas concorrentes: leituras sem bloqueio e escritas com travas finas por segmento, para as threads do Jetty.
+    //O acervo usa chaves int primitivas, sem boxing nem um nó por entrada.
+    private final MapaIntObjeto<Livro> acervo = new MapaIntObjeto<>();
+    //Índice secundário ISBN -> id, mantido em sincronia com o acervo
+    private final Map<String, Integer> indiceISBN = new ConcurrentHashMap<>();
+    //Chaves com que o livro de cada id foi indexado. O acervo guarda a instância de quem chamou, que pode ser
+    //alterada fora do repositório; é por estas chaves que a próxima escrita do id limpa ISBN e índices de texto.
+    private final MapaIntObjeto<Indexacao> indexacoes = new MapaIntObjeto<>();
+    //Escritas do mesmo id são serializadas, e reserva do ISBN e publicação no acervo acontecem sob a trava
+    //do ISBN. Ordem: trava do id antes das do ISBN, e estas em ordem de índice.
+    private final Object[] travasId = novasTravas();
+    private final Object[] travasISBN = novasTravas();
+    //Índices de trigramas para as buscas por título e autor, preservando a semântica de contains()
+    private volatile IndiceTrigramas indiceTitulos = new IndiceTrigramas();
+    private volatile IndiceTrigramas indiceAutores = new IndiceTrigramas();
+    //Índices na ordem alfabética pt-BR para as listagens ordenadas
+    private volatile IndiceOrdenado ordemTitulos = new IndiceOrdenado();
+    private volatile IndiceOrdenado ordemAutores = new IndiceOrdenado();
     private final AtomicInteger proximoId = new AtomicInteger(1);
+    //Autores se repetem em milhares de livros e cada linha do CSV ou envio de formulário traz uma cópia nova;
+    //todo livro guardado passa a apontar para a instância canônica do autor e da chave normalizada
+    private final DicionarioTextos autores = new DicionarioTextos();
+    //Durante a carga em lote os índices de texto e ordenação não são mantidos; são reconstruídos ao concluir
+    private volatile boolean cargaEmLote;
 
     public LivroRepositoryImpl() {
-        carregarLivrosDoCSV();
+        this(true);
+    }
+
+    //Permite criar o repositório vazio, sem o CSV inicial
+    public LivroRepositoryImpl(boolean carregarCatalogo) {
+        if (carregarCatalogo) {
+            CatalogoCSV.carregar(this::cadastrarDoCSV);
+        }
     }
 
     @Override
@@ -24,11 +66,27 @@ public class LivroRepositoryImpl implements iLivroRepository {
         return proximoId.getAndIncrement();
     }
 
+    //Próximo id sem consumi-lo, para gravar o contador num instantâneo
+    public int consultarProximoId() {
+        return proximoId.get();
+    }
+
+    //Restauração: o contador nunca recua, para que ids de livros removidos não sejam reaproveitados
+    public void restaurarProximoId(int id) {
+        proximoId.accumulateAndGet(id, Math::max);
+    }
+
+    //O id só é gerado depois de o ISBN estar garantido, então um cadastro recusado não consome ids
     @Override
     public void salvarLivro(Livro livro) {
-        int novoId = gerarProximoId();
-        Livro livroComId = new Livro(novoId, livro.getTitulo(), livro.getAutor(), livro.getIsbn());
-        acervo.put(novoId, livroComId);
+        String isbn = livro.getIsbn();
+        synchronized (travaISBN(isbn)) {
+            if (indiceISBN.containsKey(isbn)) {
+                throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+            }
+            int novoId = gerarProximoId();
+            publicar(new Livro(novoId, livro.getTitulo(), livro.getAutor(), isbn));
+        }
     }
 
     @Override
@@ -38,109 +96,426 @@ public class LivroRepositoryImpl implements iLivroRepository {
 
     @Override
     public Livro buscarLivroPorISBN(String isbn) {
-        return acervo.values().stream()
-                .filter(livro -> livro.getIsbn().equals(isbn))
-                .findFirst()
-                .orElse(null);
+        if (isbn == null) {
+            return null;
+        }
+        Integer id = indiceISBN.get(isbn);
+        if (id == null) {
+            return null;
+        }
+        Livro livro = acervo.get(id);
+        return livro != null && livro.getIsbn().equals(isbn) ? livro : null;
     }
 
     @Override
     public List<Livro> listarLivros() {
-        return new ArrayList<>(acervo.values());
+        return acervo.valores();
+    }
+
+    @Override
+    public void paraCadaLivro(Predicate<Livro> filtro, Consumer<Livro> acao) {
+        acervo.paraCadaValor(livro -> {
+            if (filtro.test(livro)) {
+                acao.accept(livro);
+            }
+        });
     }
 
     @Override
     public List<Livro> listarLivrosPorTitulo(String titulo) {
-        String tituloBusca = titulo.trim().toLowerCase();
-        return acervo.values().stream()
-                .filter(livro -> livro.getTitulo().toLowerCase().contains(tituloBusca))
-                .toList();
+        return listarLivrosPorTituloAPartirDe(titulo, 0, Integer.MAX_VALUE);
     }
 
     @Override
     public List<Livro> listarLivrosPorAutor(String autor) {
-        String autorBusca = autor.trim().toLowerCase();
-        return acervo.values().stream()
-                .filter(livro -> livro.getAutor().toLowerCase().contains(autorBusca))
-                .toList();
+        return listarLivrosPorAutorAPartirDe(autor, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Livro> listarLivrosAPartirDe(int cursor, int limite) {
+        return percorrerIds(cursor, limite, livro -> true);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTituloAPartirDe(String titulo, int cursor, int limite) {
+        return buscarPorTexto(indiceTitulos, titulo,
+                termo -> livro -> livro.getTituloNormalizado().contains(termo), cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutorAPartirDe(String autor, int cursor, int limite) {
+        return buscarPorTexto(indiceAutores, autor, LivroRepositoryImpl::filtroPorCodigoAutor, cursor, limite);
+    }
+
+    //Código do autor (nome normalizado, sem acentos nem caixa) no dicionário; -1 se nenhum livro guardado o usa
+    public int codigoAutor(String autor) {
+        return autor == null ? DicionarioTextos.AUSENTE : autores.codigoExistente(NormalizadorTexto.normalizar(autor));
+    }
+
+    //Livros cujo autor normalizado é exatamente o do código, comparando só ints
+    public List<Livro> listarLivrosPorCodigoAutor(int codigoAutor, int cursor, int limite) {
+        return percorrerIds(cursor, limite, livro -> livro.getCodigoAutor() == codigoAutor);
+    }
+
+    @Override
+    public List<Livro> listarLivrosOrdenadosAPartirDe(OrdemListagem ordem, CursorOrdenacao cursor, int limite) {
+        IndiceOrdenado indice = switch (ordem) {
+            case TITULO -> ordemTitulos;
+            case AUTOR -> ordemAutores;
+            case ID -> null;
+        };
+        if (indice == null) {
+            return listarLivrosAPartirDe(cursor == null ? 0 : cursor.id(), limite);
+        }
+        int[] ids = cursor == null
+                ? indice.idsAPartirDe(null, 0, limite)
+                : indice.idsAPartirDe(cursor.texto(), cursor.id(), limite);
+        List<Livro> resultado = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Livro livro = acervo.get(id);
+            if (livro != null) {
+                resultado.add(livro);
+            }
+        }
+        return resultado;
     }
 
     @Override
     public boolean existeISBN(String isbn) {
-        return acervo.values().stream()
-                .anyMatch(livro -> livro.getIsbn().equals(isbn));
+        return buscarLivroPorISBN(isbn) != null;
     }
 
     @Override
     public void atualizarLivro(Livro livro) {
-        acervo.put(livro.getId(), livro);
+        int id = livro.getId();
+        String isbn = livro.getIsbn();
+        synchronized (travaId(id)) {
+            Indexacao anterior = indexacoes.get(id);
+            String isbnAnterior = anterior != null ? anterior.isbn() : isbn;
+            Object primeira = travaISBN(isbn);
+            Object segunda = travaISBN(isbnAnterior);
+            if (indiceTrava(isbnAnterior) < indiceTrava(isbn)) {
+                Object troca = primeira;
+                primeira = segunda;
+                segunda = troca;
+            }
+            Indexacao nova;
+            synchronized (primeira) {
+                synchronized (segunda) {
+                    Integer dono = indiceISBN.get(isbn);
+                    if (dono != null && dono != id) {
+                        throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+                    }
+                    //Ids gravados fora da sequência (ex.: reconstrução a partir do log) não podem ser reaproveitados
+                    proximoId.accumulateAndGet(id + 1, Math::max);
+                    compartilharAutor(livro);
+                    nova = Indexacao.de(livro);
+                    indiceISBN.put(isbn, id);
+                    if (!isbnAnterior.equals(isbn)) {
+                        indiceISBN.remove(isbnAnterior, id);
+                    }
+                    indexacoes.put(id, nova);
+                    acervo.put(id, livro);
+                }
+            }
+            if (anterior != null) {
+                reindexarTexto(id, anterior, nova);
+            } else {
+                indexarTexto(id, nova);
+            }
+        }
     }
 
     @Override
     public void removerLivro(int id) {
-        acervo.remove(id);
+        synchronized (travaId(id)) {
+            Indexacao removida = indexacoes.get(id);
+            if (removida == null) {
+                return;
+            }
+            synchronized (travaISBN(removida.isbn())) {
+                acervo.remove(id);
+                indexacoes.remove(id);
+                indiceISBN.remove(removida.isbn(), id);
+            }
+            desindexarTexto(id, removida);
+        }
     }
 
-    //Populando o app com os dados do CSV
-    private void carregarLivrosDoCSV() {
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream("test-data/livros-validos.csv")) {
-            assert is != null;
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
+    //Candidatos do índice (já em ordem de id) são conferidos com o filtro do termo (contains() sobre a chave
+    //normalizada); consultas com menos de 3 caracteres percorrem os ids a partir do cursor
+    private List<Livro> buscarPorTexto(IndiceTrigramas indice, String termo, Function<String, Predicate<Livro>> filtroDoTermo,
+                                       int cursor, int limite) {
+        String termoBusca = NormalizadorTexto.normalizar(termo.trim());
+        Predicate<Livro> filtro = filtroDoTermo.apply(termoBusca);
+        int[] candidatos = indice.buscarCandidatos(termoBusca);
+        if (candidatos == null) {
+            return percorrerIds(cursor, limite, filtro);
+        }
+        List<Livro> resultado = new ArrayList<>(Math.min(limite, candidatos.length));
+        int inicio = Arrays.binarySearch(candidatos, cursor);
+        inicio = inicio >= 0 ? inicio + 1 : -inicio - 1;
+        for (int i = inicio; i < candidatos.length && resultado.size() < limite; i++) {
+            Livro livro = acervo.get(candidatos[i]);
+            if (livro != null && filtro.test(livro)) {
+                resultado.add(livro);
+            }
+        }
+        return resultado;
+    }
 
-                String linha;
-                boolean primeiraLinha = true;
+    //contains() roda uma vez por autor distinto; os demais livros do mesmo autor só consultam o código nos BitSets
+    private static Predicate<Livro> filtroPorCodigoAutor(String termoBusca) {
+        BitSet conferidos = new BitSet();
+        BitSet aceitos = new BitSet();
+        return livro -> {
+            int codigo = livro.getCodigoAutor();
+            if (codigo < 0) {
+                return livro.getAutorNormalizado().contains(termoBusca);
+            }
+            if (!conferidos.get(codigo)) {
+                conferidos.set(codigo);
+                if (livro.getAutorNormalizado().contains(termoBusca)) {
+                    aceitos.set(codigo);
+                }
+            }
+            return aceitos.get(codigo);
+        };
+    }
 
-                while ((linha = reader.readLine()) != null) {
-                    if (primeiraLinha) {
-                        primeiraLinha = false;
-                        continue;
-                    }
+    private void compartilharAutor(Livro livro) {
+        String autorNormalizado = livro.getAutorNormalizado();
+        livro.compartilharAutor(autores.canonizar(livro.getAutor()), autores.canonizar(autorNormalizado),
+                autores.codigo(autorNormalizado));
+    }
 
-                    String[] dados = parseCsvLine(linha);
-                    if (dados.length >= 3) {
-                        try {
-                            String titulo = processarCampoCSV(dados[0]);
-                            String autor = processarCampoCSV(dados[1]);
-                            String isbn = processarCampoCSV(dados[2]);
-                            int livroId = gerarProximoId();
-
-                            Livro livro = new Livro(livroId, titulo, autor, isbn);
-                            acervo.put(livro.getId(), livro);
-                        } catch (IllegalArgumentException e) {
-                            System.out.println("Livro ignorado do CSV (dados inválidos): " + e.getMessage());
-                        }
-                    }
+    //Os ids são sequenciais, então a página seguinte ao cursor é obtida por consultas diretas ao mapa
+    private List<Livro> percorrerIds(int cursor, int limite, Predicate<Livro> filtro) {
+        List<Livro> resultado = new ArrayList<>(Math.min(limite, 64));
+        int fim = proximoId.get();
+        for (int id = Math.max(cursor, 0) + 1; id < fim && resultado.size() < limite; id++) {
+            Livro livro = acervo.get(id);
+            if (livro != null && filtro.test(livro)) {
+                resultado.add(livro);
+            }
+        }
+        return resultado;
+    }
+
+    @Override
+    public void iniciarCargaEmLote() {
+        cargaEmLote = true;
+    }
+
+    //Reconstrói os índices em ordem de id, o caminho rápido das listas de postagens, e publica os novos de uma vez
+    @Override
+    public void concluirCargaEmLote() {
+        if (!cargaEmLote) {
+            return;
+        }
+        List<Livro> livros = new ArrayList<>(acervo.valores());
+        livros.sort(Comparator.comparingInt(Livro::getId));
+        int[] ids = new int[livros.size()];
+        String[] titulos = new String[livros.size()];
+        String[] autores = new String[livros.size()];
+        for (int i = 0; i < livros.size(); i++) {
+            ids[i] = livros.get(i).getId();
+            titulos[i] = livros.get(i).getTitulo();
+            autores[i] = livros.get(i).getAutor();
+        }
+        //Os quatro índices são independentes e construídos em paralelo
+        CompletableFuture<IndiceTrigramas> titulosEmConstrucao =
+                CompletableFuture.supplyAsync(() -> construirTrigramas(livros, Livro::getTituloNormalizado));
+        CompletableFuture<IndiceTrigramas> autoresEmConstrucao =
+                CompletableFuture.supplyAsync(() -> construirTrigramas(livros, Livro::getAutorNormalizado));
+        CompletableFuture<IndiceOrdenado> ordemTitulosEmConstrucao =
+                CompletableFuture.supplyAsync(() -> construirOrdenado(ids, titulos));
+        IndiceOrdenado novaOrdemAutores = construirOrdenado(ids, autores);
+        IndiceTrigramas novosTitulos = titulosEmConstrucao.join();
+        IndiceTrigramas novosAutores = autoresEmConstrucao.join();
+        IndiceOrdenado novaOrdemTitulos = ordemTitulosEmConstrucao.join();
+
+        indiceTitulos = novosTitulos;
+        indiceAutores = novosAutores;
+        ordemTitulos = novaOrdemTitulos;
+        ordemAutores = novaOrdemAutores;
+        cargaEmLote = false;
+    }
+
+    private static IndiceTrigramas construirTrigramas(List<Livro> livrosPorId, Function<Livro, String> campo) {
+        IndiceTrigramas indice = new IndiceTrigramas();
+        for (Livro livro : livrosPorId) {
+            indice.indexar(livro.getId(), campo.apply(livro));
+        }
+        return indice;
+    }
+
+    private static IndiceOrdenado construirOrdenado(int[] ids, String[] textos) {
+        IndiceOrdenado indice = new IndiceOrdenado();
+        indice.carregarEmLote(ids, textos);
+        return indice;
+    }
+
+    //Recebe o andamento da carga em paralelo do catálogo
+    public interface ProgressoCarga {
+        void linhasLidas(int total);
+
+        void linhasValidadas(int quantidade);
+
+        void indexando();
+    }
+
+    //Carga do CSV em blocos validados em paralelo. Sanitização e validações do Livro, a parte cara, rodam nas
+    //threads do executor; os ids são atribuídos depois, na ordem do arquivo, o que deixa o acervo idêntico
+    //ao da carga sequencial (inclusive os ids consumidos por linhas inválidas ou com ISBN duplicado).
+    public void carregarCatalogoEmParalelo(ExecutorService executor, int tamanhoBloco, ProgressoCarga progresso) {
+        List<String> linhas = CatalogoCSV.lerLinhas(CatalogoCSV.RECURSO_PADRAO);
+        progresso.linhasLidas(linhas.size());
+        List<Future<CatalogoCSV.LinhaValidada[]>> blocos = new ArrayList<>();
+        for (int inicio = 0; inicio < linhas.size(); inicio += tamanhoBloco) {
+            List<String> bloco = linhas.subList(inicio, Math.min(linhas.size(), inicio + tamanhoBloco));
+            blocos.add(executor.submit(() -> {
+                CatalogoCSV.LinhaValidada[] validadas = new CatalogoCSV.LinhaValidada[bloco.size()];
+                for (int i = 0; i < validadas.length; i++) {
+                    validadas[i] = CatalogoCSV.validarLinha(bloco.get(i));
                 }
+                progresso.linhasValidadas(validadas.length);
+                return validadas;
+            }));
+        }
 
+        iniciarCargaEmLote();
+        try {
+            for (Future<CatalogoCSV.LinhaValidada[]> bloco : blocos) {
+                for (CatalogoCSV.LinhaValidada linha : bloco.get()) {
+                    if (linha != null) {
+                        cadastrarValidada(linha);
+                    }
+                }
             }
-        } catch (IOException | NullPointerException e) {
-            System.out.println("Aviso: Não foi possível carregar livros do CSV: " + e.getMessage());
-            System.out.println("Iniciando com acervo vazio.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Carga do catálogo interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha na carga do catálogo: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            progresso.indexando();
+            concluirCargaEmLote();
         }
     }
 
-    private String[] parseCsvLine(String linha) {
-        List<String> campos = new ArrayList<>();
-        boolean dentroAspas = false;
-        StringBuilder campoAtual = new StringBuilder();
+    private void cadastrarValidada(CatalogoCSV.LinhaValidada linha) {
+        if (!linha.consomeId()) {
+            System.out.println("Livro ignorado do CSV (dados inválidos): " + linha.erro());
+            return;
+        }
+        int livroId = gerarProximoId();
+        if (linha.livro() == null) {
+            System.out.println("Livro ignorado do CSV (dados inválidos): " + linha.erro());
+            return;
+        }
+        Livro validado = linha.livro();
+        Livro livro = Livro.restaurar(livroId, validado.getTitulo(), validado.getAutor(), validado.getIsbn(),
+                validado.getTituloNormalizado(), validado.getAutorNormalizado());
+        if (!cadastrarSeISBNLivre(livro)) {
+            System.out.println("Livro ignorado do CSV (ISBN duplicado): " + validado.getIsbn());
+        }
+    }
 
-        for (char c : linha.toCharArray()) {
-            if (c == '"') {
-                dentroAspas = !dentroAspas;
-            } else if (c == ',' && !dentroAspas) {
-                campos.add(campoAtual.toString());
-                campoAtual = new StringBuilder();
-            } else {
-                campoAtual.append(c);
+    //Chaves de um livro no momento em que foi indexado
+    private record Indexacao(String isbn, String titulo, String autor, String tituloNormalizado,
+                             String autorNormalizado) {
+        static Indexacao de(Livro livro) {
+            return new Indexacao(livro.getIsbn(), livro.getTitulo(), livro.getAutor(),
+                    livro.getTituloNormalizado(), livro.getAutorNormalizado());
+        }
+    }
+
+    //Cadastro de um id novo; quem chama segura a trava do ISBN e já conferiu que ele está livre. O livro é
+    //indexado antes de entrar no acervo: até o put, buscas que encontrarem o id o descartam.
+    private void publicar(Livro livro) {
+        compartilharAutor(livro);
+        Indexacao indexacao = Indexacao.de(livro);
+        indexarTexto(livro.getId(), indexacao);
+        indexacoes.put(livro.getId(), indexacao);
+        indiceISBN.put(livro.getIsbn(), livro.getId());
+        acervo.put(livro.getId(), livro);
+    }
+
+    //Carga do CSV: o id já foi consumido, como na carga sequencial, mesmo que o ISBN esteja em uso
+    private boolean cadastrarSeISBNLivre(Livro livro) {
+        synchronized (travaISBN(livro.getIsbn())) {
+            if (indiceISBN.containsKey(livro.getIsbn())) {
+                return false;
             }
+            publicar(livro);
+            return true;
+        }
+    }
+
+    private void indexarTexto(int id, Indexacao indexacao) {
+        if (cargaEmLote) {
+            return;
+        }
+        indiceTitulos.indexar(id, indexacao.tituloNormalizado());
+        indiceAutores.indexar(id, indexacao.autorNormalizado());
+        ordemTitulos.indexar(id, indexacao.titulo());
+        ordemAutores.indexar(id, indexacao.autor());
+    }
+
+    //Só os índices cujo texto mudou; um empréstimo ou devolução, que só altera o estado do livro, não toca em
+    //nenhum. O índice ordenado troca a entrada do id de uma vez, sem intervalo em que o livro some da listagem.
+    private void reindexarTexto(int id, Indexacao anterior, Indexacao nova) {
+        if (cargaEmLote) {
+            return;
+        }
+        if (!anterior.tituloNormalizado().equals(nova.tituloNormalizado())) {
+            indiceTitulos.reindexar(id, anterior.tituloNormalizado(), nova.tituloNormalizado());
         }
-        campos.add(campoAtual.toString());
+        if (!anterior.autorNormalizado().equals(nova.autorNormalizado())) {
+            indiceAutores.reindexar(id, anterior.autorNormalizado(), nova.autorNormalizado());
+        }
+        if (!anterior.titulo().equals(nova.titulo())) {
+            ordemTitulos.indexar(id, nova.titulo());
+        }
+        if (!anterior.autor().equals(nova.autor())) {
+            ordemAutores.indexar(id, nova.autor());
+        }
+    }
+
+    private void desindexarTexto(int id, Indexacao indexacao) {
+        if (cargaEmLote) {
+            return;
+        }
+        indiceTitulos.desindexar(id, indexacao.tituloNormalizado());
+        indiceAutores.desindexar(id, indexacao.autorNormalizado());
+        ordemTitulos.desindexar(id);
+        ordemAutores.desindexar(id);
+    }
+
+    private static Object[] novasTravas() {
+        Object[] travas = new Object[TRAVAS];
+        for (int i = 0; i < TRAVAS; i++) {
+            travas[i] = new Object();
+        }
+        return travas;
+    }
+
+    private Object travaId(int id) {
+        return travasId[id & (TRAVAS - 1)];
+    }
+
+    private Object travaISBN(String isbn) {
+        return travasISBN[indiceTrava(isbn)];
+    }
 
-        return campos.toArray(new String[0]);
+    private static int indiceTrava(String isbn) {
+        int hash = isbn.hashCode();
+        return (hash ^ (hash >>> 16)) & (TRAVAS - 1);
     }
 
-    private String processarCampoCSV(String campo) {
-        String campoLimpo = campo.replace("\"", "").trim();
-        return SecurityConfig.processarEntrada(campoLimpo);
+    private boolean cadastrarDoCSV(String titulo, String autor, String isbn) {
+        int livroId = gerarProximoId();
+        return cadastrarSeISBNLivre(new Livro(livroId, titulo, autor, isbn));
     }
 }
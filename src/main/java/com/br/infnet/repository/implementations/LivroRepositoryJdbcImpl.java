@@ -0,0 +1,364 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.CursorOrdenacao;
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import com.br.infnet.repository.persistencia.PoolConexoes;
+import com.br.infnet.utils.NormalizadorTexto;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+//Acervo numa tabela de um banco SQL embutido, acessado por JDBC através do PoolConexoes.
+//Os índices do banco cobrem o ISBN (único), as chaves normalizadas de título e autor e, pela chave primária,
+//a paginação por id. Buscas por trecho usam LIKE '%termo%' sobre as chaves normalizadas, que os índices não
+//aceleram: o banco varre a tabela, como o LivroRepositoryMapeadoImpl varre os slots. A ordem alfabética pt-BR
+//não usa índice (a colação do banco não é a do IndiceOrdenado): cada página lê e reordena o catálogo inteiro
+//em OrdenacaoLivros.paginar.
+//atualizarLivro é um upsert (MERGE), o que permite restaurar livros com id explícito.
+public class LivroRepositoryJdbcImpl implements iLivroRepository {
+    private static final String MENSAGEM_ISBN_DUPLICADO = "Já existe um livro cadastrado com este ISBN";
+    static final int LIVROS_POR_LOTE = 1_000;
+
+    private static final String COLUNAS = "id, titulo, autor, isbn, titulo_normalizado, autor_normalizado, "
+            + "disponivel, data_emprestimo, data_estimada_devolucao, data_efetiva_devolucao, prazo_devolucao, multa";
+    private static final String[] ESQUEMA = {
+            "CREATE TABLE IF NOT EXISTS livros ("
+                    + "id INT PRIMARY KEY, "
+                    + "titulo VARCHAR(1000) NOT NULL, "
+                    + "autor VARCHAR(1000) NOT NULL, "
+                    + "isbn CHAR(13) NOT NULL, "
+                    + "titulo_normalizado VARCHAR(1000) NOT NULL, "
+                    + "autor_normalizado VARCHAR(1000) NOT NULL, "
+                    + "disponivel BOOLEAN NOT NULL, "
+                    + "data_emprestimo DATE, "
+                    + "data_estimada_devolucao DATE, "
+                    + "data_efetiva_devolucao DATE, "
+                    + "prazo_devolucao INT NOT NULL, "
+                    + "multa DOUBLE PRECISION NOT NULL)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS livros_isbn ON livros (isbn)",
+            "CREATE INDEX IF NOT EXISTS livros_titulo ON livros (titulo_normalizado)",
+            "CREATE INDEX IF NOT EXISTS livros_autor ON livros (autor_normalizado)"
+    };
+    private static final String INSERIR = "INSERT INTO livros (" + COLUNAS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT = "MERGE INTO livros (" + COLUNAS + ") KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String REMOVER = "DELETE FROM livros WHERE id = ?";
+    private static final String POR_ID = "SELECT " + COLUNAS + " FROM livros WHERE id = ?";
+    private static final String POR_ISBN = "SELECT " + COLUNAS + " FROM livros WHERE isbn = ?";
+    private static final String EXISTE_ISBN = "SELECT 1 FROM livros WHERE isbn = ?";
+    private static final String CONTAR = "SELECT COUNT(*) FROM livros";
+    private static final String MAIOR_ID = "SELECT COALESCE(MAX(id), 0) FROM livros";
+    private static final String TODOS = "SELECT " + COLUNAS + " FROM livros ORDER BY id";
+    private static final String A_PARTIR_DE = "SELECT " + COLUNAS + " FROM livros WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String POR_TITULO = "SELECT " + COLUNAS + " FROM livros "
+            + "WHERE titulo_normalizado LIKE ? ESCAPE '\\' AND id > ? ORDER BY id LIMIT ?";
+    private static final String POR_AUTOR = "SELECT " + COLUNAS + " FROM livros "
+            + "WHERE autor_normalizado LIKE ? ESCAPE '\\' AND id > ? ORDER BY id LIMIT ?";
+
+    private final PoolConexoes pool;
+    private final SequenciaIds sequencia;
+
+    public LivroRepositoryJdbcImpl(PoolConexoes pool) {
+        this(pool, true);
+    }
+
+    //O CSV inicial só é carregado numa tabela vazia
+    public LivroRepositoryJdbcImpl(PoolConexoes pool, boolean carregarCatalogo) {
+        this.pool = pool;
+        long quantidade = pool.executar(conexao -> {
+            try (Statement ddl = conexao.getConnection().createStatement()) {
+                for (String comando : ESQUEMA) {
+                    ddl.execute(comando);
+                }
+            }
+            try (ResultSet resultado = conexao.preparar(CONTAR).executeQuery()) {
+                resultado.next();
+                return resultado.getLong(1);
+            }
+        });
+        this.sequencia = new SequenciaIds(pool, "livros");
+        //Um banco copiado de outra instalação pode ter livros além da sequência reservada
+        sequencia.avancarPara(pool.executar(conexao -> {
+            try (ResultSet resultado = conexao.preparar(MAIOR_ID).executeQuery()) {
+                resultado.next();
+                return resultado.getInt(1) + 1;
+            }
+        }));
+        if (carregarCatalogo && quantidade == 0) {
+            long inicio = System.nanoTime();
+            int carregados = carregarCatalogo(CatalogoCSV.RECURSO_PADRAO);
+            System.out.printf("Catálogo inicial gravado no banco: %d livros em %d ms%n", carregados,
+                    (System.nanoTime() - inicio) / 1_000_000);
+        }
+    }
+
+    @Override
+    public int gerarProximoId() {
+        return sequencia.gerar();
+    }
+
+    public int consultarProximoId() {
+        return sequencia.consultar();
+    }
+
+    @Override
+    public void salvarLivro(Livro livro) {
+        int novoId = gerarProximoId();
+        Livro livroComId = Livro.restaurar(novoId, livro.getTitulo(), livro.getAutor(), livro.getIsbn(),
+                livro.getTituloNormalizado(), livro.getAutorNormalizado());
+        gravar(INSERIR, livroComId);
+    }
+
+    @Override
+    public void atualizarLivro(Livro livro) {
+        sequencia.avancarPara(livro.getId() + 1);
+        gravar(UPSERT, livro);
+    }
+
+    @Override
+    public void removerLivro(int id) {
+        pool.executar(conexao -> {
+            PreparedStatement remocao = conexao.preparar(REMOVER);
+            remocao.setInt(1, id);
+            return remocao.executeUpdate();
+        });
+    }
+
+    @Override
+    public Livro buscarLivroPorId(int id) {
+        return pool.executar(conexao -> {
+            PreparedStatement consulta = conexao.preparar(POR_ID);
+            consulta.setInt(1, id);
+            return primeiro(consulta);
+        });
+    }
+
+    @Override
+    public Livro buscarLivroPorISBN(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        return pool.executar(conexao -> {
+            PreparedStatement consulta = conexao.preparar(POR_ISBN);
+            consulta.setString(1, isbn);
+            return primeiro(consulta);
+        });
+    }
+
+    @Override
+    public boolean existeISBN(String isbn) {
+        if (isbn == null) {
+            return false;
+        }
+        return pool.executar(conexao -> {
+            PreparedStatement consulta = conexao.preparar(EXISTE_ISBN);
+            consulta.setString(1, isbn);
+            try (ResultSet resultado = consulta.executeQuery()) {
+                return resultado.next();
+            }
+        });
+    }
+
+    @Override
+    public List<Livro> listarLivros() {
+        List<Livro> livros = new ArrayList<>();
+        paraCadaLivro(livro -> true, livros::add);
+        return livros;
+    }
+
+    //Sem índice ordenado: ordena o acervo inteiro a cada chamada
+    @Override
+    public List<Livro> listarLivrosOrdenadosAPartirDe(OrdemListagem ordem, CursorOrdenacao cursor, int limite) {
+        if (ordem == OrdemListagem.ID) {
+            return listarLivrosAPartirDe(cursor == null ? 0 : cursor.id(), limite);
+        }
+        return OrdenacaoLivros.paginar(listarLivros(), ordem, cursor, limite);
+    }
+
+    @Override
+    public void paraCadaLivro(Predicate<Livro> filtro, Consumer<Livro> acao) {
+        pool.executar(conexao -> {
+            try (ResultSet resultado = conexao.preparar(TODOS).executeQuery()) {
+                while (resultado.next()) {
+                    Livro livro = ler(resultado);
+                    if (filtro.test(livro)) {
+                        acao.accept(livro);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTitulo(String titulo) {
+        return listarLivrosPorTituloAPartirDe(titulo, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutor(String autor) {
+        return listarLivrosPorAutorAPartirDe(autor, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Livro> listarLivrosAPartirDe(int cursor, int limite) {
+        return pool.executar(conexao -> {
+            PreparedStatement consulta = conexao.preparar(A_PARTIR_DE);
+            consulta.setInt(1, cursor);
+            consulta.setInt(2, limite);
+            return todos(consulta);
+        });
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTituloAPartirDe(String titulo, int cursor, int limite) {
+        return buscarPorTrecho(POR_TITULO, titulo, cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutorAPartirDe(String autor, int cursor, int limite) {
+        return buscarPorTrecho(POR_AUTOR, autor, cursor, limite);
+    }
+
+    @Override
+    public void executarEmLote(Runnable escritas) {
+        pool.executar(conexao -> {
+            escritas.run();
+            return null;
+        });
+    }
+
+    //Carga do CSV com inserções em lote do JDBC (addBatch/executeBatch), numa transação só.
+    //Os ids seguem a carga sequencial, inclusive os consumidos por linhas com ISBN duplicado.
+    int carregarCatalogo(String recurso) {
+        List<String> linhas = CatalogoCSV.lerLinhas(recurso);
+        return pool.executar(conexao -> {
+            PreparedStatement insercao = conexao.preparar(INSERIR);
+            Set<String> isbns = new HashSet<>();
+            int carregados = 0;
+            int noLote = 0;
+            for (String linha : linhas) {
+                CatalogoCSV.LinhaValidada validada = CatalogoCSV.validarLinha(linha);
+                if (validada == null) {
+                    continue;
+                }
+                if (!validada.consomeId()) {
+                    System.out.println("Livro ignorado do CSV (dados inválidos): " + validada.erro());
+                    continue;
+                }
+                int livroId = gerarProximoId();
+                if (validada.livro() == null) {
+                    System.out.println("Livro ignorado do CSV (dados inválidos): " + validada.erro());
+                    continue;
+                }
+                Livro livro = validada.livro();
+                if (!isbns.add(livro.getIsbn())) {
+                    System.out.println("Livro ignorado do CSV (ISBN duplicado): " + livro.getIsbn());
+                    continue;
+                }
+                preencher(insercao, Livro.restaurar(livroId, livro.getTitulo(), livro.getAutor(), livro.getIsbn(),
+                        livro.getTituloNormalizado(), livro.getAutorNormalizado()));
+                insercao.addBatch();
+                carregados++;
+                if (++noLote == LIVROS_POR_LOTE) {
+                    insercao.executeBatch();
+                    noLote = 0;
+                }
+            }
+            if (noLote > 0) {
+                insercao.executeBatch();
+            }
+            return carregados;
+        });
+    }
+
+    private void gravar(String sql, Livro livro) {
+        pool.executar(conexao -> {
+            PreparedStatement escrita = conexao.preparar(sql);
+            preencher(escrita, livro);
+            try {
+                return escrita.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+            }
+        });
+    }
+
+    private List<Livro> buscarPorTrecho(String sql, String termo, int cursor, int limite) {
+        String padrao = "%" + escaparLike(NormalizadorTexto.normalizar(termo.trim())) + "%";
+        return pool.executar(conexao -> {
+            PreparedStatement consulta = conexao.preparar(sql);
+            consulta.setString(1, padrao);
+            consulta.setInt(2, cursor);
+            consulta.setInt(3, limite);
+            return todos(consulta);
+        });
+    }
+
+    //O termo é comparado literalmente, como no contains() dos outros repositórios
+    static String escaparLike(String termo) {
+        StringBuilder escapado = new StringBuilder(termo.length());
+        for (int i = 0; i < termo.length(); i++) {
+            char c = termo.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                escapado.append('\\');
+            }
+            escapado.append(c);
+        }
+        return escapado.toString();
+    }
+
+    private static void preencher(PreparedStatement escrita, Livro livro) throws SQLException {
+        escrita.setInt(1, livro.getId());
+        escrita.setString(2, livro.getTitulo());
+        escrita.setString(3, livro.getAutor());
+        escrita.setString(4, livro.getIsbn());
+        escrita.setString(5, livro.getTituloNormalizado());
+        escrita.setString(6, livro.getAutorNormalizado());
+        escrita.setBoolean(7, livro.isDisponivel());
+        escrita.setObject(8, livro.getDataEmprestimo());
+        escrita.setObject(9, livro.getDataEstimadaDevolucao());
+        escrita.setObject(10, livro.getDataEfetivaDevolucao());
+        escrita.setInt(11, livro.getPrazoDevolucao());
+        escrita.setDouble(12, livro.getMulta());
+    }
+
+    private static Livro primeiro(PreparedStatement consulta) throws SQLException {
+        try (ResultSet resultado = consulta.executeQuery()) {
+            return resultado.next() ? ler(resultado) : null;
+        }
+    }
+
+    private static List<Livro> todos(PreparedStatement consulta) throws SQLException {
+        List<Livro> livros = new ArrayList<>();
+        try (ResultSet resultado = consulta.executeQuery()) {
+            while (resultado.next()) {
+                livros.add(ler(resultado));
+            }
+        }
+        return livros;
+    }
+
+    private static Livro ler(ResultSet resultado) throws SQLException {
+        Livro livro = Livro.restaurar(resultado.getInt(1), resultado.getString(2), resultado.getString(3),
+                resultado.getString(4), resultado.getString(5), resultado.getString(6));
+        livro.setDisponivel(resultado.getBoolean(7));
+        livro.setDataEmprestimo(resultado.getObject(8, LocalDate.class));
+        livro.setDataEstimadaDevolucao(resultado.getObject(9, LocalDate.class));
+        livro.setDataEfetivaDevolucao(resultado.getObject(10, LocalDate.class));
+        livro.setPrazoDevolucao(resultado.getInt(11));
+        livro.setMulta(resultado.getDouble(12));
+        return livro;
+    }
+}
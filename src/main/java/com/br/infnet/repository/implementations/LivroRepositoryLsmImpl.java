@@ -0,0 +1,226 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.CursorOrdenacao;
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.armazenamento.CodificadorLivro;
+import com.br.infnet.repository.armazenamento.RegistrosForaDoHeap;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import com.br.infnet.repository.lsm.MotorLsm;
+import com.br.infnet.repository.persistencia.PoliticaDurabilidade;
+import com.br.infnet.utils.NormalizadorTexto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+//Acervo sobre o MotorLsm, para cargas com muitas escritas (ex.: atualização noturna do catálogo): inclusões e
+//edições vão a um log e a uma memtable, e nunca reescrevem dados já gravados em disco.
+//Buscas por id e ISBN consultam memtables e segmentos guiadas por filtros de Bloom. Buscas por título e autor
+//e a listagem percorrem a mescla de todos os segmentos em ordem de id, lendo só a chave normalizada de cada
+//registro. A ordem alfabética não tem índice: cada página lê e reordena o catálogo inteiro em
+//OrdenacaoLivros.paginar.
+public class LivroRepositoryLsmImpl implements iLivroRepository, Closeable {
+    private static final String MENSAGEM_ISBN_DUPLICADO = "Já existe um livro cadastrado com este ISBN";
+
+    private final MotorLsm motor;
+    private final AtomicInteger proximoId;
+    //Serializa as escritas, como o motor exige; a espera pelo disco fica fora da trava
+    private final ReentrantLock escrita = new ReentrantLock();
+
+    //Abre (ou cria) o diretório; num acervo sem nenhum livro gravado, o catálogo do CSV é usado como semente
+    public static LivroRepositoryLsmImpl abrir(Path diretorio, PoliticaDurabilidade politica) throws IOException {
+        LivroRepositoryLsmImpl repositorio = new LivroRepositoryLsmImpl(MotorLsm.abrir(diretorio, politica));
+        if (repositorio.motor.maiorId() == 0) {
+            CatalogoCSV.carregar(repositorio::cadastrarDoCSV);
+        }
+        return repositorio;
+    }
+
+    public LivroRepositoryLsmImpl(MotorLsm motor) {
+        this.motor = motor;
+        this.proximoId = new AtomicInteger(motor.maiorId() + 1);
+    }
+
+    @Override
+    public int gerarProximoId() {
+        return proximoId.getAndIncrement();
+    }
+
+    @Override
+    public void salvarLivro(Livro livro) {
+        long isbn = CodificadorLivro.converterISBN(livro.getIsbn());
+        MotorLsm.EsperaDurabilidade espera;
+        escrita.lock();
+        try {
+            if (motor.lerPorIsbn(isbn) != null) {
+                throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+            }
+            Livro livroComId = Livro.restaurar(gerarProximoId(), livro.getTitulo(), livro.getAutor(),
+                    livro.getIsbn(), livro.getTituloNormalizado(), livro.getAutorNormalizado());
+            espera = motor.gravar(livroComId.getId(), CodificadorLivro.codificar(livroComId));
+        } finally {
+            escrita.unlock();
+        }
+        espera.aguardar();
+    }
+
+    @Override
+    public void atualizarLivro(Livro livro) {
+        long isbn = CodificadorLivro.converterISBN(livro.getIsbn());
+        byte[] registro = CodificadorLivro.codificar(livro);
+        MotorLsm.EsperaDurabilidade espera;
+        escrita.lock();
+        try {
+            Livro dono = motor.lerPorIsbn(isbn);
+            if (dono != null && dono.getId() != livro.getId()) {
+                throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+            }
+            proximoId.accumulateAndGet(livro.getId() + 1, Math::max);
+            espera = motor.gravar(livro.getId(), registro);
+        } finally {
+            escrita.unlock();
+        }
+        espera.aguardar();
+    }
+
+    @Override
+    public void removerLivro(int id) {
+        MotorLsm.EsperaDurabilidade espera;
+        escrita.lock();
+        try {
+            if (motor.ler(id) == null) {
+                return;
+            }
+            espera = motor.remover(id);
+        } finally {
+            escrita.unlock();
+        }
+        espera.aguardar();
+    }
+
+    @Override
+    public Livro buscarLivroPorId(int id) {
+        return motor.ler(id);
+    }
+
+    @Override
+    public Livro buscarLivroPorISBN(String isbn) {
+        return CodificadorLivro.isbnNumerico(isbn) ? motor.lerPorIsbn(Long.parseLong(isbn)) : null;
+    }
+
+    @Override
+    public boolean existeISBN(String isbn) {
+        return buscarLivroPorISBN(isbn) != null;
+    }
+
+    @Override
+    public List<Livro> listarLivros() {
+        return listarLivrosAPartirDe(0, Integer.MAX_VALUE);
+    }
+
+    //Sem índice ordenado: ordena o acervo inteiro a cada chamada
+    @Override
+    public List<Livro> listarLivrosOrdenadosAPartirDe(OrdemListagem ordem, CursorOrdenacao cursor, int limite) {
+        if (ordem == OrdemListagem.ID) {
+            return listarLivrosAPartirDe(cursor == null ? 0 : cursor.id(), limite);
+        }
+        return OrdenacaoLivros.paginar(listarLivros(), ordem, cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTitulo(String titulo) {
+        return listarLivrosPorTituloAPartirDe(titulo, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutor(String autor) {
+        return listarLivrosPorAutorAPartirDe(autor, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Livro> listarLivrosAPartirDe(int cursor, int limite) {
+        return percorrer(cursor, limite, null, null);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTituloAPartirDe(String titulo, int cursor, int limite) {
+        return percorrer(cursor, limite, NormalizadorTexto.normalizar(titulo.trim()),
+                CodificadorLivro::lerTituloNormalizado);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutorAPartirDe(String autor, int cursor, int limite) {
+        return percorrer(cursor, limite, NormalizadorTexto.normalizar(autor.trim()),
+                CodificadorLivro::lerAutorNormalizado);
+    }
+
+    @Override
+    public void paraCadaLivro(Predicate<Livro> filtro, Consumer<Livro> acao) {
+        motor.percorrer(0, (buffer, posicao) -> {
+            Livro livro = CodificadorLivro.decodificar(buffer, posicao);
+            if (filtro.test(livro)) {
+                acao.accept(livro);
+            }
+            return true;
+        });
+    }
+
+    //Descarta a memtable em disco e espera as compactações que isso disparar (ex.: no fim de uma carga)
+    public void descartarMemtable() {
+        escrita.lock();
+        try {
+            motor.descartarMemtable();
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    public MotorLsm getMotor() {
+        return motor;
+    }
+
+    @Override
+    public void close() throws IOException {
+        escrita.lock();
+        try {
+            motor.close();
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    //Sem chave, aceita todos os livros após o cursor; com chave, só decodifica o livro inteiro quando ela casa
+    private List<Livro> percorrer(int cursor, int limite, String termoBusca,
+                                  RegistrosForaDoHeap.LeitorRegistro<String> chave) {
+        List<Livro> resultado = new ArrayList<>(Math.min(limite, 64));
+        if (limite <= 0) {
+            return resultado;
+        }
+        motor.percorrer(cursor, (buffer, posicao) -> {
+            if (chave == null || chave.ler(buffer, posicao).contains(termoBusca)) {
+                resultado.add(CodificadorLivro.decodificar(buffer, posicao));
+            }
+            return resultado.size() < limite;
+        });
+        return resultado;
+    }
+
+    private boolean cadastrarDoCSV(String titulo, String autor, String isbn) {
+        try {
+            salvarLivro(new Livro(0, titulo, autor, isbn));
+            return true;
+        } catch (IllegalArgumentException e) {
+            if (MENSAGEM_ISBN_DUPLICADO.equals(e.getMessage())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+}
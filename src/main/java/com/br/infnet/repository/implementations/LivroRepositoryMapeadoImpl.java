@@ -0,0 +1,931 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.CursorOrdenacao;
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.armazenamento.ArquivoMapeado;
+import com.br.infnet.repository.armazenamento.CodificadorLivro;
+import com.br.infnet.repository.armazenamento.CompactadorFundo;
+import com.br.infnet.repository.armazenamento.PoolPaginas;
+import com.br.infnet.repository.indices.ArvoreBMais;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import com.br.infnet.utils.NormalizadorTexto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+//Acervo em dois arquivos mapeados em memória:
+//  livros.slots: slots de tamanho fixo com os campos numéricos de cada livro e a posição dos seus textos no heap;
+//  livros.heap: título, autor e as chaves normalizadas em UTF-8, só acréscimo.
+//Uma busca por id lê os campos direto nas posições do slot, e quem traz as páginas do disco é o cache do
+//sistema operacional. Os índices id -> slot e ISBN -> slot são árvores B+ em disco (livros.ids.idx e
+//livros.isbn.idx) com um pool de páginas limitado, então o heap usado não cresce com o acervo.
+//Abrir não lê os slots: os índices só são reconstruídos, por carga em lote, se não foram fechados limpos.
+//removerLivro só marca o slot com uma lápide, sem tocar os índices nem a lista de livres: leituras tratam o slot
+//marcado como ausente. Um CompactadorFundo recupera o espaço em passos curtos, com taxa limitada: tira as
+//lápides dos índices e encadeia seus slots na lista de livres (reaproveitados primeiro), e, quando os textos
+//obsoletos passam de um limiar, desliza os textos vivos do heap para o início, sobre os bytes mortos.
+//Buscas por título e autor varrem os slots comparando as chaves normalizadas, e a ordem alfabética não tem
+//índice: cada página lê e reordena o catálogo inteiro em OrdenacaoLivros.paginar. O backend troca velocidade
+//de busca por inicialização imediata.
+//As escritas chegam ao disco quando o sistema descarrega as páginas, ou em sincronizar() e close(). Não há log:
+//para sobreviver a quedas no meio de uma escrita, use o acervo durável.
+public class LivroRepositoryMapeadoImpl implements iLivroRepository, Closeable {
+    public static final String ARQUIVO_SLOTS = "livros.slots";
+    public static final String ARQUIVO_HEAP = "livros.heap";
+    public static final String ARQUIVO_INDICE_IDS = "livros.ids.idx";
+    public static final String ARQUIVO_INDICE_ISBN = "livros.isbn.idx";
+    public static final int SLOTS_INICIAIS_PADRAO = 1024;
+    private static final String MENSAGEM_ISBN_DUPLICADO = "Já existe um livro cadastrado com este ISBN";
+    private static final int MAGIA_SLOTS = 0x4C534C54;
+    private static final int MAGIA_HEAP = 0x4C484550;
+    private static final int VERSAO = 1;
+    private static final int BLOCO_ITERACAO = 256;
+    private static final int SEM_SLOT = -1;
+    private static final int MAX_BYTES_CAMPO = 0xFFFF;
+    private static final int SEM_DATA = Integer.MIN_VALUE;
+    private static final int TITULO_NORMALIZADO = 2;
+    private static final int AUTOR_NORMALIZADO = 3;
+    //Passos da compactação: cada um segura a trava de escrita só por esse tanto de trabalho
+    private static final int SLOTS_POR_PASSO = 1024;
+    private static final int LAPIDES_POR_PASSO = 64;
+    private static final int REGISTROS_POR_PASSO = 256;
+    //O heap só é compactado com ao menos 1 MB obsoleto e um quarto do que está em uso
+    private static final long LIMIAR_OBSOLETOS_BYTES = 1 << 20;
+    private static final double FRACAO_OBSOLETOS = 0.25;
+    //Escritas concorrentes acrescentam textos depois do fim planejado; a compactação refaz o plano para
+    //trazê-los também, até este número de vezes por rodada
+    private static final int MAX_PASSAGENS = 3;
+
+    //Cabeçalho dos slots: [magia int][versão int][tamanho do slot int][próximo id int][slots em uso int]
+    //[primeiro slot livre int][lápides int]
+    private static final int TAMANHO_CABECALHO_SLOTS = 32;
+    private static final int CAB_TAMANHO_SLOT = 8;
+    private static final int CAB_PROXIMO_ID = 12;
+    private static final int CAB_SLOTS_EM_USO = 16;
+    private static final int CAB_PRIMEIRO_LIVRE = 20;
+    private static final int CAB_LAPIDES = 24;
+
+    //Slot: [estado byte][disponível byte][2 bytes livres][id int, ou o próximo slot livre][isbn long]
+    //[posição no heap long][multa double][prazo int][3 datas int (dias desde a época)][4 tamanhos unsigned short]
+    static final int TAMANHO_SLOT = 64;
+    private static final int S_ESTADO = 0;
+    private static final int S_DISPONIVEL = 1;
+    private static final int S_ID = 4;
+    private static final int S_ISBN = 8;
+    private static final int S_HEAP = 16;
+    private static final int S_MULTA = 24;
+    private static final int S_PRAZO = 32;
+    private static final int S_DATAS = 36;
+    private static final int S_TAMANHOS = 48;
+    private static final byte OCUPADO = 1;
+    private static final byte LIVRE = 2;
+    private static final byte REMOVIDO = 3;
+
+    //Cabeçalho do heap: [magia int][versão int][fim long][bytes obsoletos long]
+    private static final int TAMANHO_CABECALHO_HEAP = 24;
+    private static final int CAB_FIM_HEAP = 8;
+    private static final int CAB_OBSOLETOS = 16;
+
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    private final AtomicInteger proximoId = new AtomicInteger(1);
+    private final ArquivoMapeado slots;
+    private final ArquivoMapeado heap;
+    private final ArvoreBMais indiceIds;
+    private final ArvoreBMais indiceISBN;
+    private final CompactadorFundo compactador;
+
+    private enum Fase { PARADA, LAPIDES, PLANO, MOVER }
+
+    //Estado da rodada de compactação, só tocado pelos passos, que o CompactadorFundo serializa.
+    //O plano guarda a posição no heap e o slot dos textos vivos abaixo de fimPlanejado, em ordem de posição.
+    private Fase fase = Fase.PARADA;
+    private int cursorSlot;
+    private int limiteSlots;
+    private long fimPlanejado;
+    private long[] posicoesPlano;
+    private long[] slotsPlano;
+    private int tamanhoPlano;
+    private int cursorPlano;
+    private long destino;
+    private int passagens;
+    private byte[] copia = new byte[0];
+
+    public LivroRepositoryMapeadoImpl(Path diretorio) throws IOException {
+        this(diretorio, SLOTS_INICIAIS_PADRAO, true);
+    }
+
+    //O catálogo do CSV só é carregado quando os arquivos ainda não existiam
+    public LivroRepositoryMapeadoImpl(Path diretorio, int slotsIniciais, boolean carregarCatalogo) throws IOException {
+        this(diretorio, slotsIniciais, carregarCatalogo, ArvoreBMais.PAGINAS_EM_CACHE_PADRAO);
+    }
+
+    //paginasEmCache limita o pool de cada índice: 4 KB por página
+    public LivroRepositoryMapeadoImpl(Path diretorio, int slotsIniciais, boolean carregarCatalogo, int paginasEmCache)
+            throws IOException {
+        this(diretorio, slotsIniciais, carregarCatalogo, paginasEmCache, CompactadorFundo.BYTES_POR_SEGUNDO_PADRAO);
+    }
+
+    //bytesPorSegundoCompactacao limita o que a compactação de fundo lê e copia
+    public LivroRepositoryMapeadoImpl(Path diretorio, int slotsIniciais, boolean carregarCatalogo, int paginasEmCache,
+                                      long bytesPorSegundoCompactacao) throws IOException {
+        if (slotsIniciais < 1) {
+            throw new IllegalArgumentException("Quantidade inicial de slots deve ser positiva");
+        }
+        long inicio = System.nanoTime();
+        this.slots = new ArquivoMapeado(diretorio.resolve(ARQUIVO_SLOTS),
+                TAMANHO_CABECALHO_SLOTS + slotsIniciais * TAMANHO_SLOT);
+        ArquivoMapeado arquivoHeap = null;
+        ArvoreBMais arvoreIds = null;
+        ArvoreBMais arvoreISBN = null;
+        try {
+            arquivoHeap = new ArquivoMapeado(diretorio.resolve(ARQUIVO_HEAP),
+                    TAMANHO_CABECALHO_HEAP + slotsIniciais * TAMANHO_SLOT);
+            arvoreIds = new ArvoreBMais(diretorio.resolve(ARQUIVO_INDICE_IDS), PoolPaginas.TAMANHO_PAGINA_PADRAO,
+                    paginasEmCache);
+            arvoreISBN = new ArvoreBMais(diretorio.resolve(ARQUIVO_INDICE_ISBN), PoolPaginas.TAMANHO_PAGINA_PADRAO,
+                    paginasEmCache);
+        } catch (IOException | RuntimeException e) {
+            fecharTodos(arvoreIds, arquivoHeap, slots);
+            throw e;
+        }
+        this.heap = arquivoHeap;
+        this.indiceIds = arvoreIds;
+        this.indiceISBN = arvoreISBN;
+        boolean reconstruido;
+        try {
+            if (slots.isNovo() && heap.isNovo()) {
+                iniciarCabecalhos();
+            } else {
+                validarCabecalhos();
+            }
+            //Índices que sobraram de um acervo apagado também são refeitos
+            reconstruido = !slots.isNovo() && (!indiceIds.isConsistente() || !indiceISBN.isConsistente());
+            if (slots.isNovo() || reconstruido) {
+                reconstruirIndices();
+            }
+            proximoId.set(slots.buffer().getInt(CAB_PROXIMO_ID));
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        if (carregarCatalogo && slots.isNovo()) {
+            CatalogoCSV.carregar(this::cadastrarDoCSV);
+        }
+        this.compactador = new CompactadorFundo("acervo-mapeado", new CompactadorFundo.Tarefa() {
+            @Override
+            public CompactadorFundo.Passo passo(boolean forcado) {
+                return passoCompactacao(forcado);
+            }
+
+            @Override
+            public long pendencia() {
+                return pendenciaCompactacao();
+            }
+        }, bytesPorSegundoCompactacao, CompactadorFundo.INTERVALO_PADRAO_MS);
+        int lapides = slots.buffer().getInt(CAB_LAPIDES);
+        System.out.printf("Acervo mapeado aberto de %s: %d livros em %d ms%s%n", diretorio,
+                indiceIds.quantidade() - (reconstruido ? 0 : lapides), (System.nanoTime() - inicio) / 1_000_000,
+                reconstruido ? " (índices reconstruídos)" : "");
+    }
+
+    @Override
+    public int gerarProximoId() {
+        return proximoId.getAndIncrement();
+    }
+
+    //O id só é gerado depois de o ISBN estar garantido, então um cadastro recusado não consome ids
+    @Override
+    public void salvarLivro(Livro livro) {
+        long isbn = CodificadorLivro.converterISBN(livro.getIsbn());
+        byte[][] textos = textos(livro);
+        trava.writeLock().lock();
+        try {
+            if (slotDoISBN(isbn) != SEM_SLOT) {
+                throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+            }
+            Livro livroComId = Livro.restaurar(gerarProximoId(), livro.getTitulo(), livro.getAutor(), livro.getIsbn(),
+                    livro.getTituloNormalizado(), livro.getAutorNormalizado());
+            gravar(livroComId, isbn, textos);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void atualizarLivro(Livro livro) {
+        long isbn = CodificadorLivro.converterISBN(livro.getIsbn());
+        byte[][] textos = textos(livro);
+        proximoId.accumulateAndGet(livro.getId() + 1, Math::max);
+        trava.writeLock().lock();
+        try {
+            int slotDono = slotDoISBN(isbn);
+            if (slotDono != SEM_SLOT && slots.buffer().getInt(posicaoSlot(slotDono) + S_ID) != livro.getId()) {
+                throw new IllegalArgumentException(MENSAGEM_ISBN_DUPLICADO);
+            }
+            gravar(livro, isbn, textos);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    //Só grava a lápide: as entradas dos índices continuam apontando para o slot até a compactação
+    @Override
+    public void removerLivro(int id) {
+        trava.writeLock().lock();
+        try {
+            int slot = slotDe(id);
+            if (slot == SEM_SLOT) {
+                return;
+            }
+            ByteBuffer buffer = slots.buffer();
+            int posicao = posicaoSlot(slot);
+            descartarTextos(posicao);
+            buffer.put(posicao + S_ESTADO, REMOVIDO);
+            buffer.putInt(CAB_LAPIDES, buffer.getInt(CAB_LAPIDES) + 1);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Livro buscarLivroPorId(int id) {
+        trava.readLock().lock();
+        try {
+            int slot = slotDe(id);
+            return slot != SEM_SLOT ? lerLivro(posicaoSlot(slot)) : null;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Livro buscarLivroPorISBN(String isbn) {
+        if (!CodificadorLivro.isbnNumerico(isbn)) {
+            return null;
+        }
+        long chave = Long.parseLong(isbn);
+        trava.readLock().lock();
+        try {
+            int slot = slotDoISBN(chave);
+            return slot != SEM_SLOT ? lerLivro(posicaoSlot(slot)) : null;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existeISBN(String isbn) {
+        if (!CodificadorLivro.isbnNumerico(isbn)) {
+            return false;
+        }
+        long chave = Long.parseLong(isbn);
+        trava.readLock().lock();
+        try {
+            return slotDoISBN(chave) != SEM_SLOT;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Livro> listarLivros() {
+        return percorrerIds(0, Integer.MAX_VALUE, SEM_SLOT, null);
+    }
+
+    //Sem índice ordenado: ordena o acervo inteiro a cada chamada
+    @Override
+    public List<Livro> listarLivrosOrdenadosAPartirDe(OrdemListagem ordem, CursorOrdenacao cursor, int limite) {
+        if (ordem == OrdemListagem.ID) {
+            return listarLivrosAPartirDe(cursor == null ? 0 : cursor.id(), limite);
+        }
+        return OrdenacaoLivros.paginar(listarLivros(), ordem, cursor, limite);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTitulo(String titulo) {
+        return listarLivrosPorTituloAPartirDe(titulo, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutor(String autor) {
+        return listarLivrosPorAutorAPartirDe(autor, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Livro> listarLivrosAPartirDe(int cursor, int limite) {
+        return percorrerIds(cursor, limite, SEM_SLOT, null);
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorTituloAPartirDe(String titulo, int cursor, int limite) {
+        return percorrerIds(cursor, limite, TITULO_NORMALIZADO, NormalizadorTexto.normalizar(titulo.trim()));
+    }
+
+    @Override
+    public List<Livro> listarLivrosPorAutorAPartirDe(String autor, int cursor, int limite) {
+        return percorrerIds(cursor, limite, AUTOR_NORMALIZADO, NormalizadorTexto.normalizar(autor.trim()));
+    }
+
+    @Override
+    public void paraCadaLivro(Predicate<Livro> filtro, Consumer<Livro> acao) {
+        int cursor = 0;
+        List<Livro> bloco;
+        do {
+            bloco = percorrerIds(cursor, BLOCO_ITERACAO, SEM_SLOT, null);
+            for (Livro livro : bloco) {
+                if (filtro.test(livro)) {
+                    acao.accept(livro);
+                }
+            }
+            if (!bloco.isEmpty()) {
+                cursor = bloco.get(bloco.size() - 1).getId();
+            }
+        } while (bloco.size() == BLOCO_ITERACAO);
+    }
+
+    //Slots já usados pelo arquivo, ocupados ou na lista de livres
+    public int slotsEmUso() {
+        trava.readLock().lock();
+        try {
+            return slots.buffer().getInt(CAB_SLOTS_EM_USO);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    //Bytes do heap ocupados por textos substituídos ou removidos, ainda não recuperados
+    public long bytesObsoletosHeap() {
+        trava.readLock().lock();
+        try {
+            return heap.buffer().getLong(CAB_OBSOLETOS);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    //Livros removidos cujos slots a compactação ainda não devolveu à lista de livres
+    public int lapidesPendentes() {
+        trava.readLock().lock();
+        try {
+            return slots.buffer().getInt(CAB_LAPIDES);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    //Recupera agora, sem limite de taxa, as lápides e todo o heap obsoleto; devolve os bytes recuperados
+    public long compactar() {
+        return compactador.compactar();
+    }
+
+    public CompactadorFundo.Metricas getMetricasCompactacao() {
+        return compactador.getMetricas();
+    }
+
+    //Leva ao disco as páginas alteradas dos dados e, depois delas, as dos índices, que ficam marcados como limpos
+    public void sincronizar() {
+        trava.writeLock().lock();
+        try {
+            heap.forcar();
+            slots.forcar();
+            indiceIds.sincronizar();
+            indiceISBN.sincronizar();
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    public ArvoreBMais getIndiceIds() {
+        return indiceIds;
+    }
+
+    public ArvoreBMais getIndiceISBN() {
+        return indiceISBN;
+    }
+
+    //A compactação para antes; os dados são fechados (e sincronizados) antes dos índices
+    @Override
+    public void close() throws IOException {
+        if (compactador != null) {
+            compactador.close();
+        }
+        trava.writeLock().lock();
+        try {
+            fecharTodos(heap, slots, indiceIds, indiceISBN);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    private void iniciarCabecalhos() {
+        slots.buffer()
+                .putInt(0, MAGIA_SLOTS)
+                .putInt(4, VERSAO)
+                .putInt(CAB_TAMANHO_SLOT, TAMANHO_SLOT)
+                .putInt(CAB_PROXIMO_ID, 1)
+                .putInt(CAB_SLOTS_EM_USO, 0)
+                .putInt(CAB_PRIMEIRO_LIVRE, SEM_SLOT)
+                .putInt(CAB_LAPIDES, 0);
+        heap.buffer()
+                .putInt(0, MAGIA_HEAP)
+                .putInt(4, VERSAO)
+                .putLong(CAB_FIM_HEAP, TAMANHO_CABECALHO_HEAP)
+                .putLong(CAB_OBSOLETOS, 0);
+    }
+
+    private void validarCabecalhos() {
+        ByteBuffer cabecalhoSlots = slots.buffer();
+        ByteBuffer cabecalhoHeap = heap.buffer();
+        if (cabecalhoSlots.getInt(0) != MAGIA_SLOTS || cabecalhoHeap.getInt(0) != MAGIA_HEAP) {
+            throw new IllegalStateException("Arquivos não são de um acervo mapeado: " + slots.getArquivo());
+        }
+        if (cabecalhoSlots.getInt(4) != VERSAO || cabecalhoHeap.getInt(4) != VERSAO
+                || cabecalhoSlots.getInt(CAB_TAMANHO_SLOT) != TAMANHO_SLOT) {
+            throw new IllegalStateException("Versão de acervo mapeado não suportada: " + cabecalhoSlots.getInt(4));
+        }
+        long fimSlots = TAMANHO_CABECALHO_SLOTS + (long) cabecalhoSlots.getInt(CAB_SLOTS_EM_USO) * TAMANHO_SLOT;
+        if (fimSlots > slots.capacidade() || cabecalhoHeap.getLong(CAB_FIM_HEAP) > heap.capacidade()) {
+            throw new IllegalStateException("Acervo mapeado truncado: " + slots.getArquivo());
+        }
+    }
+
+    //Lê só os campos fixos dos slots ocupados, ordena os pares em memória e recria as duas árvores por carga em
+    //lote; ao fim, sincroniza para que a próxima abertura não precise repetir. Lápides ficam fora dos índices,
+    //e a contagem delas no cabeçalho é refeita.
+    private void reconstruirIndices() {
+        ByteBuffer buffer = slots.buffer();
+        int emUso = buffer.getInt(CAB_SLOTS_EM_USO);
+        long[] ids = new long[emUso];
+        long[] slotsDosIds = new long[emUso];
+        long[] isbns = new long[emUso];
+        long[] slotsDosIsbns = new long[emUso];
+        int ocupados = 0;
+        int lapides = 0;
+        for (int slot = 0; slot < emUso; slot++) {
+            int posicao = posicaoSlot(slot);
+            if (buffer.get(posicao + S_ESTADO) == REMOVIDO) {
+                lapides++;
+            } else if (buffer.get(posicao + S_ESTADO) == OCUPADO) {
+                ids[ocupados] = buffer.getInt(posicao + S_ID);
+                slotsDosIds[ocupados] = slot;
+                isbns[ocupados] = buffer.getLong(posicao + S_ISBN);
+                slotsDosIsbns[ocupados++] = slot;
+            }
+        }
+        buffer.putInt(CAB_LAPIDES, lapides);
+        ArvoreBMais.ordenarPares(ids, slotsDosIds, ocupados);
+        ArvoreBMais.ordenarPares(isbns, slotsDosIsbns, ocupados);
+        indiceIds.limpar();
+        indiceIds.carregarEmLote(ids, slotsDosIds, ocupados);
+        indiceISBN.limpar();
+        indiceISBN.carregarEmLote(isbns, slotsDosIsbns, ocupados);
+        indiceIds.sincronizar();
+        indiceISBN.sincronizar();
+    }
+
+    //Sem campo, aceita todos os ids existentes após o cursor, percorrendo as folhas do índice de ids
+    private List<Livro> percorrerIds(int cursor, int limite, int campo, String termoBusca) {
+        List<Livro> resultado = new ArrayList<>(Math.min(limite, 64));
+        if (limite <= 0) {
+            return resultado;
+        }
+        trava.readLock().lock();
+        try {
+            indiceIds.percorrer(Math.max(cursor, 0) + 1L, (id, slot) -> {
+                int posicao = posicaoSlot((int) slot);
+                if (slots.buffer().get(posicao + S_ESTADO) != OCUPADO) {
+                    return true;
+                }
+                if (campo == SEM_SLOT || lerTexto(posicao, campo).contains(termoBusca)) {
+                    resultado.add(lerLivro(posicao));
+                }
+                return resultado.size() < limite;
+            });
+        } finally {
+            trava.readLock().unlock();
+        }
+        return resultado;
+    }
+
+    private Livro lerLivro(int posicao) {
+        ByteBuffer buffer = slots.buffer();
+        Livro livro = Livro.restaurar(buffer.getInt(posicao + S_ID), lerTexto(posicao, 0), lerTexto(posicao, 1),
+                CodificadorLivro.formatarISBN(buffer.getLong(posicao + S_ISBN)),
+                lerTexto(posicao, TITULO_NORMALIZADO), lerTexto(posicao, AUTOR_NORMALIZADO));
+        livro.setDisponivel(buffer.get(posicao + S_DISPONIVEL) != 0);
+        livro.setPrazoDevolucao(buffer.getInt(posicao + S_PRAZO));
+        livro.setMulta(buffer.getDouble(posicao + S_MULTA));
+        livro.setDataEmprestimo(paraData(buffer.getInt(posicao + S_DATAS)));
+        livro.setDataEstimadaDevolucao(paraData(buffer.getInt(posicao + S_DATAS + 4)));
+        livro.setDataEfetivaDevolucao(paraData(buffer.getInt(posicao + S_DATAS + 8)));
+        return livro;
+    }
+
+    //Campos do heap na ordem: título, autor, título normalizado, autor normalizado
+    private String lerTexto(int posicao, int campo) {
+        int inicio = (int) slots.buffer().getLong(posicao + S_HEAP);
+        for (int i = 0; i < campo; i++) {
+            inicio += tamanhoTexto(posicao, i);
+        }
+        byte[] bytes = new byte[tamanhoTexto(posicao, campo)];
+        heap.buffer().get(inicio, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int tamanhoTexto(int posicao, int campo) {
+        return Short.toUnsignedInt(slots.buffer().getShort(posicao + S_TAMANHOS + campo * 2));
+    }
+
+    //Devem ser chamados com a trava de escrita
+    private void gravar(Livro livro, long isbn, byte[][] textos) {
+        prepararAlteracao();
+        int id = livro.getId();
+        int slot = slotDe(id);
+        boolean novo = slot == SEM_SLOT;
+        if (novo) {
+            slot = alocarSlot();
+        }
+        int posicao = posicaoSlot(slot);
+        long posicaoHeap;
+        //Mudanças só de estado (empréstimo, devolução) reaproveitam os textos já gravados
+        if (!novo && textosIguais(posicao, textos)) {
+            posicaoHeap = slots.buffer().getLong(posicao + S_HEAP);
+        } else {
+            if (!novo) {
+                descartarTextos(posicao);
+            }
+            posicaoHeap = acrescentarNoHeap(textos);
+        }
+        ByteBuffer buffer = slots.buffer();
+        boolean isbnMudou = novo || buffer.getLong(posicao + S_ISBN) != isbn;
+        if (!novo && isbnMudou) {
+            indiceISBN.remover(buffer.getLong(posicao + S_ISBN));
+        }
+        buffer.putInt(posicao + S_ID, id)
+                .putLong(posicao + S_ISBN, isbn)
+                .putLong(posicao + S_HEAP, posicaoHeap)
+                .putDouble(posicao + S_MULTA, livro.getMulta())
+                .putInt(posicao + S_PRAZO, livro.getPrazoDevolucao())
+                .putInt(posicao + S_DATAS, paraDias(livro.getDataEmprestimo()))
+                .putInt(posicao + S_DATAS + 4, paraDias(livro.getDataEstimadaDevolucao()))
+                .putInt(posicao + S_DATAS + 8, paraDias(livro.getDataEfetivaDevolucao()))
+                .put(posicao + S_DISPONIVEL, livro.isDisponivel() ? (byte) 1 : 0);
+        for (int campo = 0; campo < textos.length; campo++) {
+            buffer.putShort(posicao + S_TAMANHOS + campo * 2, (short) textos[campo].length);
+        }
+        buffer.put(posicao + S_ESTADO, OCUPADO);
+        if (id >= buffer.getInt(CAB_PROXIMO_ID)) {
+            buffer.putInt(CAB_PROXIMO_ID, id + 1);
+        }
+        if (isbnMudou) {
+            indiceISBN.inserir(isbn, slot);
+        }
+        if (novo) {
+            indiceIds.inserir(id, slot);
+        }
+    }
+
+    //Marca os índices como sujos no disco antes de a escrita tocar os slots
+    private void prepararAlteracao() {
+        indiceIds.prepararAlteracao();
+        indiceISBN.prepararAlteracao();
+    }
+
+    //Reaproveita o primeiro slot da lista de livres; sem nenhum, usa o próximo do arquivo, crescendo se preciso
+    private int alocarSlot() {
+        ByteBuffer buffer = slots.buffer();
+        int livre = buffer.getInt(CAB_PRIMEIRO_LIVRE);
+        if (livre != SEM_SLOT) {
+            buffer.putInt(CAB_PRIMEIRO_LIVRE, buffer.getInt(posicaoSlot(livre) + S_ID));
+            return livre;
+        }
+        int emUso = buffer.getInt(CAB_SLOTS_EM_USO);
+        crescer(slots, TAMANHO_CABECALHO_SLOTS + (emUso + 1L) * TAMANHO_SLOT);
+        slots.buffer().putInt(CAB_SLOTS_EM_USO, emUso + 1);
+        return emUso;
+    }
+
+    private long acrescentarNoHeap(byte[][] textos) {
+        long fim = heap.buffer().getLong(CAB_FIM_HEAP);
+        int tamanho = 0;
+        for (byte[] texto : textos) {
+            tamanho += texto.length;
+        }
+        crescer(heap, fim + tamanho);
+        ByteBuffer buffer = heap.buffer();
+        int posicao = (int) fim;
+        for (byte[] texto : textos) {
+            buffer.put(posicao, texto);
+            posicao += texto.length;
+        }
+        buffer.putLong(CAB_FIM_HEAP, fim + tamanho);
+        return fim;
+    }
+
+    private boolean textosIguais(int posicao, byte[][] textos) {
+        int inicio = (int) slots.buffer().getLong(posicao + S_HEAP);
+        for (int campo = 0; campo < textos.length; campo++) {
+            if (tamanhoTexto(posicao, campo) != textos[campo].length
+                    || !heap.buffer().slice(inicio, textos[campo].length).equals(ByteBuffer.wrap(textos[campo]))) {
+                return false;
+            }
+            inicio += textos[campo].length;
+        }
+        return true;
+    }
+
+    private void descartarTextos(int posicao) {
+        ByteBuffer buffer = heap.buffer();
+        buffer.putLong(CAB_OBSOLETOS, buffer.getLong(CAB_OBSOLETOS) + tamanhoTextos(posicao));
+    }
+
+    private int tamanhoTextos(int posicao) {
+        int tamanho = 0;
+        for (int campo = 0; campo <= AUTOR_NORMALIZADO; campo++) {
+            tamanho += tamanhoTexto(posicao, campo);
+        }
+        return tamanho;
+    }
+
+    private void crescer(ArquivoMapeado arquivo, long necessario) {
+        try {
+            arquivo.garantirCapacidade(necessario);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao estender o acervo mapeado: " + e.getMessage(), e);
+        }
+    }
+
+    //Entradas que apontam para lápides contam como ausentes
+    private int slotDe(int id) {
+        return slotVivo(indiceIds.buscar(id));
+    }
+
+    private int slotDoISBN(long isbn) {
+        return slotVivo(indiceISBN.buscar(isbn));
+    }
+
+    private int slotVivo(long slot) {
+        return slot != ArvoreBMais.AUSENTE && slots.buffer().get(posicaoSlot((int) slot) + S_ESTADO) == OCUPADO
+                ? (int) slot : SEM_SLOT;
+    }
+
+    //Primeiro as lápides; depois, se o heap passou do limiar (ou forçado, com qualquer byte obsoleto), um plano
+    //dos textos vivos e os passos que os deslizam para o início
+    private CompactadorFundo.Passo passoCompactacao(boolean forcado) {
+        if (fase == Fase.PARADA) {
+            iniciarRodada(forcado);
+            if (fase == Fase.PARADA) {
+                return null;
+            }
+        }
+        return switch (fase) {
+            case LAPIDES -> passoLapides();
+            case PLANO -> passoPlano();
+            default -> passoMover();
+        };
+    }
+
+    private void iniciarRodada(boolean forcado) {
+        trava.readLock().lock();
+        try {
+            if (slots.buffer().getInt(CAB_LAPIDES) > 0) {
+                fase = Fase.LAPIDES;
+                cursorSlot = 0;
+                return;
+            }
+            long obsoletos = heap.buffer().getLong(CAB_OBSOLETOS);
+            long usado = heap.buffer().getLong(CAB_FIM_HEAP) - TAMANHO_CABECALHO_HEAP;
+            if (forcado ? obsoletos > 0
+                    : obsoletos >= LIMIAR_OBSOLETOS_BYTES && obsoletos >= usado * FRACAO_OBSOLETOS) {
+                passagens = 0;
+                planejar();
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    //Exige uma das travas. Textos acrescentados depois daqui ficam além de fimPlanejado e fora do plano.
+    private void planejar() {
+        fase = Fase.PLANO;
+        cursorSlot = 0;
+        limiteSlots = slots.buffer().getInt(CAB_SLOTS_EM_USO);
+        fimPlanejado = heap.buffer().getLong(CAB_FIM_HEAP);
+        if (posicoesPlano == null || posicoesPlano.length < limiteSlots) {
+            posicoesPlano = new long[limiteSlots];
+            slotsPlano = new long[limiteSlots];
+        }
+        tamanhoPlano = 0;
+    }
+
+    //Tira dos índices as entradas que ainda apontam para a lápide (o id ou o ISBN podem já ter voltado em
+    //outro slot) e encadeia o slot na lista de livres
+    private CompactadorFundo.Passo passoLapides() {
+        trava.writeLock().lock();
+        try {
+            ByteBuffer buffer = slots.buffer();
+            int emUso = buffer.getInt(CAB_SLOTS_EM_USO);
+            int inicio = cursorSlot;
+            int fim = Math.min(emUso, cursorSlot + SLOTS_POR_PASSO);
+            int recuperadas = 0;
+            for (; cursorSlot < fim && recuperadas < LAPIDES_POR_PASSO; cursorSlot++) {
+                int posicao = posicaoSlot(cursorSlot);
+                if (buffer.get(posicao + S_ESTADO) != REMOVIDO) {
+                    continue;
+                }
+                if (recuperadas++ == 0) {
+                    prepararAlteracao();
+                }
+                int id = buffer.getInt(posicao + S_ID);
+                long isbn = buffer.getLong(posicao + S_ISBN);
+                if (indiceIds.buscar(id) == cursorSlot) {
+                    indiceIds.remover(id);
+                }
+                if (indiceISBN.buscar(isbn) == cursorSlot) {
+                    indiceISBN.remover(isbn);
+                }
+                buffer.put(posicao + S_ESTADO, LIVRE);
+                buffer.putInt(posicao + S_ID, buffer.getInt(CAB_PRIMEIRO_LIVRE));
+                buffer.putInt(CAB_PRIMEIRO_LIVRE, cursorSlot);
+            }
+            int restantes = Math.max(0, buffer.getInt(CAB_LAPIDES) - recuperadas);
+            buffer.putInt(CAB_LAPIDES, restantes);
+            if (cursorSlot >= emUso || restantes == 0) {
+                //Uma contagem maior que as lápides encontradas (ex.: queda entre gravar a lápide e o cabeçalho)
+                //é zerada ao fim da varredura
+                buffer.putInt(CAB_LAPIDES, 0);
+                fase = Fase.PARADA;
+            }
+            return new CompactadorFundo.Passo((long) (cursorSlot - inicio) * TAMANHO_SLOT,
+                    (long) recuperadas * TAMANHO_SLOT);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    //Só lê os slots; a ordenação do plano acontece fora da trava
+    private CompactadorFundo.Passo passoPlano() {
+        int inicio = cursorSlot;
+        trava.readLock().lock();
+        try {
+            ByteBuffer buffer = slots.buffer();
+            int fim = Math.min(limiteSlots, cursorSlot + SLOTS_POR_PASSO);
+            for (; cursorSlot < fim; cursorSlot++) {
+                int posicao = posicaoSlot(cursorSlot);
+                long posicaoHeap = buffer.getLong(posicao + S_HEAP);
+                if (buffer.get(posicao + S_ESTADO) == OCUPADO && posicaoHeap < fimPlanejado
+                        && tamanhoTextos(posicao) > 0) {
+                    posicoesPlano[tamanhoPlano] = posicaoHeap;
+                    slotsPlano[tamanhoPlano++] = cursorSlot;
+                }
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+        long processados = (long) (cursorSlot - inicio) * TAMANHO_SLOT;
+        if (cursorSlot >= limiteSlots) {
+            ArvoreBMais.ordenarPares(posicoesPlano, slotsPlano, tamanhoPlano);
+            fase = Fase.MOVER;
+            cursorPlano = 0;
+            destino = TAMANHO_CABECALHO_HEAP;
+            processados += tamanhoPlano * 16L;
+        }
+        return new CompactadorFundo.Passo(processados, 0);
+    }
+
+    //Copia cada texto vivo do plano para o destino, que nunca passa da origem: o que fica entre os dois é de
+    //textos já movidos ou mortos. Textos que mudaram ou foram removidos depois do plano são pulados.
+    private CompactadorFundo.Passo passoMover() {
+        trava.writeLock().lock();
+        try {
+            ByteBuffer bufferSlots = slots.buffer();
+            ByteBuffer bufferHeap = heap.buffer();
+            int fim = Math.min(tamanhoPlano, cursorPlano + REGISTROS_POR_PASSO);
+            long copiados = 0;
+            for (; cursorPlano < fim; cursorPlano++) {
+                int posicao = posicaoSlot((int) slotsPlano[cursorPlano]);
+                long origem = posicoesPlano[cursorPlano];
+                if (bufferSlots.get(posicao + S_ESTADO) != OCUPADO || bufferSlots.getLong(posicao + S_HEAP) != origem) {
+                    continue;
+                }
+                int tamanho = tamanhoTextos(posicao);
+                if (origem != destino) {
+                    if (copia.length < tamanho) {
+                        copia = new byte[Math.max(tamanho, copia.length * 2)];
+                    }
+                    bufferHeap.get((int) origem, copia, 0, tamanho);
+                    bufferHeap.put((int) destino, copia, 0, tamanho);
+                    bufferSlots.putLong(posicao + S_HEAP, destino);
+                    copiados += tamanho;
+                }
+                destino += tamanho;
+            }
+            if (cursorPlano < tamanhoPlano) {
+                return new CompactadorFundo.Passo(copiados, 0);
+            }
+            return new CompactadorFundo.Passo(copiados, concluirPassagem());
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    //Exige a trava de escrita. Sem acréscimos desde o plano, o fim do heap recua até o destino; senão os textos
+    //novos estão depois de um buraco, e um novo plano os traz para baixo.
+    private long concluirPassagem() {
+        ByteBuffer buffer = heap.buffer();
+        if (buffer.getLong(CAB_FIM_HEAP) != fimPlanejado) {
+            if (++passagens < MAX_PASSAGENS) {
+                planejar();
+            } else {
+                fase = Fase.PARADA;
+            }
+            return 0;
+        }
+        long recuperados = fimPlanejado - destino;
+        //Sem nada a recuperar, os únicos obsoletos contados são textos removidos depois de movidos; a contagem é
+        //zerada para uma compactação forçada não repetir sem fim, e a próxima rodada recupera esses bytes
+        long obsoletos = recuperados == 0 ? 0 : Math.max(0, buffer.getLong(CAB_OBSOLETOS) - recuperados);
+        buffer.putLong(CAB_FIM_HEAP, destino).putLong(CAB_OBSOLETOS, obsoletos);
+        fase = Fase.PARADA;
+        return recuperados;
+    }
+
+    private long pendenciaCompactacao() {
+        trava.readLock().lock();
+        try {
+            return heap.buffer().getLong(CAB_OBSOLETOS) + (long) slots.buffer().getInt(CAB_LAPIDES) * TAMANHO_SLOT;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    //Fecha na ordem dada mesmo se algum falhar, relançando a primeira falha
+    private static void fecharTodos(Closeable... recursos) throws IOException {
+        IOException falha = null;
+        for (Closeable recurso : recursos) {
+            if (recurso == null) {
+                continue;
+            }
+            try {
+                recurso.close();
+            } catch (IOException e) {
+                if (falha == null) {
+                    falha = e;
+                }
+            }
+        }
+        if (falha != null) {
+            throw falha;
+        }
+    }
+
+    private static int posicaoSlot(int slot) {
+        return TAMANHO_CABECALHO_SLOTS + slot * TAMANHO_SLOT;
+    }
+
+    private static byte[][] textos(Livro livro) {
+        return new byte[][]{utf8(livro.getTitulo()), utf8(livro.getAutor()), utf8(livro.getTituloNormalizado()),
+                utf8(livro.getAutorNormalizado())};
+    }
+
+    private static byte[] utf8(String valor) {
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_BYTES_CAMPO) {
+            throw new IllegalArgumentException("Campo excede o tamanho máximo do registro");
+        }
+        return bytes;
+    }
+
+    private static int paraDias(LocalDate data) {
+        return data == null ? SEM_DATA : (int) data.toEpochDay();
+    }
+
+    private static LocalDate paraData(int dias) {
+        return dias == SEM_DATA ? null : LocalDate.ofEpochDay(dias);
+    }
+
+    private boolean cadastrarDoCSV(String titulo, String autor, String isbn) {
+        try {
+            salvarLivro(new Livro(0, titulo, autor, isbn));
+            return true;
+        } catch (IllegalArgumentException e) {
+            if (MENSAGEM_ISBN_DUPLICADO.equals(e.getMessage())) {
+                //Como a carga em memória, a linha duplicada consome um id, para os ids do catálogo coincidirem
+                gerarProximoId();
+                return false;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.CursorOrdenacao;
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.indices.IndiceOrdenado;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+//Listagem ordenada para repositórios sem índice ordenado: ordena os livros recebidos pela chave de colação
+//pt-BR do campo (desempate pelo id) e devolve os que vêm depois da chave do cursor
+final class OrdenacaoLivros {
+
+    private OrdenacaoLivros() {
+    }
+
+    static List<Livro> paginar(List<Livro> livros, OrdemListagem ordem, CursorOrdenacao cursor, int limite) {
+        Function<Livro, String> campo = ordem == OrdemListagem.AUTOR ? Livro::getAutor : Livro::getTitulo;
+        Comparator<Chave> porChave = Comparator.<Chave, byte[]>comparing(Chave::colacao, Arrays::compareUnsigned)
+                .thenComparingInt(Chave::id);
+        Chave depoisDe = cursor == null ? null : new Chave(IndiceOrdenado.chaveColacao(cursor.texto()), cursor.id(), null);
+        return livros.stream()
+                .map(livro -> new Chave(IndiceOrdenado.chaveColacao(campo.apply(livro)), livro.getId(), livro))
+                .filter(chave -> depoisDe == null || porChave.compare(chave, depoisDe) > 0)
+                .sorted(porChave)
+                .limit(limite)
+                .map(Chave::livro)
+                .toList();
+    }
+
+    private record Chave(byte[] colacao, int id, Livro livro) {
+    }
+}
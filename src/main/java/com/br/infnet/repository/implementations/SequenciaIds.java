@@ -0,0 +1,102 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.repository.persistencia.PoolConexoes;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+//Gerador de ids dos repositórios JDBC: os ids saem de um contador em memória e são reservados no banco em
+//blocos (hi/lo), uma escrita a cada BLOCO ids em vez de uma por cadastro. O que restar de um bloco numa
+//reinicialização é pulado: ids podem ter lacunas, mas nunca são reaproveitados.
+//A reserva usa a conexão isolada do pool, com commit próprio: um rollback da transação que pediu o id não
+//desfaz a reserva no banco. Ela também roda fora do monitor, que só protege os contadores em memória, então
+//uma thread esperando o banco não segura quem ainda tem ids do bloco atual.
+final class SequenciaIds {
+    static final int BLOCO = 1_000;
+
+    private static final String CRIAR_TABELA = "CREATE TABLE IF NOT EXISTS sequencias ("
+            + "nome VARCHAR(32) PRIMARY KEY, proximo INT NOT NULL)";
+    private static final String CONSULTAR = "SELECT proximo FROM sequencias WHERE nome = ?";
+    private static final String INSERIR = "INSERT INTO sequencias (nome, proximo) VALUES (?, ?)";
+    private static final String RESERVAR = "UPDATE sequencias SET proximo = ? WHERE nome = ?";
+
+    private final PoolConexoes pool;
+    private final String nome;
+    //Uma reserva por vez; nunca é pedida com o monitor seguro
+    private final Object travaReserva = new Object();
+    private int proximo;
+    //Primeiro id ainda não reservado no banco
+    private int reservadoAte;
+
+    SequenciaIds(PoolConexoes pool, String nome) {
+        this.pool = pool;
+        this.nome = nome;
+        this.reservadoAte = pool.executarIsolada(conexao -> {
+            try (Statement ddl = conexao.getConnection().createStatement()) {
+                ddl.execute(CRIAR_TABELA);
+            }
+            PreparedStatement consulta = conexao.preparar(CONSULTAR);
+            consulta.setString(1, nome);
+            try (ResultSet resultado = consulta.executeQuery()) {
+                if (resultado.next()) {
+                    return resultado.getInt(1);
+                }
+            }
+            PreparedStatement insercao = conexao.preparar(INSERIR);
+            insercao.setString(1, nome);
+            insercao.setInt(2, 1);
+            insercao.executeUpdate();
+            return 1;
+        });
+        this.proximo = reservadoAte;
+    }
+
+    int gerar() {
+        while (true) {
+            synchronized (this) {
+                if (proximo < reservadoAte) {
+                    return proximo++;
+                }
+            }
+            garantirReserva();
+        }
+    }
+
+    synchronized int consultar() {
+        return proximo;
+    }
+
+    //Ids gravados fora da sequência (ex.: upsert com id explícito) não podem ser gerados de novo
+    void avancarPara(int id) {
+        synchronized (this) {
+            if (id <= proximo) {
+                return;
+            }
+            proximo = id;
+        }
+        garantirReserva();
+    }
+
+    //Reserva no banco um bloco além de proximo, se ele já tiver alcançado o fim da reserva atual
+    private void garantirReserva() {
+        synchronized (travaReserva) {
+            int ate;
+            synchronized (this) {
+                if (proximo < reservadoAte) {
+                    return;
+                }
+                ate = proximo + BLOCO;
+            }
+            pool.executarIsolada(conexao -> {
+                PreparedStatement reserva = conexao.preparar(RESERVAR);
+                reserva.setInt(1, ate);
+                reserva.setString(2, nome);
+                return reserva.executeUpdate();
+            });
+            synchronized (this) {
+                reservadoAte = Math.max(reservadoAte, ate);
+            }
+        }
+    }
+}
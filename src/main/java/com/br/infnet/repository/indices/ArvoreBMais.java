@@ -0,0 +1,652 @@
+package com.br.infnet.repository.indices;
+
+import com.br.infnet.repository.armazenamento.PoolPaginas;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//Árvore B+ em disco de chaves long únicas para valores long, em páginas de tamanho fixo lidas por um PoolPaginas:
+//a memória usada é a do pool, não a do índice. Uma busca lê uma página por nível (3 níveis cobrem dezenas de
+//milhões de chaves com páginas de 4 KB) e as folhas são encadeadas para percorrer faixas de chaves.
+//  página 0: [magia int][versão int][tamanho da página int][estado int][raiz long][altura int][4 bytes livres]
+//            [quantidade long]
+//  nó: [tipo byte][3 bytes livres][quantidade de chaves int][próxima folha long, só nas folhas]
+//      folha: chaves long[] seguidas dos valores long[]; interno: chaves long[] seguidas dos filhos long[]
+//      (o filho i tem as chaves >= chave i - 1 e < chave i)
+//Remoções não fundem nós: folhas podem ficar vazias e voltam a encher com novas inserções; uma carga em lote
+//refaz a árvore compacta. Inserções no fim da faixa (ids crescentes) dividem o nó deixando o da esquerda cheio.
+//Não há log: a primeira alteração depois de abrir marca o arquivo como sujo no disco, e só sincronizar() ou
+//close() o marcam de novo como limpo. Um arquivo que não foi fechado limpo é descartado ao abrir, e
+//isConsistente() avisa quem usa que deve recarregar o índice dos dados de origem.
+public class ArvoreBMais implements Closeable {
+    public static final long AUSENTE = Long.MIN_VALUE;
+    public static final int PAGINAS_EM_CACHE_PADRAO = 2048;
+    private static final int MAGIA = 0x42505453;
+    private static final int VERSAO = 1;
+    private static final int LIMPO = 1;
+    private static final int SUJO = 2;
+    private static final byte FOLHA = 1;
+    private static final byte INTERNO = 2;
+    private static final long SEM_PAGINA = 0;
+    //Folhas da carga em lote ficam com folga para inserções fora de ordem (ex.: ISBNs) não dividirem logo
+    private static final double PREENCHIMENTO_CARGA = 0.9;
+
+    private static final int CAB_TAMANHO_PAGINA = 8;
+    private static final int CAB_ESTADO = 12;
+    private static final int CAB_RAIZ = 16;
+    private static final int CAB_ALTURA = 24;
+    private static final int CAB_QUANTIDADE = 32;
+    private static final int N_TIPO = 0;
+    private static final int N_QUANTIDADE = 4;
+    private static final int N_PROXIMA = 8;
+    private static final int N_ENTRADAS = 16;
+
+    //Recebe as entradas em ordem de chave; devolve false para parar
+    public interface VisitantePar {
+        boolean visitar(long chave, long valor);
+    }
+
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    private final PoolPaginas pool;
+    private final int capacidadeFolha;
+    private final int capacidadeInterno;
+    private final boolean consistente;
+    private long raiz;
+    //1 quando a raiz é uma folha
+    private int altura;
+    private long quantidade;
+    private boolean sujo;
+
+    public ArvoreBMais(Path arquivo) throws IOException {
+        this(arquivo, PoolPaginas.TAMANHO_PAGINA_PADRAO, PAGINAS_EM_CACHE_PADRAO);
+    }
+
+    public ArvoreBMais(Path arquivo, int tamanhoPagina, int paginasEmCache) throws IOException {
+        this.pool = new PoolPaginas(arquivo, tamanhoPagina, paginasEmCache);
+        this.capacidadeFolha = (tamanhoPagina - N_ENTRADAS) / 16;
+        this.capacidadeInterno = (tamanhoPagina - N_ENTRADAS - 8) / 16;
+        if (capacidadeInterno < 2) {
+            pool.close();
+            throw new IllegalArgumentException("Página pequena demais para a árvore: " + tamanhoPagina);
+        }
+        try {
+            this.consistente = !pool.isNovo() && abrirCabecalho(tamanhoPagina);
+            if (!consistente) {
+                iniciarVazia();
+            }
+        } catch (RuntimeException e) {
+            pool.close();
+            throw e;
+        }
+    }
+
+    //Falso quando o arquivo é novo ou não foi fechado limpo: a árvore está vazia e deve ser recarregada
+    public boolean isConsistente() {
+        return consistente;
+    }
+
+    public long buscar(long chave) {
+        trava.readLock().lock();
+        try {
+            int quadro = descerAteFolha(chave, null);
+            try {
+                ByteBuffer folha = pool.buffer(quadro);
+                int indice = limiteInferior(folha, chave);
+                return indice < quantidadeNo(folha) && chave(folha, indice) == chave
+                        ? folha.getLong(posicaoValor(indice)) : AUSENTE;
+            } finally {
+                pool.desafixar(quadro, false);
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    public boolean contem(long chave) {
+        return buscar(chave) != AUSENTE;
+    }
+
+    //Insere ou substitui; devolve o valor anterior, ou AUSENTE
+    public long inserir(long chave, long valor) {
+        if (valor == AUSENTE) {
+            throw new IllegalArgumentException("Valor reservado não pode ser gravado na árvore");
+        }
+        trava.writeLock().lock();
+        try {
+            marcarSujo();
+            Caminho caminho = new Caminho(altura);
+            int quadro = descerAteFolha(chave, caminho);
+            ByteBuffer folha = pool.buffer(quadro);
+            int indice = limiteInferior(folha, chave);
+            int n = quantidadeNo(folha);
+            if (indice < n && chave(folha, indice) == chave) {
+                long anterior = folha.getLong(posicaoValor(indice));
+                folha.putLong(posicaoValor(indice), valor);
+                pool.desafixar(quadro, true);
+                return anterior;
+            }
+            quantidade++;
+            if (n < capacidadeFolha) {
+                inserirNaFolha(folha, indice, chave, valor);
+                pool.desafixar(quadro, true);
+                return AUSENTE;
+            }
+            dividirFolha(quadro, indice, chave, valor, caminho.naBorda(altura - 1, indice, n), caminho);
+            return AUSENTE;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    //Devolve o valor removido, ou AUSENTE
+    public long remover(long chave) {
+        trava.writeLock().lock();
+        try {
+            int quadro = descerAteFolha(chave, null);
+            ByteBuffer folha = pool.buffer(quadro);
+            int indice = limiteInferior(folha, chave);
+            int n = quantidadeNo(folha);
+            if (indice >= n || chave(folha, indice) != chave) {
+                pool.desafixar(quadro, false);
+                return AUSENTE;
+            }
+            marcarSujo();
+            long anterior = folha.getLong(posicaoValor(indice));
+            deslocar(folha, N_ENTRADAS, indice + 1, indice, n - indice - 1);
+            deslocar(folha, posicaoValor(0), indice + 1, indice, n - indice - 1);
+            folha.putInt(N_QUANTIDADE, n - 1);
+            quantidade--;
+            pool.desafixar(quadro, true);
+            return anterior;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    //Entradas com chave >= "aPartirDe", em ordem, até o visitante devolver false
+    public void percorrer(long aPartirDe, VisitantePar visitante) {
+        trava.readLock().lock();
+        try {
+            int quadro = descerAteFolha(aPartirDe, null);
+            int indice = limiteInferior(pool.buffer(quadro), aPartirDe);
+            while (true) {
+                ByteBuffer folha = pool.buffer(quadro);
+                int n = quantidadeNo(folha);
+                for (; indice < n; indice++) {
+                    if (!visitante.visitar(chave(folha, indice), folha.getLong(posicaoValor(indice)))) {
+                        pool.desafixar(quadro, false);
+                        return;
+                    }
+                }
+                long proxima = folha.getLong(N_PROXIMA);
+                pool.desafixar(quadro, false);
+                if (proxima == SEM_PAGINA) {
+                    return;
+                }
+                quadro = pool.fixar(proxima);
+                indice = 0;
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    //Monta a árvore de baixo para cima a partir de chaves em ordem estritamente crescente: as folhas são
+    //gravadas em sequência e cada nível interno sai das primeiras chaves do nível de baixo, sem divisões.
+    //Exige a árvore vazia.
+    public void carregarEmLote(long[] chaves, long[] valores, int total) {
+        if (total < 0 || total > chaves.length || total > valores.length) {
+            throw new IllegalArgumentException("Quantidade inválida para a carga em lote: " + total);
+        }
+        for (int i = 1; i < total; i++) {
+            if (chaves[i] <= chaves[i - 1]) {
+                throw new IllegalArgumentException("Carga em lote exige chaves únicas em ordem crescente");
+            }
+        }
+        trava.writeLock().lock();
+        try {
+            if (quantidade > 0) {
+                throw new IllegalStateException("Carga em lote exige uma árvore vazia");
+            }
+            iniciarVazia();
+            if (total == 0) {
+                return;
+            }
+            int porFolha = Math.max(1, (int) (capacidadeFolha * PREENCHIMENTO_CARGA));
+            int folhas = (total + porFolha - 1) / porFolha;
+            long[] primeiras = new long[folhas];
+            long[] paginas = new long[folhas];
+            int anterior = -1;
+            for (int folha = 0; folha < folhas; folha++) {
+                //A primeira folha reaproveita a raiz vazia criada por iniciarVazia()
+                int quadro = folha == 0 ? pool.fixar(raiz) : pool.alocar();
+                ByteBuffer buffer = pool.buffer(quadro);
+                int inicio = folha * porFolha;
+                int n = Math.min(porFolha, total - inicio);
+                buffer.put(N_TIPO, FOLHA).putInt(N_QUANTIDADE, n).putLong(N_PROXIMA, SEM_PAGINA);
+                for (int i = 0; i < n; i++) {
+                    buffer.putLong(N_ENTRADAS + i * 8, chaves[inicio + i]);
+                    buffer.putLong(posicaoValor(i), valores[inicio + i]);
+                }
+                primeiras[folha] = chaves[inicio];
+                paginas[folha] = pool.pagina(quadro);
+                if (anterior >= 0) {
+                    pool.buffer(anterior).putLong(N_PROXIMA, paginas[folha]);
+                    pool.desafixar(anterior, true);
+                }
+                anterior = quadro;
+            }
+            pool.desafixar(anterior, true);
+
+            altura = 1;
+            int nos = folhas;
+            while (nos > 1) {
+                int porNo = capacidadeInterno + 1;
+                int pais = (nos + porNo - 1) / porNo;
+                for (int pai = 0; pai < pais; pai++) {
+                    int quadro = pool.alocar();
+                    ByteBuffer buffer = pool.buffer(quadro);
+                    int inicio = pai * porNo;
+                    int filhos = Math.min(porNo, nos - inicio);
+                    buffer.put(N_TIPO, INTERNO).putInt(N_QUANTIDADE, filhos - 1);
+                    for (int i = 0; i < filhos; i++) {
+                        if (i > 0) {
+                            buffer.putLong(N_ENTRADAS + (i - 1) * 8, primeiras[inicio + i]);
+                        }
+                        buffer.putLong(posicaoFilho(i), paginas[inicio + i]);
+                    }
+                    primeiras[pai] = primeiras[inicio];
+                    paginas[pai] = pool.pagina(quadro);
+                    pool.desafixar(quadro, true);
+                }
+                nos = pais;
+                altura++;
+            }
+            raiz = paginas[0];
+            quantidade = total;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    //Ordena os pares pela chave, levando os valores junto, para a carga em lote: radix sort de 8 bits por passada,
+    //pulando as passadas em que todas as chaves têm o mesmo byte (ex.: os bytes altos de ids e ISBNs)
+    public static void ordenarPares(long[] chaves, long[] valores, int total) {
+        long[] origemChaves = chaves;
+        long[] origemValores = valores;
+        long[] destinoChaves = new long[total];
+        long[] destinoValores = new long[total];
+        int[] contagem = new int[257];
+        for (int deslocamento = 0; deslocamento < Long.SIZE; deslocamento += 8) {
+            Arrays.fill(contagem, 0);
+            for (int i = 0; i < total; i++) {
+                contagem[digito(origemChaves[i], deslocamento) + 1]++;
+            }
+            if (total == 0 || contagem[digito(origemChaves[0], deslocamento) + 1] == total) {
+                continue;
+            }
+            for (int d = 0; d < 256; d++) {
+                contagem[d + 1] += contagem[d];
+            }
+            for (int i = 0; i < total; i++) {
+                int posicao = contagem[digito(origemChaves[i], deslocamento)]++;
+                destinoChaves[posicao] = origemChaves[i];
+                destinoValores[posicao] = origemValores[i];
+            }
+            long[] troca = origemChaves;
+            origemChaves = destinoChaves;
+            destinoChaves = troca;
+            troca = origemValores;
+            origemValores = destinoValores;
+            destinoValores = troca;
+        }
+        if (origemChaves != chaves) {
+            System.arraycopy(origemChaves, 0, chaves, 0, total);
+            System.arraycopy(origemValores, 0, valores, 0, total);
+        }
+    }
+
+    //Descarta todas as entradas
+    public void limpar() {
+        trava.writeLock().lock();
+        try {
+            iniciarVazia();
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    //Marca o arquivo como sujo no disco antes de uma alteração que quem usa fará nos dados de origem, para que
+    //uma queda entre as duas gravações force a recarga do índice ao reabrir
+    public void prepararAlteracao() {
+        trava.writeLock().lock();
+        try {
+            marcarSujo();
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    //Grava as páginas alteradas e só então marca o arquivo como limpo
+    public void sincronizar() {
+        trava.writeLock().lock();
+        try {
+            if (!sujo) {
+                return;
+            }
+            pool.descarregar();
+            gravarCabecalho(LIMPO);
+            pool.descarregar();
+            sujo = false;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    public long quantidade() {
+        trava.readLock().lock();
+        try {
+            return quantidade;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    public int altura() {
+        trava.readLock().lock();
+        try {
+            return altura;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    public PoolPaginas getPool() {
+        return pool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        trava.writeLock().lock();
+        try {
+            sincronizar();
+        } finally {
+            try {
+                pool.close();
+            } finally {
+                trava.writeLock().unlock();
+            }
+        }
+    }
+
+    private boolean abrirCabecalho(int tamanhoPagina) {
+        int quadro = pool.fixar(0);
+        try {
+            ByteBuffer cabecalho = pool.buffer(quadro);
+            if (cabecalho.getInt(0) != MAGIA) {
+                throw new IllegalStateException("Arquivo não é uma árvore B+: " + pool.getArquivo());
+            }
+            if (cabecalho.getInt(4) != VERSAO || cabecalho.getInt(CAB_TAMANHO_PAGINA) != tamanhoPagina) {
+                throw new IllegalStateException("Versão ou tamanho de página da árvore B+ não suportados: "
+                        + pool.getArquivo());
+            }
+            if (cabecalho.getInt(CAB_ESTADO) != LIMPO) {
+                return false;
+            }
+            raiz = cabecalho.getLong(CAB_RAIZ);
+            altura = cabecalho.getInt(CAB_ALTURA);
+            quantidade = cabecalho.getLong(CAB_QUANTIDADE);
+            return true;
+        } finally {
+            pool.desafixar(quadro, false);
+        }
+    }
+
+    //Descarta o conteúdo do arquivo e cria o cabeçalho e uma folha raiz vazia
+    private void iniciarVazia() {
+        pool.truncar();
+        int cabecalho = pool.alocar();
+        int folha = pool.alocar();
+        pool.buffer(folha).put(N_TIPO, FOLHA);
+        raiz = pool.pagina(folha);
+        altura = 1;
+        quantidade = 0;
+        pool.desafixar(folha, true);
+        pool.desafixar(cabecalho, true);
+        sujo = true;
+        gravarCabecalho(SUJO);
+        pool.descarregar();
+    }
+
+    private void marcarSujo() {
+        if (sujo) {
+            return;
+        }
+        gravarCabecalho(SUJO);
+        pool.descarregar();
+        sujo = true;
+    }
+
+    private void gravarCabecalho(int estado) {
+        int quadro = pool.fixar(0);
+        pool.buffer(quadro)
+                .putInt(0, MAGIA)
+                .putInt(4, VERSAO)
+                .putInt(CAB_TAMANHO_PAGINA, pool.getTamanhoPagina())
+                .putInt(CAB_ESTADO, estado)
+                .putLong(CAB_RAIZ, raiz)
+                .putInt(CAB_ALTURA, altura)
+                .putLong(CAB_QUANTIDADE, quantidade);
+        pool.desafixar(quadro, true);
+    }
+
+    //Páginas e filhos escolhidos em cada nível interno na descida, para as divisões subirem pelo mesmo caminho
+    private static final class Caminho {
+        private final long[] paginas;
+        private final int[] indices;
+        private final boolean[] ultimos;
+
+        private Caminho(int altura) {
+            paginas = new long[altura];
+            indices = new int[altura];
+            ultimos = new boolean[altura];
+        }
+
+        //Verdadeiro quando o nó do nível está na borda direita da árvore e a inserção é na sua última posição
+        private boolean naBorda(int nivel, int indice, int n) {
+            if (indice != n) {
+                return false;
+            }
+            for (int i = 0; i < nivel; i++) {
+                if (!ultimos[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    //Desce da raiz até a folha da chave e a devolve fixada, anotando o caminho se pedido
+    private int descerAteFolha(long chave, Caminho caminho) {
+        long pagina = raiz;
+        for (int nivel = 0; nivel < altura - 1; nivel++) {
+            int quadro = pool.fixar(pagina);
+            ByteBuffer no = pool.buffer(quadro);
+            int filho = limiteSuperior(no, chave);
+            if (caminho != null) {
+                caminho.paginas[nivel] = pagina;
+                caminho.indices[nivel] = filho;
+                caminho.ultimos[nivel] = filho == quantidadeNo(no);
+            }
+            pagina = no.getLong(posicaoFilho(filho));
+            pool.desafixar(quadro, false);
+        }
+        return pool.fixar(pagina);
+    }
+
+    //Divide a folha cheia ao inserir; na borda direita a entrada nova vai sozinha para a folha nova
+    private void dividirFolha(int quadro, int indice, long chave, long valor, boolean borda, Caminho caminho) {
+        ByteBuffer folha = pool.buffer(quadro);
+        int n = quantidadeNo(folha);
+        long[] chaves = new long[n + 1];
+        long[] valores = new long[n + 1];
+        for (int i = 0, j = 0; i <= n; i++) {
+            if (i == indice) {
+                chaves[i] = chave;
+                valores[i] = valor;
+            } else {
+                chaves[i] = chave(folha, j);
+                valores[i] = folha.getLong(posicaoValor(j++));
+            }
+        }
+        int corte = borda ? n : (n + 1) / 2;
+        int quadroNovo = pool.alocar();
+        ByteBuffer nova = pool.buffer(quadroNovo);
+        long paginaNova = pool.pagina(quadroNovo);
+        nova.put(N_TIPO, FOLHA).putInt(N_QUANTIDADE, n + 1 - corte).putLong(N_PROXIMA, folha.getLong(N_PROXIMA));
+        for (int i = corte; i <= n; i++) {
+            nova.putLong(N_ENTRADAS + (i - corte) * 8, chaves[i]);
+            nova.putLong(posicaoValor(i - corte), valores[i]);
+        }
+        folha.putInt(N_QUANTIDADE, corte).putLong(N_PROXIMA, paginaNova);
+        for (int i = 0; i < corte; i++) {
+            folha.putLong(N_ENTRADAS + i * 8, chaves[i]);
+            folha.putLong(posicaoValor(i), valores[i]);
+        }
+        long paginaEsquerda = pool.pagina(quadro);
+        pool.desafixar(quadroNovo, true);
+        pool.desafixar(quadro, true);
+        subir(caminho, altura - 1, chaves[corte], paginaEsquerda, paginaNova);
+    }
+
+    //Insere a chave separadora e o novo filho no nível interno "nivel", dividindo-o se estiver cheio
+    private void subir(Caminho caminho, int nivel, long separadora, long esquerda, long direita) {
+        if (nivel == 0) {
+            int quadro = pool.alocar();
+            pool.buffer(quadro)
+                    .put(N_TIPO, INTERNO)
+                    .putInt(N_QUANTIDADE, 1)
+                    .putLong(N_ENTRADAS, separadora)
+                    .putLong(posicaoFilho(0), esquerda)
+                    .putLong(posicaoFilho(1), direita);
+            raiz = pool.pagina(quadro);
+            altura++;
+            pool.desafixar(quadro, true);
+            return;
+        }
+        int pai = nivel - 1;
+        int quadro = pool.fixar(caminho.paginas[pai]);
+        ByteBuffer no = pool.buffer(quadro);
+        int n = quantidadeNo(no);
+        int indice = caminho.indices[pai];
+        if (n < capacidadeInterno) {
+            deslocar(no, N_ENTRADAS, indice, indice + 1, n - indice);
+            deslocar(no, posicaoFilho(0), indice + 1, indice + 2, n - indice);
+            no.putLong(N_ENTRADAS + indice * 8, separadora)
+                    .putLong(posicaoFilho(indice + 1), direita)
+                    .putInt(N_QUANTIDADE, n + 1);
+            pool.desafixar(quadro, true);
+            return;
+        }
+        long[] chaves = new long[n + 1];
+        long[] filhos = new long[n + 2];
+        for (int i = 0, j = 0; i <= n; i++) {
+            chaves[i] = i == indice ? separadora : chave(no, j++);
+        }
+        for (int i = 0, j = 0; i <= n + 1; i++) {
+            filhos[i] = i == indice + 1 ? direita : no.getLong(posicaoFilho(j++));
+        }
+        int meio = caminho.naBorda(pai, indice, n) ? n : (n + 1) / 2;
+        int quadroNovo = pool.alocar();
+        ByteBuffer novo = pool.buffer(quadroNovo);
+        novo.put(N_TIPO, INTERNO).putInt(N_QUANTIDADE, n - meio);
+        for (int i = meio + 1; i <= n; i++) {
+            novo.putLong(N_ENTRADAS + (i - meio - 1) * 8, chaves[i]);
+        }
+        for (int i = meio + 1; i <= n + 1; i++) {
+            novo.putLong(posicaoFilho(i - meio - 1), filhos[i]);
+        }
+        no.putInt(N_QUANTIDADE, meio);
+        for (int i = 0; i < meio; i++) {
+            no.putLong(N_ENTRADAS + i * 8, chaves[i]);
+        }
+        for (int i = 0; i <= meio; i++) {
+            no.putLong(posicaoFilho(i), filhos[i]);
+        }
+        long paginaNova = pool.pagina(quadroNovo);
+        pool.desafixar(quadroNovo, true);
+        pool.desafixar(quadro, true);
+        subir(caminho, pai, chaves[meio], caminho.paginas[pai], paginaNova);
+    }
+
+    private void inserirNaFolha(ByteBuffer folha, int indice, long chave, long valor) {
+        int n = quantidadeNo(folha);
+        deslocar(folha, N_ENTRADAS, indice, indice + 1, n - indice);
+        deslocar(folha, posicaoValor(0), indice, indice + 1, n - indice);
+        folha.putLong(N_ENTRADAS + indice * 8, chave)
+                .putLong(posicaoValor(indice), valor)
+                .putInt(N_QUANTIDADE, n + 1);
+    }
+
+    //Primeira posição com chave >= "chave"
+    private static int limiteInferior(ByteBuffer no, long chave) {
+        int inicio = 0;
+        int fim = quantidadeNo(no);
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (chave(no, meio) < chave) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    //Primeira posição com chave > "chave", que é o filho a seguir num nó interno
+    private static int limiteSuperior(ByteBuffer no, long chave) {
+        int inicio = 0;
+        int fim = quantidadeNo(no);
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (chave(no, meio) <= chave) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    private static void deslocar(ByteBuffer no, int base, int de, int para, int quantos) {
+        if (quantos > 0) {
+            byte[] pagina = no.array();
+            System.arraycopy(pagina, base + de * 8, pagina, base + para * 8, quantos * 8);
+        }
+    }
+
+    //Byte da chave com o bit de sinal invertido, para negativos virem antes dos positivos
+    private static int digito(long chave, int deslocamento) {
+        return (int) ((chave ^ Long.MIN_VALUE) >>> deslocamento) & 0xFF;
+    }
+
+    private static int quantidadeNo(ByteBuffer no) {
+        return no.getInt(N_QUANTIDADE);
+    }
+
+    private static long chave(ByteBuffer no, int indice) {
+        return no.getLong(N_ENTRADAS + indice * 8);
+    }
+
+    private int posicaoValor(int indice) {
+        return N_ENTRADAS + capacidadeFolha * 8 + indice * 8;
+    }
+
+    private int posicaoFilho(int indice) {
+        return N_ENTRADAS + capacidadeInterno * 8 + indice * 8;
+    }
+}
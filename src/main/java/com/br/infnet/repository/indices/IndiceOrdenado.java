@@ -0,0 +1,95 @@
+package com.br.infnet.repository.indices;
+
+import com.br.infnet.repository.estruturas.MapaIntObjeto;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+//Índice ordenado texto -> ids pela ordem alfabética do pt-BR. A chave de colação é calculada uma vez na escrita
+//e comparada como bytes, então percorrer o índice não executa comparações do Collator.
+//Empates de texto são desfeitos pelo id, o que torna cada entrada única e a paginação estável.
+public class IndiceOrdenado {
+    private static final ThreadLocal<Collator> COLLATOR =
+            ThreadLocal.withInitial(() -> Collator.getInstance(Locale.forLanguageTag("pt-BR")));
+
+    record Chave(byte[] colacao, int id) implements Comparable<Chave> {
+        @Override
+        public int compareTo(Chave outra) {
+            int comparacao = Arrays.compareUnsigned(colacao, outra.colacao);
+            return comparacao != 0 ? comparacao : Integer.compare(id, outra.id);
+        }
+    }
+
+    private final NavigableSet<Chave> entradas = new ConcurrentSkipListSet<>();
+    //Chave atual de cada id, para remover a entrada antiga ao reindexar
+    private final MapaIntObjeto<Chave> chavesPorId = new MapaIntObjeto<>();
+
+    //Escritas são serializadas para manter o conjunto e o mapa reverso coerentes; leituras não travam
+    public synchronized void indexar(int id, String texto) {
+        Chave nova = new Chave(chaveColacao(texto), id);
+        Chave anterior = chavesPorId.put(id, nova);
+        if (anterior != null) {
+            entradas.remove(anterior);
+        }
+        entradas.add(nova);
+    }
+
+    public synchronized void desindexar(int id) {
+        Chave anterior = chavesPorId.remove(id);
+        if (anterior != null) {
+            entradas.remove(anterior);
+        }
+    }
+
+    //Carga inicial de um índice vazio: textos repetidos (ex.: o mesmo autor) calculam a chave de colação uma
+    //única vez e compartilham o array, e as entradas são inseridas já ordenadas
+    public synchronized void carregarEmLote(int[] ids, String[] textos) {
+        Map<String, byte[]> chavesPorTexto = new HashMap<>();
+        Chave[] chaves = new Chave[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            chaves[i] = new Chave(chavesPorTexto.computeIfAbsent(textos[i], IndiceOrdenado::chaveColacao), ids[i]);
+        }
+        Arrays.sort(chaves);
+        for (Chave chave : chaves) {
+            Chave anterior = chavesPorId.put(chave.id(), chave);
+            if (anterior != null) {
+                entradas.remove(anterior);
+            }
+            entradas.add(chave);
+        }
+    }
+
+    //Até "limite" ids na ordem do índice, depois da chave (textoCursor, idCursor); textoCursor null = desde o
+    //início. A chave do cursor não precisa estar no índice, então remover ou renomear o último livro da página
+    //anterior não invalida a paginação.
+    public int[] idsAPartirDe(String textoCursor, int idCursor, int limite) {
+        NavigableSet<Chave> restantes = textoCursor == null
+                ? entradas
+                : entradas.tailSet(new Chave(chaveColacao(textoCursor), idCursor), false);
+        int[] ids = new int[Math.min(limite, 64)];
+        int quantidade = 0;
+        Iterator<Chave> iterador = restantes.iterator();
+        while (quantidade < limite && iterador.hasNext()) {
+            if (quantidade == ids.length) {
+                ids = Arrays.copyOf(ids, (int) Math.min((long) ids.length * 2, limite));
+            }
+            ids[quantidade++] = iterador.next().id();
+        }
+        return Arrays.copyOf(ids, quantidade);
+    }
+
+    public int tamanho() {
+        return chavesPorId.size();
+    }
+
+    //Bytes comparáveis sem sinal na mesma ordem do Collator pt-BR
+    public static byte[] chaveColacao(String texto) {
+        return COLLATOR.get().getCollationKey(texto).toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+package com.br.infnet.repository.indices;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntFunction;
+
+//Índice ordenado texto -> ids na mesma ordem do IndiceOrdenado (colação pt-BR, desempate pelo id), mas sem
+//objetos por entrada: guarda só um int[] de ids já ordenados e BitSets de ids pendentes e obsoletos.
+//O texto de cada id é lido de quem guarda os registros (textoDoId) quando é preciso comparar.
+//Escritas só marcam o id; a próxima leitura consolida as marcações de uma vez, removendo as entradas obsoletas
+//e intercalando as pendentes. Quem usa deve garantir que textoDoId não mude durante as chamadas (ex.: chamando
+//com a mesma trava que protege os registros); os métodos são sincronizados entre si.
+public class IndiceOrdenadoCompacto {
+    private final IntFunction<String> textoDoId;
+    private int[] ordem = new int[0];
+    private int tamanhoOrdem;
+    private final BitSet naOrdem = new BitSet();
+    private final BitSet obsoletos = new BitSet();
+    private final BitSet pendentes = new BitSet();
+
+    public IndiceOrdenadoCompacto(IntFunction<String> textoDoId) {
+        this.textoDoId = textoDoId;
+    }
+
+    //Id novo ou com texto alterado
+    public synchronized void indexar(int id) {
+        if (naOrdem.get(id)) {
+            obsoletos.set(id);
+        }
+        pendentes.set(id);
+    }
+
+    public synchronized void desindexar(int id) {
+        if (naOrdem.get(id)) {
+            obsoletos.set(id);
+        }
+        pendentes.clear(id);
+    }
+
+    //Até "limite" ids na ordem do índice, depois da chave (textoCursor, idCursor); textoCursor null = desde o início
+    public synchronized int[] idsAPartirDe(String textoCursor, int idCursor, int limite) {
+        consolidar();
+        int inicio = 0;
+        if (textoCursor != null) {
+            inicio = posicaoApos(new IndiceOrdenado.Chave(IndiceOrdenado.chaveColacao(textoCursor), idCursor), 0, tamanhoOrdem);
+        }
+        return Arrays.copyOfRange(ordem, inicio, (int) Math.min(tamanhoOrdem, (long) inicio + limite));
+    }
+
+    public synchronized int tamanho() {
+        consolidar();
+        return tamanhoOrdem;
+    }
+
+    private void consolidar() {
+        if (pendentes.isEmpty() && obsoletos.isEmpty()) {
+            return;
+        }
+        int vivos = 0;
+        for (int i = 0; i < tamanhoOrdem; i++) {
+            int id = ordem[i];
+            if (obsoletos.get(id)) {
+                naOrdem.clear(id);
+            } else {
+                ordem[vivos++] = id;
+            }
+        }
+        obsoletos.clear();
+
+        //Só as entradas novas calculam a chave de colação; as já ordenadas são comparadas sob demanda
+        IndiceOrdenado.Chave[] novas = new IndiceOrdenado.Chave[pendentes.cardinality()];
+        int quantidade = 0;
+        for (int id = pendentes.nextSetBit(0); id >= 0; id = pendentes.nextSetBit(id + 1)) {
+            novas[quantidade++] = new IndiceOrdenado.Chave(IndiceOrdenado.chaveColacao(textoDoId.apply(id)), id);
+        }
+        pendentes.clear();
+        Arrays.sort(novas);
+
+        int[] resultado = new int[vivos + novas.length];
+        int origem = 0;
+        int destino = 0;
+        //Poucas entradas novas: busca binária da posição de cada uma; muitas: intercalação linear
+        boolean buscaBinaria = (long) novas.length * (32 - Integer.numberOfLeadingZeros(vivos)) < vivos;
+        for (IndiceOrdenado.Chave nova : novas) {
+            int posicao = buscaBinaria ? posicaoApos(nova, origem, vivos) : proximaPosicaoApos(nova, origem, vivos);
+            System.arraycopy(ordem, origem, resultado, destino, posicao - origem);
+            destino += posicao - origem;
+            origem = posicao;
+            resultado[destino++] = nova.id();
+            naOrdem.set(nova.id());
+        }
+        System.arraycopy(ordem, origem, resultado, destino, vivos - origem);
+        ordem = resultado;
+        tamanhoOrdem = resultado.length;
+    }
+
+    //Primeira posição em [inicio, fim) cuja chave é maior que a dada
+    private int posicaoApos(IndiceOrdenado.Chave chave, int inicio, int fim) {
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (chaveDe(ordem[meio]).compareTo(chave) <= 0) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    private int proximaPosicaoApos(IndiceOrdenado.Chave chave, int inicio, int fim) {
+        while (inicio < fim && chaveDe(ordem[inicio]).compareTo(chave) <= 0) {
+            inicio++;
+        }
+        return inicio;
+    }
+
+    private IndiceOrdenado.Chave chaveDe(int id) {
+        return new IndiceOrdenado.Chave(IndiceOrdenado.chaveColacao(textoDoId.apply(id)), id);
+    }
+}
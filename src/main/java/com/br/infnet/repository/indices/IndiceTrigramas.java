@@ -0,0 +1,108 @@
+package com.br.infnet.repository.indices;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Índice de trigramas (sequências de 3 caracteres) -> ids de livros.
+//Se a consulta é substring do texto, todos os trigramas da consulta aparecem no texto;
+//por isso a interseção das postagens é um superconjunto exato dos resultados de contains().
+public class IndiceTrigramas {
+    public static final int TAMANHO_GRAMA = 3;
+
+    private final Map<Long, ListaPostagens> postagens = new ConcurrentHashMap<>();
+
+    public void indexar(int id, String texto) {
+        for (long trigrama : trigramas(texto)) {
+            postagens.compute(trigrama, (chave, lista) -> {
+                ListaPostagens atual = lista == null ? new ListaPostagens() : lista;
+                atual.adicionar(id);
+                return atual;
+            });
+        }
+    }
+
+    public void desindexar(int id, String texto) {
+        for (long trigrama : trigramas(texto)) {
+            postagens.computeIfPresent(trigrama, (chave, lista) -> {
+                lista.remover(id);
+                return lista.isEmpty() ? null : lista;
+            });
+        }
+    }
+
+    //Troca o texto de um id mexendo só nos trigramas que mudaram; os novos entram antes de os antigos saírem,
+    //então buscas concorrentes por trigramas comuns aos dois textos nunca deixam de achar o id
+    public void reindexar(int id, String anterior, String novo) {
+        long[] gramasAnteriores = trigramas(anterior);
+        long[] gramasNovos = trigramas(novo);
+        for (long trigrama : gramasNovos) {
+            if (Arrays.binarySearch(gramasAnteriores, trigrama) < 0) {
+                postagens.compute(trigrama, (chave, lista) -> {
+                    ListaPostagens atual = lista == null ? new ListaPostagens() : lista;
+                    atual.adicionar(id);
+                    return atual;
+                });
+            }
+        }
+        for (long trigrama : gramasAnteriores) {
+            if (Arrays.binarySearch(gramasNovos, trigrama) < 0) {
+                postagens.computeIfPresent(trigrama, (chave, lista) -> {
+                    lista.remover(id);
+                    return lista.isEmpty() ? null : lista;
+                });
+            }
+        }
+    }
+
+    //Ids candidatos em ordem crescente, ou null se a consulta for curta demais para ser filtrada pelo índice
+    public int[] buscarCandidatos(String consulta) {
+        long[] gramas = trigramas(consulta);
+        if (gramas.length == 0) {
+            return null;
+        }
+        //Lê os blocos publicados das listas, sem copiá-las; só o resultado de cada interseção é alocado
+        ListaPostagens.Bloco[] blocos = new ListaPostagens.Bloco[gramas.length];
+        for (int i = 0; i < gramas.length; i++) {
+            ListaPostagens lista = postagens.get(gramas[i]);
+            if (lista == null) {
+                return new int[0];
+            }
+            blocos[i] = lista.bloco();
+        }
+        //Começa pelas listas menores para o resultado parcial encolher o quanto antes
+        Arrays.sort(blocos, (a, b) -> Integer.compare(a.tamanho(), b.tamanho()));
+        if (blocos.length == 1) {
+            return ListaPostagens.vivos(blocos[0]);
+        }
+        int[] resultado = ListaPostagens.intersectar(blocos[0].ids(), blocos[0].tamanho(),
+                blocos[1].ids(), blocos[1].tamanho());
+        for (int i = 2; i < blocos.length && resultado.length > 0; i++) {
+            resultado = ListaPostagens.intersectar(resultado, resultado.length, blocos[i].ids(), blocos[i].tamanho());
+        }
+        return resultado;
+    }
+
+    public int quantidadeTrigramas() {
+        return postagens.size();
+    }
+
+    //Trigramas distintos do texto já normalizado, empacotados em 48 bits (3 chars de 16 bits)
+    static long[] trigramas(String texto) {
+        if (texto == null || texto.length() < TAMANHO_GRAMA) {
+            return new long[0];
+        }
+        long[] gramas = new long[texto.length() - TAMANHO_GRAMA + 1];
+        for (int i = 0; i < gramas.length; i++) {
+            gramas[i] = ((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2);
+        }
+        Arrays.sort(gramas);
+        int distintos = 0;
+        for (int i = 0; i < gramas.length; i++) {
+            if (distintos == 0 || gramas[distintos - 1] != gramas[i]) {
+                gramas[distintos++] = gramas[i];
+            }
+        }
+        return Arrays.copyOf(gramas, distintos);
+    }
+}
@@ -0,0 +1,216 @@
+package com.br.infnet.repository.indices;
+
+import java.util.Arrays;
+
+//Lista de ids ordenada em int[] (sem boxing). Leituras usam o bloco publicado sem travar e sem copiar;
+//escritas são serializadas e nunca deixam o trecho publicado fora de ordem.
+//Remover não copia o array: a posição vira uma lápide, que repete o valor anterior (ou LAPIDE no início), e o
+//array continua em ordem não decrescente. Um id que volta para o lugar de uma lápide é regravado ali mesmo.
+//Quando as lápides passam de um quarto das posições, a lista é compactada num array novo, com folga para
+//os próximos acréscimos; inserções fora de ordem que não acham lápide também copiam, já compactando.
+public class ListaPostagens {
+    private static final int CAPACIDADE_INICIAL = 4;
+    private static final int[] VAZIO = new int[0];
+    private static final int LAPIDE = -1;
+
+    //ids[0, tamanho) em ordem não decrescente; removidos = quantas dessas posições são lápides
+    record Bloco(int[] ids, int tamanho, int removidos) {
+        int vivos() {
+            return tamanho - removidos;
+        }
+    }
+
+    private volatile Bloco bloco = new Bloco(VAZIO, 0, 0);
+
+    public synchronized void adicionar(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("ID inválido");
+        }
+        Bloco atual = bloco;
+        int[] ids = atual.ids();
+        int tamanho = atual.tamanho();
+
+        if (tamanho > 0 && ids[tamanho - 1] >= id) {
+            int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+            if (posicao >= 0) {
+                return;
+            }
+            int insercao = -posicao - 1;
+            //A posição anterior é lápide: regrava no lugar, já que o valor dela é menor que o id
+            if (insercao > 0 && ehLapide(ids, insercao - 1)) {
+                ids[insercao - 1] = id;
+                bloco = new Bloco(ids, tamanho, atual.removidos() - 1);
+                return;
+            }
+            //Inserção fora de ordem: copia (sem as lápides) para não alterar o array visto pelos leitores
+            int[] novo = new int[capacidadeComFolga(atual.vivos() + 1)];
+            int vivos = copiarVivos(ids, tamanho, novo, id);
+            bloco = new Bloco(novo, vivos, 0);
+            return;
+        }
+
+        if (tamanho == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(CAPACIDADE_INICIAL, tamanho * 2));
+        }
+        ids[tamanho] = id;
+        bloco = new Bloco(ids, tamanho + 1, atual.removidos());
+    }
+
+    public synchronized void remover(int id) {
+        if (id < 0) {
+            return;
+        }
+        Bloco atual = bloco;
+        int[] ids = atual.ids();
+        int tamanho = atual.tamanho();
+        int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+        if (posicao < 0) {
+            return;
+        }
+        //Lápides seguintes podem repetir o id: a posição viva é a primeira da sequência, e todas herdam o anterior
+        int inicio = posicao;
+        while (inicio > 0 && ids[inicio - 1] == id) {
+            inicio--;
+        }
+        int fim = posicao + 1;
+        while (fim < tamanho && ids[fim] == id) {
+            fim++;
+        }
+        int removidos = atual.removidos() + 1;
+        if (removidos > CAPACIDADE_INICIAL && removidos > tamanho / 4) {
+            int vivos = tamanho - removidos;
+            int[] novo = new int[capacidadeComFolga(vivos)];
+            int escritos = 0;
+            int anterior = LAPIDE;
+            for (int i = 0; i < tamanho; i++) {
+                int valor = ids[i];
+                if (valor != LAPIDE && valor != anterior && valor != id) {
+                    novo[escritos++] = valor;
+                }
+                anterior = valor;
+            }
+            bloco = new Bloco(novo, escritos, 0);
+            return;
+        }
+        int lapide = inicio == 0 ? LAPIDE : ids[inicio - 1];
+        for (int i = inicio; i < fim; i++) {
+            ids[i] = lapide;
+        }
+        bloco = new Bloco(ids, tamanho, removidos);
+    }
+
+    public boolean contem(int id) {
+        Bloco atual = bloco;
+        return id >= 0 && Arrays.binarySearch(atual.ids(), 0, atual.tamanho(), id) >= 0;
+    }
+
+    public int tamanho() {
+        return bloco.vivos();
+    }
+
+    public boolean isEmpty() {
+        return bloco.vivos() == 0;
+    }
+
+    public int[] paraArray() {
+        return vivos(bloco);
+    }
+
+    //Bloco publicado, para leitura sem cópia: o trecho [0, tamanho) pode conter lápides e repetições
+    Bloco bloco() {
+        return bloco;
+    }
+
+    //Ids vivos do bloco, sem lápides nem repetições
+    static int[] vivos(Bloco bloco) {
+        //Dimensionado pelas posições, não pelos vivos: uma escrita concorrente pode regravar uma lápide
+        int[] vivos = new int[bloco.tamanho()];
+        int escritos = copiarVivos(bloco.ids(), bloco.tamanho(), vivos, LAPIDE);
+        return escritos == vivos.length ? vivos : Arrays.copyOf(vivos, escritos);
+    }
+
+    //Interseção de dois arrays ordenados; usa busca galopante quando os tamanhos são muito diferentes
+    public static int[] intersectar(int[] a, int[] b) {
+        return intersectar(a, a.length, b, b.length);
+    }
+
+    //Interseção dos trechos [0, tamanho) de dois arrays em ordem não decrescente, ignorando lápides e repetições.
+    //Só aloca o resultado.
+    static int[] intersectar(int[] a, int tamanhoA, int[] b, int tamanhoB) {
+        if (tamanhoA > tamanhoB) {
+            int[] troca = a;
+            a = b;
+            b = troca;
+            int tamanhoTroca = tamanhoA;
+            tamanhoA = tamanhoB;
+            tamanhoB = tamanhoTroca;
+        }
+        boolean galopante = tamanhoB > tamanhoA * 8;
+        int[] resultado = new int[tamanhoA];
+        int encontrados = 0;
+        int j = 0;
+        int anterior = LAPIDE;
+        for (int i = 0; i < tamanhoA && j < tamanhoB; i++) {
+            int alvo = a[i];
+            if (alvo == LAPIDE || alvo == anterior) {
+                continue;
+            }
+            anterior = alvo;
+            if (galopante) {
+                j = galopar(b, j, tamanhoB, alvo);
+            } else {
+                while (j < tamanhoB && b[j] < alvo) {
+                    j++;
+                }
+            }
+            if (j < tamanhoB && b[j] == alvo) {
+                resultado[encontrados++] = alvo;
+            }
+        }
+        return Arrays.copyOf(resultado, encontrados);
+    }
+
+    //Uma posição é lápide quando vale LAPIDE ou repete o valor da anterior
+    private static boolean ehLapide(int[] ids, int posicao) {
+        return ids[posicao] == LAPIDE || (posicao > 0 && ids[posicao - 1] == ids[posicao]);
+    }
+
+    //Copia os ids vivos de [0, tamanho) para destino, intercalando o extra (LAPIDE = nenhum); devolve quantos copiou
+    private static int copiarVivos(int[] ids, int tamanho, int[] destino, int extra) {
+        int escritos = 0;
+        int anterior = LAPIDE;
+        boolean extraPendente = extra != LAPIDE;
+        for (int i = 0; i < tamanho; i++) {
+            int valor = ids[i];
+            if (valor == LAPIDE || valor == anterior) {
+                continue;
+            }
+            anterior = valor;
+            if (extraPendente && extra < valor) {
+                destino[escritos++] = extra;
+                extraPendente = false;
+            }
+            destino[escritos++] = valor;
+        }
+        if (extraPendente) {
+            destino[escritos++] = extra;
+        }
+        return escritos;
+    }
+
+    private static int capacidadeComFolga(int quantidade) {
+        return Math.max(CAPACIDADE_INICIAL, quantidade + (quantidade >> 1));
+    }
+
+    private static int galopar(int[] ids, int inicio, int tamanho, int alvo) {
+        int passo = 1;
+        int fim = inicio;
+        while (fim < tamanho && ids[fim] < alvo) {
+            inicio = fim + 1;
+            fim += passo;
+            passo <<= 1;
+        }
+        int posicao = Arrays.binarySearch(ids, inicio, Math.min(fim + 1, tamanho), alvo);
+        return posicao >= 0 ? posicao : -posicao - 1;
+    }
+}
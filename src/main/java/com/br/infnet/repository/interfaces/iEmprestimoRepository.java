@@ -9,4 +9,13 @@ public interface iEmprestimoRepository {
     void realizarEmprestimo(Emprestimo emprestimo);
     List<Emprestimo> listarEmprestimos();
     void removerEmprestimo(Emprestimo emprestimo);
+
+    //Gravam só o registro do empréstimo, sem alterar o livro, quando o estado do livro é persistido à parte
+    //pelo repositório de livros (ex.: escrita adiada). Devem poder ser repetidas sem efeito adicional.
+    void gravarEmprestimo(Emprestimo emprestimo);
+    void apagarEmprestimo(Emprestimo emprestimo);
+
+    default void executarEmLote(Runnable escritas) {
+        escritas.run();
+    }
 }
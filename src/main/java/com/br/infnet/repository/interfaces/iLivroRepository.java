@@ -1,6 +1,11 @@
 package com.br.infnet.repository.interfaces;
+import com.br.infnet.model.CursorOrdenacao;
 import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public interface iLivroRepository {
     int gerarProximoId();
@@ -14,5 +19,54 @@ public interface iLivroRepository {
     List<Livro> listarLivrosPorAutor(String autor);
     boolean existeISBN(String isbn);
 
- }
+    //Paginação por cursor: até "limite" livros com id maior que "cursor", em ordem crescente de id.
+    //As implementações padrão ordenam a listagem completa; repositórios com acesso ordenado devem sobrescrevê-las.
+    default List<Livro> listarLivrosAPartirDe(int cursor, int limite) {
+        return paginar(listarLivros(), cursor, limite);
+    }
+
+    default List<Livro> listarLivrosPorTituloAPartirDe(String titulo, int cursor, int limite) {
+        return paginar(listarLivrosPorTitulo(titulo), cursor, limite);
+    }
+
+    default List<Livro> listarLivrosPorAutorAPartirDe(String autor, int cursor, int limite) {
+        return paginar(listarLivrosPorAutor(autor), cursor, limite);
+    }
+
+    //Listagem na ordem alfabética pt-BR do campo pedido, retomada depois do cursor (null = primeira página).
+    //Na ordem por id vale só o id do cursor.
+    List<Livro> listarLivrosOrdenadosAPartirDe(OrdemListagem ordem, CursorOrdenacao cursor, int limite);
+
+    //Carga em lote (ex.: reconstrução a partir de um log): entre iniciar e concluir, a implementação pode adiar
+    //a manutenção dos índices de busca e ordenação e reconstruí-los de uma vez no final.
+    //Buscas por id e ISBN continuam corretas durante a carga; as demais só após concluí-la.
+    default void iniciarCargaEmLote() {
+    }
 
+    default void concluirCargaEmLote() {
+    }
+
+    //Aplica um grupo de escritas (ex.: um lote da escrita adiada); repositórios transacionais podem
+    //aplicá-las numa transação só
+    default void executarEmLote(Runnable escritas) {
+        escritas.run();
+    }
+
+    //Percorre o acervo entregando cada livro aceito pelo filtro, sem montar listas intermediárias.
+    //A iteração é fracamente consistente: escritas concorrentes podem ou não ser vistas.
+    default void paraCadaLivro(Predicate<Livro> filtro, Consumer<Livro> acao) {
+        for (Livro livro : listarLivros()) {
+            if (filtro.test(livro)) {
+                acao.accept(livro);
+            }
+        }
+    }
+
+    private static List<Livro> paginar(List<Livro> livros, int cursor, int limite) {
+        return livros.stream()
+                .filter(livro -> livro.getId() > cursor)
+                .sorted(Comparator.comparingInt(Livro::getId))
+                .limit(limite)
+                .toList();
+    }
+ }
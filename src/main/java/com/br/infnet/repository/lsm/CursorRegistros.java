@@ -0,0 +1,19 @@
+package com.br.infnet.repository.lsm;
+
+import java.nio.ByteBuffer;
+
+//Percorre registros em ordem crescente de id. O livro de cada registro está no formato do CodificadorLivro,
+//em buffer() a partir de posicao(); uma remoção (lápide) tem tamanho LAPIDE e nenhum conteúdo.
+interface CursorRegistros {
+    int LAPIDE = -1;
+
+    boolean avancar();
+
+    int id();
+
+    int tamanho();
+
+    ByteBuffer buffer();
+
+    int posicao();
+}
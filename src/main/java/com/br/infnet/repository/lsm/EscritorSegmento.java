@@ -0,0 +1,141 @@
+package com.br.infnet.repository.lsm;
+
+import com.br.infnet.repository.armazenamento.CodificadorLivro;
+import com.br.infnet.repository.estruturas.FiltroBloom;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+//Grava um Segmento em fluxo, recebendo os registros já em ordem crescente de id. Índices e filtros são
+//montados no fim; o arquivo é escrito num temporário e renomeado atomicamente ao concluir.
+final class EscritorSegmento implements Closeable {
+    private static final int TAMANHO_BUFFER_ESCRITA = 1 << 16;
+
+    private final Path arquivo;
+    private final Path temporario;
+    private final FileOutputStream arquivoSaida;
+    private final CheckedOutputStream comCrc;
+    private final DataOutputStream saida;
+    private int[] ids = new int[1024];
+    private int[] posicoes = new int[1024];
+    private long[] isbns = new long[1024];
+    private int[] idsDosIsbns = new int[1024];
+    private int quantidade;
+    private int quantidadeIsbns;
+    private byte[] copia = new byte[256];
+    private boolean concluido;
+
+    EscritorSegmento(Path arquivo) throws IOException {
+        this.arquivo = arquivo;
+        this.temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        this.arquivoSaida = new FileOutputStream(temporario.toFile());
+        this.comCrc = new CheckedOutputStream(arquivoSaida, new CRC32());
+        this.saida = new DataOutputStream(new BufferedOutputStream(comCrc, TAMANHO_BUFFER_ESCRITA));
+        saida.writeInt(Segmento.MAGIA);
+        saida.writeInt(Segmento.VERSAO);
+    }
+
+    //Copia o registro do buffer de origem; tamanho LAPIDE grava uma remoção
+    void adicionar(int id, ByteBuffer origem, int posicao, int tamanho) throws IOException {
+        if (quantidade > 0 && id <= ids[quantidade - 1]) {
+            throw new IllegalStateException("Registros do segmento devem vir em ordem crescente de id");
+        }
+        if (quantidade == ids.length) {
+            ids = Arrays.copyOf(ids, quantidade * 2);
+            posicoes = Arrays.copyOf(posicoes, quantidade * 2);
+        }
+        ids[quantidade] = id;
+        posicoes[quantidade++] = tamanhoBytes();
+        saida.writeInt(id);
+        saida.writeInt(tamanho);
+        if (tamanho == CursorRegistros.LAPIDE) {
+            return;
+        }
+        if (copia.length < tamanho) {
+            copia = new byte[Math.max(tamanho, copia.length * 2)];
+        }
+        origem.get(posicao, copia, 0, tamanho);
+        saida.write(copia, 0, tamanho);
+        if (quantidadeIsbns == isbns.length) {
+            isbns = Arrays.copyOf(isbns, quantidadeIsbns * 2);
+            idsDosIsbns = Arrays.copyOf(idsDosIsbns, quantidadeIsbns * 2);
+        }
+        isbns[quantidadeIsbns] = CodificadorLivro.lerISBN(origem, posicao);
+        idsDosIsbns[quantidadeIsbns++] = id;
+    }
+
+    int quantidade() {
+        return quantidade;
+    }
+
+    int tamanhoBytes() {
+        if (saida.size() == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Segmento excedeu 2 GB: " + arquivo);
+        }
+        return saida.size();
+    }
+
+    //Grava índices, filtros e rodapé, sincroniza e publica o arquivo; exige ao menos um registro
+    Segmento concluir(long numero) throws IOException {
+        if (quantidade == 0) {
+            throw new IllegalStateException("Segmento sem registros: " + arquivo);
+        }
+        FiltroBloom filtroIds = new FiltroBloom(quantidade);
+        int posicaoIndice = tamanhoBytes();
+        for (int i = 0; i < quantidade; i++) {
+            saida.writeInt(ids[i]);
+            saida.writeInt(posicoes[i]);
+            filtroIds.adicionar(ids[i]);
+        }
+
+        FiltroBloom filtroIsbns = new FiltroBloom(quantidadeIsbns);
+        int posicaoIsbns = tamanhoBytes();
+        Integer[] ordem = IntStream.range(0, quantidadeIsbns).boxed().toArray(Integer[]::new);
+        Arrays.sort(ordem, Comparator.<Integer>comparingLong(i -> isbns[i]).thenComparingInt(i -> idsDosIsbns[i]));
+        for (int i : ordem) {
+            saida.writeLong(isbns[i]);
+            saida.writeInt(idsDosIsbns[i]);
+            filtroIsbns.adicionar(isbns[i]);
+        }
+
+        int posicaoFiltroIds = tamanhoBytes();
+        filtroIds.gravar(saida);
+        int posicaoFiltroIsbns = tamanhoBytes();
+        filtroIsbns.gravar(saida);
+        saida.writeInt(posicaoIndice);
+        saida.writeInt(quantidade);
+        saida.writeInt(posicaoIsbns);
+        saida.writeInt(quantidadeIsbns);
+        saida.writeInt(posicaoFiltroIds);
+        saida.writeInt(posicaoFiltroIsbns);
+        saida.flush();
+        int crc = (int) comCrc.getChecksum().getValue();
+        new DataOutputStream(arquivoSaida).writeInt(crc);
+        arquivoSaida.getFD().sync();
+        arquivoSaida.close();
+        concluido = true;
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Segmento.abrir(arquivo, numero);
+    }
+
+    //Descarta o temporário se o segmento não foi concluído
+    @Override
+    public void close() throws IOException {
+        if (!concluido) {
+            arquivoSaida.close();
+            Files.deleteIfExists(temporario);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.br.infnet.repository.lsm;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+//Lista dos segmentos vivos e seus níveis, regravada por inteiro (temporário + renomeação atômica) a cada
+//descarte ou compactação, que só passam a valer quando o manifesto novo está no lugar:
+//  [magia int][versão int][próximo número de arquivo long][menor log vivo long][quantidade int]
+//  {[nível int][número do segmento long]}...
+//Logs com número menor que o "menor log vivo" já estão em segmentos e podem ser apagados sem reproduzir.
+final class Manifesto {
+    static final int MAGIA = 0x4C534D4D;
+    static final int VERSAO = 1;
+
+    record Entrada(int nivel, long numero) {
+    }
+
+    record Conteudo(long proximoNumero, long menorLogVivo, List<Entrada> segmentos) {
+    }
+
+    private Manifesto() {
+    }
+
+    static void gravar(Path arquivo, Conteudo conteudo) throws IOException {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try (FileOutputStream arquivoSaida = new FileOutputStream(temporario.toFile())) {
+            DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(arquivoSaida));
+            saida.writeInt(MAGIA);
+            saida.writeInt(VERSAO);
+            saida.writeLong(conteudo.proximoNumero());
+            saida.writeLong(conteudo.menorLogVivo());
+            saida.writeInt(conteudo.segmentos().size());
+            for (Entrada entrada : conteudo.segmentos()) {
+                saida.writeInt(entrada.nivel());
+                saida.writeLong(entrada.numero());
+            }
+            saida.flush();
+            arquivoSaida.getFD().sync();
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Sem manifesto, o diretório é novo
+    static Conteudo ler(Path arquivo) throws IOException {
+        if (!Files.exists(arquivo)) {
+            return new Conteudo(1, 0, List.of());
+        }
+        try (DataInputStream entrada = new DataInputStream(Files.newInputStream(arquivo))) {
+            if (entrada.readInt() != MAGIA) {
+                throw new IllegalStateException("Arquivo não é um manifesto LSM: " + arquivo);
+            }
+            int versao = entrada.readInt();
+            if (versao != VERSAO) {
+                throw new IllegalStateException("Versão de manifesto não suportada: " + versao);
+            }
+            long proximoNumero = entrada.readLong();
+            long menorLogVivo = entrada.readLong();
+            int quantidade = entrada.readInt();
+            List<Entrada> segmentos = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                segmentos.add(new Entrada(entrada.readInt(), entrada.readLong()));
+            }
+            return new Conteudo(proximoNumero, menorLogVivo, segmentos);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.br.infnet.repository.lsm;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+//Mescla k cursores ordenados num só, entregando cada id uma única vez: vale a versão do cursor de menor
+//prioridade (o mais recente), e as versões mais antigas do mesmo id são puladas.
+//Cursores com a mesma prioridade não podem ter ids em comum (ex.: segmentos de um mesmo nível).
+final class MesclaCursores implements CursorRegistros {
+    private record Fonte(CursorRegistros cursor, int prioridade) {
+    }
+
+    private final PriorityQueue<Fonte> fila = new PriorityQueue<>(
+            Comparator.<Fonte>comparingInt(fonte -> fonte.cursor().id()).thenComparingInt(Fonte::prioridade));
+    private Fonte atual;
+
+    MesclaCursores(List<CursorRegistros> cursores, List<Integer> prioridades) {
+        for (int i = 0; i < cursores.size(); i++) {
+            if (cursores.get(i).avancar()) {
+                fila.add(new Fonte(cursores.get(i), prioridades.get(i)));
+            }
+        }
+    }
+
+    @Override
+    public boolean avancar() {
+        if (atual != null && atual.cursor().avancar()) {
+            fila.add(atual);
+        }
+        atual = fila.poll();
+        if (atual == null) {
+            return false;
+        }
+        while (!fila.isEmpty() && fila.peek().cursor().id() == atual.cursor().id()) {
+            Fonte antiga = fila.poll();
+            if (antiga.cursor().avancar()) {
+                fila.add(antiga);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int id() {
+        return atual.cursor().id();
+    }
+
+    @Override
+    public int tamanho() {
+        return atual.cursor().tamanho();
+    }
+
+    @Override
+    public ByteBuffer buffer() {
+        return atual.cursor().buffer();
+    }
+
+    @Override
+    public int posicao() {
+        return atual.cursor().posicao();
+    }
+}
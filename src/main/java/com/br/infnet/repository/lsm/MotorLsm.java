@@ -0,0 +1,676 @@
+package com.br.infnet.repository.lsm;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.repository.armazenamento.CodificadorLivro;
+import com.br.infnet.repository.armazenamento.RegistrosForaDoHeap;
+import com.br.infnet.repository.persistencia.LogEscritaAntecipada;
+import com.br.infnet.repository.persistencia.PoliticaDurabilidade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+//Motor de armazenamento LSM (log-structured merge) para livros no formato do CodificadorLivro, chaveados por id:
+// - cada escrita vai ao log da memtable ativa e à própria memtable, um mapa ordenado em memória;
+// - cheia, a memtable é congelada e descartada em segundo plano como um segmento do nível 0, enquanto uma
+//   nova recebe as escritas;
+// - com GATILHO_NIVEL_ZERO segmentos no nível 0, todos são mesclados ao nível 1. Cada nível i >= 1 tem
+//   segmentos sem sobreposição de ids e um limite de bytes FATOR_NIVEIS vezes maior que o anterior; ao passar
+//   dele, um segmento desce para o nível i + 1 mesclado só com os que se sobrepõem a ele;
+// - leituras consultam as memtables, o nível 0 do segmento mais novo ao mais antigo e depois cada nível;
+//   filtros de Bloom de id e de ISBN descartam a maioria dos segmentos sem busca binária.
+//Escritas nunca alteram arquivos existentes, então a vazão de ingestão não depende do tamanho do acervo.
+//Escritas devem ser serializadas por quem chama. Leituras não travam: veem uma versão imutável da estrutura
+//(memtables + segmentos), trocada a cada descarte ou compactação.
+public class MotorLsm implements Closeable {
+    public static final long TAMANHO_MEMTABLE_PADRAO = 4L * 1024 * 1024;
+    public static final long TAMANHO_SEGMENTO_PADRAO = 8L * 1024 * 1024;
+    public static final int GATILHO_NIVEL_ZERO = 4;
+    public static final int FATOR_NIVEIS = 10;
+    public static final int NIVEIS = 7;
+    private static final String MANIFESTO = "MANIFESTO";
+    private static final String EXTENSAO_SEGMENTO = ".seg";
+    private static final String EXTENSAO_LOG = ".wal";
+    private static final byte OPERACAO_GRAVAR = 1;
+    private static final byte OPERACAO_REMOVER = 2;
+    private static final byte[] REMOVIDO = new byte[0];
+    //Custo aproximado de cada entrada da memtable além dos bytes do registro (nó da skip list, chave, ISBN)
+    private static final int SOBRECARGA_ENTRADA = 64;
+
+    //Devolvida pelas escritas: bloqueia até o registro estar durável segundo a política do log
+    public interface EsperaDurabilidade {
+        void aguardar();
+    }
+
+    private static final class Memtable {
+        private final ConcurrentSkipListMap<Integer, byte[]> registros = new ConcurrentSkipListMap<>();
+        //Último id gravado com cada ISBN; pode estar desatualizado, por isso as buscas por ISBN confirmam o livro
+        private final ConcurrentHashMap<Long, Integer> idsPorIsbn = new ConcurrentHashMap<>();
+        private final long numero;
+        private final LogEscritaAntecipada log;
+        private long bytes;
+
+        private Memtable(long numero, LogEscritaAntecipada log) {
+            this.numero = numero;
+            this.log = log;
+        }
+    }
+
+    //niveis.get(0) é o nível 0, do segmento mais novo ao mais antigo; os demais são ordenados por id
+    private record Versao(Memtable ativa, Memtable congelada, List<List<Segmento>> niveis) {
+    }
+
+    private final Path diretorio;
+    private final PoliticaDurabilidade politica;
+    private final long tamanhoMemtable;
+    private final long tamanhoSegmento;
+    private final ExecutorService fundo;
+    //Protege a troca de versões, o manifesto e a numeração dos arquivos
+    private final Object estrutura = new Object();
+    private volatile Versao versao;
+    private long proximoNumero;
+    private Future<?> descarte = CompletableFuture.completedFuture(null);
+    //Maior id do último segmento compactado em cada nível, para revezar os segmentos escolhidos
+    private final int[] ponteirosCompactacao = new int[NIVEIS];
+    private volatile Throwable falhaFundo;
+    private volatile boolean fechado;
+    private volatile int maiorId;
+    private final AtomicLong descartes = new AtomicLong();
+    private final AtomicLong compactacoes = new AtomicLong();
+    private final AtomicLong bytesCompactados = new AtomicLong();
+
+    public static MotorLsm abrir(Path diretorio, PoliticaDurabilidade politica) throws IOException {
+        return new MotorLsm(diretorio, politica, TAMANHO_MEMTABLE_PADRAO, TAMANHO_SEGMENTO_PADRAO);
+    }
+
+    //Abre (ou cria) o diretório. Logs que sobraram de uma execução anterior são reproduzidos e gravados
+    //como um segmento do nível 0 antes de o motor aceitar escritas.
+    public MotorLsm(Path diretorio, PoliticaDurabilidade politica, long tamanhoMemtable, long tamanhoSegmento)
+            throws IOException {
+        if (tamanhoMemtable < 1 || tamanhoSegmento < 1) {
+            throw new IllegalArgumentException("Tamanhos de memtable e segmento devem ser positivos");
+        }
+        long inicio = System.nanoTime();
+        Files.createDirectories(diretorio);
+        this.diretorio = diretorio;
+        this.politica = politica;
+        this.tamanhoMemtable = tamanhoMemtable;
+        this.tamanhoSegmento = tamanhoSegmento;
+
+        Manifesto.Conteudo manifesto = Manifesto.ler(diretorio.resolve(MANIFESTO));
+        List<List<Segmento>> niveis = niveisVazios();
+        Set<Long> vivos = new HashSet<>();
+        for (Manifesto.Entrada entrada : manifesto.segmentos()) {
+            Segmento segmento = Segmento.abrir(arquivo(entrada.numero(), EXTENSAO_SEGMENTO), entrada.numero());
+            niveis.get(entrada.nivel()).add(segmento);
+            vivos.add(entrada.numero());
+            maiorId = Math.max(maiorId, segmento.maiorId());
+        }
+        niveis.get(0).sort(Comparator.comparingLong(Segmento::numero).reversed());
+        List<Path> logsPendentes = limparDiretorio(vivos, manifesto);
+        proximoNumero = Math.max(proximoNumero, manifesto.proximoNumero());
+
+        Memtable recuperada = new Memtable(0, null);
+        for (Path arquivoLog : logsPendentes) {
+            try (LogEscritaAntecipada log = new LogEscritaAntecipada(arquivoLog, politica)) {
+                log.reproduzir(registro -> reproduzir(recuperada, registro));
+            }
+        }
+        Memtable ativa = new Memtable(proximoNumero, new LogEscritaAntecipada(
+                arquivo(proximoNumero, EXTENSAO_LOG), politica));
+        proximoNumero++;
+        versao = new Versao(ativa, null, niveis);
+        this.fundo = Executors.newSingleThreadExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "lsm-compactacao");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!recuperada.registros.isEmpty()) {
+            List<Segmento> gerados = gravarSegmentos(cursorMemtable(recuperada, Integer.MIN_VALUE), false,
+                    Long.MAX_VALUE);
+            synchronized (estrutura) {
+                List<List<Segmento>> novos = copiar(versao.niveis());
+                novos.get(0).addAll(0, gerados);
+                publicar(new Versao(ativa, null, novos));
+            }
+        }
+        for (Path arquivoLog : logsPendentes) {
+            Files.deleteIfExists(arquivoLog);
+        }
+        descarte = fundo.submit(() -> {
+            executarNoFundo(this::compactarEnquantoNecessario);
+            return null;
+        });
+        System.out.printf("Motor LSM aberto em %s: %d segmentos, %d registros recuperados de logs em %d ms%n",
+                diretorio, quantidadeSegmentos(), recuperada.registros.size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    public EsperaDurabilidade gravar(int id, byte[] registro) {
+        byte[] conteudo = new byte[1 + registro.length];
+        conteudo[0] = OPERACAO_GRAVAR;
+        System.arraycopy(registro, 0, conteudo, 1, registro.length);
+        return aplicar(id, registro, conteudo);
+    }
+
+    public EsperaDurabilidade remover(int id) {
+        return aplicar(id, REMOVIDO, ByteBuffer.allocate(5).put(OPERACAO_REMOVER).putInt(id).array());
+    }
+
+    //Versão mais recente do livro, ou null se não existe ou foi removido
+    public Livro ler(int id) {
+        return ler(versao, id, CodificadorLivro::decodificar);
+    }
+
+    //Livro vivo com o ISBN. Cada candidato dos mapas e índices de ISBN é confirmado pela versão mais recente
+    //do seu id, pois o ISBN pode ter mudado ou o livro ter sido removido numa escrita posterior.
+    public Livro lerPorIsbn(long isbn) {
+        Versao atual = versao;
+        for (Memtable memtable : memtables(atual)) {
+            Integer id = memtable.idsPorIsbn.get(isbn);
+            Livro livro = id != null ? confirmarIsbn(atual, id, isbn) : null;
+            if (livro != null) {
+                return livro;
+            }
+        }
+        List<Integer> candidatos = new ArrayList<>();
+        for (List<Segmento> nivel : atual.niveis()) {
+            for (Segmento segmento : nivel) {
+                candidatos.clear();
+                segmento.idsComIsbn(isbn, candidatos::add);
+                for (int id : candidatos) {
+                    Livro livro = confirmarIsbn(atual, id, isbn);
+                    if (livro != null) {
+                        return livro;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    //Entrega em ordem de id os livros vivos com id maior que "cursor", até o visitante devolver false.
+    //O visitante recebe o registro no formato do CodificadorLivro e pode ler só os campos de que precisa.
+    public void percorrer(int cursor, RegistrosForaDoHeap.LeitorRegistro<Boolean> visitante) {
+        Versao atual = versao;
+        List<CursorRegistros> cursores = new ArrayList<>();
+        List<Integer> prioridades = new ArrayList<>();
+        int prioridade = 0;
+        for (Memtable memtable : memtables(atual)) {
+            cursores.add(cursorMemtable(memtable, cursor));
+            prioridades.add(prioridade++);
+        }
+        for (int nivel = 0; nivel < NIVEIS; nivel++) {
+            for (Segmento segmento : atual.niveis().get(nivel)) {
+                if (segmento.maiorId() > cursor) {
+                    cursores.add(segmento.cursor(cursor));
+                    prioridades.add(prioridade);
+                }
+                //No nível 0 os segmentos se sobrepõem e cada um tem sua prioridade
+                if (nivel == 0) {
+                    prioridade++;
+                }
+            }
+            prioridade++;
+        }
+        MesclaCursores mescla = new MesclaCursores(cursores, prioridades);
+        while (mescla.avancar()) {
+            if (mescla.tamanho() != CursorRegistros.LAPIDE && !visitante.ler(mescla.buffer(), mescla.posicao())) {
+                return;
+            }
+        }
+    }
+
+    //Força o descarte da memtable ativa e espera por ele e pelas compactações que disparar.
+    //Como as escritas, deve ser serializado por quem chama.
+    public void descartarMemtable() {
+        if (!versao.ativa().registros.isEmpty()) {
+            rotacionar();
+        }
+        aguardarDescarte();
+    }
+
+    //Maior id já gravado, inclusive de livros removidos ainda não compactados
+    public int maiorId() {
+        return maiorId;
+    }
+
+    public int quantidadeSegmentos() {
+        return versao.niveis().stream().mapToInt(List::size).sum();
+    }
+
+    public int quantidadeSegmentos(int nivel) {
+        return versao.niveis().get(nivel).size();
+    }
+
+    public long bytesEmDisco() {
+        return segmentos(versao).mapToLong(Segmento::tamanhoBytes).sum();
+    }
+
+    //Memória de heap ocupada pelos filtros de Bloom de todos os segmentos
+    public long bytesFiltros() {
+        return segmentos(versao).mapToLong(Segmento::bytesFiltros).sum();
+    }
+
+    public long getDescartes() {
+        return descartes.get();
+    }
+
+    public long getCompactacoes() {
+        return compactacoes.get();
+    }
+
+    //Bytes gravados por compactações; dividido pelos bytes ingeridos dá a amplificação de escrita
+    public long getBytesCompactados() {
+        return bytesCompactados.get();
+    }
+
+    //Espera o descarte em andamento e fecha o log da memtable ativa, que será reproduzido ao reabrir
+    @Override
+    public void close() throws IOException {
+        fechado = true;
+        try {
+            descarte.get();
+        } catch (ExecutionException e) {
+            System.out.println("Erro no descarte da memtable: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        fundo.shutdown();
+        try {
+            fundo.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        versao.ativa().log.close();
+    }
+
+    private EsperaDurabilidade aplicar(int id, byte[] registro, byte[] conteudoLog) {
+        if (falhaFundo != null) {
+            throw new IllegalStateException("Motor LSM indisponível após falha em segundo plano: "
+                    + falhaFundo.getMessage(), falhaFundo);
+        }
+        Memtable ativa = versao.ativa();
+        LogEscritaAntecipada log = ativa.log;
+        long sequencia;
+        try {
+            sequencia = log.enfileirar(conteudoLog);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao gravar no log do LSM: " + e.getMessage(), e);
+        }
+        incorporar(ativa, id, registro);
+        maiorId = Math.max(maiorId, id);
+        if (ativa.bytes >= tamanhoMemtable) {
+            rotacionar();
+        }
+        return () -> {
+            try {
+                log.aguardarDurabilidade(sequencia);
+            } catch (IOException e) {
+                throw new IllegalStateException("Falha ao gravar no log do LSM: " + e.getMessage(), e);
+            }
+        };
+    }
+
+    private static void incorporar(Memtable memtable, int id, byte[] registro) {
+        byte[] anterior = memtable.registros.put(id, registro);
+        if (registro != REMOVIDO) {
+            memtable.idsPorIsbn.put(CodificadorLivro.lerISBN(ByteBuffer.wrap(registro), 0), id);
+        }
+        memtable.bytes += registro.length + SOBRECARGA_ENTRADA
+                - (anterior == null ? 0 : anterior.length + SOBRECARGA_ENTRADA);
+    }
+
+    private void reproduzir(Memtable memtable, ByteBuffer registro) {
+        switch (registro.get(0)) {
+            case OPERACAO_GRAVAR -> {
+                byte[] livro = new byte[registro.remaining() - 1];
+                registro.get(1, livro);
+                int id = CodificadorLivro.lerId(ByteBuffer.wrap(livro), 0);
+                incorporar(memtable, id, livro);
+                maiorId = Math.max(maiorId, id);
+            }
+            case OPERACAO_REMOVER -> incorporar(memtable, registro.getInt(1), REMOVIDO);
+            default -> throw new IllegalStateException("Operação desconhecida no log do LSM: " + registro.get(0));
+        }
+    }
+
+    //Congela a memtable ativa e agenda seu descarte. Só um descarte fica pendente: se a memtable anterior
+    //ainda está sendo gravada, a escrita espera (contrapressão em vez de memória sem limite).
+    private void rotacionar() {
+        aguardarDescarte();
+        synchronized (estrutura) {
+            Versao atual = versao;
+            Memtable nova;
+            try {
+                nova = new Memtable(proximoNumero, new LogEscritaAntecipada(arquivo(proximoNumero, EXTENSAO_LOG),
+                        politica));
+            } catch (IOException e) {
+                throw new IllegalStateException("Falha ao criar o log da memtable: " + e.getMessage(), e);
+            }
+            proximoNumero++;
+            versao = new Versao(nova, atual.ativa(), atual.niveis());
+        }
+        descarte = fundo.submit(() -> {
+            executarNoFundo(this::descartarCongelada);
+            return null;
+        });
+    }
+
+    private void aguardarDescarte() {
+        try {
+            descarte.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao descartar a memtable: " + e.getCause().getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando o descarte da memtable", e);
+        }
+    }
+
+    private interface TarefaDeFundo {
+        void executar() throws IOException;
+    }
+
+    //Uma falha em segundo plano fica registrada e recusa as escritas seguintes, em vez de se perder
+    private void executarNoFundo(TarefaDeFundo tarefa) throws IOException {
+        try {
+            tarefa.executar();
+        } catch (IOException | RuntimeException e) {
+            falhaFundo = e;
+            System.out.println("Erro no motor LSM: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private void descartarCongelada() throws IOException {
+        Memtable congelada = versao.congelada();
+        //Fechar o log grava e sincroniza o que estiver pendente, liberando quem espera por durabilidade
+        congelada.log.close();
+        List<Segmento> gerados = gravarSegmentos(cursorMemtable(congelada, Integer.MIN_VALUE), false, Long.MAX_VALUE);
+        synchronized (estrutura) {
+            Versao atual = versao;
+            List<List<Segmento>> niveis = copiar(atual.niveis());
+            niveis.get(0).addAll(0, gerados);
+            publicar(new Versao(atual.ativa(), null, niveis));
+        }
+        Files.deleteIfExists(congelada.log.getArquivo());
+        descartes.incrementAndGet();
+        compactarEnquantoNecessario();
+    }
+
+    private void compactarEnquantoNecessario() throws IOException {
+        while (!fechado) {
+            List<List<Segmento>> niveis = versao.niveis();
+            if (niveis.get(0).size() >= GATILHO_NIVEL_ZERO) {
+                compactar(0, niveis.get(0));
+                continue;
+            }
+            int nivel = nivelAcimaDoLimite(niveis);
+            if (nivel < 0) {
+                return;
+            }
+            compactar(nivel, List.of(escolherSegmento(nivel, niveis.get(nivel))));
+        }
+    }
+
+    private int nivelAcimaDoLimite(List<List<Segmento>> niveis) {
+        long limite = tamanhoMemtable * FATOR_NIVEIS;
+        for (int nivel = 1; nivel < NIVEIS - 1; nivel++) {
+            if (niveis.get(nivel).stream().mapToLong(Segmento::tamanhoBytes).sum() > limite) {
+                return nivel;
+            }
+            limite *= FATOR_NIVEIS;
+        }
+        return -1;
+    }
+
+    //Reveza os segmentos do nível pela faixa de ids, para que todas as faixas desçam com o tempo
+    private Segmento escolherSegmento(int nivel, List<Segmento> segmentos) {
+        Segmento escolhido = segmentos.stream()
+                .filter(segmento -> segmento.menorId() > ponteirosCompactacao[nivel])
+                .findFirst()
+                .orElse(segmentos.get(0));
+        ponteirosCompactacao[nivel] = escolhido.maiorId();
+        return escolhido;
+    }
+
+    //Mescla as entradas do nível com os segmentos do nível seguinte que se sobrepõem a elas. Lápides só são
+    //descartadas quando não há níveis mais profundos com dados, onde ainda poderiam esconder versões antigas.
+    private void compactar(int nivel, List<Segmento> entradas) throws IOException {
+        int destino = nivel + 1;
+        int menor = entradas.stream().mapToInt(Segmento::menorId).min().orElseThrow();
+        int maior = entradas.stream().mapToInt(Segmento::maiorId).max().orElseThrow();
+        List<List<Segmento>> niveis = versao.niveis();
+        List<Segmento> sobrepostos = niveis.get(destino).stream()
+                .filter(segmento -> segmento.sobrepoe(menor, maior))
+                .toList();
+        boolean ultimoNivel = niveis.subList(destino + 1, NIVEIS).stream().allMatch(List::isEmpty);
+
+        List<CursorRegistros> cursores = new ArrayList<>();
+        List<Integer> prioridades = new ArrayList<>();
+        for (int i = 0; i < entradas.size(); i++) {
+            cursores.add(entradas.get(i).cursor(Integer.MIN_VALUE));
+            prioridades.add(i);
+        }
+        for (Segmento segmento : sobrepostos) {
+            cursores.add(segmento.cursor(Integer.MIN_VALUE));
+            prioridades.add(entradas.size());
+        }
+        List<Segmento> gerados = gravarSegmentos(new MesclaCursores(cursores, prioridades), ultimoNivel,
+                tamanhoSegmento);
+
+        synchronized (estrutura) {
+            Versao atual = versao;
+            List<List<Segmento>> novos = copiar(atual.niveis());
+            novos.get(nivel).removeAll(entradas);
+            novos.get(destino).removeAll(sobrepostos);
+            novos.get(destino).addAll(gerados);
+            novos.get(destino).sort(Comparator.comparingInt(Segmento::menorId));
+            publicar(new Versao(atual.ativa(), atual.congelada(), novos));
+        }
+        //Leitores que ainda usam a versão anterior continuam lendo os mapeamentos dos arquivos apagados
+        for (Segmento segmento : entradas) {
+            Files.deleteIfExists(segmento.arquivo());
+        }
+        for (Segmento segmento : sobrepostos) {
+            Files.deleteIfExists(segmento.arquivo());
+        }
+        compactacoes.incrementAndGet();
+        bytesCompactados.addAndGet(gerados.stream().mapToLong(Segmento::tamanhoBytes).sum());
+    }
+
+    //Grava o cursor em segmentos de até "tamanhoAlvo" bytes (aproximados: o registro que passa do alvo fica)
+    private List<Segmento> gravarSegmentos(CursorRegistros cursor, boolean descartarLapides, long tamanhoAlvo)
+            throws IOException {
+        List<Segmento> gerados = new ArrayList<>();
+        EscritorSegmento escritor = null;
+        long numero = 0;
+        try {
+            while (cursor.avancar()) {
+                if (descartarLapides && cursor.tamanho() == CursorRegistros.LAPIDE) {
+                    continue;
+                }
+                if (escritor == null) {
+                    numero = novoNumero();
+                    escritor = new EscritorSegmento(arquivo(numero, EXTENSAO_SEGMENTO));
+                }
+                escritor.adicionar(cursor.id(), cursor.buffer(), cursor.posicao(), cursor.tamanho());
+                if (escritor.tamanhoBytes() >= tamanhoAlvo) {
+                    gerados.add(escritor.concluir(numero));
+                    escritor = null;
+                }
+            }
+            if (escritor != null) {
+                gerados.add(escritor.concluir(numero));
+                escritor = null;
+            }
+        } finally {
+            if (escritor != null) {
+                escritor.close();
+            }
+        }
+        return gerados;
+    }
+
+    //Deve ser chamado com a trava da estrutura. O manifesto é gravado antes de a versão ser publicada.
+    private void publicar(Versao nova) throws IOException {
+        List<Manifesto.Entrada> entradas = new ArrayList<>();
+        for (int nivel = 0; nivel < NIVEIS; nivel++) {
+            for (Segmento segmento : nova.niveis().get(nivel)) {
+                entradas.add(new Manifesto.Entrada(nivel, segmento.numero()));
+            }
+        }
+        long menorLogVivo = nova.congelada() != null ? nova.congelada().numero : nova.ativa().numero;
+        Manifesto.gravar(diretorio.resolve(MANIFESTO), new Manifesto.Conteudo(proximoNumero, menorLogVivo, entradas));
+        versao = nova;
+    }
+
+    private long novoNumero() {
+        synchronized (estrutura) {
+            return proximoNumero++;
+        }
+    }
+
+    //Apaga temporários, segmentos fora do manifesto (restos de uma operação interrompida) e logs já
+    //incorporados a segmentos. Devolve os logs a reproduzir, em ordem, e ajusta a numeração dos arquivos.
+    private List<Path> limparDiretorio(Set<Long> vivos, Manifesto.Conteudo manifesto) throws IOException {
+        List<Path> logs = new ArrayList<>();
+        List<Path> arquivos;
+        try (Stream<Path> listagem = Files.list(diretorio)) {
+            arquivos = listagem.sorted().toList();
+        }
+        for (Path arquivo : arquivos) {
+            String nome = arquivo.getFileName().toString();
+            if (nome.endsWith(".tmp")) {
+                Files.delete(arquivo);
+                continue;
+            }
+            boolean segmento = nome.endsWith(EXTENSAO_SEGMENTO);
+            if (!segmento && !nome.endsWith(EXTENSAO_LOG)) {
+                continue;
+            }
+            long numero = Long.parseLong(nome.substring(0, nome.indexOf('.')));
+            proximoNumero = Math.max(proximoNumero, numero + 1);
+            if (segmento ? !vivos.contains(numero) : numero < manifesto.menorLogVivo()) {
+                Files.delete(arquivo);
+            } else if (!segmento) {
+                logs.add(arquivo);
+            }
+        }
+        return logs;
+    }
+
+    private Path arquivo(long numero, String extensao) {
+        return diretorio.resolve(String.format("%010d%s", numero, extensao));
+    }
+
+    private static <T> T ler(Versao versao, int id, RegistrosForaDoHeap.LeitorRegistro<T> leitor) {
+        for (Memtable memtable : memtables(versao)) {
+            byte[] registro = memtable.registros.get(id);
+            if (registro != null) {
+                return registro == REMOVIDO ? null : leitor.ler(ByteBuffer.wrap(registro), 0);
+            }
+        }
+        //Nível 0 do mais novo ao mais antigo, e cada nível seguinte guarda versões mais antigas que o anterior
+        for (List<Segmento> nivel : versao.niveis()) {
+            for (Segmento segmento : nivel) {
+                int posicao = segmento.localizar(id);
+                if (posicao != Segmento.AUSENTE) {
+                    return segmento.lapide(posicao) ? null
+                            : leitor.ler(segmento.buffer(), Segmento.posicaoLivro(posicao));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Livro confirmarIsbn(Versao versao, int id, long isbn) {
+        return ler(versao, id, (buffer, posicao) -> CodificadorLivro.lerISBN(buffer, posicao) == isbn
+                ? CodificadorLivro.decodificar(buffer, posicao)
+                : null);
+    }
+
+    private static List<Memtable> memtables(Versao versao) {
+        return versao.congelada() == null ? List.of(versao.ativa()) : List.of(versao.ativa(), versao.congelada());
+    }
+
+    private static Stream<Segmento> segmentos(Versao versao) {
+        return versao.niveis().stream().flatMap(List::stream);
+    }
+
+    private static CursorRegistros cursorMemtable(Memtable memtable, int cursor) {
+        Iterator<Map.Entry<Integer, byte[]>> entradas = memtable.registros.tailMap(cursor, false).entrySet().iterator();
+        return new CursorRegistros() {
+            private int id;
+            private byte[] registro;
+            private ByteBuffer buffer;
+
+            @Override
+            public boolean avancar() {
+                if (!entradas.hasNext()) {
+                    return false;
+                }
+                Map.Entry<Integer, byte[]> entrada = entradas.next();
+                id = entrada.getKey();
+                registro = entrada.getValue();
+                buffer = ByteBuffer.wrap(registro);
+                return true;
+            }
+
+            @Override
+            public int id() {
+                return id;
+            }
+
+            @Override
+            public int tamanho() {
+                return registro == REMOVIDO ? LAPIDE : registro.length;
+            }
+
+            @Override
+            public ByteBuffer buffer() {
+                return buffer;
+            }
+
+            @Override
+            public int posicao() {
+                return 0;
+            }
+        };
+    }
+
+    private static List<List<Segmento>> niveisVazios() {
+        List<List<Segmento>> niveis = new ArrayList<>(NIVEIS);
+        for (int nivel = 0; nivel < NIVEIS; nivel++) {
+            niveis.add(new ArrayList<>());
+        }
+        return niveis;
+    }
+
+    private static List<List<Segmento>> copiar(List<List<Segmento>> niveis) {
+        List<List<Segmento>> copia = new ArrayList<>(NIVEIS);
+        for (List<Segmento> nivel : niveis) {
+            copia.add(new ArrayList<>(nivel));
+        }
+        return copia;
+    }
+}
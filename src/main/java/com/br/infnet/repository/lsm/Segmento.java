@@ -0,0 +1,219 @@
+package com.br.infnet.repository.lsm;
+
+import com.br.infnet.repository.estruturas.FiltroBloom;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+//Segmento imutável de registros ordenados por id, gerado ao descartar uma memtable ou por compactação:
+//  [magia int][versão int]
+//  registros: [id int][tamanho int, -1 = lápide][livro no formato do CodificadorLivro]
+//  índice de ids: [id int][posição do registro int] por registro, em ordem de id
+//  índice de ISBNs: [isbn long][id int] por registro vivo, em ordem de ISBN
+//  filtro de Bloom dos ids, filtro de Bloom dos ISBNs
+//  rodapé: [posição do índice de ids int][quantidade int][posição do índice de ISBNs int]
+//          [quantidade de ISBNs int][posição do filtro de ids int][posição do filtro de ISBNs int]
+//          [crc32 int de tudo o que vem antes]
+//O arquivo fica mapeado em memória e as buscas binárias são feitas direto nele; só os filtros vão para o heap.
+final class Segmento {
+    static final int MAGIA = 0x4C534D53;
+    static final int VERSAO = 1;
+    static final int TAMANHO_CABECALHO = 8;
+    static final int TAMANHO_RODAPE = 28;
+    static final int AUSENTE = -1;
+
+    private final Path arquivo;
+    private final long numero;
+    private final MappedByteBuffer buffer;
+    private final int quantidade;
+    private final int posicaoIndice;
+    private final int posicaoIsbns;
+    private final int quantidadeIsbns;
+    private final FiltroBloom filtroIds;
+    private final FiltroBloom filtroIsbns;
+    private final int menorId;
+    private final int maiorId;
+
+    private Segmento(Path arquivo, long numero, MappedByteBuffer buffer) {
+        int rodape = buffer.capacity() - TAMANHO_RODAPE;
+        this.arquivo = arquivo;
+        this.numero = numero;
+        this.buffer = buffer;
+        this.posicaoIndice = buffer.getInt(rodape);
+        this.quantidade = buffer.getInt(rodape + 4);
+        this.posicaoIsbns = buffer.getInt(rodape + 8);
+        this.quantidadeIsbns = buffer.getInt(rodape + 12);
+        this.filtroIds = FiltroBloom.ler(buffer, buffer.getInt(rodape + 16));
+        this.filtroIsbns = FiltroBloom.ler(buffer, buffer.getInt(rodape + 20));
+        this.menorId = buffer.getInt(posicaoIndice);
+        this.maiorId = buffer.getInt(posicaoIndice + (quantidade - 1) * 8);
+    }
+
+    //Rejeita por inteiro um arquivo truncado, de outra versão ou com CRC divergente
+    static Segmento abrir(Path arquivo, long numero) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Segmento maior que 2 GB não é suportado: " + arquivo);
+            }
+            if (tamanho < TAMANHO_CABECALHO + TAMANHO_RODAPE) {
+                throw new IllegalStateException("Segmento truncado: " + arquivo);
+            }
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            if (buffer.getInt(0) != MAGIA) {
+                throw new IllegalStateException("Arquivo não é um segmento LSM: " + arquivo);
+            }
+            if (buffer.getInt(4) != VERSAO) {
+                throw new IllegalStateException("Versão de segmento não suportada: " + buffer.getInt(4));
+            }
+            int fimConteudo = (int) tamanho - 4;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, fimConteudo));
+            int quantidade = buffer.getInt((int) tamanho - TAMANHO_RODAPE + 4);
+            if ((int) crc.getValue() != buffer.getInt(fimConteudo) || quantidade < 1) {
+                throw new IllegalStateException("Segmento corrompido: " + arquivo);
+            }
+            return new Segmento(arquivo, numero, buffer);
+        }
+    }
+
+    //Posição do registro do id, ou AUSENTE; o filtro de Bloom evita a busca binária na maioria das ausências
+    int localizar(int id) {
+        if (id < menorId || id > maiorId || !filtroIds.talvezContenha(id)) {
+            return AUSENTE;
+        }
+        int inicio = 0;
+        int fim = quantidade - 1;
+        while (inicio <= fim) {
+            int meio = (inicio + fim) >>> 1;
+            int idMeio = buffer.getInt(posicaoIndice + meio * 8);
+            if (idMeio < id) {
+                inicio = meio + 1;
+            } else if (idMeio > id) {
+                fim = meio - 1;
+            } else {
+                return buffer.getInt(posicaoIndice + meio * 8 + 4);
+            }
+        }
+        return AUSENTE;
+    }
+
+    boolean lapide(int posicao) {
+        return buffer.getInt(posicao + 4) == CursorRegistros.LAPIDE;
+    }
+
+    //Início do livro de um registro localizado
+    static int posicaoLivro(int posicao) {
+        return posicao + 8;
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    //Entrega os ids dos registros vivos com o ISBN; um mesmo ISBN pode aparecer em versões de ids diferentes
+    void idsComIsbn(long isbn, IntConsumer destino) {
+        if (!filtroIsbns.talvezContenha(isbn)) {
+            return;
+        }
+        int inicio = 0;
+        int fim = quantidadeIsbns;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (buffer.getLong(posicaoIsbns + meio * 12) < isbn) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        for (int i = inicio; i < quantidadeIsbns && buffer.getLong(posicaoIsbns + i * 12) == isbn; i++) {
+            destino.accept(buffer.getInt(posicaoIsbns + i * 12 + 8));
+        }
+    }
+
+    //Registros com id maior que "cursor", inclusive lápides
+    CursorRegistros cursor(int cursor) {
+        int inicio = 0;
+        int fim = quantidade;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (buffer.getInt(posicaoIndice + meio * 8) <= cursor) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        int primeiro = inicio;
+        return new CursorRegistros() {
+            private int indice = primeiro - 1;
+            private int registro;
+
+            @Override
+            public boolean avancar() {
+                if (++indice >= quantidade) {
+                    return false;
+                }
+                registro = buffer.getInt(posicaoIndice + indice * 8 + 4);
+                return true;
+            }
+
+            @Override
+            public int id() {
+                return buffer.getInt(registro);
+            }
+
+            @Override
+            public int tamanho() {
+                return buffer.getInt(registro + 4);
+            }
+
+            @Override
+            public ByteBuffer buffer() {
+                return buffer;
+            }
+
+            @Override
+            public int posicao() {
+                return posicaoLivro(registro);
+            }
+        };
+    }
+
+    Path arquivo() {
+        return arquivo;
+    }
+
+    long numero() {
+        return numero;
+    }
+
+    int quantidade() {
+        return quantidade;
+    }
+
+    int menorId() {
+        return menorId;
+    }
+
+    int maiorId() {
+        return maiorId;
+    }
+
+    boolean sobrepoe(int menor, int maior) {
+        return menorId <= maior && maiorId >= menor;
+    }
+
+    long tamanhoBytes() {
+        return buffer.capacity();
+    }
+
+    long bytesFiltros() {
+        return filtroIds.bytesEstimados() + filtroIsbns.bytesEstimados();
+    }
+}
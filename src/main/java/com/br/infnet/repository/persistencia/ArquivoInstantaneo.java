@@ -0,0 +1,135 @@
+package com.br.infnet.repository.persistencia;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.model.Livro;
+import com.br.infnet.repository.armazenamento.CodificadorEmprestimo;
+import com.br.infnet.repository.armazenamento.CodificadorLivro;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+//Instantâneo binário e versionado do estado completo da biblioteca:
+//  [magia int][versão int][próximo id de livro int][próximo id de empréstimo int]
+//  [livros no formato do CodificadorLivro...][0 int: fim dos livros]
+//  [quantidade de empréstimos int][empréstimos no formato do CodificadorEmprestimo...]
+//  [crc32 int de tudo o que vem antes]
+//É gravado num arquivo temporário e renomeado atomicamente, então o arquivo no lugar está sempre completo.
+//A leitura mapeia o arquivo em memória e restaura os registros sem revalidar campo a campo.
+public final class ArquivoInstantaneo {
+    public static final int MAGIA = 0x42494253;
+    public static final int VERSAO = 1;
+    private static final int TAMANHO_CABECALHO = 16;
+    private static final int FIM_DOS_LIVROS = 0;
+    private static final int TAMANHO_BUFFER_ESCRITA = 1 << 16;
+
+    public record Resumo(int proximoIdLivro, int proximoIdEmprestimo, int livros, int emprestimos) {
+    }
+
+    //Fonte dos livros a gravar: entrega cada livro ao consumidor, como iLivroRepository.paraCadaLivro
+    public interface FonteLivros {
+        void paraCada(Consumer<Livro> acao);
+    }
+
+    private ArquivoInstantaneo() {
+    }
+
+    public static Resumo gravar(Path arquivo, int proximoIdLivro, int proximoIdEmprestimo, FonteLivros livros,
+                                List<Emprestimo> emprestimos) throws IOException {
+        Path diretorio = arquivo.toAbsolutePath().getParent();
+        Files.createDirectories(diretorio);
+        Path temporario = diretorio.resolve(arquivo.getFileName() + ".tmp");
+        int[] quantidadeLivros = {0};
+        try (FileOutputStream arquivoSaida = new FileOutputStream(temporario.toFile())) {
+            CheckedOutputStream comCrc = new CheckedOutputStream(arquivoSaida, new CRC32());
+            DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(comCrc, TAMANHO_BUFFER_ESCRITA));
+            saida.writeInt(MAGIA);
+            saida.writeInt(VERSAO);
+            saida.writeInt(proximoIdLivro);
+            saida.writeInt(proximoIdEmprestimo);
+            try {
+                livros.paraCada(livro -> {
+                    try {
+                        saida.write(CodificadorLivro.codificar(livro));
+                        quantidadeLivros[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            saida.writeInt(FIM_DOS_LIVROS);
+
+            saida.writeInt(emprestimos.size());
+            ByteBuffer registro = ByteBuffer.allocate(CodificadorEmprestimo.TAMANHO_REGISTRO);
+            for (Emprestimo emprestimo : emprestimos) {
+                registro.clear();
+                CodificadorEmprestimo.codificar(emprestimo, registro);
+                saida.write(registro.array());
+            }
+            saida.flush();
+            new DataOutputStream(arquivoSaida).writeInt((int) comCrc.getChecksum().getValue());
+            arquivoSaida.getFD().sync();
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Resumo(proximoIdLivro, proximoIdEmprestimo, quantidadeLivros[0], emprestimos.size());
+    }
+
+    //Entrega livros e empréstimos do instantâneo aos consumidores. Arquivo truncado, de outra versão ou com
+    //CRC divergente é rejeitado por inteiro: nada é entregue.
+    public static Resumo ler(Path arquivo, Consumer<Livro> livros, Consumer<Emprestimo> emprestimos)
+            throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Instantâneo maior que 2 GB não é suportado: " + arquivo);
+            }
+            if (tamanho < TAMANHO_CABECALHO + 12) {
+                throw new IllegalStateException("Instantâneo truncado: " + arquivo);
+            }
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            int fimConteudo = (int) tamanho - 4;
+            if (buffer.getInt(0) != MAGIA) {
+                throw new IllegalStateException("Arquivo não é um instantâneo da biblioteca: " + arquivo);
+            }
+            if (buffer.getInt(4) != VERSAO) {
+                throw new IllegalStateException("Versão de instantâneo não suportada: " + buffer.getInt(4));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, fimConteudo));
+            if ((int) crc.getValue() != buffer.getInt(fimConteudo)) {
+                throw new IllegalStateException("Instantâneo corrompido (CRC divergente): " + arquivo);
+            }
+
+            int posicao = TAMANHO_CABECALHO;
+            int quantidadeLivros = 0;
+            while (CodificadorLivro.lerId(buffer, posicao) != FIM_DOS_LIVROS) {
+                livros.accept(CodificadorLivro.decodificar(buffer, posicao));
+                posicao += CodificadorLivro.tamanhoRegistro(buffer, posicao);
+                quantidadeLivros++;
+            }
+            posicao += 4;
+            int quantidadeEmprestimos = buffer.getInt(posicao);
+            posicao += 4;
+            for (int i = 0; i < quantidadeEmprestimos; i++) {
+                emprestimos.accept(CodificadorEmprestimo.decodificar(buffer, posicao));
+                posicao += CodificadorEmprestimo.TAMANHO_REGISTRO;
+            }
+            return new Resumo(buffer.getInt(8), buffer.getInt(12), quantidadeLivros, quantidadeEmprestimos);
+        }
+    }
+}
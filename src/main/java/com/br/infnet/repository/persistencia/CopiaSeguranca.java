@@ -0,0 +1,196 @@
+package com.br.infnet.repository.persistencia;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+//Cópia de segurança compactada (gzip) de um diretório de dados, como uma sequência de seções nomeadas:
+//  [magia int][versão int][criada em long, epoch ms]
+//  ([1 byte][nome UTF][tamanho long][conteúdo])...[0 byte: fim]
+//Cada seção reproduz um arquivo do diretório (o instantâneo e o prefixo de cada log até o marco da cópia), então
+//restaurar é regravar os arquivos num diretório vazio e abri-lo normalmente. O gzip confere o CRC do conteúdo.
+//A cópia é gravada num arquivo temporário e renomeada, então o arquivo final está sempre completo.
+public final class CopiaSeguranca {
+    public static final int MAGIA = 0x42494243;
+    public static final int VERSAO = 1;
+    public static final String EXTENSAO = ".bkp.gz";
+    private static final int TAMANHO_BUFFER = 1 << 16;
+    private static final byte SECAO = 1;
+    private static final byte FIM = 0;
+
+    //Grava o conteúdo de uma seção; devolve quantos bytes escreveu
+    @FunctionalInterface
+    public interface ConteudoSecao {
+        long gravar(OutputStream saida) throws IOException;
+    }
+
+    //pausaEscritasMicros é o tempo em que as escritas ficaram suspensas para marcar a posição dos logs
+    public record Resumo(Path arquivo, long bytesOriginais, long bytesCompactados, long pausaEscritasMicros,
+                         long duracaoMs) {
+    }
+
+    private final Path arquivo;
+    private final Path temporario;
+    private final FileOutputStream arquivoSaida;
+    private final GZIPOutputStream gzip;
+    private final DataOutputStream saida;
+    private long bytesOriginais;
+    private boolean concluida;
+
+    private CopiaSeguranca(Path arquivo, long criadaEm) throws IOException {
+        Path diretorio = arquivo.toAbsolutePath().getParent();
+        Files.createDirectories(diretorio);
+        this.arquivo = arquivo;
+        this.temporario = diretorio.resolve(arquivo.getFileName() + ".tmp");
+        this.arquivoSaida = new FileOutputStream(temporario.toFile());
+        //Nível rápido: a cópia roda junto com o tráfego normal e o ganho dos níveis altos é pequeno
+        this.gzip = new GZIPOutputStream(arquivoSaida, TAMANHO_BUFFER) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+        this.saida = new DataOutputStream(new BufferedOutputStream(gzip, TAMANHO_BUFFER));
+        saida.writeInt(MAGIA);
+        saida.writeInt(VERSAO);
+        saida.writeLong(criadaEm);
+    }
+
+    public static CopiaSeguranca criar(Path arquivo) throws IOException {
+        return new CopiaSeguranca(arquivo, System.currentTimeMillis());
+    }
+
+    public void adicionarSecao(String nome, long tamanho, ConteudoSecao conteudo) throws IOException {
+        saida.writeByte(SECAO);
+        saida.writeUTF(nome);
+        saida.writeLong(tamanho);
+        long gravados = conteudo.gravar(saida);
+        if (gravados != tamanho) {
+            throw new IllegalStateException("Seção " + nome + " com " + gravados + " bytes, esperados " + tamanho);
+        }
+        bytesOriginais += tamanho;
+    }
+
+    public void adicionarArquivo(String nome, Path origem) throws IOException {
+        adicionarSecao(nome, Files.size(origem), destino -> Files.copy(origem, destino));
+    }
+
+    //Fecha a seção final, força o arquivo ao disco e o coloca no lugar. Devolve o tamanho compactado.
+    public long concluir() throws IOException {
+        saida.writeByte(FIM);
+        saida.flush();
+        gzip.finish();
+        arquivoSaida.getFD().sync();
+        saida.close();
+        concluida = true;
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(arquivo);
+    }
+
+    //Sem concluir, descarta o arquivo temporário
+    public void descartar() {
+        if (concluida) {
+            return;
+        }
+        try {
+            saida.close();
+        } catch (IOException e) {
+            //O temporário é removido de qualquer forma
+        }
+        try {
+            Files.deleteIfExists(temporario);
+        } catch (IOException e) {
+            System.out.println("Não foi possível remover " + temporario + ": " + e.getMessage());
+        }
+    }
+
+    public long getBytesOriginais() {
+        return bytesOriginais;
+    }
+
+    public Path getArquivo() {
+        return arquivo;
+    }
+
+    //Regrava as seções da cópia como arquivos de um diretório vazio (ou inexistente) e devolve seus nomes.
+    //Cópia truncada, corrompida ou de outra versão é rejeitada, e os arquivos já restaurados são removidos.
+    public static List<String> restaurar(Path copia, Path diretorio) throws IOException {
+        Files.createDirectories(diretorio);
+        try (var conteudo = Files.list(diretorio)) {
+            if (conteudo.findAny().isPresent()) {
+                throw new IllegalStateException("Diretório de restauração não está vazio: " + diretorio);
+            }
+        }
+        List<String> restaurados = new ArrayList<>();
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(copia), TAMANHO_BUFFER), TAMANHO_BUFFER))) {
+            if (entrada.readInt() != MAGIA) {
+                throw new IllegalStateException("Arquivo não é uma cópia de segurança da biblioteca: " + copia);
+            }
+            int versao = entrada.readInt();
+            if (versao != VERSAO) {
+                throw new IllegalStateException("Versão de cópia de segurança não suportada: " + versao);
+            }
+            entrada.readLong();
+            while (entrada.readByte() == SECAO) {
+                String nome = entrada.readUTF();
+                long tamanho = entrada.readLong();
+                Path destino = diretorio.resolve(nome).normalize();
+                if (!destino.getParent().equals(diretorio.normalize()) || restaurados.contains(nome)) {
+                    throw new IllegalStateException("Seção inválida na cópia de segurança: " + nome);
+                }
+                restaurados.add(nome);
+                try (OutputStream arquivoDestino = Files.newOutputStream(destino)) {
+                    copiarExatamente(entrada, arquivoDestino, tamanho);
+                }
+            }
+            //Lê até o fim para o gzip conferir o CRC e o tamanho do conteúdo
+            if (entrada.read() != -1) {
+                throw new IllegalStateException("Conteúdo inesperado depois do fim da cópia de segurança: " + copia);
+            }
+        } catch (EOFException e) {
+            apagar(diretorio, restaurados);
+            throw new IllegalStateException("Cópia de segurança truncada: " + copia);
+        } catch (IOException | RuntimeException e) {
+            apagar(diretorio, restaurados);
+            throw e;
+        }
+        return restaurados;
+    }
+
+    private static void copiarExatamente(InputStream entrada, OutputStream saida, long tamanho) throws IOException {
+        byte[] buffer = new byte[TAMANHO_BUFFER];
+        long restante = tamanho;
+        while (restante > 0) {
+            int lidos = entrada.read(buffer, 0, (int) Math.min(buffer.length, restante));
+            if (lidos < 0) {
+                throw new EOFException();
+            }
+            saida.write(buffer, 0, lidos);
+            restante -= lidos;
+        }
+    }
+
+    private static void apagar(Path diretorio, List<String> arquivos) {
+        for (String nome : arquivos) {
+            try {
+                Files.deleteIfExists(diretorio.resolve(nome));
+            } catch (IOException e) {
+                System.out.println("Não foi possível remover " + nome + ": " + e.getMessage());
+            }
+        }
+    }
+}
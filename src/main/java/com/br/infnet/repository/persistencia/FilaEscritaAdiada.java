@@ -0,0 +1,332 @@
+package com.br.infnet.repository.persistencia;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+//Fila de escrita adiada (write-behind) com uma operação pendente por chave: uma nova operação para a mesma
+//chave substitui a anterior, então várias edições do mesmo livro viram uma só escrita. As operações devem
+//descrever o estado final do registro (gravar o livro inteiro, remover), o que torna a substituição segura e
+//a repetição de um lote que falhou inofensiva.
+//Uma thread grava os pendentes em lotes de até tamanhoLote, assim que o lote enche ou quando a operação mais
+//antiga completa atrasoMaximo, o que limita o atraso entre a escrita em memória e o armazenamento.
+//Como a combinação desfaz a ordem entre chaves, o gravador pode recusar operações que ainda não cabem no destino
+//(ex.: um ISBN que o livro anterior só cede numa escrita posterior); elas voltam para o fim da fila.
+//Com capacidade chaves pendentes, quem enfileira uma chave nova espera por espaço (contrapressão) e desiste
+//com IllegalStateException após esperaMaxima. close() grava tudo o que estiver pendente antes de retornar.
+public class FilaEscritaAdiada<T> implements Closeable {
+    public static final int CAPACIDADE_PADRAO = 10_000;
+    public static final int TAMANHO_LOTE_PADRAO = 256;
+    public static final long ATRASO_MAXIMO_PADRAO_MS = 50;
+    public static final long ESPERA_MAXIMA_PADRAO_MS = 5_000;
+    //No fechamento, um lote que continua falhando é abandonado depois de tantas tentativas
+    private static final int TENTATIVAS_AO_FECHAR = 3;
+
+    //Grava um lote e devolve as operações recusadas, a tentar de novo depois (lista vazia se gravou tudo)
+    @FunctionalInterface
+    public interface Gravador<T> {
+        List<T> gravar(List<T> lote);
+    }
+
+    //Chave -> operação mais recente e o instante em que a chave entrou na fila. A ordem de inserção do mapa
+    //é a ordem de chegada: a primeira entrada é sempre a mais antiga.
+    private record Pendente<T>(T operacao, long desde) {
+    }
+
+    private final String nome;
+    private final Gravador<T> gravador;
+    private final int capacidade;
+    private final int tamanhoLote;
+    private final long atrasoMaximoNanos;
+    private final long esperaMaximaNanos;
+
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Condition haTrabalho = trava.newCondition();
+    private final Condition haEspaco = trava.newCondition();
+    private final Condition loteGravado = trava.newCondition();
+    private LinkedHashMap<Integer, Pendente<T>> pendentes = new LinkedHashMap<>();
+    private int emGravacao;
+    private long pedidosDescarga;
+    private long descargasAtendidas;
+    private boolean fechada;
+    private final Thread gravadora;
+
+    private long enfileiradas;
+    private long combinadas;
+    private long gravadas;
+    private long lotes;
+    private long falhas;
+    private long esperasPorEspaco;
+    private long recusadas;
+    private long perdidas;
+
+    public FilaEscritaAdiada(String nome, Gravador<T> gravador) {
+        this(nome, gravador, CAPACIDADE_PADRAO, TAMANHO_LOTE_PADRAO, ATRASO_MAXIMO_PADRAO_MS, ESPERA_MAXIMA_PADRAO_MS);
+    }
+
+    public FilaEscritaAdiada(String nome, Gravador<T> gravador, int capacidade, int tamanhoLote,
+                             long atrasoMaximoMs, long esperaMaximaMs) {
+        if (capacidade < 1 || tamanhoLote < 1 || atrasoMaximoMs < 0) {
+            throw new IllegalArgumentException("Capacidade e tamanho do lote devem ser positivos");
+        }
+        this.nome = nome;
+        this.gravador = gravador;
+        this.capacidade = capacidade;
+        this.tamanhoLote = tamanhoLote;
+        this.atrasoMaximoNanos = TimeUnit.MILLISECONDS.toNanos(atrasoMaximoMs);
+        this.esperaMaximaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+        this.gravadora = new Thread(this::gravarEmLaco, "escrita-adiada-" + nome);
+        gravadora.setDaemon(true);
+        gravadora.start();
+    }
+
+    public void enfileirar(int chave, T operacao) {
+        trava.lock();
+        try {
+            long restante = esperaMaximaNanos;
+            while (true) {
+                if (fechada) {
+                    throw new IllegalStateException("Fila de escrita adiada " + nome + " já foi fechada");
+                }
+                Pendente<T> anterior = pendentes.get(chave);
+                if (anterior != null) {
+                    //Mantém a posição e a idade da primeira operação, para o atraso continuar limitado
+                    pendentes.put(chave, new Pendente<>(operacao, anterior.desde()));
+                    enfileiradas++;
+                    combinadas++;
+                    return;
+                }
+                if (pendentes.size() + emGravacao < capacidade) {
+                    pendentes.put(chave, new Pendente<>(operacao, System.nanoTime()));
+                    enfileiradas++;
+                    if (pendentes.size() == 1 || pendentes.size() >= tamanhoLote) {
+                        haTrabalho.signal();
+                    }
+                    return;
+                }
+                if (restante <= 0) {
+                    throw new IllegalStateException("Fila de escrita adiada " + nome + " cheia há "
+                            + TimeUnit.NANOSECONDS.toMillis(esperaMaximaNanos) + " ms");
+                }
+                esperasPorEspaco++;
+                restante = haEspaco.awaitNanos(restante);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido esperando espaço na fila de escrita adiada", e);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    //Grava agora tudo o que foi enfileirado até aqui e espera terminar, por até esperaMaxima
+    public void descarregar() {
+        trava.lock();
+        try {
+            long pedido = ++pedidosDescarga;
+            haTrabalho.signal();
+            long restante = esperaMaximaNanos;
+            while (descargasAtendidas < pedido && !fechada) {
+                if (restante <= 0) {
+                    throw new IllegalStateException("Fila de escrita adiada " + nome + " não esvaziou em "
+                            + TimeUnit.NANOSECONDS.toMillis(esperaMaximaNanos) + " ms");
+                }
+                restante = loteGravado.awaitNanos(restante);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido esperando a descarga da fila de escrita adiada", e);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public int getPendentes() {
+        trava.lock();
+        try {
+            return pendentes.size() + emGravacao;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public long getEnfileiradas() {
+        return lerContador(() -> enfileiradas);
+    }
+
+    //Operações que substituíram outra pendente para a mesma chave, sem gerar escrita própria
+    public long getCombinadas() {
+        return lerContador(() -> combinadas);
+    }
+
+    public long getGravadas() {
+        return lerContador(() -> gravadas);
+    }
+
+    public long getLotes() {
+        return lerContador(() -> lotes);
+    }
+
+    public long getFalhas() {
+        return lerContador(() -> falhas);
+    }
+
+    public long getRecusadas() {
+        return lerContador(() -> recusadas);
+    }
+
+    public long getEsperasPorEspaco() {
+        return lerContador(() -> esperasPorEspaco);
+    }
+
+    @Override
+    public void close() {
+        trava.lock();
+        try {
+            if (fechada) {
+                return;
+            }
+            fechada = true;
+            haTrabalho.signal();
+            haEspaco.signalAll();
+        } finally {
+            trava.unlock();
+        }
+        try {
+            gravadora.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido esperando a fila de escrita adiada " + nome + " esvaziar", e);
+        }
+        if (perdidas > 0) {
+            throw new IllegalStateException(perdidas + " escritas adiadas de " + nome + " não foram gravadas");
+        }
+    }
+
+    private void gravarEmLaco() {
+        int tentativasAoFechar = 0;
+        trava.lock();
+        try {
+            while (true) {
+                if (pendentes.isEmpty()) {
+                    descargasAtendidas = pedidosDescarga;
+                    loteGravado.signalAll();
+                    if (fechada) {
+                        return;
+                    }
+                    haTrabalho.await();
+                    continue;
+                }
+                long idade = System.nanoTime() - pendentes.values().iterator().next().desde();
+                boolean urgente = fechada || descargasAtendidas < pedidosDescarga || pendentes.size() >= tamanhoLote;
+                if (!urgente && idade < atrasoMaximoNanos) {
+                    haTrabalho.awaitNanos(atrasoMaximoNanos - idade);
+                    continue;
+                }
+
+                LinkedHashMap<Integer, Pendente<T>> lote = retirarLote();
+                List<T> operacoes = new ArrayList<>(lote.size());
+                lote.values().forEach(pendente -> operacoes.add(pendente.operacao()));
+                emGravacao = lote.size();
+                trava.unlock();
+                RuntimeException falha = null;
+                List<T> recusadasNoLote = List.of();
+                try {
+                    recusadasNoLote = gravador.gravar(operacoes);
+                } catch (RuntimeException e) {
+                    falha = e;
+                } finally {
+                    trava.lock();
+                    emGravacao = 0;
+                }
+
+                if (falha == null && recusadasNoLote.isEmpty()) {
+                    gravadas += lote.size();
+                    lotes++;
+                    tentativasAoFechar = 0;
+                } else if (falha == null) {
+                    gravadas += lote.size() - recusadasNoLote.size();
+                    lotes++;
+                    recusadas += recusadasNoLote.size();
+                    if (fechada && ++tentativasAoFechar >= TENTATIVAS_AO_FECHAR) {
+                        perdidas += recusadasNoLote.size();
+                        System.out.println(recusadasNoLote.size() + " escritas adiadas de " + nome
+                                + " continuam recusadas pelo destino e foram descartadas");
+                    } else {
+                        devolverAoFim(lote, recusadasNoLote);
+                        if (recusadasNoLote.size() == lote.size()) {
+                            //Nenhum progresso: espera outras escritas chegarem antes de tentar de novo
+                            haTrabalho.awaitNanos(Math.max(atrasoMaximoNanos, TimeUnit.MILLISECONDS.toNanos(10)));
+                        }
+                    }
+                } else {
+                    falhas++;
+                    System.out.println("Falha ao gravar " + lote.size() + " escritas adiadas de " + nome + ": "
+                            + falha.getMessage());
+                    if (fechada && ++tentativasAoFechar >= TENTATIVAS_AO_FECHAR) {
+                        perdidas += lote.size();
+                        tentativasAoFechar = 0;
+                    } else {
+                        devolverAoInicio(lote);
+                        //Espera antes de tentar de novo, para não repetir a falha em laço
+                        haTrabalho.awaitNanos(Math.max(atrasoMaximoNanos, TimeUnit.MILLISECONDS.toNanos(10)));
+                    }
+                }
+                haEspaco.signalAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private LinkedHashMap<Integer, Pendente<T>> retirarLote() {
+        LinkedHashMap<Integer, Pendente<T>> lote = new LinkedHashMap<>();
+        Iterator<Map.Entry<Integer, Pendente<T>>> entradas = pendentes.entrySet().iterator();
+        while (entradas.hasNext() && lote.size() < tamanhoLote) {
+            Map.Entry<Integer, Pendente<T>> entrada = entradas.next();
+            lote.put(entrada.getKey(), entrada.getValue());
+            entradas.remove();
+        }
+        return lote;
+    }
+
+    private void devolverAoFim(LinkedHashMap<Integer, Pendente<T>> lote, List<T> recusadasNoLote) {
+        IdentityHashMap<T, Boolean> recusadas = new IdentityHashMap<>();
+        recusadasNoLote.forEach(operacao -> recusadas.put(operacao, Boolean.TRUE));
+        //Com idade nova: uma recusa que persiste é tentada a cada atrasoMaximo, sem girar em laço
+        long agora = System.nanoTime();
+        for (Map.Entry<Integer, Pendente<T>> entrada : lote.entrySet()) {
+            if (recusadas.containsKey(entrada.getValue().operacao())) {
+                pendentes.putIfAbsent(entrada.getKey(), new Pendente<>(entrada.getValue().operacao(), agora));
+            }
+        }
+    }
+
+    //Um lote que falhou volta para a frente da fila; chaves que receberam uma operação mais nova ficam com ela
+    private void devolverAoInicio(LinkedHashMap<Integer, Pendente<T>> lote) {
+        for (Map.Entry<Integer, Pendente<T>> entrada : pendentes.entrySet()) {
+            lote.merge(entrada.getKey(), entrada.getValue(),
+                    (antiga, nova) -> new Pendente<>(nova.operacao(), antiga.desde()));
+        }
+        pendentes = lote;
+    }
+
+    private long lerContador(LongSupplier contador) {
+        trava.lock();
+        try {
+            return contador.getAsLong();
+        } finally {
+            trava.unlock();
+        }
+    }
+}
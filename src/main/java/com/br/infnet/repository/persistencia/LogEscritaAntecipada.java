@@ -0,0 +1,451 @@
+package com.br.infnet.repository.persistencia;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+//Log de escrita antecipada (WAL) só-acréscimo em disco local.
+//Cada registro é [tamanho int][crc32 int][conteúdo]; o CRC cobre o conteúdo e detecta escritas parciais.
+//Anexar é dividido em duas etapas: enfileirar fixa a posição do registro no log e devolve seu número de
+//sequência; aguardarDurabilidade bloqueia até esse registro estar durável segundo a PoliticaDurabilidade.
+//Assim quem precisa ordenar escritas pode enfileirar sob sua trava e esperar o disco fora dela.
+public class LogEscritaAntecipada implements Closeable {
+    public static final int TAMANHO_CABECALHO = 8;
+    public static final long JANELA_LOTE_PADRAO_MS = 2;
+    public static final int REGISTROS_POR_LOTE_PADRAO = 512;
+    public static final long INTERVALO_PERIODICO_PADRAO_MS = 1000;
+    private static final int TAMANHO_MAXIMO_REGISTRO = 16 * 1024 * 1024;
+    private static final int TAMANHO_BUFFER_LEITURA = 1 << 16;
+
+    private final Path arquivo;
+    private final FileChannel canal;
+    private final PoliticaDurabilidade politica;
+    //LOTE: tempo máximo que o primeiro registro de um lote espera por companhia; PERIODICA: intervalo entre fsyncs
+    private final long janelaNanos;
+    private final int registrosPorLote;
+
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Condition haPendentes = trava.newCondition();
+    private final Condition loteDuravel = trava.newCondition();
+    //Registros enfileirados ainda não gravados (só na política LOTE)
+    private List<ByteBuffer> pendentes = new ArrayList<>();
+    private long ultimaSequencia;
+    private long sequenciaDuravel;
+    private IOException falha;
+    private boolean fechado;
+    private final Thread sincronizador;
+    private final AtomicLong sincronizacoes = new AtomicLong();
+    //Tamanho que o arquivo terá quando tudo o que foi enfileirado estiver gravado
+    private long bytesEnfileirados;
+    private long reinicios;
+
+    //Posição do log num instante: os registros até sequencia ocupam exatamente os primeiros bytes do arquivo
+    public record Marco(long sequencia, long bytes, long reinicio) {
+    }
+
+    public LogEscritaAntecipada(Path arquivo, PoliticaDurabilidade politica) throws IOException {
+        this(arquivo, politica, politica == PoliticaDurabilidade.PERIODICA
+                ? INTERVALO_PERIODICO_PADRAO_MS : JANELA_LOTE_PADRAO_MS, REGISTROS_POR_LOTE_PADRAO);
+    }
+
+    //janelaMillis é a janela do lote (LOTE) ou o intervalo entre fsyncs (PERIODICA); registrosPorLote fecha
+    //um lote antes da janela quando ele enche. Ambos são ignorados em POR_OPERACAO.
+    public LogEscritaAntecipada(Path arquivo, PoliticaDurabilidade politica, long janelaMillis,
+                                int registrosPorLote) throws IOException {
+        if (janelaMillis < 0 || registrosPorLote < 1
+                || (politica == PoliticaDurabilidade.PERIODICA && janelaMillis == 0)) {
+            throw new IllegalArgumentException("Janela e tamanho do lote devem ser positivos");
+        }
+        Path diretorio = arquivo.toAbsolutePath().getParent();
+        if (diretorio != null) {
+            Files.createDirectories(diretorio);
+        }
+        this.arquivo = arquivo;
+        this.politica = politica;
+        this.janelaNanos = TimeUnit.MILLISECONDS.toNanos(janelaMillis);
+        this.registrosPorLote = registrosPorLote;
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.canal.position(canal.size());
+        this.bytesEnfileirados = canal.size();
+
+        Runnable tarefa = switch (politica) {
+            case LOTE -> this::gravarLotes;
+            case PERIODICA -> this::sincronizarPeriodicamente;
+            case POR_OPERACAO -> null;
+        };
+        if (tarefa != null) {
+            sincronizador = new Thread(tarefa, "wal-" + politica.getParametro() + "-" + arquivo.getFileName());
+            sincronizador.setDaemon(true);
+            sincronizador.start();
+        } else {
+            sincronizador = null;
+        }
+    }
+
+    //Enfileira e espera o registro ficar durável
+    public void anexar(byte[] conteudo) throws IOException {
+        aguardarDurabilidade(enfileirar(conteudo));
+    }
+
+    //Fixa a posição do registro no log e devolve seu número de sequência. Em POR_OPERACAO e PERIODICA o
+    //registro já é gravado aqui (com fsync na primeira); em LOTE ele é gravado pela thread de commit.
+    public long enfileirar(byte[] conteudo) throws IOException {
+        ByteBuffer registro = emoldurar(conteudo);
+        trava.lock();
+        try {
+            verificarAberto();
+            bytesEnfileirados += registro.remaining();
+            if (politica == PoliticaDurabilidade.LOTE) {
+                pendentes.add(registro);
+                haPendentes.signal();
+                return ++ultimaSequencia;
+            }
+            gravar(registro);
+            if (politica == PoliticaDurabilidade.POR_OPERACAO) {
+                sincronizar();
+            }
+            sequenciaDuravel = ++ultimaSequencia;
+            return ultimaSequencia;
+        } catch (IOException e) {
+            falha = e;
+            throw e;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    //Em LOTE bloqueia até o lote que contém o registro passar pelo fsync; nas demais retorna de imediato.
+    //Depois de uma falha de gravação ou de fsync (inclusive o periódico, que não tem quem esperar por ele),
+    //falha sempre: o que foi enfileirado desde o último fsync bem-sucedido pode não estar no disco.
+    public void aguardarDurabilidade(long sequencia) throws IOException {
+        trava.lock();
+        try {
+            while (falha != null || sequenciaDuravel < sequencia) {
+                if (falha != null) {
+                    throw new IOException("Falha ao gravar o log " + arquivo, falha);
+                }
+                loteDuravel.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrompido aguardando a gravação do log " + arquivo);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    //Thread de commit em grupo: junta o que chegou, espera a janela se o lote ainda não encheu,
+    //grava tudo numa só escrita e faz um fsync para o lote inteiro
+    private void gravarLotes() {
+        while (true) {
+            List<ByteBuffer> lote;
+            long ultimaDoLote;
+            trava.lock();
+            try {
+                while (pendentes.isEmpty() && !fechado) {
+                    haPendentes.awaitUninterruptibly();
+                }
+                if (pendentes.isEmpty()) {
+                    return;
+                }
+                long restante = janelaNanos;
+                while (pendentes.size() < registrosPorLote && restante > 0 && !fechado) {
+                    restante = haPendentes.awaitNanos(restante);
+                }
+                lote = pendentes;
+                ultimaDoLote = ultimaSequencia;
+                pendentes = new ArrayList<>();
+            } catch (InterruptedException e) {
+                continue;
+            } finally {
+                trava.unlock();
+            }
+
+            IOException erro = null;
+            try {
+                ByteBuffer[] buffers = lote.toArray(new ByteBuffer[0]);
+                long total = 0;
+                for (ByteBuffer buffer : buffers) {
+                    total += buffer.remaining();
+                }
+                while (total > 0) {
+                    total -= canal.write(buffers);
+                }
+                sincronizar();
+            } catch (IOException e) {
+                erro = e;
+            }
+
+            trava.lock();
+            try {
+                if (erro != null) {
+                    falha = erro;
+                } else {
+                    sequenciaDuravel = ultimaDoLote;
+                }
+                loteDuravel.signalAll();
+                if (erro != null) {
+                    return;
+                }
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+
+    //O fsync periódico é feito fora da trava: gravações concorrentes não esperam por ele. Uma falha fica
+    //registrada e faz as próximas chamadas de enfileirar e aguardarDurabilidade falharem
+    private void sincronizarPeriodicamente() {
+        while (true) {
+            trava.lock();
+            try {
+                if (!fechado) {
+                    haPendentes.awaitNanos(janelaNanos);
+                }
+                if (fechado) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                trava.unlock();
+            }
+            try {
+                sincronizar();
+            } catch (IOException e) {
+                System.out.println("Erro na sincronização periódica de " + arquivo + ": " + e.getMessage());
+                trava.lock();
+                try {
+                    falha = e;
+                    loteDuravel.signalAll();
+                } finally {
+                    trava.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    //Entrega, em ordem, o conteúdo de cada registro íntegro. Um registro incompleto ou com CRC divergente
+    //indica queda no meio de uma escrita: o arquivo é truncado ali e novas escritas continuam do último
+    //registro íntegro. Deve ser chamado antes das escritas. Retorna a quantidade de registros reproduzidos.
+    public long reproduzir(Consumer<ByteBuffer> consumidor) throws IOException {
+        trava.lock();
+        try {
+            long registros = 0;
+            long posicaoValida = 0;
+            CRC32 crc = new CRC32();
+            try (DataInputStream entrada = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(arquivo), TAMANHO_BUFFER_LEITURA))) {
+                while (true) {
+                    int tamanho;
+                    try {
+                        tamanho = entrada.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    try {
+                        int crcEsperado = entrada.readInt();
+                        if (tamanho < 0 || tamanho > TAMANHO_MAXIMO_REGISTRO) {
+                            break;
+                        }
+                        byte[] conteudo = new byte[tamanho];
+                        entrada.readFully(conteudo);
+                        crc.reset();
+                        crc.update(conteudo);
+                        if ((int) crc.getValue() != crcEsperado) {
+                            break;
+                        }
+                        consumidor.accept(ByteBuffer.wrap(conteudo));
+                        registros++;
+                        posicaoValida += TAMANHO_CABECALHO + tamanho;
+                    } catch (EOFException e) {
+                        break;
+                    }
+                }
+            }
+            if (posicaoValida < canal.size()) {
+                System.out.println("Aviso: registro incompleto no fim de " + arquivo + "; descartando "
+                        + (canal.size() - posicaoValida) + " bytes");
+                canal.truncate(posicaoValida);
+            }
+            canal.position(posicaoValida);
+            bytesEnfileirados = posicaoValida;
+            return registros;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    //Esvazia o log depois que seu conteúdo foi incorporado a um instantâneo. Espera o que já foi enfileirado
+    //chegar ao disco; quem chama deve impedir novas escritas enquanto isso.
+    public void reiniciar() throws IOException {
+        trava.lock();
+        try {
+            verificarAberto();
+            while (sequenciaDuravel < ultimaSequencia) {
+                if (falha != null) {
+                    throw new IOException("Falha ao gravar o log " + arquivo, falha);
+                }
+                loteDuravel.await();
+            }
+            canal.truncate(0);
+            canal.position(0);
+            bytesEnfileirados = 0;
+            reinicios++;
+            sincronizar();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrompido aguardando a gravação do log " + arquivo);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    //Cerca de posição para cópias de segurança: quem chama impede novas escritas só enquanto marca, e depois
+    //copia o prefixo com copiarAte sem bloquear ninguém, já que o log só cresce depois do marco
+    public Marco marcar() throws IOException {
+        trava.lock();
+        try {
+            verificarAberto();
+            return new Marco(ultimaSequencia, bytesEnfileirados, reinicios);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    //Copia os registros até o marco, esperando antes que cheguem ao arquivo. Exige que o log não tenha sido
+    //reiniciado desde o marco. Retorna a quantidade de bytes copiados.
+    public long copiarAte(Marco marco, OutputStream saida) throws IOException {
+        aguardarDurabilidade(marco.sequencia());
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_BUFFER_LEITURA);
+        long posicao = 0;
+        while (posicao < marco.bytes()) {
+            verificarReinicio(marco);
+            buffer.clear().limit((int) Math.min(buffer.capacity(), marco.bytes() - posicao));
+            int lidos = canal.read(buffer, posicao);
+            if (lidos < 0) {
+                throw new IOException("Log " + arquivo + " terminou antes do marco da cópia");
+            }
+            saida.write(buffer.array(), 0, lidos);
+            posicao += lidos;
+        }
+        verificarReinicio(marco);
+        return posicao;
+    }
+
+    public long tamanhoEmBytes() throws IOException {
+        return canal.size();
+    }
+
+    public Path getArquivo() {
+        return arquivo;
+    }
+
+    public PoliticaDurabilidade getPolitica() {
+        return politica;
+    }
+
+    //Quantidade de fsyncs feitos; em LOTE, registros / sincronizações é o tamanho médio dos lotes
+    public long getSincronizacoes() {
+        return sincronizacoes.get();
+    }
+
+    //Grava o que estiver pendente, faz o fsync final e fecha o arquivo
+    @Override
+    public void close() throws IOException {
+        trava.lock();
+        try {
+            if (fechado) {
+                return;
+            }
+            fechado = true;
+            haPendentes.signalAll();
+        } finally {
+            trava.unlock();
+        }
+        if (sincronizador != null) {
+            try {
+                sincronizador.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        trava.lock();
+        try {
+            if (canal.isOpen()) {
+                try {
+                    sincronizar();
+                } finally {
+                    canal.close();
+                }
+            }
+            if (falha == null) {
+                sequenciaDuravel = ultimaSequencia;
+            }
+        } finally {
+            loteDuravel.signalAll();
+            trava.unlock();
+        }
+    }
+
+    private void verificarAberto() throws IOException {
+        if (fechado) {
+            throw new IOException("Log fechado: " + arquivo);
+        }
+        if (falha != null) {
+            throw new IOException("Log indisponível após falha de gravação: " + arquivo, falha);
+        }
+    }
+
+    private void verificarReinicio(Marco marco) {
+        trava.lock();
+        try {
+            if (reinicios != marco.reinicio()) {
+                throw new IllegalStateException("Log " + arquivo + " foi reiniciado durante a cópia");
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private void gravar(ByteBuffer registro) throws IOException {
+        while (registro.hasRemaining()) {
+            canal.write(registro);
+        }
+    }
+
+    private void sincronizar() throws IOException {
+        canal.force(false);
+        sincronizacoes.incrementAndGet();
+    }
+
+    static ByteBuffer emoldurar(byte[] conteudo) {
+        if (conteudo.length > TAMANHO_MAXIMO_REGISTRO) {
+            throw new IllegalArgumentException("Registro excede o tamanho máximo do log");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(conteudo);
+        ByteBuffer registro = ByteBuffer.allocate(TAMANHO_CABECALHO + conteudo.length);
+        registro.putInt(conteudo.length).putInt((int) crc.getValue()).put(conteudo).flip();
+        return registro;
+    }
+}
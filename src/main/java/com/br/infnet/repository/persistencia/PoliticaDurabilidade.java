@@ -0,0 +1,39 @@
+package com.br.infnet.repository.persistencia;
+
+import java.util.Locale;
+
+//Quando um registro anexado ao log passa a ser considerado durável
+public enum PoliticaDurabilidade {
+    //Um fsync por registro, antes de devolver o controle ao chamador
+    POR_OPERACAO("por-operacao"),
+    //Commit em grupo: registros de escritores concorrentes são agrupados (até uma janela de tempo ou um
+    //número máximo de registros) e confirmados com um único fsync; cada chamador espera só pelo seu lote
+    LOTE("lote"),
+    //O registro vai para o cache do sistema operacional e um fsync periódico o leva ao disco;
+    //o chamador não espera, e uma queda da máquina pode perder o último intervalo
+    PERIODICA("periodica");
+
+    private final String parametro;
+
+    PoliticaDurabilidade(String parametro) {
+        this.parametro = parametro;
+    }
+
+    public String getParametro() {
+        return parametro;
+    }
+
+    //Valor ausente ou vazio equivale ao commit em grupo
+    public static PoliticaDurabilidade doParametro(String valor) {
+        if (valor == null || valor.isBlank()) {
+            return LOTE;
+        }
+        String normalizado = valor.trim().toLowerCase(Locale.ROOT);
+        for (PoliticaDurabilidade politica : values()) {
+            if (politica.parametro.equals(normalizado)) {
+                return politica;
+            }
+        }
+        throw new IllegalArgumentException("Política de durabilidade inválida: use por-operacao, lote ou periodica");
+    }
+}
@@ -0,0 +1,284 @@
+package com.br.infnet.repository.persistencia;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//Pool de tamanho fixo de conexões JDBC, abertas todas de uma vez (o banco embutido não cobra rede por conexão).
+//Cada conexão guarda um cache LRU dos seus PreparedStatements por SQL: a mesma consulta não é preparada
+//(analisada e planejada) de novo a cada chamada.
+//executar roda a operação numa transação e faz commit ou rollback. Chamadas aninhadas na mesma thread
+//reaproveitam a conexão e a transação de fora, o que deixa um empréstimo e a atualização do livro atômicos
+//e evita que uma thread espere por uma segunda conexão do pool enquanto segura a primeira.
+//executarIsolada usa uma conexão à parte, fora do pool, com commit próprio: o que ela grava vale mesmo que a
+//transação de quem chamou seja desfeita depois (ex.: reserva de blocos de ids).
+public class PoolConexoes implements Closeable {
+    public static final int STATEMENTS_POR_CONEXAO_PADRAO = 32;
+    public static final long ESPERA_MAXIMA_PADRAO_MS = 5_000;
+
+    @FunctionalInterface
+    public interface Operacao<T> {
+        T executar(Conexao conexao) throws SQLException;
+    }
+
+    private final String url;
+    private final int statementsPorConexao;
+    private final long esperaMaximaMs;
+    private final ArrayBlockingQueue<Conexao> livres;
+    private final List<Conexao> todas = new ArrayList<>();
+    private final ThreadLocal<Conexao> conexaoDaThread = new ThreadLocal<>();
+    private final Object travaIsolada = new Object();
+    private Conexao conexaoIsolada;
+    private final LongAdder emprestimos = new LongAdder();
+    private final LongAdder esperas = new LongAdder();
+    private final LongAdder statementsReaproveitados = new LongAdder();
+    private final LongAdder statementsPreparados = new LongAdder();
+    private volatile boolean fechado;
+
+    public PoolConexoes(String url, int tamanho) throws SQLException {
+        this(url, tamanho, STATEMENTS_POR_CONEXAO_PADRAO, ESPERA_MAXIMA_PADRAO_MS);
+    }
+
+    public PoolConexoes(String url, int tamanho, int statementsPorConexao, long esperaMaximaMs) throws SQLException {
+        if (tamanho < 1 || statementsPorConexao < 1) {
+            throw new IllegalArgumentException("Tamanho do pool e do cache de statements devem ser positivos");
+        }
+        this.url = url;
+        this.statementsPorConexao = statementsPorConexao;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.livres = new ArrayBlockingQueue<>(tamanho);
+        try {
+            for (int i = 0; i < tamanho; i++) {
+                Conexao conexao = abrirConexao();
+                todas.add(conexao);
+                livres.add(conexao);
+            }
+        } catch (SQLException e) {
+            fecharTodas();
+            throw e;
+        }
+    }
+
+    public <T> T executar(Operacao<T> operacao) {
+        Conexao atual = conexaoDaThread.get();
+        if (atual != null) {
+            try {
+                return operacao.executar(atual);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Falha no banco: " + e.getMessage(), e);
+            }
+        }
+
+        Conexao conexao = emprestar();
+        conexaoDaThread.set(conexao);
+        try {
+            T resultado = operacao.executar(conexao);
+            conexao.conexao.commit();
+            return resultado;
+        } catch (SQLException e) {
+            desfazer(conexao);
+            throw new IllegalStateException("Falha no banco: " + e.getMessage(), e);
+        } catch (RuntimeException | Error e) {
+            desfazer(conexao);
+            throw e;
+        } finally {
+            conexaoDaThread.remove();
+            devolver(conexao);
+        }
+    }
+
+    //Roda numa transação própria, independente da transação em andamento na thread; chamadas isoladas são serializadas
+    public <T> T executarIsolada(Operacao<T> operacao) {
+        synchronized (travaIsolada) {
+            if (fechado) {
+                throw new IllegalStateException("Pool de conexões já foi fechado");
+            }
+            Conexao conexao;
+            try {
+                if (conexaoIsolada == null || conexaoIsolada.conexao.isClosed()) {
+                    if (conexaoIsolada != null) {
+                        conexaoIsolada.fechar();
+                    }
+                    conexaoIsolada = abrirConexao();
+                }
+                conexao = conexaoIsolada;
+            } catch (SQLException e) {
+                conexaoIsolada = null;
+                throw new IllegalStateException("Falha no banco: " + e.getMessage(), e);
+            }
+            try {
+                T resultado = operacao.executar(conexao);
+                conexao.conexao.commit();
+                return resultado;
+            } catch (SQLException e) {
+                desfazer(conexao);
+                throw new IllegalStateException("Falha no banco: " + e.getMessage(), e);
+            } catch (RuntimeException | Error e) {
+                desfazer(conexao);
+                throw e;
+            }
+        }
+    }
+
+    public long getEmprestimos() {
+        return emprestimos.sum();
+    }
+
+    //Quantas vezes uma thread teve de esperar por uma conexão livre
+    public long getEsperas() {
+        return esperas.sum();
+    }
+
+    public long getStatementsReaproveitados() {
+        return statementsReaproveitados.sum();
+    }
+
+    public long getStatementsPreparados() {
+        return statementsPreparados.sum();
+    }
+
+    public int getTamanho() {
+        return todas.size();
+    }
+
+    @Override
+    public void close() {
+        if (fechado) {
+            return;
+        }
+        fechado = true;
+        fecharTodas();
+        synchronized (travaIsolada) {
+            if (conexaoIsolada != null) {
+                conexaoIsolada.fechar();
+                conexaoIsolada = null;
+            }
+        }
+    }
+
+    private Conexao emprestar() {
+        if (fechado) {
+            throw new IllegalStateException("Pool de conexões já foi fechado");
+        }
+        Conexao conexao = livres.poll();
+        if (conexao == null) {
+            esperas.increment();
+            try {
+                conexao = livres.poll(esperaMaximaMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrompido esperando uma conexão do pool", e);
+            }
+            if (conexao == null) {
+                throw new IllegalStateException("Nenhuma conexão livre após " + esperaMaximaMs + " ms");
+            }
+        }
+        emprestimos.increment();
+        return conexao;
+    }
+
+    //Uma conexão que o driver fechou (ex.: erro fatal) é trocada por uma nova antes de voltar ao pool
+    private void devolver(Conexao conexao) {
+        Conexao devolvida = conexao;
+        try {
+            if (conexao.conexao.isClosed()) {
+                conexao.fechar();
+                devolvida = abrirConexao();
+                synchronized (todas) {
+                    todas.set(todas.indexOf(conexao), devolvida);
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Erro ao repor uma conexão do pool: " + e.getMessage());
+        }
+        livres.add(devolvida);
+    }
+
+    private void desfazer(Conexao conexao) {
+        try {
+            conexao.conexao.rollback();
+        } catch (SQLException e) {
+            System.out.println("Erro ao desfazer transação: " + e.getMessage());
+        }
+    }
+
+    private Conexao abrirConexao() throws SQLException {
+        Connection conexao = DriverManager.getConnection(url);
+        conexao.setAutoCommit(false);
+        return new Conexao(conexao, statementsPorConexao);
+    }
+
+    private void fecharTodas() {
+        synchronized (todas) {
+            for (Conexao conexao : todas) {
+                conexao.fechar();
+            }
+        }
+    }
+
+    //Conexão do pool com seu cache de statements. Só é usada pela thread que a emprestou.
+    public final class Conexao {
+        private final Connection conexao;
+        private final LinkedHashMap<String, PreparedStatement> statements;
+
+        private Conexao(Connection conexao, int capacidade) {
+            this.conexao = conexao;
+            //Ordem de acesso: o mais antigo é o menos usado recentemente, fechado ao sair do cache
+            this.statements = new LinkedHashMap<>(capacidade * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> maisAntigo) {
+                    if (size() <= capacidade) {
+                        return false;
+                    }
+                    fecharStatement(maisAntigo.getValue());
+                    return true;
+                }
+            };
+        }
+
+        //Statement do cache (com os parâmetros limpos) ou recém-preparado. Não deve ser fechado por quem usa.
+        public PreparedStatement preparar(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement != null && !statement.isClosed()) {
+                statementsReaproveitados.increment();
+                statement.clearParameters();
+                return statement;
+            }
+            statementsPreparados.increment();
+            statement = conexao.prepareStatement(sql);
+            statements.put(sql, statement);
+            return statement;
+        }
+
+        public Connection getConnection() {
+            return conexao;
+        }
+
+        private void fechar() {
+            statements.values().forEach(PoolConexoes::fecharStatement);
+            statements.clear();
+            try {
+                conexao.close();
+            } catch (SQLException e) {
+                System.out.println("Erro ao fechar conexão: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void fecharStatement(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.out.println("Erro ao fechar statement: " + e.getMessage());
+        }
+    }
+}
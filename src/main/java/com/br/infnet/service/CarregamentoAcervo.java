@@ -0,0 +1,139 @@
+package com.br.infnet.service;
+
+import com.br.infnet.repository.implementations.LivroRepositoryImpl;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Carga do catálogo em segundo plano: o servidor HTTP aceita conexões antes de o acervo estar pronto, e o
+//andamento fica disponível para a rota de prontidão e para as respostas 503 com Retry-After. Uma carga que
+//falha fica em FALHOU, sem nova tentativa.
+public class CarregamentoAcervo implements LivroRepositoryImpl.ProgressoCarga {
+    public enum Etapa {
+        AGUARDANDO, VALIDANDO, INDEXANDO, PRONTO, FALHOU;
+
+        public String getParametro() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final int ESPERA_PADRAO_SEGUNDOS = 5;
+    private static final int ESPERA_MAXIMA_SEGUNDOS = 60;
+
+    private final LivroRepositoryImpl repositorio;
+    private final int threads;
+    private final int tamanhoBloco;
+    private final AtomicInteger linhasValidadas = new AtomicInteger();
+    private volatile Etapa etapa;
+    private volatile int totalLinhas;
+    private volatile long inicioNanos;
+    private volatile long duracaoMillis;
+    private volatile String erro;
+
+    public CarregamentoAcervo(LivroRepositoryImpl repositorio, int threads, int tamanhoBloco) {
+        if (threads < 1 || tamanhoBloco < 1) {
+            throw new IllegalArgumentException("Threads e tamanho do bloco devem ser positivos");
+        }
+        this.repositorio = repositorio;
+        this.threads = threads;
+        this.tamanhoBloco = tamanhoBloco;
+        this.etapa = Etapa.AGUARDANDO;
+    }
+
+    //Para os modos de inicialização síncronos: o acervo já está carregado quando o servidor sobe
+    public static CarregamentoAcervo concluido() {
+        CarregamentoAcervo carregamento = new CarregamentoAcervo(null, 1, 1);
+        carregamento.etapa = Etapa.PRONTO;
+        return carregamento;
+    }
+
+    public synchronized void iniciar() {
+        if (etapa != Etapa.AGUARDANDO) {
+            throw new IllegalStateException("Carga do acervo já iniciada");
+        }
+        etapa = Etapa.VALIDANDO;
+        inicioNanos = System.nanoTime();
+        Thread carga = new Thread(this::carregar, "carga-acervo");
+        carga.setDaemon(true);
+        carga.start();
+    }
+
+    private void carregar() {
+        AtomicInteger numeroThread = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, tarefa -> {
+            Thread thread = new Thread(tarefa, "carga-acervo-" + numeroThread.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            repositorio.carregarCatalogoEmParalelo(executor, tamanhoBloco, this);
+            duracaoMillis = (System.nanoTime() - inicioNanos) / 1_000_000;
+            etapa = Etapa.PRONTO;
+            System.out.println("Acervo carregado em segundo plano: " + repositorio.listarLivros().size()
+                    + " livros em " + duracaoMillis + " ms");
+        } catch (Throwable e) {
+            //Inclusive Error (ex.: falta de memória ao indexar): a etapa nunca pode ficar presa em andamento
+            erro = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            etapa = Etapa.FALHOU;
+            System.out.println("Falha ao carregar o acervo: " + erro);
+            if (e instanceof Error grave) {
+                throw grave;
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public void linhasLidas(int total) {
+        totalLinhas = total;
+    }
+
+    @Override
+    public void linhasValidadas(int quantidade) {
+        linhasValidadas.addAndGet(quantidade);
+    }
+
+    @Override
+    public void indexando() {
+        etapa = Etapa.INDEXANDO;
+    }
+
+    public boolean isPronto() {
+        return etapa == Etapa.PRONTO;
+    }
+
+    //A carga não será retomada: não adianta o cliente tentar de novo
+    public boolean isFalhou() {
+        return etapa == Etapa.FALHOU;
+    }
+
+    public Etapa getEtapa() {
+        return etapa;
+    }
+
+    public int getLinhasValidadas() {
+        return linhasValidadas.get();
+    }
+
+    public int getTotalLinhas() {
+        return totalLinhas;
+    }
+
+    public String getErro() {
+        return erro;
+    }
+
+    //Estimativa para o cabeçalho Retry-After, pelo ritmo da validação até agora
+    public int segundosParaNovaTentativa() {
+        int validadas = linhasValidadas.get();
+        if (etapa != Etapa.VALIDANDO || validadas == 0) {
+            return ESPERA_PADRAO_SEGUNDOS;
+        }
+        double segundosPorLinha = (System.nanoTime() - inicioNanos) / 1e9 / validadas;
+        long restante = (long) Math.ceil(segundosPorLinha * Math.max(0, totalLinhas - validadas)) + 1;
+        return (int) Math.min(ESPERA_MAXIMA_SEGUNDOS, restante);
+    }
+}
@@ -2,6 +2,7 @@ package com.br.infnet.service;
 
 import com.br.infnet.model.Emprestimo;
 import com.br.infnet.model.Livro;
+import com.br.infnet.repository.historico.HistoricoEmprestimos;
 import com.br.infnet.repository.interfaces.iEmprestimoRepository;
 import com.br.infnet.repository.interfaces.iLivroRepository;
 
@@ -13,10 +14,18 @@ import java.util.NoSuchElementException;
 public class EmprestimoService {
     private final iEmprestimoRepository emprestimoRepository;
     private final iLivroRepository livroRepository;
+    //Opcional: sem histórico, a devolução só remove o empréstimo ativo
+    private final HistoricoEmprestimos historico;
 
     public EmprestimoService(iEmprestimoRepository emprestimoRepository, iLivroRepository livroRepository) {
+        this(emprestimoRepository, livroRepository, null);
+    }
+
+    public EmprestimoService(iEmprestimoRepository emprestimoRepository, iLivroRepository livroRepository,
+                             HistoricoEmprestimos historico) {
         this.emprestimoRepository = emprestimoRepository;
         this.livroRepository = livroRepository;
+        this.historico = historico;
     }
 
     public Livro obterLivroPorId(int livroId) {
@@ -63,9 +72,28 @@ public class EmprestimoService {
         double multa = calcularMulta(livroId);
         if (multa > 0) {
             livro.setMulta(multa);
+            livroRepository.atualizarLivro(livro);
             throw new MultaPendenteException("Pendente pagamento de multa no valor de R$ " + String.format("%.2f", multa));
         }
+        emprestimo.setDataEfetivaDevolucao(LocalDate.now());
         emprestimoRepository.removerEmprestimo(emprestimo);
+        //Depois de remover: uma queda entre as duas etapas perde o registro no histórico, mas nunca deixa no
+        //histórico uma devolução que não aconteceu
+        if (historico != null) {
+            historico.arquivar(emprestimo);
+        }
+    }
+
+    public boolean isHistoricoHabilitado() {
+        return historico != null;
+    }
+
+    public List<Emprestimo> listarHistoricoPorPeriodo(LocalDate de, LocalDate ate) {
+        return exigirHistorico().listarPorPeriodo(de, ate);
+    }
+
+    public List<Emprestimo> listarHistoricoDoLivro(int livroId, LocalDate de, LocalDate ate) {
+        return exigirHistorico().listarPorLivro(livroId, de, ate);
     }
 
     public double calcularMulta(int livroId) {
@@ -77,6 +105,13 @@ public class EmprestimoService {
         return CalculadoraMulta.calcular(diasAtraso);
     }
 
+    private HistoricoEmprestimos exigirHistorico() {
+        if (historico == null) {
+            throw new IllegalStateException("Histórico de empréstimos não está habilitado");
+        }
+        return historico;
+    }
+
     private void validarPrazoEmprestimo(int prazo) {
         if (prazo <= 0) {
             throw new IllegalArgumentException("Prazo de devolução deve ser positivo");
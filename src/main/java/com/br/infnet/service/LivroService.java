@@ -1,11 +1,18 @@
 package com.br.infnet.service;
 
+import com.br.infnet.model.CursorOrdenacao;
 import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.model.Pagina;
 import com.br.infnet.security.SecurityConfig;
 import com.br.infnet.repository.interfaces.iLivroRepository;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class LivroService {
+    public static final int LIMITE_PAGINA_PADRAO = 100;
+    public static final int LIMITE_PAGINA_MAXIMO = 500;
+
     private final iLivroRepository livroRepository;
 
     public LivroService(iLivroRepository livroRepository) {
@@ -48,6 +55,18 @@ public class LivroService {
         return livroRepository.listarLivrosPorAutor(autor);
     }
 
+    public Pagina<Livro> buscarLivroPorTituloNoAcervo(String titulo, int cursor, int limite) {
+        validarTermoBusca(titulo, "Título");
+        validarPaginacao(cursor, limite);
+        return montarPagina(livroRepository.listarLivrosPorTituloAPartirDe(titulo, cursor, limite + 1), cursor, limite);
+    }
+
+    public Pagina<Livro> buscarLivroPorAutorNoAcervo(String autor, int cursor, int limite) {
+        validarTermoBusca(autor, "Autor");
+        validarPaginacao(cursor, limite);
+        return montarPagina(livroRepository.listarLivrosPorAutorAPartirDe(autor, cursor, limite + 1), cursor, limite);
+    }
+
     public void atualizarLivroDoAcervo(int id, String titulo, String autor, String isbn) {
         Livro livro = livroRepository.buscarLivroPorId(id);
 
@@ -74,6 +93,12 @@ public class LivroService {
         livroRepository.atualizarLivro(livroAtualizado);
     }
 
+    //Persiste alterações feitas diretamente no objeto (ex.: estado de empréstimo), já que nem todo
+    //repositório devolve a mesma instância que armazena
+    public void salvarEstadoDoLivro(Livro livro) {
+        livroRepository.atualizarLivro(livro);
+    }
+
     public void removerLivroDoAcervo(int id) {
         Livro livro = livroRepository.buscarLivroPorId(id);
 
@@ -91,6 +116,49 @@ public class LivroService {
         return livroRepository.listarLivros();
     }
 
+    public Pagina<Livro> listarLivrosDoAcervo(int cursor, int limite) {
+        return listarLivrosDoAcervo(cursor, null, limite, OrdemListagem.ID);
+    }
+
+    //Ordens por título ou autor percorrem os índices ordenados do repositório e retomam depois do texto e do id
+    //do último livro da página anterior; fora da primeira página, textoCursor é obrigatório nessas ordens
+    public Pagina<Livro> listarLivrosDoAcervo(int cursor, String textoCursor, int limite, OrdemListagem ordem) {
+        validarPaginacao(cursor, limite);
+        if (ordem == null) {
+            throw new IllegalArgumentException("Ordenação inválida");
+        }
+        if (ordem == OrdemListagem.ID) {
+            return montarPagina(livroRepository.listarLivrosAPartirDe(cursor, limite + 1), cursor, limite);
+        }
+        if (cursor > 0 && textoCursor == null) {
+            throw new IllegalArgumentException("Cursor de paginação inválido");
+        }
+        CursorOrdenacao posicao = cursor > 0 ? new CursorOrdenacao(textoCursor, cursor) : null;
+        return montarPagina(livroRepository.listarLivrosOrdenadosAPartirDe(ordem, posicao, limite + 1), cursor, limite);
+    }
+
+    public void percorrerLivrosDoAcervo(Consumer<Livro> acao) {
+        livroRepository.paraCadaLivro(livro -> true, acao);
+    }
+
+    //O repositório é consultado com limite + 1 para saber se existe próxima página sem uma consulta extra
+    private Pagina<Livro> montarPagina(List<Livro> livros, int cursor, int limite) {
+        if (livros.size() <= limite) {
+            return new Pagina<>(livros, cursor, limite, null);
+        }
+        List<Livro> itens = livros.subList(0, limite);
+        return new Pagina<>(itens, cursor, limite, itens.getLast().getId());
+    }
+
+    private void validarPaginacao(int cursor, int limite) {
+        if (cursor < 0) {
+            throw new IllegalArgumentException("Cursor de paginação inválido");
+        }
+        if (limite < 1 || limite > LIMITE_PAGINA_MAXIMO) {
+            throw new IllegalArgumentException("Tamanho de página deve estar entre 1 e " + LIMITE_PAGINA_MAXIMO);
+        }
+    }
+
     private void validarLivro(Livro livro) {
         if (livro == null) {
             throw new IllegalArgumentException("Livro não pode ser nulo");
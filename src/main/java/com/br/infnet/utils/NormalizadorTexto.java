@@ -0,0 +1,35 @@
+package com.br.infnet.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public class NormalizadorTexto {
+    private static final Pattern PADRAO_DIACRITICOS = Pattern.compile("\\p{M}+");
+
+    private NormalizadorTexto() {
+        // Previne instanciação
+    }
+
+    //Chave de busca: minúsculas, decomposição NFD e remoção dos acentos ("João" -> "joao")
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        String minusculo = texto.toLowerCase(Locale.ROOT);
+        if (isAsciiSimples(minusculo)) {
+            return minusculo;
+        }
+        String decomposto = Normalizer.normalize(minusculo, Normalizer.Form.NFD);
+        return PADRAO_DIACRITICOS.matcher(decomposto).replaceAll("");
+    }
+
+    private static boolean isAsciiSimples(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
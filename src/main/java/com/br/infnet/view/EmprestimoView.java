@@ -4,6 +4,7 @@ import com.br.infnet.model.Emprestimo;
 import com.br.infnet.model.Livro;
 import com.br.infnet.service.EmprestimoService;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public class EmprestimoView {
@@ -47,6 +48,55 @@ public class EmprestimoView {
         return html.toString();
     }
 
+    public static String renderHistorico(List<Emprestimo> emprestimos, LocalDate de, LocalDate ate, Integer livroId) {
+        StringBuilder html = new StringBuilder();
+        html.append(getHeader("Histórico de Empréstimos"));
+        html.append("<div class='container'>");
+        html.append("<h1>Histórico de Empréstimos</h1>");
+        html.append("<a href='/emprestimos' class='btn'>Voltar aos Empréstimos</a>");
+
+        html.append("<form method='get' action='/emprestimos/historico'>");
+        html.append("<div class='form-group'>");
+        html.append("<label for='de'>Devolvidos de:</label>");
+        html.append("<input type='date' id='de' name='de' value='").append(de).append("'>");
+        html.append("</div>");
+        html.append("<div class='form-group'>");
+        html.append("<label for='ate'>Até:</label>");
+        html.append("<input type='date' id='ate' name='ate' value='").append(ate).append("'>");
+        html.append("</div>");
+        html.append("<div class='form-group'>");
+        html.append("<label for='livroId'>ID do livro (opcional):</label>");
+        html.append("<input type='number' id='livroId' name='livroId' value='").append(livroId != null ? livroId : "").append("'>");
+        html.append("</div>");
+        html.append("<div class='form-actions'>");
+        html.append("<button type='submit' class='btn'>Consultar</button>");
+        html.append("</div>");
+        html.append("</form>");
+
+        if (emprestimos.isEmpty()) {
+            html.append("<p>Nenhum empréstimo devolvido no período.</p>");
+        } else {
+            html.append("<p>").append(emprestimos.size()).append(" empréstimo(s) devolvido(s).</p>");
+            html.append("<table class='table'>");
+            html.append("<tr><th>ID</th><th>Livro</th><th>Data Empréstimo</th><th>Prazo</th><th>Data Estimada</th><th>Data Devolução</th><th>Multa</th></tr>");
+            for (Emprestimo emprestimo : emprestimos) {
+                html.append("<tr>");
+                html.append("<td>").append(emprestimo.getId()).append("</td>");
+                html.append("<td>").append(emprestimo.getLivroId()).append("</td>");
+                html.append("<td>").append(emprestimo.getDataEmprestimo()).append("</td>");
+                html.append("<td>").append(emprestimo.getPrazoDevolucao()).append(" dias</td>");
+                html.append("<td>").append(emprestimo.getDataEstimadaDevolucao()).append("</td>");
+                html.append("<td>").append(emprestimo.getDataEfetivaDevolucao()).append("</td>");
+                html.append("<td>").append(String.format("R$ %.2f", emprestimo.getMulta())).append("</td>");
+                html.append("</tr>");
+            }
+            html.append("</table>");
+        }
+        html.append("</div>");
+        html.append(getFooter());
+        return html.toString();
+    }
+
     public static String renderFormEmprestimo(Livro livro) {
         return renderFormEmprestimo(livro, null);
     }
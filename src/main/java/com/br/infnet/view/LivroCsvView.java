@@ -0,0 +1,40 @@
+package com.br.infnet.view;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.service.LivroService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+public class LivroCsvView {
+
+    //Escreve o acervo direto no Writer, livro a livro, no mesmo formato do CSV de carga inicial
+    public static void writeAcervo(Writer writer, LivroService service) throws IOException {
+        writer.write("titulo,autor,isbn\n");
+        try {
+            service.percorrerLivrosDoAcervo(livro -> writeLinha(writer, livro));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void writeLinha(Writer writer, Livro livro) {
+        try {
+            writeCampo(writer, livro.getTitulo());
+            writer.write(',');
+            writeCampo(writer, livro.getAutor());
+            writer.write(',');
+            writeCampo(writer, livro.getIsbn());
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCampo(Writer writer, String valor) throws IOException {
+        writer.write('"');
+        writer.write(valor.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
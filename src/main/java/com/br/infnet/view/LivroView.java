@@ -1,14 +1,28 @@
 package com.br.infnet.view;
 
+import com.br.infnet.model.CursorOrdenacao;
 import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.model.Pagina;
 import com.br.infnet.service.LivroService;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
 public class LivroView {
 
     public static String renderList(List<Livro> livros) {
+        return renderList(new Pagina<>(livros, 0, livros.size(), null));
+    }
+
+    public static String renderList(Pagina<Livro> pagina) {
+        return renderList(pagina, OrdemListagem.ID);
+    }
+
+    public static String renderList(Pagina<Livro> pagina, OrdemListagem ordem) {
+        List<Livro> livros = pagina.itens();
         StringBuilder html = new StringBuilder();
         html.append(getHeader("Livros do Acervo"));
         html.append("<div class='container'>");
@@ -17,13 +31,18 @@ public class LivroView {
         html.append("<a href='/livros/novo' class='btn'>Cadastrar novo livro</a>");
         html.append("<a href='/emprestimos' class='btn'>Empréstimos</a>");
         html.append("<a href='/buscar' class='btn'>Buscar</a>");
+        html.append("<a href='/livros/exportar' class='btn btn-secondary'>Exportar CSV</a>");
         html.append("</nav>");
 
         if (livros.isEmpty()) {
             html.append("<p>Nenhum livro cadastrado.</p>");
         } else {
             html.append("<table class='table'>");
-            html.append("<tr><th>ID</th><th>Título</th><th>Autor</th><th>ISBN</th><th>Status</th><th>Ações</th></tr>");
+            html.append("<tr>");
+            appendCabecalhoOrdenavel(html, "ID", OrdemListagem.ID, ordem);
+            appendCabecalhoOrdenavel(html, "Título", OrdemListagem.TITULO, ordem);
+            appendCabecalhoOrdenavel(html, "Autor", OrdemListagem.AUTOR, ordem);
+            html.append("<th>ISBN</th><th>Status</th><th>Ações</th></tr>");
             for (Livro livro : livros) {
                 html.append("<tr>");
                 html.append("<td>").append(livro.getId()).append("</td>");
@@ -46,6 +65,14 @@ public class LivroView {
             }
             html.append("</table>");
         }
+        if (ordem == OrdemListagem.ID) {
+            appendNavegacaoPaginas(html, pagina, "/livros?");
+        } else {
+            //O próximo cursor leva também o texto do último livro, que posiciona a página seguinte no índice
+            String proximoTexto = pagina.temProxima() ? CursorOrdenacao.doLivro(livros.getLast(), ordem).texto() : "";
+            appendNavegacaoPaginas(html, pagina, "/livros?orderBy=" + ordem.getParametro() + "&",
+                    "&cursorTexto=" + codificarUrl(proximoTexto));
+        }
 
         html.append("</div>");
         html.append(getFooter());
@@ -94,6 +121,10 @@ public class LivroView {
     }
 
     public static String renderBusca(String tipo, String termo, LivroService service) {
+        return renderBusca(tipo, termo, service, 0, LivroService.LIMITE_PAGINA_PADRAO);
+    }
+
+    public static String renderBusca(String tipo, String termo, LivroService service, int cursor, int limite) {
         StringBuilder html = new StringBuilder();
         html.append(getHeader("Buscar Livros"));
         html.append("<div class='container'>");
@@ -123,12 +154,13 @@ public class LivroView {
 
         if (tipo != null && termo != null && !termo.trim().isEmpty()) {
             try {
-                List<Livro> resultados = switch (tipo) {
-                    case "titulo" -> service.buscarLivroPorTituloNoAcervo(termo);
-                    case "autor" -> service.buscarLivroPorAutorNoAcervo(termo);
-                    case "id" -> List.of(service.buscarLivroPorIDNoAcervo(Integer.parseInt(termo)));
-                    default -> List.of();
+                Pagina<Livro> pagina = switch (tipo) {
+                    case "titulo" -> service.buscarLivroPorTituloNoAcervo(termo, cursor, limite);
+                    case "autor" -> service.buscarLivroPorAutorNoAcervo(termo, cursor, limite);
+                    case "id" -> new Pagina<>(List.of(service.buscarLivroPorIDNoAcervo(Integer.parseInt(termo))), 0, 1, null);
+                    default -> new Pagina<>(List.of(), 0, limite, null);
                 };
+                List<Livro> resultados = pagina.itens();
 
                 html.append("<h2>Resultados:</h2>");
                 if (resultados.isEmpty()) {
@@ -147,6 +179,7 @@ public class LivroView {
                     }
                     html.append("</table>");
                 }
+                appendNavegacaoPaginas(html, pagina, "/buscar?tipo=" + codificarUrl(tipo) + "&termo=" + codificarUrl(termo) + "&");
             } catch (Exception e) {
                 html.append("<div class='error'>Erro na busca: ").append(e.getMessage()).append("</div>");
             }
@@ -181,6 +214,41 @@ public class LivroView {
     }
 
 
+    //A coluna da ordem atual aparece sem link; mudar a ordem volta para a primeira página
+    private static void appendCabecalhoOrdenavel(StringBuilder html, String titulo, OrdemListagem coluna, OrdemListagem atual) {
+        if (coluna == atual) {
+            html.append("<th>").append(titulo).append("</th>");
+        } else {
+            html.append("<th><a href='/livros?orderBy=").append(coluna.getParametro()).append("'>")
+                    .append(titulo).append("</a></th>");
+        }
+    }
+
+    //Paginação por cursor: só é possível avançar ou voltar ao início
+    private static void appendNavegacaoPaginas(StringBuilder html, Pagina<Livro> pagina, String urlBase) {
+        appendNavegacaoPaginas(html, pagina, urlBase, "");
+    }
+
+    private static void appendNavegacaoPaginas(StringBuilder html, Pagina<Livro> pagina, String urlBase, String complementoProxima) {
+        if (pagina.isPrimeira() && !pagina.temProxima()) {
+            return;
+        }
+        html.append("<div class='actions'>");
+        if (!pagina.isPrimeira()) {
+            html.append("<a href='").append(urlBase).append("cursor=0&limite=").append(pagina.limite())
+                    .append("' class='btn btn-secondary'>Primeira página</a>");
+        }
+        if (pagina.temProxima()) {
+            html.append("<a href='").append(urlBase).append("cursor=").append(pagina.proximoCursor())
+                    .append(complementoProxima).append("&limite=").append(pagina.limite()).append("' class='btn'>Próxima página</a>");
+        }
+        html.append("</div>");
+    }
+
+    private static String codificarUrl(String valor) {
+        return URLEncoder.encode(valor, StandardCharsets.UTF_8);
+    }
+
     public static String escapeHtml(String input) {
         if (input == null) return "";
         return input.replace("&", "&amp;")
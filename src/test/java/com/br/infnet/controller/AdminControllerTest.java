@@ -0,0 +1,42 @@
+package com.br.infnet.controller;
+
+import com.br.infnet.repository.implementations.BibliotecaDuravel;
+import io.javalin.Javalin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AdminControllerTest {
+
+    @Mock
+    private Javalin app;
+
+    @Mock
+    private BibliotecaDuravel biblioteca;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @DisplayName("Deve registrar as rotas de instantâneo e de cópia de segurança")
+    void testRegistroRotas() {
+        new AdminController(app, biblioteca, "segredo");
+
+        verify(app).post(eq("/admin/instantaneo"), any());
+        verify(app).post(eq("/admin/backup"), any());
+    }
+
+    @Test
+    @DisplayName("Deve exigir um token administrativo")
+    void testTokenObrigatorio() {
+        assertThrows(IllegalArgumentException.class, () -> new AdminController(app, biblioteca, " "));
+        verifyNoInteractions(app);
+    }
+}
@@ -53,6 +53,7 @@ class LivroControllerTest {
 
         verify(app).get(eq("/livros"), any());
         verify(app).get(eq("/"), any());
+        verify(app).get(eq("/livros/exportar"), any());
         verify(app).get(eq("/livros/novo"), any());
         verify(app).post(eq("/livros"), any());
         verify(app).get(eq("/livros/{id}/editar"), any());
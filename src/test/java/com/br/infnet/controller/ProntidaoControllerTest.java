@@ -0,0 +1,57 @@
+package com.br.infnet.controller;
+
+import com.br.infnet.repository.implementations.LivroRepositoryImpl;
+import com.br.infnet.service.CarregamentoAcervo;
+import io.javalin.Javalin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProntidaoControllerTest {
+
+    @Mock
+    private Javalin app;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @DisplayName("Deve registrar a rota de prontidão e o filtro das demais rotas")
+    void testRegistroRotas() {
+        new ProntidaoController(app, CarregamentoAcervo.concluido());
+
+        verify(app).get(eq("/ready"), any());
+        verify(app).before(any());
+    }
+
+    @Test
+    @DisplayName("Todas as rotas, menos a de prontidão, dependem do acervo")
+    void testDependeDoAcervo() {
+        assertTrue(ProntidaoController.dependeDoAcervo("/livros"));
+        assertTrue(ProntidaoController.dependeDoAcervo("/livros/3/editar"));
+        assertTrue(ProntidaoController.dependeDoAcervo("/emprestimos"));
+        assertTrue(ProntidaoController.dependeDoAcervo("/buscar"));
+        assertTrue(ProntidaoController.dependeDoAcervo("/admin/backup"));
+        assertTrue(ProntidaoController.dependeDoAcervo("/"));
+        assertFalse(ProntidaoController.dependeDoAcervo("/ready"));
+    }
+
+    @Test
+    @DisplayName("Deve descrever o andamento da carga em JSON")
+    void testDescrever() {
+        String pronto = ProntidaoController.descrever(CarregamentoAcervo.concluido());
+        String aguardando = ProntidaoController.descrever(
+                new CarregamentoAcervo(new LivroRepositoryImpl(false), 1, 100));
+
+        assertTrue(pronto.startsWith("{\"pronto\":true,\"etapa\":\"pronto\""));
+        assertTrue(aguardando.contains("\"pronto\":false"));
+        assertTrue(aguardando.contains("\"etapa\":\"aguardando\""));
+    }
+}
@@ -0,0 +1,50 @@
+package com.br.infnet.repository.armazenamento;
+
+import com.br.infnet.model.Livro;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do CodificadorLivro")
+class CodificadorLivroTest {
+
+    @Test
+    @DisplayName("Deve codificar e decodificar todos os campos do livro")
+    void testIdaEVolta() {
+        Livro livro = new Livro(42, "Memórias Póstumas", "Machado de Assis", "0788535909739");
+        livro.setDisponivel(false);
+        livro.setDataEmprestimo(LocalDate.of(2024, 3, 1));
+        livro.setDataEstimadaDevolucao(LocalDate.of(2024, 3, 8));
+        livro.setPrazoDevolucao(7);
+        livro.setMulta(1.5);
+
+        byte[] registro = CodificadorLivro.codificar(livro);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(registro.length + 10);
+        buffer.put(10, registro);
+        Livro lido = CodificadorLivro.decodificar(buffer, 10);
+
+        assertEquals(registro.length, CodificadorLivro.tamanhoRegistro(buffer, 10));
+        assertEquals(42, lido.getId());
+        assertEquals("Memórias Póstumas", lido.getTitulo());
+        assertEquals("Machado de Assis", lido.getAutor());
+        assertEquals("0788535909739", lido.getIsbn());
+        assertEquals("memorias postumas", lido.getTituloNormalizado());
+        assertFalse(lido.isDisponivel());
+        assertEquals(LocalDate.of(2024, 3, 1), lido.getDataEmprestimo());
+        assertEquals(LocalDate.of(2024, 3, 8), lido.getDataEstimadaDevolucao());
+        assertNull(lido.getDataEfetivaDevolucao());
+        assertEquals(7, lido.getPrazoDevolucao());
+        assertEquals(1.5, lido.getMulta());
+    }
+
+    @Test
+    @DisplayName("Deve exigir ISBN com 13 dígitos")
+    void testIsbnInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> CodificadorLivro.converterISBN("97885359097391"));
+        assertFalse(CodificadorLivro.isbnNumerico("978853590973X"));
+    }
+}
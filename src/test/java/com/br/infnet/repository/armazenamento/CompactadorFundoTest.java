@@ -0,0 +1,83 @@
+package com.br.infnet.repository.armazenamento;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do CompactadorFundo")
+class CompactadorFundoTest {
+
+    //Tarefa com "passos" passos de 1 KB cada, que só começa depois de liberada
+    private static class TarefaContada implements CompactadorFundo.Tarefa {
+        final AtomicInteger restantes = new AtomicInteger();
+        final AtomicLong ultimoPasso = new AtomicLong();
+
+        @Override
+        public CompactadorFundo.Passo passo(boolean forcado) {
+            if (restantes.get() == 0) {
+                return null;
+            }
+            restantes.decrementAndGet();
+            ultimoPasso.set(System.nanoTime());
+            return new CompactadorFundo.Passo(1024, 512);
+        }
+
+        @Override
+        public long pendencia() {
+            return restantes.get() * 512L;
+        }
+    }
+
+    @Test
+    @DisplayName("A thread de fundo não deve passar da taxa configurada")
+    void testLimiteDeTaxa() throws InterruptedException {
+        TarefaContada tarefa = new TarefaContada();
+        //20 KB/s: 10 passos de 1 KB levam ao menos meio segundo
+        try (CompactadorFundo compactador = new CompactadorFundo("teste", tarefa, 20 * 1024, 60_000)) {
+            tarefa.restantes.set(10);
+            long inicio = System.nanoTime();
+            compactador.avisar();
+            long limite = System.currentTimeMillis() + 5_000;
+            while (tarefa.restantes.get() > 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(5);
+            }
+            assertEquals(0, tarefa.restantes.get());
+            long decorridoMs = (tarefa.ultimoPasso.get() - inicio) / 1_000_000;
+            assertTrue(decorridoMs >= 400, "decorrido: " + decorridoMs + " ms");
+            while (compactador.getMetricas().rodadas() == 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(5);
+            }
+            CompactadorFundo.Metricas metricas = compactador.getMetricas();
+            assertEquals(1, metricas.rodadas());
+            assertEquals(10, metricas.passos());
+            assertEquals(10 * 512, metricas.bytesRecuperados());
+            assertEquals(0, metricas.pendenciaBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("compactar() deve rodar tudo na thread de quem chama, sem limite de taxa")
+    void testCompactarSemLimite() {
+        TarefaContada tarefa = new TarefaContada();
+        try (CompactadorFundo compactador = new CompactadorFundo("teste", tarefa, 1, 60_000)) {
+            tarefa.restantes.set(100);
+            long inicio = System.nanoTime();
+            assertEquals(100 * 512, compactador.compactar());
+            assertTrue(System.nanoTime() - inicio < 1_000_000_000L);
+            assertEquals(100, compactador.getMetricas().passos());
+            assertEquals(0, compactador.compactar());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar taxa ou intervalo não positivos")
+    void testParametrosInvalidos() {
+        TarefaContada tarefa = new TarefaContada();
+        assertThrows(IllegalArgumentException.class, () -> new CompactadorFundo("teste", tarefa, 0, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> new CompactadorFundo("teste", tarefa, 1_024, 0));
+    }
+}
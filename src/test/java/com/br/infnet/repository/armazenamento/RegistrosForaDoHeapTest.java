@@ -0,0 +1,108 @@
+package com.br.infnet.repository.armazenamento;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do RegistrosForaDoHeap")
+class RegistrosForaDoHeapTest {
+
+    private RegistrosForaDoHeap registros;
+
+    @BeforeEach
+    void setUp() {
+        //Registros de teste: tamanho total no primeiro int, seguido de um valor
+        registros = new RegistrosForaDoHeap(1024, (bloco, posicao) -> bloco.getInt(posicao));
+    }
+
+    @Test
+    @DisplayName("Versão que cabe no lugar da atual deve ser regravada sem gerar bytes obsoletos")
+    void testRegravarNoLugar() {
+        registros.gravar(1, registro(64, 10));
+        long reservados = registros.bytesReservados();
+
+        for (int i = 0; i < 1_000; i++) {
+            registros.gravar(1, registro(64, i));
+        }
+
+        assertEquals(999, valor(1));
+        assertEquals(0, registros.bytesObsoletos());
+        assertEquals(64, registros.bytesVivos());
+        assertEquals(reservados, registros.bytesReservados());
+
+        registros.gravar(1, registro(48, 7));
+        assertEquals(7, valor(1));
+        assertEquals(48, registros.bytesVivos());
+        assertEquals(16, registros.bytesObsoletos());
+    }
+
+    @Test
+    @DisplayName("Bloco sem registros vivos deve voltar para a lista de livres e ser reaproveitado")
+    void testReaproveitarBlocoVazio() {
+        for (int id = 1; id <= 16; id++) {
+            registros.gravar(id, registro(64, id));
+        }
+        for (int id = 17; id <= 32; id++) {
+            registros.gravar(id, registro(64, id));
+        }
+        long reservados = registros.bytesReservados();
+        for (int id = 1; id <= 16; id++) {
+            registros.remover(id);
+        }
+        assertEquals(1, registros.blocosLivres());
+        assertEquals(0, registros.bytesObsoletos());
+
+        //O bloco de escrita está cheio: o próximo registro vai para o bloco liberado
+        registros.gravar(33, registro(64, 33));
+        assertEquals(0, registros.blocosLivres());
+        assertEquals(reservados, registros.bytesReservados());
+        assertEquals(33, valor(33));
+        assertEquals(17, valor(17));
+    }
+
+    @Test
+    @DisplayName("Passo de compactação deve esvaziar o bloco mais fragmentado mantendo os registros vivos")
+    void testPassoCompactacao() {
+        for (int id = 1; id <= 32; id++) {
+            registros.gravar(id, registro(64, id));
+        }
+        for (int id = 1; id <= 16; id += 4) {
+            registros.remover(id);
+            registros.remover(id + 1);
+            registros.remover(id + 2);
+        }
+        long vivos = registros.bytesVivos();
+        assertEquals(12 * 64, registros.bytesObsoletos());
+
+        //Menos de um bloco obsoleto: só uma compactação forçada começa
+        assertNull(registros.passoCompactacao(false));
+        CompactadorFundo.Passo passo = registros.passoCompactacao(true);
+
+        assertEquals(1024, passo.bytesRecuperados());
+        assertTrue(passo.bytesProcessados() >= 4 * 64);
+        assertEquals(vivos, registros.bytesVivos());
+        assertEquals(0, registros.bytesObsoletos());
+        assertEquals(1, registros.blocosLivres());
+        assertNull(registros.passoCompactacao(true));
+        for (int id = 4; id <= 16; id += 4) {
+            assertEquals(id, valor(id));
+        }
+        for (int id = 17; id <= 32; id++) {
+            assertEquals(id, valor(id));
+        }
+        assertNull(registros.ler(1, (bloco, posicao) -> posicao));
+        assertEquals(20, registros.quantidade());
+    }
+
+    private byte[] registro(int tamanho, int valor) {
+        return ByteBuffer.allocate(tamanho).putInt(tamanho).putInt(valor).array();
+    }
+
+    private int valor(int id) {
+        return registros.ler(id, (bloco, posicao) -> bloco.getInt(posicao + 4));
+    }
+}
@@ -0,0 +1,101 @@
+package com.br.infnet.repository.estruturas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do DicionarioTextos")
+class DicionarioTextosTest {
+
+    private DicionarioTextos dicionario;
+
+    @BeforeEach
+    void setUp() {
+        dicionario = new DicionarioTextos();
+    }
+
+    @Test
+    @DisplayName("Textos iguais devem compartilhar a mesma instância e o mesmo código")
+    void testCanonizar() {
+        String primeiro = new String("Machado de Assis");
+        String segundo = new String("Machado de Assis");
+        assertNotSame(primeiro, segundo);
+
+        assertSame(primeiro, dicionario.canonizar(primeiro));
+        assertSame(primeiro, dicionario.canonizar(segundo));
+        assertEquals(dicionario.codigo(primeiro), dicionario.codigo(segundo));
+        assertNotEquals(dicionario.codigo(primeiro), dicionario.codigo("Clarice Lispector"));
+        assertEquals(2, dicionario.tamanho());
+        assertNull(dicionario.canonizar(null));
+        assertThrows(IllegalArgumentException.class, () -> dicionario.codigo(null));
+    }
+
+    @Test
+    @DisplayName("codigoExistente não deve cadastrar textos novos")
+    void testCodigoExistente() {
+        assertEquals(DicionarioTextos.AUSENTE, dicionario.codigoExistente("Jorge Amado"));
+        assertEquals(0, dicionario.tamanho());
+        String autor = dicionario.canonizar("Jorge Amado");
+        assertEquals(dicionario.codigo(autor), dicionario.codigoExistente(new String("Jorge Amado")));
+        assertEquals(DicionarioTextos.AUSENTE, dicionario.codigoExistente(null));
+    }
+
+    @Test
+    @DisplayName("Textos sem referências fortes devem sair do dicionário após a coleta")
+    void testReferenciasFracas() throws InterruptedException {
+        List<String> mantidos = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            String texto = dicionario.canonizar("autor " + i);
+            if (i % 10 == 0) {
+                mantidos.add(texto);
+            }
+        }
+        int codigoMantido = dicionario.codigo(mantidos.get(5));
+
+        for (int tentativa = 0; tentativa < 50 && dicionario.tamanho() > mantidos.size(); tentativa++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(mantidos.size(), dicionario.tamanho());
+        assertSame(mantidos.get(5), dicionario.canonizar(new String("autor 50")));
+        assertEquals(codigoMantido, dicionario.codigo("autor 50"));
+        //Um texto coletado e visto de novo recebe um código novo
+        assertTrue(dicionario.codigo("autor 51") >= 1_000);
+    }
+
+    @Test
+    @DisplayName("Threads concorrentes devem receber a mesma instância canônica")
+    void testConcorrencia() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String[]>> tarefas = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                tarefas.add(executor.submit(() -> {
+                    String[] canonicos = new String[500];
+                    for (int i = 0; i < canonicos.length; i++) {
+                        canonicos[i] = dicionario.canonizar(new String("autor " + i));
+                    }
+                    return canonicos;
+                }));
+            }
+            String[] referencia = tarefas.get(0).get();
+            for (Future<String[]> tarefa : tarefas) {
+                String[] canonicos = tarefa.get();
+                for (int i = 0; i < canonicos.length; i++) {
+                    assertSame(referencia[i], canonicos[i]);
+                }
+            }
+            assertEquals(500, dicionario.tamanho());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
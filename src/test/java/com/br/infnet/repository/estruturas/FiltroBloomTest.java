@@ -0,0 +1,63 @@
+package com.br.infnet.repository.estruturas;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do FiltroBloom")
+class FiltroBloomTest {
+
+    @Test
+    @DisplayName("Não deve ter falsos negativos e deve manter falsos positivos perto de 1%")
+    void testTaxaDeFalsosPositivos() {
+        int chaves = 100_000;
+        FiltroBloom filtro = new FiltroBloom(chaves);
+        for (int id = 1; id <= chaves; id++) {
+            filtro.adicionar(id);
+        }
+
+        for (int id = 1; id <= chaves; id++) {
+            assertTrue(filtro.talvezContenha(id));
+        }
+        int falsosPositivos = 0;
+        for (long isbn = 9_780_000_000_000L; isbn < 9_780_000_000_000L + chaves; isbn++) {
+            if (filtro.talvezContenha(isbn)) {
+                falsosPositivos++;
+            }
+        }
+        assertTrue(falsosPositivos < chaves * 0.02, "Falsos positivos: " + falsosPositivos);
+    }
+
+    @Test
+    @DisplayName("Deve responder igual depois de gravado e lido de um buffer")
+    void testGravarELer() throws IOException {
+        FiltroBloom filtro = new FiltroBloom(1_000);
+        for (long chave = 0; chave < 1_000; chave++) {
+            filtro.adicionar(chave * 7919);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[5]);
+        filtro.gravar(new DataOutputStream(bytes));
+
+        FiltroBloom lido = FiltroBloom.ler(ByteBuffer.wrap(bytes.toByteArray()), 5);
+
+        assertEquals(filtro.bytesEstimados(), lido.bytesEstimados());
+        for (long chave = 0; chave < 10_000; chave++) {
+            assertEquals(filtro.talvezContenha(chave), lido.talvezContenha(chave));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar parâmetros inválidos")
+    void testParametrosInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(10, 0, 7));
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(10, 10, 0));
+        assertFalse(new FiltroBloom(0).talvezContenha(42));
+    }
+}
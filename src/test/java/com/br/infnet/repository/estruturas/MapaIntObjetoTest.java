@@ -0,0 +1,178 @@
+package com.br.infnet.repository.estruturas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do MapaIntObjeto")
+class MapaIntObjetoTest {
+
+    private static final int ENTRADAS_BENCHMARK = 1_000_000;
+
+    private MapaIntObjeto<String> mapa;
+
+    @BeforeEach
+    void setUp() {
+        mapa = new MapaIntObjeto<>();
+    }
+
+    @Test
+    @DisplayName("Deve inserir, buscar, substituir e remover valores")
+    void testOperacoesBasicas() {
+        assertNull(mapa.put(1, "um"));
+        assertEquals("um", mapa.put(1, "UM"));
+        assertEquals("UM", mapa.putIfAbsent(1, "outro"));
+        assertEquals("UM", mapa.get(1));
+        assertNull(mapa.get(2));
+
+        assertEquals("UM", mapa.remove(1));
+        assertNull(mapa.get(1));
+        assertTrue(mapa.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve remover condicionalmente")
+    void testRemoverSe() {
+        mapa.put(7, "sete");
+
+        assertFalse(mapa.removerSe(7, "oito"::equals));
+        assertTrue(mapa.removerSe(7, "sete"::equals));
+        assertFalse(mapa.containsKey(7));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar valor nulo")
+    void testValorNulo() {
+        assertThrows(IllegalArgumentException.class, () -> mapa.put(1, null));
+    }
+
+    @Test
+    @DisplayName("Deve se comportar como HashMap em operações aleatórias")
+    void testEquivalenciaComHashMap() {
+        MapaIntObjeto<String> pequeno = new MapaIntObjeto<>(1);
+        Map<Integer, String> referencia = new HashMap<>();
+        Random aleatorio = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            int chave = aleatorio.nextInt(5_000) - 100;
+            switch (aleatorio.nextInt(3)) {
+                case 0 -> assertEquals(referencia.put(chave, "v" + i), pequeno.put(chave, "v" + i));
+                case 1 -> assertEquals(referencia.remove(chave), pequeno.remove(chave));
+                default -> assertEquals(referencia.get(chave), pequeno.get(chave));
+            }
+        }
+        assertEquals(referencia.size(), pequeno.size());
+        assertEquals(new HashSet<>(referencia.values()), new HashSet<>(pequeno.valores()));
+    }
+
+    @Test
+    @DisplayName("Escritas e leituras concorrentes devem manter todas as entradas")
+    void testAcessoConcorrente() throws Exception {
+        int threads = 8;
+        int porThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * porThread;
+            tarefas.add(executor.submit(() -> {
+                for (int i = base; i < base + porThread; i++) {
+                    mapa.put(i, "v" + i);
+                    assertEquals("v" + i, mapa.get(i));
+                }
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+        //get() relança aqui as falhas de asserção das threads do pool
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+
+        assertEquals(threads * porThread, mapa.size());
+        for (int i = 0; i < threads * porThread; i += 997) {
+            assertEquals("v" + i, mapa.get(i));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Comparação de memória e vazão com HashMap em 10^6 entradas")
+    void benchmarkComparacaoHashMap() {
+        String[] valores = new String[ENTRADAS_BENCHMARK];
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] = "livro-" + i;
+        }
+
+        long antes = memoriaUsada();
+        Map<Integer, String> hashMap = new HashMap<>();
+        for (int i = 0; i < valores.length; i++) {
+            hashMap.put(i, valores[i]);
+        }
+        long bytesHashMap = memoriaUsada() - antes;
+
+        antes = memoriaUsada();
+        MapaIntObjeto<String> primitivo = new MapaIntObjeto<>();
+        for (int i = 0; i < valores.length; i++) {
+            primitivo.put(i, valores[i]);
+        }
+        long bytesPrimitivo = memoriaUsada() - antes;
+
+        long nsHashMap = medirBuscas(id -> hashMap.get(id));
+        long nsPrimitivo = medirBuscas(primitivo::get);
+
+        System.out.printf("HashMap<Integer, V>: %,d bytes (%.1f B/entrada), %,d buscas/s%n",
+                bytesHashMap, (double) bytesHashMap / ENTRADAS_BENCHMARK, buscasPorSegundo(nsHashMap));
+        System.out.printf("MapaIntObjeto<V>:    %,d bytes (%.1f B/entrada), %,d buscas/s%n",
+                bytesPrimitivo, (double) bytesPrimitivo / ENTRADAS_BENCHMARK, buscasPorSegundo(nsPrimitivo));
+
+        assertEquals(hashMap.size(), primitivo.size());
+        assertTrue(bytesPrimitivo < bytesHashMap);
+    }
+
+    private long medirBuscas(IntFunction<String> busca) {
+        Random aleatorio = new Random(7);
+        int[] chaves = aleatorio.ints(ENTRADAS_BENCHMARK, 0, ENTRADAS_BENCHMARK).toArray();
+        int encontrados = 0;
+        for (int rodada = 0; rodada < 3; rodada++) {
+            for (int chave : chaves) {
+                encontrados += busca.apply(chave) != null ? 1 : 0;
+            }
+        }
+        long inicio = System.nanoTime();
+        for (int chave : chaves) {
+            encontrados += busca.apply(chave) != null ? 1 : 0;
+        }
+        long duracao = System.nanoTime() - inicio;
+        assertTrue(encontrados > 0);
+        return duracao;
+    }
+
+    private long buscasPorSegundo(long nanos) {
+        return ENTRADAS_BENCHMARK * 1_000_000_000L / Math.max(1, nanos);
+    }
+
+    private long memoriaUsada() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,55 @@
+package com.br.infnet.repository.estruturas;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do MapaLongInt")
+class MapaLongIntTest {
+
+    @Test
+    @DisplayName("Deve inserir, substituir e remover valores")
+    void testOperacoesBasicas() {
+        MapaLongInt mapa = new MapaLongInt();
+
+        assertEquals(MapaLongInt.AUSENTE, mapa.put(9788535909739L, 1));
+        assertEquals(1, mapa.put(9788535909739L, 2));
+        assertEquals(2, mapa.get(9788535909739L));
+        assertEquals(2, mapa.remove(9788535909739L));
+        assertFalse(mapa.containsKey(9788535909739L));
+        assertTrue(mapa.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar o valor reservado")
+    void testValorReservado() {
+        assertThrows(IllegalArgumentException.class, () -> new MapaLongInt().put(1L, MapaLongInt.AUSENTE));
+    }
+
+    @Test
+    @DisplayName("Deve se comportar como HashMap em operações aleatórias")
+    void testEquivalenciaComHashMap() {
+        MapaLongInt mapa = new MapaLongInt();
+        Map<Long, Integer> referencia = new HashMap<>();
+        Random aleatorio = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            long chave = aleatorio.nextInt(5_000) - 100L;
+            switch (aleatorio.nextInt(3)) {
+                case 0 -> assertEquals(valorOuAusente(referencia.put(chave, i)), mapa.put(chave, i));
+                case 1 -> assertEquals(valorOuAusente(referencia.remove(chave)), mapa.remove(chave));
+                default -> assertEquals(valorOuAusente(referencia.get(chave)), mapa.get(chave));
+            }
+        }
+        assertEquals(referencia.size(), mapa.size());
+    }
+
+    private int valorOuAusente(Integer valor) {
+        return valor == null ? MapaLongInt.AUSENTE : valor;
+    }
+}
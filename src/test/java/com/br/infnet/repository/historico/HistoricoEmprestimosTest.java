@@ -0,0 +1,240 @@
+package com.br.infnet.repository.historico;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.repository.persistencia.PoliticaDurabilidade;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do HistoricoEmprestimos")
+class HistoricoEmprestimosTest {
+
+    private static final LocalDate INICIO = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path diretorio;
+
+    private static Emprestimo devolvido(int id, int livroId, LocalDate devolucao, int prazo, double multa) {
+        LocalDate dataEmprestimo = devolucao.minusDays(prazo + (multa > 0 ? 3 : 0));
+        Emprestimo emprestimo = new Emprestimo(id, livroId, dataEmprestimo, dataEmprestimo.plusDays(prazo), prazo, multa);
+        emprestimo.setDataEfetivaDevolucao(devolucao);
+        return emprestimo;
+    }
+
+    private static void assertMesmoEmprestimo(Emprestimo esperado, Emprestimo obtido) {
+        assertEquals(esperado.getId(), obtido.getId());
+        assertEquals(esperado.getLivroId(), obtido.getLivroId());
+        assertEquals(esperado.getDataEmprestimo(), obtido.getDataEmprestimo());
+        assertEquals(esperado.getDataEstimadaDevolucao(), obtido.getDataEstimadaDevolucao());
+        assertEquals(esperado.getDataEfetivaDevolucao(), obtido.getDataEfetivaDevolucao());
+        assertEquals(esperado.getPrazoDevolucao(), obtido.getPrazoDevolucao());
+        assertEquals(esperado.getMulta(), obtido.getMulta());
+    }
+
+    @Test
+    @DisplayName("Deve devolver os empréstimos arquivados em vários meses, antes e depois de gravar os blocos")
+    void testIdaEVolta() throws IOException {
+        List<Emprestimo> arquivados = new ArrayList<>();
+        try (HistoricoEmprestimos historico = new HistoricoEmprestimos(diretorio, PoliticaDurabilidade.LOTE, 16)) {
+            for (int i = 1; i <= 100; i++) {
+                Emprestimo emprestimo = devolvido(i, i % 7, INICIO.plusDays(i), 7 + i % 5, i % 10 == 0 ? 4.5 : 0);
+                historico.arquivar(emprestimo);
+                arquivados.add(emprestimo);
+            }
+            assertEquals(4, historico.getPendentes());
+            List<Emprestimo> todos = historico.listarPorPeriodo(INICIO, INICIO.plusDays(200));
+            assertEquals(arquivados.size(), todos.size());
+            for (int i = 0; i < todos.size(); i++) {
+                assertMesmoEmprestimo(arquivados.get(i), todos.get(i));
+            }
+        }
+
+        try (HistoricoEmprestimos historico = HistoricoEmprestimos.abrir(diretorio, PoliticaDurabilidade.LOTE)) {
+            assertEquals(0, historico.getPendentes());
+            List<Emprestimo> fevereiro = historico.listarPorPeriodo(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29));
+            assertEquals(29, fevereiro.size());
+            assertMesmoEmprestimo(arquivados.get(30), fevereiro.get(0));
+            assertEquals(4.5, fevereiro.stream().filter(e -> e.getId() == 40).findFirst().orElseThrow().getMulta());
+        }
+    }
+
+    @Test
+    @DisplayName("Consulta por período deve pular meses e blocos fora do intervalo")
+    void testPodaPorPeriodo() throws IOException {
+        try (HistoricoEmprestimos historico = new HistoricoEmprestimos(diretorio, PoliticaDurabilidade.PERIODICA, 10)) {
+            for (int i = 1; i <= 365; i++) {
+                historico.arquivar(devolvido(i, i, INICIO.plusDays(i - 1), 7, 0));
+            }
+            historico.descarregar();
+
+            List<Emprestimo> semana = historico.listarPorPeriodo(LocalDate.of(2024, 3, 4), LocalDate.of(2024, 3, 10));
+            assertEquals(7, semana.size());
+            assertEquals(LocalDate.of(2024, 3, 4), semana.get(0).getDataEfetivaDevolucao());
+            //Só os blocos de março são considerados, e só os que cobrem a semana são lidos
+            assertTrue(historico.getBlocosLidos() <= 2, "lidos: " + historico.getBlocosLidos());
+            assertTrue(historico.getBlocosPulados() >= 1);
+        }
+    }
+
+    @Test
+    @DisplayName("Consulta por livro deve usar o filtro de Bloom para pular blocos")
+    void testPodaPorLivro() throws IOException {
+        try (HistoricoEmprestimos historico = new HistoricoEmprestimos(diretorio, PoliticaDurabilidade.PERIODICA, 50)) {
+            for (int i = 1; i <= 1_000; i++) {
+                //O livro 5000 só aparece num bloco
+                int livroId = i == 777 ? 5_000 : i % 300;
+                historico.arquivar(devolvido(i, livroId, INICIO.plusDays(i / 50), 7, 0));
+            }
+            historico.descarregar();
+
+            List<Emprestimo> doLivro = historico.listarPorLivro(5_000);
+            assertEquals(1, doLivro.size());
+            assertEquals(777, doLivro.get(0).getId());
+            assertTrue(historico.getBlocosLidos() <= 2, "lidos: " + historico.getBlocosLidos());
+            assertTrue(historico.getBlocosPulados() >= 18);
+
+            assertEquals(2, historico.listarPorLivro(10, INICIO, INICIO.plusDays(10)).size());
+            assertThrows(IllegalArgumentException.class, () -> historico.listarPorLivro(10, INICIO, INICIO.minusDays(1)));
+        }
+    }
+
+    @Test
+    @DisplayName("Pendentes devem sobreviver à reabertura sem fechamento e sem duplicar o que já virou bloco")
+    void testRecuperacaoSemDuplicar() throws IOException {
+        HistoricoEmprestimos historico = new HistoricoEmprestimos(diretorio, PoliticaDurabilidade.POR_OPERACAO, 100);
+        for (int i = 1; i <= 5; i++) {
+            historico.arquivar(devolvido(i, i, INICIO.plusDays(i), 7, 0));
+        }
+        //Simula a queda entre gravar o bloco e esvaziar o log: guarda o log, grava o bloco e o restaura
+        Path pendentes = diretorio.resolve(HistoricoEmprestimos.ARQUIVO_PENDENTES);
+        byte[] log = Files.readAllBytes(pendentes);
+        historico.close();
+        Files.write(pendentes, log);
+
+        try (HistoricoEmprestimos reaberto = new HistoricoEmprestimos(diretorio, PoliticaDurabilidade.POR_OPERACAO, 100)) {
+            assertEquals(0, reaberto.getPendentes());
+            reaberto.arquivar(devolvido(6, 6, INICIO.plusDays(6), 7, 0));
+            assertEquals(6, reaberto.listarPorPeriodo(INICIO, INICIO.plusDays(10)).size());
+        }
+
+        //Sem fechar: os pendentes vêm do log
+        HistoricoEmprestimos semFechar = new HistoricoEmprestimos(diretorio, PoliticaDurabilidade.POR_OPERACAO, 100);
+        semFechar.arquivar(devolvido(7, 7, INICIO.plusDays(7), 7, 0));
+        try (HistoricoEmprestimos reaberto = new HistoricoEmprestimos(diretorio, PoliticaDurabilidade.POR_OPERACAO, 100)) {
+            assertEquals(1, reaberto.getPendentes());
+            assertEquals(7, reaberto.listarPorPeriodo(INICIO, INICIO.plusDays(10)).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Pendente com o mesmo id de um empréstimo já gravado, mas de outro livro ou data, não deve ser descartado")
+    void testRecuperacaoComIdRepetido() throws IOException {
+        HistoricoEmprestimos semFechar = new HistoricoEmprestimos(diretorio, PoliticaDurabilidade.POR_OPERACAO, 2);
+        semFechar.arquivar(devolvido(1, 10, INICIO.plusDays(1), 7, 0));
+        semFechar.arquivar(devolvido(2, 20, INICIO.plusDays(2), 7, 0));
+        //Depois de uma reinicialização, os ids de empréstimos recomeçam: mesmo id, outro empréstimo
+        semFechar.arquivar(devolvido(1, 30, INICIO.plusDays(3), 7, 0));
+        //Sem fechar: o terceiro fica só no log de pendentes
+        try (HistoricoEmprestimos reaberto = new HistoricoEmprestimos(diretorio, PoliticaDurabilidade.POR_OPERACAO, 2)) {
+            assertEquals(1, reaberto.getPendentes());
+            List<Emprestimo> todos = reaberto.listarPorPeriodo(INICIO, INICIO.plusDays(10));
+            assertEquals(3, todos.size());
+            assertEquals(30, todos.get(2).getLivroId());
+        }
+    }
+
+    @Test
+    @DisplayName("Bloco incompleto no fim do segmento deve ser descartado na abertura")
+    void testFimRasgado() throws IOException {
+        try (HistoricoEmprestimos historico = new HistoricoEmprestimos(diretorio, PoliticaDurabilidade.LOTE, 10)) {
+            for (int i = 1; i <= 20; i++) {
+                historico.arquivar(devolvido(i, i, INICIO.plusDays(i), 7, 0));
+            }
+        }
+        Path segmento = diretorio.resolve("2024-01.hist");
+        try (RandomAccessFile arquivo = new RandomAccessFile(segmento.toFile(), "rw")) {
+            arquivo.setLength(arquivo.length() - 5);
+        }
+
+        try (HistoricoEmprestimos historico = new HistoricoEmprestimos(diretorio, PoliticaDurabilidade.LOTE, 10)) {
+            List<Emprestimo> restantes = historico.listarPorPeriodo(INICIO, INICIO.plusDays(30));
+            assertEquals(10, restantes.size());
+            assertEquals(10, restantes.get(restantes.size() - 1).getId());
+            historico.arquivar(devolvido(21, 21, INICIO.plusDays(21), 7, 0));
+            historico.descarregar();
+            assertEquals(11, historico.listarPorPeriodo(INICIO, INICIO.plusDays(30)).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar empréstimo sem data de devolução")
+    void testSemDevolucao() throws IOException {
+        try (HistoricoEmprestimos historico = HistoricoEmprestimos.abrir(diretorio, PoliticaDurabilidade.LOTE)) {
+            Emprestimo ativo = new Emprestimo(1, 1, INICIO, INICIO.plusDays(7), 7, 0);
+            assertThrows(IllegalArgumentException.class, () -> historico.arquivar(ativo));
+            assertEquals(0, historico.getPendentes());
+        }
+    }
+
+    @Test
+    @DisplayName("Registros compactados devem ocupar bem menos que o registro fixo de 36 bytes")
+    void testCompactacao() throws IOException {
+        int quantidade = 20_000;
+        Random aleatorio = new Random(3);
+        try (HistoricoEmprestimos historico = HistoricoEmprestimos.abrir(diretorio, PoliticaDurabilidade.PERIODICA)) {
+            for (int i = 1; i <= quantidade; i++) {
+                int prazo = 7 + aleatorio.nextInt(3) * 7;
+                double multa = aleatorio.nextInt(10) == 0 ? 0.5 * (1 + aleatorio.nextInt(20)) : 0;
+                historico.arquivar(devolvido(i, 1 + aleatorio.nextInt(5_000), INICIO.plusDays(i / 200), prazo, multa));
+            }
+            historico.descarregar();
+            double bytesPorRegistro = (double) historico.tamanhoEmBytes() / quantidade;
+            assertTrue(bytesPorRegistro < 12, "bytes por registro: " + bytesPorRegistro);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Benchmark: consultas sobre um ano de histórico")
+    void benchmarkConsultas() throws IOException {
+        int quantidade = 1_000_000;
+        Random aleatorio = new Random(11);
+        try (HistoricoEmprestimos historico = HistoricoEmprestimos.abrir(diretorio, PoliticaDurabilidade.PERIODICA)) {
+            long inicio = System.nanoTime();
+            for (int i = 1; i <= quantidade; i++) {
+                historico.arquivar(devolvido(i, 1 + aleatorio.nextInt(100_000), INICIO.plusDays(i * 365L / quantidade),
+                        7 + aleatorio.nextInt(3) * 7, aleatorio.nextInt(10) == 0 ? 2.5 : 0));
+            }
+            historico.descarregar();
+            long arquivarMs = (System.nanoTime() - inicio) / 1_000_000;
+
+            inicio = System.nanoTime();
+            int semana = historico.listarPorPeriodo(LocalDate.of(2024, 6, 3), LocalDate.of(2024, 6, 9)).size();
+            long semanaMicros = (System.nanoTime() - inicio) / 1_000;
+
+            inicio = System.nanoTime();
+            int doLivro = historico.listarPorLivro(4_242).size();
+            long livroMicros = (System.nanoTime() - inicio) / 1_000;
+
+            System.out.printf("Arquivar %d: %d ms, %.1f MB (%.2f bytes/empréstimo)%n", quantidade, arquivarMs,
+                    historico.tamanhoEmBytes() / 1e6, (double) historico.tamanhoEmBytes() / quantidade);
+            System.out.printf("Semana: %d empréstimos em %d µs; livro: %d empréstimos em %d µs%n",
+                    semana, semanaMicros, doLivro, livroMicros);
+            System.out.printf("Blocos lidos: %d, pulados: %d%n", historico.getBlocosLidos(), historico.getBlocosPulados());
+        }
+    }
+}
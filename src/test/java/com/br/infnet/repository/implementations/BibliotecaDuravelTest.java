@@ -0,0 +1,313 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.model.Livro;
+import com.br.infnet.repository.persistencia.ArquivoInstantaneo;
+import com.br.infnet.repository.persistencia.CopiaSeguranca;
+import com.br.infnet.repository.persistencia.PoliticaDurabilidade;
+import com.br.infnet.service.EmprestimoService;
+import com.br.infnet.service.LivroService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes da BibliotecaDuravel")
+class BibliotecaDuravelTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Instantâneo deve esvaziar os logs e restaurar o estado completo")
+    void testInstantaneoEsvaziaLogs() throws IOException {
+        int idNovo;
+        try (BibliotecaDuravel biblioteca = abrir()) {
+            biblioteca.getLivros().salvarLivro(new Livro(0, "Grande Sertão", "Guimarães Rosa", "9790000000001"));
+            idNovo = biblioteca.getLivros().buscarLivroPorISBN("9790000000001").getId();
+            new EmprestimoService(biblioteca.getEmprestimos(), biblioteca.getLivros()).emprestarLivro(idNovo, 7);
+            biblioteca.getLivros().removerLivro(1);
+
+            ArquivoInstantaneo.Resumo resumo = biblioteca.gravarInstantaneo();
+
+            assertEquals(biblioteca.getLivros().listarLivros().size(), resumo.livros());
+            assertEquals(1, resumo.emprestimos());
+            assertEquals(0, Files.size(diretorio.resolve(BibliotecaDuravel.ARQUIVO_LOG_LIVROS)));
+            assertEquals(0, Files.size(diretorio.resolve(BibliotecaDuravel.ARQUIVO_LOG_EMPRESTIMOS)));
+        }
+
+        try (BibliotecaDuravel biblioteca = abrir()) {
+            assertNull(biblioteca.getLivros().buscarLivroPorId(1));
+            assertFalse(biblioteca.getLivros().buscarLivroPorId(idNovo).isDisponivel());
+            assertNotNull(biblioteca.getEmprestimos().buscarLivroPorId(idNovo));
+            assertEquals(1, biblioteca.getLivros().listarLivrosPorTitulo("sertao").size());
+
+            biblioteca.getLivros().salvarLivro(new Livro(0, "Vidas Secas", "Graciliano Ramos", "9790000000002"));
+            assertTrue(biblioteca.getLivros().buscarLivroPorISBN("9790000000002").getId() > idNovo);
+        }
+    }
+
+    @Test
+    @DisplayName("Escritas após o instantâneo devem ser recuperadas do log mesmo sem fechamento limpo")
+    void testQuedaAposInstantaneo() throws IOException {
+        BibliotecaDuravel biblioteca = abrir();
+        biblioteca.gravarInstantaneo();
+        biblioteca.getLivros().salvarLivro(new Livro(0, "Depois da Cópia", "Autora", "9790000000003"));
+        new EmprestimoService(biblioteca.getEmprestimos(), biblioteca.getLivros()).emprestarLivro(2, 7);
+        //Sem close: simula a queda do processo
+
+        try (BibliotecaDuravel reaberta = abrir()) {
+            assertTrue(reaberta.getLivros().existeISBN("9790000000003"));
+            assertFalse(reaberta.getLivros().buscarLivroPorId(2).isDisponivel());
+            assertEquals(1, reaberta.getEmprestimos().listarEmprestimos().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Queda entre o log de empréstimos e o do acervo não deve travar o livro")
+    void testQuedaEntreLogsReconciliaLivros() throws IOException {
+        BibliotecaDuravel biblioteca = abrir();
+        EmprestimoService servico = new EmprestimoService(biblioteca.getEmprestimos(), biblioteca.getLivros());
+        servico.emprestarLivro(3, 7);
+        //Só o registro do empréstimo (ou da devolução) chega ao disco; o estado do livro, não
+        biblioteca.getEmprestimos().gravarEmprestimo(new Emprestimo(99, 2, LocalDate.now(),
+                LocalDate.now().plusDays(7), 7, 0));
+        biblioteca.getEmprestimos().apagarEmprestimo(biblioteca.getEmprestimos().buscarLivroPorId(3));
+        assertTrue(biblioteca.getLivros().buscarLivroPorId(2).isDisponivel());
+        assertFalse(biblioteca.getLivros().buscarLivroPorId(3).isDisponivel());
+        //Sem close: simula a queda do processo
+
+        try (BibliotecaDuravel reaberta = abrir()) {
+            Livro emprestado = reaberta.getLivros().buscarLivroPorId(2);
+            assertFalse(emprestado.isDisponivel());
+            assertEquals(LocalDate.now().plusDays(7), emprestado.getDataEstimadaDevolucao());
+            assertTrue(reaberta.getLivros().buscarLivroPorId(3).isDisponivel());
+
+            EmprestimoService reabertoServico = new EmprestimoService(reaberta.getEmprestimos(), reaberta.getLivros());
+            assertDoesNotThrow(() -> reabertoServico.devolverLivro(2));
+            assertDoesNotThrow(() -> reabertoServico.emprestarLivro(3, 7));
+        }
+    }
+
+    @Test
+    @DisplayName("Fechamento limpo deve gravar o instantâneo e não semear o CSV de novo")
+    void testFechamentoGravaInstantaneo() throws IOException {
+        int quantidade;
+        try (BibliotecaDuravel biblioteca = abrir()) {
+            biblioteca.getLivros().removerLivro(1);
+            quantidade = biblioteca.getLivros().listarLivros().size();
+        }
+        assertTrue(Files.exists(diretorio.resolve(BibliotecaDuravel.ARQUIVO_INSTANTANEO)));
+
+        try (BibliotecaDuravel biblioteca = abrir()) {
+            assertEquals(quantidade, biblioteca.getLivros().listarLivros().size());
+            assertNull(biblioteca.getLivros().buscarLivroPorId(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Cópia de segurança deve restaurar o instantâneo e os logs até o momento da cópia")
+    void testCopiaSegurancaRestauraEstado() throws IOException {
+        CopiaSeguranca.Resumo resumo;
+        int idEmprestado;
+        try (BibliotecaDuravel biblioteca = abrir()) {
+            biblioteca.getLivros().removerLivro(1);
+            biblioteca.gravarInstantaneo();
+            biblioteca.getLivros().salvarLivro(new Livro(0, "Antes da Cópia", "Autora", "9790000000004"));
+            idEmprestado = biblioteca.getLivros().buscarLivroPorISBN("9790000000004").getId();
+            new EmprestimoService(biblioteca.getEmprestimos(), biblioteca.getLivros()).emprestarLivro(idEmprestado, 7);
+
+            resumo = biblioteca.gravarCopiaSeguranca();
+            biblioteca.getLivros().salvarLivro(new Livro(0, "Depois da Cópia", "Autora", "9790000000005"));
+        }
+        assertTrue(resumo.arquivo().startsWith(diretorio.resolve(BibliotecaDuravel.DIRETORIO_COPIAS)));
+        assertTrue(resumo.bytesCompactados() < resumo.bytesOriginais());
+
+        Path restaurado = diretorio.resolve("restaurado");
+        List<String> arquivos = CopiaSeguranca.restaurar(resumo.arquivo(), restaurado);
+        assertTrue(arquivos.contains(BibliotecaDuravel.ARQUIVO_INSTANTANEO));
+        try (BibliotecaDuravel biblioteca = BibliotecaDuravel.abrir(restaurado, PoliticaDurabilidade.POR_OPERACAO)) {
+            assertNull(biblioteca.getLivros().buscarLivroPorId(1));
+            assertFalse(biblioteca.getLivros().buscarLivroPorId(idEmprestado).isDisponivel());
+            assertNotNull(biblioteca.getEmprestimos().buscarLivroPorId(idEmprestado));
+            assertFalse(biblioteca.getLivros().existeISBN("9790000000005"));
+        }
+    }
+
+    @Test
+    @DisplayName("Cópia de segurança com escritas concorrentes deve capturar um estado que existiu de fato")
+    void testCopiaSegurancaComEscritasConcorrentes() throws Exception {
+        Path restaurado = diretorio.resolve("restaurado");
+        CopiaSeguranca.Resumo resumo;
+        try (BibliotecaDuravel biblioteca = BibliotecaDuravel.abrir(diretorio, PoliticaDurabilidade.LOTE)) {
+            EmprestimoService emprestimos = new EmprestimoService(biblioteca.getEmprestimos(), biblioteca.getLivros());
+            AtomicBoolean parar = new AtomicBoolean();
+            AtomicReference<Throwable> erro = new AtomicReference<>();
+            //Cada livro novo é emprestado logo em seguida: a cópia pode ter o último livro ainda sem o empréstimo,
+            //mas nunca um empréstimo sem o livro marcado como emprestado
+            Thread escritor = new Thread(() -> {
+                try {
+                    for (int i = 0; !parar.get(); i++) {
+                        String isbn = String.format("977%010d", i);
+                        biblioteca.getLivros().salvarLivro(new Livro(0, "Livro " + i, "Autor", isbn));
+                        emprestimos.emprestarLivro(biblioteca.getLivros().buscarLivroPorISBN(isbn).getId(), 7);
+                    }
+                } catch (Throwable e) {
+                    erro.set(e);
+                }
+            });
+            escritor.start();
+            while (biblioteca.getEmprestimos().listarEmprestimos().size() < 50 && escritor.isAlive()) {
+                Thread.sleep(1);
+            }
+            resumo = biblioteca.gravarCopiaSeguranca();
+            int depoisDaCopia = biblioteca.getEmprestimos().listarEmprestimos().size();
+            while (biblioteca.getEmprestimos().listarEmprestimos().size() < depoisDaCopia + 20 && escritor.isAlive()) {
+                Thread.sleep(1);
+            }
+            parar.set(true);
+            escritor.join();
+            assertNull(erro.get());
+        }
+
+        CopiaSeguranca.restaurar(resumo.arquivo(), restaurado);
+        try (BibliotecaDuravel biblioteca = BibliotecaDuravel.abrir(restaurado, PoliticaDurabilidade.POR_OPERACAO)) {
+            List<Livro> escritos = new ArrayList<>();
+            biblioteca.getLivros().paraCadaLivro(livro -> livro.getIsbn().startsWith("977"), escritos::add);
+            int[] indices = escritos.stream().mapToInt(livro -> Integer.parseInt(livro.getIsbn().substring(3)))
+                    .sorted().toArray();
+            assertTrue(indices.length >= 50);
+            for (int i = 0; i < indices.length; i++) {
+                assertEquals(i, indices[i], "A cópia deve conter um prefixo contínuo das escritas");
+            }
+            //Só o último livro pode ter sido copiado entre o cadastro e o empréstimo
+            long disponiveis = escritos.stream().filter(Livro::isDisponivel).count();
+            assertTrue(disponiveis <= 1);
+            assertEquals(indices.length - disponiveis, biblioteca.getEmprestimos().listarEmprestimos().size());
+            biblioteca.getEmprestimos().listarEmprestimos().forEach(emprestimo ->
+                    assertFalse(biblioteca.getLivros().buscarLivroPorId(emprestimo.getLivroId()).isDisponivel()));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Latência das escritas com e sem uma cópia de segurança em andamento")
+    void benchmarkLatenciaDuranteCopia() throws Exception {
+        try (BibliotecaDuravel biblioteca = BibliotecaDuravel.abrir(diretorio, PoliticaDurabilidade.PERIODICA)) {
+            biblioteca.getLivros().iniciarCargaEmLote();
+            for (int i = 0; i < 200_000; i++) {
+                biblioteca.getLivros().salvarLivro(new Livro(0, "Título do livro " + i, "Autor " + (i % 5_000),
+                        String.format("976%010d", i)));
+            }
+            biblioteca.getLivros().concluirCargaEmLote();
+
+            int[] medidas = {0};
+            long[] semCopia = medirEscritas(biblioteca, "974", () -> medidas[0]++ < 5_000);
+            AtomicReference<CopiaSeguranca.Resumo> resumo = new AtomicReference<>();
+            Thread copia = new Thread(() -> {
+                try {
+                    resumo.set(biblioteca.gravarCopiaSeguranca());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            copia.start();
+            long[] comCopia = medirEscritas(biblioteca, "975", copia::isAlive);
+            copia.join();
+
+            System.out.printf("Cópia: %d MB -> %d MB em %d ms, escritas suspensas por %d µs%n",
+                    resumo.get().bytesOriginais() / (1024 * 1024), resumo.get().bytesCompactados() / (1024 * 1024),
+                    resumo.get().duracaoMs(), resumo.get().pausaEscritasMicros());
+            System.out.printf("Escritas durante a cópia: %d%n", comCopia.length);
+            System.out.printf("Escrita sem cópia: p50 %d µs, p99 %d µs%n", semCopia[semCopia.length / 2] / 1_000,
+                    semCopia[semCopia.length * 99 / 100] / 1_000);
+            System.out.printf("Escrita com cópia: p50 %d µs, p99 %d µs%n", comCopia[comCopia.length / 2] / 1_000,
+                    comCopia[comCopia.length * 99 / 100] / 1_000);
+        }
+    }
+
+    private static long[] medirEscritas(BibliotecaDuravel biblioteca, String prefixoIsbn, BooleanSupplier continuar) {
+        List<Long> latencias = new ArrayList<>();
+        for (int i = 0; continuar.getAsBoolean() || latencias.isEmpty(); i++) {
+            long inicio = System.nanoTime();
+            biblioteca.getLivros().salvarLivro(new Livro(0, "Medição " + i, "Autor",
+                    prefixoIsbn + String.format("%010d", i)));
+            latencias.add(System.nanoTime() - inicio);
+        }
+        return latencias.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Inicialização a partir do instantâneo com 1M livros")
+    void benchmarkInicializacao() throws IOException {
+        int livros = 1_000_000;
+        try (BibliotecaDuravel biblioteca = BibliotecaDuravel.abrir(diretorio, PoliticaDurabilidade.PERIODICA)) {
+            biblioteca.getLivros().iniciarCargaEmLote();
+            for (int i = 0; i < livros; i++) {
+                biblioteca.getLivros().salvarLivro(new Livro(0, "Título do livro " + i, "Autor " + (i % 5_000),
+                        String.format("978%010d", i)));
+            }
+            biblioteca.getLivros().concluirCargaEmLote();
+        }
+        Path instantaneo = diretorio.resolve(BibliotecaDuravel.ARQUIVO_INSTANTANEO);
+        System.out.printf("Instantâneo: %d MB%n", Files.size(instantaneo) / (1024 * 1024));
+
+        long inicio = System.nanoTime();
+        int[] lidos = {0};
+        ArquivoInstantaneo.ler(instantaneo, livro -> lidos[0]++, emprestimo -> { });
+        System.out.printf("Leitura do instantâneo: %d ms%n", (System.nanoTime() - inicio) / 1_000_000);
+
+        inicio = System.nanoTime();
+        try (BibliotecaDuravel biblioteca = BibliotecaDuravel.abrir(diretorio, PoliticaDurabilidade.PERIODICA)) {
+            System.out.printf("Inicialização com reconstrução dos índices: %d ms%n",
+                    (System.nanoTime() - inicio) / 1_000_000);
+            assertEquals(lidos[0], biblioteca.getLivros().listarLivros().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Instantâneo e cópia de segurança devem incluir o que ainda está nas filas de escrita adiada")
+    void testCercaDescarregaEscritaAdiada() throws IOException {
+        try (BibliotecaDuravel biblioteca = abrir()) {
+            //Atraso longo: sem a descarga, nada chegaria à biblioteca durante o teste
+            try (LivroRepositoryEscritaAdiadaImpl livros = new LivroRepositoryEscritaAdiadaImpl(biblioteca.getLivros(),
+                    100, 100, 60_000, 5_000);
+                 EmprestimoRepositoryEscritaAdiadaImpl emprestimos = new EmprestimoRepositoryEscritaAdiadaImpl(
+                         biblioteca.getEmprestimos(), new LivroService(livros), 100, 100, 60_000, 5_000)) {
+                biblioteca.usarEscritaAdiada(emprestimos, livros);
+                new EmprestimoService(emprestimos, livros).emprestarLivro(2, 7);
+                assertTrue(biblioteca.getEmprestimos().listarEmprestimos().isEmpty());
+
+                ArquivoInstantaneo.Resumo resumo = biblioteca.gravarInstantaneo();
+
+                assertEquals(1, resumo.emprestimos());
+                assertFalse(biblioteca.getLivros().buscarLivroPorId(2).isDisponivel());
+
+                new EmprestimoService(emprestimos, livros).emprestarLivro(3, 7);
+                biblioteca.gravarCopiaSeguranca();
+                assertNotNull(biblioteca.getEmprestimos().buscarLivroPorId(3));
+                assertFalse(biblioteca.getLivros().buscarLivroPorId(3).isDisponivel());
+            }
+        }
+    }
+
+    private BibliotecaDuravel abrir() throws IOException {
+        return BibliotecaDuravel.abrir(diretorio, PoliticaDurabilidade.POR_OPERACAO);
+    }
+}
@@ -0,0 +1,43 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.service.LivroService;
+import com.br.infnet.view.LivroCsvView;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do CatalogoCSV")
+class CatalogoCSVTest {
+
+    @Test
+    @DisplayName("Aspas duplicadas dentro de um campo entre aspas devem virar uma aspa literal")
+    void testParseAspasEscapadas() {
+        assertArrayEquals(new String[]{"O \"Alienista\", conto", "Machado", "123"},
+                CatalogoCSV.parseCsvLine("\"O \"\"Alienista\"\", conto\",\"Machado\",\"123\""));
+        assertArrayEquals(new String[]{"", "a,b", "c"}, CatalogoCSV.parseCsvLine("\"\",\"a,b\",c"));
+    }
+
+    @Test
+    @DisplayName("O CSV exportado deve ser lido de volta com os mesmos campos")
+    void testIdaEVoltaExportacao() throws IOException {
+        LivroRepositoryImpl repositorio = new LivroRepositoryImpl(true);
+        repositorio.atualizarLivro(Livro.restaurar(repositorio.gerarProximoId(),
+                "Livro \"com\" aspas, e vírgula", "Autor \"\"", "9780000000001"));
+        StringWriter saida = new StringWriter();
+        LivroCsvView.writeAcervo(saida, new LivroService(repositorio));
+
+        String[] linhas = saida.toString().split("\n");
+        assertEquals("titulo,autor,isbn", linhas[0]);
+        assertEquals(repositorio.listarLivros().size(), linhas.length - 1);
+        for (int i = 1; i < linhas.length; i++) {
+            String[] campos = CatalogoCSV.parseCsvLine(linhas[i]);
+            Livro livro = repositorio.buscarLivroPorISBN(campos[2]);
+            assertArrayEquals(new String[]{livro.getTitulo(), livro.getAutor(), livro.getIsbn()}, campos);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.repository.persistencia.PoliticaDurabilidade;
+import com.br.infnet.service.LivroService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do EmprestimoRepositoryDuravelImpl")
+class EmprestimoRepositoryDuravelImplTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Empréstimos e devoluções devem sobreviver a reinícios junto com o estado dos livros")
+    void testReabrirRestauraEmprestimos() throws IOException {
+        LocalDate hoje = LocalDate.now();
+        int idEmprestimo;
+        try (LivroRepositoryDuravelImpl livros = abrirLivros();
+             EmprestimoRepositoryDuravelImpl emprestimos = abrirEmprestimos(livros)) {
+            emprestimos.realizarEmprestimo(new Emprestimo(0, 1, hoje, hoje.plusDays(7), 7, 0));
+            emprestimos.realizarEmprestimo(new Emprestimo(0, 2, hoje, hoje.plusDays(7), 7, 0));
+            emprestimos.removerEmprestimo(emprestimos.buscarLivroPorId(2));
+            idEmprestimo = emprestimos.buscarLivroPorId(1).getId();
+        }
+
+        try (LivroRepositoryDuravelImpl livros = abrirLivros();
+             EmprestimoRepositoryDuravelImpl emprestimos = abrirEmprestimos(livros)) {
+            assertEquals(1, emprestimos.listarEmprestimos().size());
+            Emprestimo restaurado = emprestimos.buscarLivroPorId(1);
+            assertEquals(idEmprestimo, restaurado.getId());
+            assertEquals(hoje.plusDays(7), restaurado.getDataEstimadaDevolucao());
+            assertNull(emprestimos.buscarLivroPorId(2));
+            assertFalse(livros.buscarLivroPorId(1).isDisponivel());
+            assertTrue(livros.buscarLivroPorId(2).isDisponivel());
+
+            assertThrows(IllegalStateException.class,
+                    () -> emprestimos.realizarEmprestimo(new Emprestimo(0, 1, hoje, hoje.plusDays(7), 7, 0)));
+            emprestimos.realizarEmprestimo(new Emprestimo(0, 3, hoje, hoje.plusDays(7), 7, 0));
+            assertTrue(emprestimos.buscarLivroPorId(3).getId() > idEmprestimo);
+        }
+    }
+
+    private LivroRepositoryDuravelImpl abrirLivros() throws IOException {
+        return LivroRepositoryDuravelImpl.abrir(diretorio.resolve("livros.wal"), PoliticaDurabilidade.PERIODICA);
+    }
+
+    private EmprestimoRepositoryDuravelImpl abrirEmprestimos(LivroRepositoryDuravelImpl livros) throws IOException {
+        return EmprestimoRepositoryDuravelImpl.abrir(diretorio.resolve("emprestimos.wal"),
+                new LivroService(livros), PoliticaDurabilidade.PERIODICA);
+    }
+}
@@ -119,4 +119,29 @@ class EmprestimoRepositoryImplTest {
         verify(livroService, times(2)).buscarLivroPorIDNoAcervo(1);
         assertTrue(livroTeste.isDisponivel());
     }
+
+    @Test
+    @DisplayName("Não deve registrar dois empréstimos ativos para o mesmo livro")
+    void testRealizarEmprestimoLivroJaEmprestado() {
+        LocalDate hoje = LocalDate.now();
+        emprestimoRepository.realizarEmprestimo(new Emprestimo(0, 1, hoje, hoje.plusDays(7), 7, 0.0));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> emprestimoRepository.realizarEmprestimo(new Emprestimo(0, 1, hoje, hoje.plusDays(3), 3, 0.0)));
+        assertEquals("Livro já está emprestado", exception.getMessage());
+        assertEquals(1, emprestimoRepository.listarEmprestimos().size());
+        assertEquals(7, emprestimoRepository.buscarLivroPorId(1).getPrazoDevolucao());
+    }
+
+    @Test
+    @DisplayName("Deve liberar o índice de empréstimo ativo após a devolução")
+    void testBuscarLivroPorIdAposDevolucao() {
+        LocalDate hoje = LocalDate.now();
+        emprestimoRepository.realizarEmprestimo(new Emprestimo(0, 1, hoje, hoje.plusDays(7), 7, 0.0));
+        emprestimoRepository.removerEmprestimo(emprestimoRepository.buscarLivroPorId(1));
+
+        assertNull(emprestimoRepository.buscarLivroPorId(1));
+        assertDoesNotThrow(() -> emprestimoRepository.realizarEmprestimo(new Emprestimo(0, 1, hoje, hoje.plusDays(5), 5, 0.0)));
+        assertEquals(5, emprestimoRepository.buscarLivroPorId(1).getPrazoDevolucao());
+    }
 }
@@ -0,0 +1,80 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import com.br.infnet.utils.NormalizadorTexto;
+import net.jqwik.api.*;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Compara as buscas indexadas com uma varredura linear (sem distinção de caixa e acentos) em catálogos aleatórios
+class LivroRepositoryBuscaEquivalenciaTest {
+
+    @Property(tries = 40)
+    void buscaPorTituloEquivaleAVarredura(@ForAll("catalogos") List<String> textos,
+                                          @ForAll("consultas") List<String> consultas) {
+        iLivroRepository repositorio = montarRepositorio(textos);
+        for (String consulta : consultas) {
+            assertEquals(idsPorVarredura(repositorio, consulta, Livro::getTitulo),
+                    ids(repositorio.listarLivrosPorTitulo(consulta)), "Consulta: '" + consulta + "'");
+        }
+    }
+
+    @Property(tries = 40)
+    void buscaPorAutorEquivaleAVarredura(@ForAll("catalogos") List<String> textos,
+                                         @ForAll("consultas") List<String> consultas) {
+        iLivroRepository repositorio = montarRepositorio(textos);
+        for (String consulta : consultas) {
+            assertEquals(idsPorVarredura(repositorio, consulta, Livro::getAutor),
+                    ids(repositorio.listarLivrosPorAutor(consulta)), "Consulta: '" + consulta + "'");
+        }
+    }
+
+    @Provide
+    Arbitrary<List<String>> catalogos() {
+        return textos().list().ofMinSize(1).ofMaxSize(200);
+    }
+
+    @Provide
+    Arbitrary<List<String>> consultas() {
+        return Arbitraries.strings()
+                .withChars('a', 'b', 'c', 'A', 'B', 'ã', 'é', ' ')
+                .ofMinLength(1).ofMaxLength(6)
+                .filter(consulta -> !consulta.isBlank())
+                .list().ofMinSize(1).ofMaxSize(20);
+    }
+
+    private Arbitrary<String> textos() {
+        //Alfabeto pequeno para gerar muitas colisões de trigramas
+        return Arbitraries.strings()
+                .withChars('a', 'b', 'c', 'A', 'B', 'ã', 'é', ' ')
+                .ofMinLength(3).ofMaxLength(30)
+                .filter(texto -> !texto.isBlank() && texto.trim().length() >= 3);
+    }
+
+    private iLivroRepository montarRepositorio(List<String> textos) {
+        iLivroRepository repositorio = new LivroRepositoryImpl();
+        for (int i = 0; i < textos.size(); i++) {
+            String texto = textos.get(i);
+            String autor = textos.get(textos.size() - 1 - i);
+            repositorio.salvarLivro(new Livro(0, texto, autor, String.format("978%010d", i)));
+        }
+        return repositorio;
+    }
+
+    private List<Integer> idsPorVarredura(iLivroRepository repositorio, String consulta, Function<Livro, String> campo) {
+        String termo = NormalizadorTexto.normalizar(consulta.trim());
+        return repositorio.listarLivros().stream()
+                .filter(livro -> NormalizadorTexto.normalizar(campo.apply(livro)).contains(termo))
+                .map(Livro::getId)
+                .sorted()
+                .toList();
+    }
+
+    private List<Integer> ids(List<Livro> livros) {
+        return livros.stream().map(Livro::getId).sorted().toList();
+    }
+}
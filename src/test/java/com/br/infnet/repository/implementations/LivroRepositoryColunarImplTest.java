@@ -0,0 +1,191 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do LivroRepositoryColunarImpl")
+class LivroRepositoryColunarImplTest {
+
+    private static final int LIVROS_BENCHMARK = 200_000;
+
+    private iLivroRepository livroRepository;
+
+    @BeforeEach
+    void setUp() {
+        livroRepository = new LivroRepositoryColunarImpl();
+    }
+
+    @Test
+    @DisplayName("Deve carregar o mesmo catálogo inicial do repositório em memória")
+    void testCatalogoInicial() {
+        //listarLivros() do repositório em memória não garante ordem de id
+        List<Livro> esperado = new ArrayList<>(new LivroRepositoryImpl().listarLivros());
+        esperado.sort(Comparator.comparingInt(Livro::getId));
+        List<Livro> carregado = livroRepository.listarLivros();
+
+        assertEquals(esperado.size(), carregado.size());
+        for (int i = 0; i < esperado.size(); i++) {
+            assertEquals(esperado.get(i).getIsbn(), carregado.get(i).getIsbn());
+            assertEquals(esperado.get(i).getTitulo(), carregado.get(i).getTitulo());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve salvar e buscar por id e ISBN preservando zeros à esquerda")
+    void testSalvarEBuscar() {
+        livroRepository.salvarLivro(new Livro(0, "Livro Antigo", "Autor Antigo", "0000123456789"));
+
+        Livro salvo = livroRepository.buscarLivroPorISBN("0000123456789");
+        assertNotNull(salvo);
+        assertEquals("0000123456789", salvo.getIsbn());
+        assertEquals("Livro Antigo", livroRepository.buscarLivroPorId(salvo.getId()).getTitulo());
+        assertTrue(livroRepository.existeISBN("0000123456789"));
+        assertFalse(livroRepository.existeISBN("123456789"));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar ISBN duplicado")
+    void testIsbnDuplicado() {
+        livroRepository.salvarLivro(new Livro(0, "Primeiro", "Autor Um", "9780000000001"));
+
+        IllegalArgumentException erro = assertThrows(IllegalArgumentException.class,
+                () -> livroRepository.salvarLivro(new Livro(0, "Segundo", "Autor Dois", "9780000000001")));
+        assertEquals("Já existe um livro cadastrado com este ISBN", erro.getMessage());
+
+        //O cadastro recusado não consome id
+        int idPrimeiro = livroRepository.buscarLivroPorISBN("9780000000001").getId();
+        livroRepository.salvarLivro(new Livro(0, "Terceiro", "Autor Três", "9780000000003"));
+        assertEquals(idPrimeiro + 1, livroRepository.buscarLivroPorISBN("9780000000003").getId());
+    }
+
+    @Test
+    @DisplayName("Livros devolvidos são cópias: alterações só valem após atualizarLivro")
+    void testAtualizacaoPersisteEstadoDeEmprestimo() {
+        livroRepository.salvarLivro(new Livro(0, "Emprestável", "Autor", "9780000000002"));
+        Livro livro = livroRepository.buscarLivroPorISBN("9780000000002");
+        LocalDate hoje = LocalDate.now();
+
+        livro.setDisponivel(false);
+        livro.setDataEmprestimo(hoje);
+        livro.setDataEstimadaDevolucao(hoje.plusDays(7));
+        livro.setPrazoDevolucao(7);
+        livro.setMulta(2.5);
+        assertTrue(livroRepository.buscarLivroPorId(livro.getId()).isDisponivel());
+
+        livroRepository.atualizarLivro(livro);
+        Livro relido = livroRepository.buscarLivroPorId(livro.getId());
+
+        assertFalse(relido.isDisponivel());
+        assertEquals(hoje, relido.getDataEmprestimo());
+        assertEquals(hoje.plusDays(7), relido.getDataEstimadaDevolucao());
+        assertNull(relido.getDataEfetivaDevolucao());
+        assertEquals(7, relido.getPrazoDevolucao());
+        assertEquals(2.5, relido.getMulta());
+    }
+
+    @Test
+    @DisplayName("Deve reindexar ISBN e texto ao atualizar e limpar tudo ao remover")
+    void testAtualizarERemover() {
+        livroRepository.salvarLivro(new Livro(0, "Título Original", "Autor Original", "9780000000003"));
+        Livro livro = livroRepository.buscarLivroPorISBN("9780000000003");
+
+        livro.setTitulo("Título Revisado");
+        livro.setIsbn("9780000000004");
+        livroRepository.atualizarLivro(livro);
+
+        assertFalse(livroRepository.existeISBN("9780000000003"));
+        assertTrue(livroRepository.listarLivrosPorTitulo("original").isEmpty());
+        assertEquals(1, livroRepository.listarLivrosPorTitulo("revisado").size());
+
+        livroRepository.removerLivro(livro.getId());
+        assertNull(livroRepository.buscarLivroPorId(livro.getId()));
+        assertFalse(livroRepository.existeISBN("9780000000004"));
+        assertTrue(livroRepository.listarLivrosPorTitulo("revisado").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Buscas e paginação devem coincidir com o repositório em memória")
+    void testEquivalenciaComRepositorioEmMemoria() {
+        iLivroRepository referencia = new LivroRepositoryImpl();
+        for (int i = 0; i < 300; i++) {
+            String isbn = String.format("978%010d", i);
+            Livro livro = new Livro(0, "Crônica " + (i % 7 == 0 ? "Ávida " : "") + i, "Autor " + (i % 13), isbn);
+            referencia.salvarLivro(livro);
+            livroRepository.salvarLivro(livro);
+        }
+
+        for (String termo : new String[]{"avida", "cr", "1", "autor 1", "inexistente"}) {
+            assertEquals(ids(referencia.listarLivrosPorTitulo(termo)), ids(livroRepository.listarLivrosPorTitulo(termo)));
+            assertEquals(ids(referencia.listarLivrosPorAutor(termo)), ids(livroRepository.listarLivrosPorAutor(termo)));
+        }
+        assertEquals(ids(referencia.listarLivrosAPartirDe(100, 50)), ids(livroRepository.listarLivrosAPartirDe(100, 50)));
+        for (OrdemListagem ordem : OrdemListagem.values()) {
+            assertEquals(ids(referencia.listarLivrosOrdenadosAPartirDe(ordem, null, 1000)),
+                    ids(livroRepository.listarLivrosOrdenadosAPartirDe(ordem, null, 1000)));
+        }
+    }
+
+    @Test
+    @DisplayName("paraCadaLivro deve entregar todos os livros mesmo acima do tamanho do bloco")
+    void testParaCadaLivro() {
+        for (int i = 0; i < 600; i++) {
+            livroRepository.salvarLivro(new Livro(0, "Livro " + i, "Autor", String.format("979%010d", i)));
+        }
+        List<Livro> visitados = new ArrayList<>();
+
+        livroRepository.paraCadaLivro(livro -> true, visitados::add);
+
+        assertEquals(livroRepository.listarLivros().size(), visitados.size());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Comparação de heap por livro com o LivroRepositoryImpl")
+    void benchmarkHeapPorLivro() {
+        double bytesMemoria = medirBytesPorLivro(LivroRepositoryImpl::new);
+        double bytesColunar = medirBytesPorLivro(() -> new LivroRepositoryColunarImpl(false));
+
+        System.out.printf("LivroRepositoryImpl:        %.1f B/livro%n", bytesMemoria);
+        System.out.printf("LivroRepositoryColunarImpl: %.1f B/livro%n", bytesColunar);
+        assertTrue(bytesColunar < bytesMemoria);
+    }
+
+    private double medirBytesPorLivro(Supplier<iLivroRepository> fabrica) {
+        long antes = memoriaUsada();
+        iLivroRepository repositorio = fabrica.get();
+        for (int i = 0; i < LIVROS_BENCHMARK; i++) {
+            repositorio.salvarLivro(new Livro(0, "Título do livro " + i, "Autor " + (i % 5_000),
+                    String.format("978%010d", i)));
+        }
+        long bytes = memoriaUsada() - antes;
+        assertTrue(repositorio.existeISBN(String.format("978%010d", LIVROS_BENCHMARK - 1)));
+        return (double) bytes / LIVROS_BENCHMARK;
+    }
+
+    private List<Integer> ids(List<Livro> livros) {
+        return livros.stream().map(Livro::getId).toList();
+    }
+
+    private long memoriaUsada() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
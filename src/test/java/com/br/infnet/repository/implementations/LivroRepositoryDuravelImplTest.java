@@ -0,0 +1,202 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.persistencia.LogEscritaAntecipada;
+import com.br.infnet.repository.persistencia.PoliticaDurabilidade;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do LivroRepositoryDuravelImpl")
+class LivroRepositoryDuravelImplTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Deve gravar o catálogo inicial num log novo e restaurá-lo ao reabrir")
+    void testCatalogoInicial() throws IOException {
+        Path arquivo = diretorio.resolve("livros.wal");
+        int quantidade;
+        try (LivroRepositoryDuravelImpl repositorio =
+                     LivroRepositoryDuravelImpl.abrir(arquivo, PoliticaDurabilidade.PERIODICA)) {
+            quantidade = repositorio.listarLivros().size();
+            assertEquals(new LivroRepositoryImpl().listarLivros().size(), quantidade);
+        }
+
+        try (LivroRepositoryDuravelImpl repositorio =
+                     LivroRepositoryDuravelImpl.abrir(arquivo, PoliticaDurabilidade.PERIODICA)) {
+            assertEquals(quantidade, repositorio.listarLivros().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve restaurar inclusões, atualizações e remoções ao reabrir")
+    void testReabrirRestauraEstado() throws IOException {
+        Path arquivo = diretorio.resolve("livros.wal");
+        LocalDate hoje = LocalDate.now();
+        int idAtualizado;
+        int idRemovido;
+        try (LivroRepositoryDuravelImpl repositorio =
+                     LivroRepositoryDuravelImpl.abrir(arquivo, PoliticaDurabilidade.POR_OPERACAO)) {
+            repositorio.salvarLivro(new Livro(0, "Memórias Póstumas", "Machado de Assis", "9790000000001"));
+            repositorio.salvarLivro(new Livro(0, "Removível", "Autor", "9790000000002"));
+            Livro livro = repositorio.buscarLivroPorISBN("9790000000001");
+            livro.setDisponivel(false);
+            livro.setDataEmprestimo(hoje);
+            livro.setPrazoDevolucao(7);
+            repositorio.atualizarLivro(livro);
+            idAtualizado = livro.getId();
+            idRemovido = repositorio.buscarLivroPorISBN("9790000000002").getId();
+            repositorio.removerLivro(idRemovido);
+        }
+
+        try (LivroRepositoryDuravelImpl repositorio =
+                     LivroRepositoryDuravelImpl.abrir(arquivo, PoliticaDurabilidade.POR_OPERACAO)) {
+            Livro relido = repositorio.buscarLivroPorId(idAtualizado);
+            assertFalse(relido.isDisponivel());
+            assertEquals(hoje, relido.getDataEmprestimo());
+            assertEquals(7, relido.getPrazoDevolucao());
+            assertNull(repositorio.buscarLivroPorId(idRemovido));
+            assertFalse(repositorio.existeISBN("9790000000002"));
+            assertEquals(List.of(idAtualizado), ids(repositorio.listarLivrosPorTitulo("postumas")));
+            assertTrue(ids(repositorio.listarLivrosOrdenadosAPartirDe(OrdemListagem.AUTOR, null, 1000))
+                    .contains(idAtualizado));
+
+            //Ids não são reaproveitados, nem o do livro removido
+            repositorio.salvarLivro(new Livro(0, "Novo", "Autor", "9790000000003"));
+            assertTrue(repositorio.buscarLivroPorISBN("9790000000003").getId() > idRemovido);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar ISBN duplicado sem gravar no log")
+    void testIsbnDuplicado() throws IOException {
+        try (LivroRepositoryDuravelImpl repositorio =
+                     LivroRepositoryDuravelImpl.abrir(diretorio.resolve("livros.wal"),
+                             PoliticaDurabilidade.PERIODICA)) {
+            repositorio.salvarLivro(new Livro(0, "Primeiro", "Autor", "9790000000001"));
+            long tamanho = Files.size(diretorio.resolve("livros.wal"));
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> repositorio.salvarLivro(new Livro(0, "Segundo", "Autor", "9790000000001")));
+            assertEquals(tamanho, Files.size(diretorio.resolve("livros.wal")));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve descartar a escrita interrompida e manter as anteriores")
+    void testEscritaInterrompida() throws IOException {
+        Path arquivo = diretorio.resolve("livros.wal");
+        int quantidade;
+        try (LivroRepositoryDuravelImpl repositorio =
+                     LivroRepositoryDuravelImpl.abrir(arquivo, PoliticaDurabilidade.PERIODICA)) {
+            repositorio.salvarLivro(new Livro(0, "Último Íntegro", "Autor", "9790000000001"));
+            quantidade = repositorio.listarLivros().size();
+        }
+        Files.write(arquivo, new byte[]{0, 0, 0, 60, 1, 9, 7, 8}, StandardOpenOption.APPEND);
+
+        try (LivroRepositoryDuravelImpl repositorio =
+                     LivroRepositoryDuravelImpl.abrir(arquivo, PoliticaDurabilidade.PERIODICA)) {
+            assertEquals(quantidade, repositorio.listarLivros().size());
+            assertTrue(repositorio.existeISBN("9790000000001"));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Vazão de escrita e tempo de recuperação com 1M registros")
+    void benchmarkEscritaERecuperacao() throws IOException {
+        int registros = 1_000_000;
+        Path arquivo = diretorio.resolve("benchmark.wal");
+        try (LivroRepositoryDuravelImpl repositorio = new LivroRepositoryDuravelImpl(new LivroRepositoryImpl(false),
+                new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.PERIODICA))) {
+            long inicio = System.nanoTime();
+            for (int i = 0; i < registros; i++) {
+                repositorio.salvarLivro(new Livro(0, "Título do livro " + i, "Autor " + (i % 5_000),
+                        String.format("978%010d", i)));
+            }
+            long nanos = System.nanoTime() - inicio;
+            System.out.printf("Escrita com fsync periódico: %,d ops/s (%d MB de log)%n",
+                    registros * 1_000_000_000L / nanos, Files.size(arquivo) / (1024 * 1024));
+        }
+
+        long inicio = System.nanoTime();
+        try (LivroRepositoryDuravelImpl repositorio = new LivroRepositoryDuravelImpl(new LivroRepositoryImpl(false),
+                new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.PERIODICA))) {
+            System.out.printf("Recuperação: %d ms%n", (System.nanoTime() - inicio) / 1_000_000);
+            assertEquals(registros, repositorio.listarLivros().size());
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Vazão e latência p99 de cada política de durabilidade com 64 escritores")
+    void benchmarkPoliticasDeDurabilidade() throws Exception {
+        int escritores = 64;
+        int escritasPorEscritor = 200;
+        System.out.println("Política     | ops/s   | p99 (ms) | fsyncs");
+        for (PoliticaDurabilidade politica : PoliticaDurabilidade.values()) {
+            LogEscritaAntecipada log = new LogEscritaAntecipada(
+                    diretorio.resolve(politica.getParametro() + ".wal"), politica);
+            try (LivroRepositoryDuravelImpl repositorio =
+                         new LivroRepositoryDuravelImpl(new LivroRepositoryImpl(false), log)) {
+                long[] latencias = new long[escritores * escritasPorEscritor];
+                CountDownLatch largada = new CountDownLatch(1);
+                ExecutorService executor = Executors.newFixedThreadPool(escritores);
+                List<Future<?>> tarefas = new ArrayList<>();
+                for (int e = 0; e < escritores; e++) {
+                    int escritor = e;
+                    tarefas.add(executor.submit(() -> {
+                        largada.await();
+                        for (int i = 0; i < escritasPorEscritor; i++) {
+                            int n = escritor * escritasPorEscritor + i;
+                            long inicio = System.nanoTime();
+                            repositorio.salvarLivro(new Livro(0, "Título " + n, "Autor " + escritor,
+                                    String.format("978%010d", n)));
+                            latencias[n] = System.nanoTime() - inicio;
+                        }
+                        return null;
+                    }));
+                }
+                long inicio = System.nanoTime();
+                largada.countDown();
+                for (Future<?> tarefa : tarefas) {
+                    tarefa.get();
+                }
+                long nanos = System.nanoTime() - inicio;
+                executor.shutdown();
+
+                Arrays.sort(latencias);
+                System.out.printf("%-12s | %,7d | %8.2f | %,d%n", politica.getParametro(),
+                        latencias.length * 1_000_000_000L / nanos,
+                        latencias[(int) (latencias.length * 0.99)] / 1_000_000.0, log.getSincronizacoes());
+                assertEquals(latencias.length, repositorio.listarLivros().size());
+            }
+        }
+    }
+
+    private List<Integer> ids(List<Livro> livros) {
+        return livros.stream().map(Livro::getId).toList();
+    }
+}
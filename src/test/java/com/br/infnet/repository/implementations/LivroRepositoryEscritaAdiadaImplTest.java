@@ -0,0 +1,132 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.model.Livro;
+import com.br.infnet.service.LivroService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do LivroRepositoryEscritaAdiadaImpl e EmprestimoRepositoryEscritaAdiadaImpl")
+class LivroRepositoryEscritaAdiadaImplTest {
+
+    //Destino em memória que conta as gravações que de fato chegaram até ele
+    private static class DestinoContado extends LivroRepositoryImpl {
+        final AtomicInteger atualizacoes = new AtomicInteger();
+        final AtomicInteger lotes = new AtomicInteger();
+
+        DestinoContado() {
+            super(false);
+        }
+
+        @Override
+        public void atualizarLivro(Livro livro) {
+            atualizacoes.incrementAndGet();
+            super.atualizarLivro(livro);
+        }
+
+        @Override
+        public void executarEmLote(Runnable escritas) {
+            lotes.incrementAndGet();
+            super.executarEmLote(escritas);
+        }
+    }
+
+    @Test
+    @DisplayName("Várias edições do mesmo livro devem chegar ao destino como uma só gravação")
+    void testCombinaEdicoes() {
+        DestinoContado destino = new DestinoContado();
+        try (LivroRepositoryEscritaAdiadaImpl repositorio = new LivroRepositoryEscritaAdiadaImpl(destino,
+                100, 100, 10_000, 1_000)) {
+            repositorio.salvarLivro(new Livro(0, "Dom Casmurro", "Machado de Assis", "9780000000001"));
+            Livro livro = repositorio.buscarLivroPorISBN("9780000000001");
+            for (int edicao = 1; edicao <= 20; edicao++) {
+                repositorio.atualizarLivro(new Livro(livro.getId(), "Dom Casmurro " + edicao, "Machado de Assis",
+                        "9780000000001"));
+            }
+            //A visão em memória já reflete a edição; o destino ainda não recebeu nada
+            assertEquals("Dom Casmurro 20", repositorio.buscarLivroPorId(livro.getId()).getTitulo());
+            assertNull(destino.buscarLivroPorId(livro.getId()));
+
+            repositorio.descarregar();
+            assertEquals(1, destino.atualizacoes.get());
+            assertEquals(1, destino.lotes.get());
+            assertEquals("Dom Casmurro 20", destino.buscarLivroPorId(livro.getId()).getTitulo());
+            assertEquals(20, repositorio.getFila().getCombinadas());
+        }
+    }
+
+    @Test
+    @DisplayName("Fechar deve gravar o pendente, e reabrir sobre o destino deve restaurar o acervo e a sequência")
+    void testFecharEReabrir() {
+        DestinoContado destino = new DestinoContado();
+        try (LivroRepositoryEscritaAdiadaImpl repositorio = new LivroRepositoryEscritaAdiadaImpl(destino,
+                100, 10, 10_000, 1_000)) {
+            for (int i = 1; i <= 30; i++) {
+                repositorio.salvarLivro(new Livro(0, "Livro " + i, "Autor", String.format("978%010d", i)));
+            }
+            repositorio.removerLivro(3);
+        }
+        assertEquals(29, destino.listarLivros().size());
+        assertNull(destino.buscarLivroPorId(3));
+
+        try (LivroRepositoryEscritaAdiadaImpl repositorio = new LivroRepositoryEscritaAdiadaImpl(destino)) {
+            assertEquals(29, repositorio.listarLivros().size());
+            assertEquals("Livro 7", repositorio.buscarLivroPorISBN("9780000000007").getTitulo());
+            assertEquals(1, repositorio.listarLivrosPorTitulo("livro 12").size());
+            assertTrue(repositorio.gerarProximoId() > 30);
+        }
+    }
+
+    @Test
+    @DisplayName("Trocar o ISBN entre dois livros deve chegar ao destino mesmo com as escritas combinadas")
+    void testTrocaDeISBN() {
+        DestinoContado destino = new DestinoContado();
+        destino.atualizarLivro(Livro.restaurar(1, "Primeiro", "Autor", "9780000000001", "primeiro", "autor"));
+        destino.atualizarLivro(Livro.restaurar(2, "Segundo", "Autor", "9780000000002", "segundo", "autor"));
+        try (LivroRepositoryEscritaAdiadaImpl repositorio = new LivroRepositoryEscritaAdiadaImpl(destino,
+                100, 100, 10_000, 1_000)) {
+            repositorio.atualizarLivro(new Livro(1, "Primeiro", "Autor", "9780000000099"));
+            repositorio.atualizarLivro(new Livro(2, "Segundo", "Autor", "9780000000001"));
+            repositorio.atualizarLivro(new Livro(1, "Primeiro", "Autor", "9780000000002"));
+            repositorio.descarregar();
+        }
+        assertEquals(2, destino.buscarLivroPorISBN("9780000000001").getId());
+        assertEquals(1, destino.buscarLivroPorISBN("9780000000002").getId());
+        assertFalse(destino.existeISBN("9780000000099"));
+    }
+
+    @Test
+    @DisplayName("Empréstimos e devoluções devem chegar ao destino sem que o destino altere o livro")
+    void testEmprestimosAdiados() {
+        DestinoContado destinoLivros = new DestinoContado();
+        destinoLivros.atualizarLivro(Livro.restaurar(1, "Primeiro", "Autor", "9780000000001", "primeiro", "autor"));
+        destinoLivros.atualizarLivro(Livro.restaurar(2, "Segundo", "Autor", "9780000000002", "segundo", "autor"));
+        EmprestimoRepositoryImpl destinoEmprestimos = new EmprestimoRepositoryImpl(new LivroService(destinoLivros));
+
+        try (LivroRepositoryEscritaAdiadaImpl livros = new LivroRepositoryEscritaAdiadaImpl(destinoLivros,
+                100, 100, 10_000, 1_000);
+             EmprestimoRepositoryEscritaAdiadaImpl emprestimos = new EmprestimoRepositoryEscritaAdiadaImpl(
+                     destinoEmprestimos, new LivroService(livros), 100, 100, 10_000, 1_000)) {
+            LocalDate hoje = LocalDate.now();
+            emprestimos.realizarEmprestimo(new Emprestimo(0, 1, hoje, hoje.plusDays(7), 7, 0));
+            Emprestimo devolvido = emprestimos.buscarLivroPorId(1);
+            emprestimos.removerEmprestimo(devolvido);
+            emprestimos.realizarEmprestimo(new Emprestimo(0, 1, hoje, hoje.plusDays(14), 14, 0));
+            emprestimos.realizarEmprestimo(new Emprestimo(0, 2, hoje, hoje.plusDays(7), 7, 0));
+            assertFalse(livros.buscarLivroPorId(1).isDisponivel());
+            assertTrue(destinoEmprestimos.listarEmprestimos().isEmpty());
+
+            emprestimos.descarregar();
+            livros.descarregar();
+        }
+        assertEquals(2, destinoEmprestimos.listarEmprestimos().size());
+        assertEquals(14, destinoEmprestimos.buscarLivroPorId(1).getPrazoDevolucao());
+        assertFalse(destinoLivros.buscarLivroPorId(1).isDisponivel());
+        assertEquals(14, destinoLivros.buscarLivroPorId(1).getPrazoDevolucao());
+    }
+}
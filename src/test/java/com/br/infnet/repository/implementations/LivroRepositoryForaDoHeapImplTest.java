@@ -0,0 +1,228 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do LivroRepositoryForaDoHeapImpl")
+class LivroRepositoryForaDoHeapImplTest {
+
+    private LivroRepositoryForaDoHeapImpl livroRepository;
+
+    @BeforeEach
+    void setUp() {
+        //Blocos pequenos para exercitar a troca de bloco com poucos livros
+        livroRepository = new LivroRepositoryForaDoHeapImpl(4096, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        livroRepository.close();
+    }
+
+    @Test
+    @DisplayName("Deve carregar o catálogo inicial e buscar por id e ISBN")
+    void testCatalogoInicialEBuscas() {
+        List<Livro> esperado = new LivroRepositoryImpl().listarLivros();
+
+        assertEquals(esperado.size(), livroRepository.listarLivros().size());
+        for (Livro livro : esperado) {
+            Livro lido = livroRepository.buscarLivroPorISBN(livro.getIsbn());
+            assertNotNull(lido);
+            assertEquals(livro.getTitulo(), lido.getTitulo());
+            assertEquals(lido.getIsbn(), livroRepository.buscarLivroPorId(lido.getId()).getIsbn());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar ISBN duplicado")
+    void testIsbnDuplicado() {
+        livroRepository.salvarLivro(new Livro(0, "Primeiro", "Autor Um", "0780000000001"));
+
+        assertTrue(livroRepository.existeISBN("0780000000001"));
+        assertThrows(IllegalArgumentException.class,
+                () -> livroRepository.salvarLivro(new Livro(0, "Segundo", "Autor Dois", "0780000000001")));
+
+        //O cadastro recusado não consome id
+        int idPrimeiro = livroRepository.buscarLivroPorISBN("0780000000001").getId();
+        livroRepository.salvarLivro(new Livro(0, "Terceiro", "Autor Três", "0780000000003"));
+        assertEquals(idPrimeiro + 1, livroRepository.buscarLivroPorISBN("0780000000003").getId());
+    }
+
+    @Test
+    @DisplayName("Deve persistir estado de empréstimo e reindexar ao atualizar")
+    void testAtualizar() {
+        livroRepository.salvarLivro(new Livro(0, "Título Original", "Autora", "9780000000010"));
+        Livro livro = livroRepository.buscarLivroPorISBN("9780000000010");
+        LocalDate hoje = LocalDate.now();
+        long obsoletosAntes = livroRepository.bytesObsoletosForaDoHeap();
+
+        livro.setTitulo("Título Revisado");
+        livro.setIsbn("9780000000011");
+        livro.setDisponivel(false);
+        livro.setDataEmprestimo(hoje);
+        livro.setPrazoDevolucao(14);
+        livroRepository.atualizarLivro(livro);
+
+        Livro relido = livroRepository.buscarLivroPorId(livro.getId());
+        assertEquals("Título Revisado", relido.getTitulo());
+        assertFalse(relido.isDisponivel());
+        assertEquals(hoje, relido.getDataEmprestimo());
+        assertEquals(14, relido.getPrazoDevolucao());
+        assertFalse(livroRepository.existeISBN("9780000000010"));
+        assertTrue(livroRepository.listarLivrosPorTitulo("original").isEmpty());
+        assertEquals(1, livroRepository.listarLivrosPorTitulo("revisado").size());
+        //Título de mesmo tamanho e ISBN numérico: o registro é regravado no lugar
+        assertEquals(obsoletosAntes, livroRepository.bytesObsoletosForaDoHeap());
+        assertEquals(1, ids(livroRepository.listarLivrosOrdenadosAPartirDe(OrdemListagem.TITULO, null, 10_000)).stream()
+                .filter(id -> id == livro.getId()).count());
+    }
+
+    @Test
+    @DisplayName("Empréstimos e devoluções não devem consumir memória direta")
+    void testEmprestimosNaoCrescemMemoria() {
+        Livro livro = livroRepository.listarLivros().getFirst();
+        long reservados = livroRepository.bytesForaDoHeap();
+        long obsoletos = livroRepository.bytesObsoletosForaDoHeap();
+
+        for (int i = 0; i < 10_000; i++) {
+            livro.setDisponivel(i % 2 == 1);
+            livro.setDataEmprestimo(livro.isDisponivel() ? null : LocalDate.now());
+            livroRepository.atualizarLivro(livro);
+        }
+
+        assertEquals(reservados, livroRepository.bytesForaDoHeap());
+        assertEquals(obsoletos, livroRepository.bytesObsoletosForaDoHeap());
+        assertTrue(livroRepository.buscarLivroPorId(livro.getId()).isDisponivel());
+    }
+
+    @Test
+    @DisplayName("A compactação deve recuperar o espaço de edições que mudam o tamanho do registro")
+    void testCompactacaoRecuperaEspaco() {
+        try (LivroRepositoryForaDoHeapImpl vazio = new LivroRepositoryForaDoHeapImpl(4096, false)) {
+            for (int i = 0; i < 200; i++) {
+                vazio.salvarLivro(new Livro(0, "Título " + i, "Autor " + i, String.format("978%010d", i)));
+            }
+            for (int rodada = 0; rodada < 10; rodada++) {
+                editarTitulos(vazio, rodada);
+            }
+            long obsoletos = vazio.bytesObsoletosForaDoHeap();
+
+            long recuperados = vazio.compactar();
+
+            assertTrue(recuperados > 0);
+            assertEquals(recuperados, vazio.getMetricasCompactacao().bytesRecuperados());
+            assertTrue(vazio.bytesObsoletosForaDoHeap() < obsoletos);
+            assertEquals(200, vazio.listarLivrosPorTitulo("título").size());
+            assertEquals(200, vazio.listarLivrosOrdenadosAPartirDe(OrdemListagem.TITULO, null, 1_000).size());
+            //Os blocos esvaziados recebem as próximas edições: a memória direta não cresce com as rodadas
+            long reservados = vazio.bytesForaDoHeap();
+            for (int rodada = 10; rodada < 30; rodada++) {
+                editarTitulos(vazio, rodada);
+            }
+            assertTrue(vazio.bytesForaDoHeap() <= reservados + 2 * 4096,
+                    "Memória direta cresceu de " + reservados + " para " + vazio.bytesForaDoHeap() + " bytes");
+        }
+    }
+
+    @Test
+    @DisplayName("Deve remover livro e suas entradas de índice")
+    void testRemover() {
+        livroRepository.salvarLivro(new Livro(0, "Removível", "Autor", "9780000000012"));
+        int id = livroRepository.buscarLivroPorISBN("9780000000012").getId();
+
+        livroRepository.removerLivro(id);
+
+        assertNull(livroRepository.buscarLivroPorId(id));
+        assertFalse(livroRepository.existeISBN("9780000000012"));
+        assertTrue(livroRepository.listarLivrosPorTitulo("removível").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Buscas e paginação devem coincidir com o repositório em memória")
+    void testEquivalenciaComRepositorioEmMemoria() {
+        iLivroRepository referencia = new LivroRepositoryImpl();
+        for (int i = 0; i < 300; i++) {
+            Livro livro = new Livro(0, "Crônica " + (i % 7 == 0 ? "Ávida " : "") + i, "Autor " + (i % 13),
+                    String.format("978%010d", i));
+            referencia.salvarLivro(livro);
+            livroRepository.salvarLivro(livro);
+        }
+
+        for (String termo : new String[]{"avida", "cr", "1", "autor 1", "inexistente"}) {
+            assertEquals(ids(referencia.listarLivrosPorTitulo(termo)), ids(livroRepository.listarLivrosPorTitulo(termo)));
+            assertEquals(ids(referencia.listarLivrosPorAutor(termo)), ids(livroRepository.listarLivrosPorAutor(termo)));
+        }
+        assertEquals(ids(referencia.listarLivrosAPartirDe(100, 50)), ids(livroRepository.listarLivrosAPartirDe(100, 50)));
+        for (OrdemListagem ordem : OrdemListagem.values()) {
+            assertEquals(ids(referencia.listarLivrosOrdenadosAPartirDe(ordem, null, 1000)),
+                    ids(livroRepository.listarLivrosOrdenadosAPartirDe(ordem, null, 1000)));
+        }
+        assertTrue(livroRepository.bytesForaDoHeap() > 0);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Tempo de coleta completa conforme o acervo cresce")
+    void benchmarkTempoDeColeta() {
+        System.out.println("Livros    | em memória (ms) | fora do heap (ms) | memória direta (MB)");
+        for (int livros = 250_000; livros <= 1_000_000; livros *= 2) {
+            long msMemoria = medirColetas(LivroRepositoryImpl::new, livros);
+            LivroRepositoryForaDoHeapImpl foraDoHeap = new LivroRepositoryForaDoHeapImpl(
+                    4 * 1024 * 1024, false);
+            long msForaDoHeap = medirColetas(() -> foraDoHeap, livros);
+            System.out.printf("%,9d | %15d | %17d | %19d%n", livros, msMemoria, msForaDoHeap,
+                    foraDoHeap.bytesForaDoHeap() / (1024 * 1024));
+        }
+    }
+
+    private long medirColetas(Supplier<iLivroRepository> fabrica, int livros) {
+        iLivroRepository repositorio = fabrica.get();
+        for (int i = 0; i < livros; i++) {
+            repositorio.salvarLivro(new Livro(0, "Título do livro " + i, "Autor " + (i % 5_000),
+                    String.format("978%010d", i)));
+        }
+        System.gc();
+        long antes = tempoDeColeta();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        long tempo = tempoDeColeta() - antes;
+        assertTrue(repositorio.existeISBN(String.format("978%010d", livros - 1)));
+        return tempo;
+    }
+
+    private long tempoDeColeta() {
+        long total = 0;
+        for (GarbageCollectorMXBean coletor : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, coletor.getCollectionTime());
+        }
+        return total;
+    }
+
+    private void editarTitulos(LivroRepositoryForaDoHeapImpl repositorio, int rodada) {
+        for (Livro livro : repositorio.listarLivros()) {
+            livro.setTitulo(rodada % 2 == 0 ? livro.getTitulo() + " revisado" : livro.getTitulo().replace(" revisado", ""));
+            repositorio.atualizarLivro(livro);
+        }
+    }
+
+    private List<Integer> ids(List<Livro> livros) {
+        return livros.stream().map(Livro::getId).toList();
+    }
+}
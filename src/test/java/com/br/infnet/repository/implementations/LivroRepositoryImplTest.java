@@ -1,12 +1,33 @@
 package com.br.infnet.repository.implementations;
 
+import com.br.infnet.model.CursorOrdenacao;
 import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.estruturas.DicionarioTextos;
 import com.br.infnet.repository.interfaces.iLivroRepository;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -190,4 +211,426 @@ class LivroRepositoryImplTest {
         assertNotNull(resultado);
         assertTrue(resultado.isEmpty());
     }
+
+    @Test
+    @DisplayName("Não deve salvar dois livros com o mesmo ISBN")
+    void testSalvarLivroComISBNDuplicado() {
+        livroRepository.salvarLivro(new Livro(1, "Livro 1", "Autor 1", "9781234567890"));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> livroRepository.salvarLivro(new Livro(2, "Livro 2", "Autor 2", "9781234567890")));
+        assertEquals("Já existe um livro cadastrado com este ISBN", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Não deve atualizar livro para ISBN de outro livro")
+    void testAtualizarLivroParaISBNExistente() {
+        livroRepository.salvarLivro(new Livro(1, "Livro 1", "Autor 1", "9781234567890"));
+        livroRepository.salvarLivro(new Livro(2, "Livro 2", "Autor 2", "9781234567891"));
+        Livro segundo = livroRepository.buscarLivroPorISBN("9781234567891");
+
+        Livro conflitante = new Livro(segundo.getId(), "Livro 2", "Autor 2", "9781234567890");
+        assertThrows(IllegalArgumentException.class, () -> livroRepository.atualizarLivro(conflitante));
+        assertEquals("9781234567891", livroRepository.buscarLivroPorId(segundo.getId()).getIsbn());
+    }
+
+    @Test
+    @DisplayName("Deve manter índice de ISBN após atualização e remoção")
+    void testIndiceISBNAposAtualizacaoERemocao() {
+        livroRepository.salvarLivro(new Livro(1, "Livro 1", "Autor 1", "9781234567890"));
+        Livro livro = livroRepository.buscarLivroPorISBN("9781234567890");
+
+        livroRepository.atualizarLivro(new Livro(livro.getId(), "Livro 1", "Autor 1", "9781234567899"));
+        assertFalse(livroRepository.existeISBN("9781234567890"));
+        assertEquals(livro.getId(), livroRepository.buscarLivroPorISBN("9781234567899").getId());
+
+        livroRepository.removerLivro(livro.getId());
+        assertFalse(livroRepository.existeISBN("9781234567899"));
+        assertDoesNotThrow(() -> livroRepository.salvarLivro(new Livro(2, "Livro 2", "Autor 2", "9781234567899")));
+    }
+
+    @Test
+    @DisplayName("Cadastros concorrentes com o mesmo ISBN devem resultar em um único livro")
+    void testSalvarLivroConcorrenteMesmoISBN() throws InterruptedException {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger sucessos = new AtomicInteger();
+
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                try {
+                    largada.await();
+                    livroRepository.salvarLivro(new Livro(0, "Concorrente", "Autor", "9781111111111"));
+                    sucessos.incrementAndGet();
+                } catch (IllegalArgumentException | InterruptedException ignored) {
+                    //Esperado para todas as threads menos uma
+                }
+            });
+        }
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(1, sucessos.get());
+        assertEquals(1, livroRepository.listarLivrosPorTitulo("Concorrente").size());
+    }
+
+    @Test
+    @DisplayName("Cadastro recusado por ISBN duplicado não deve consumir id")
+    void testSalvarLivroDuplicadoNaoConsomeId() {
+        LivroRepositoryImpl repositorio = new LivroRepositoryImpl(false);
+        repositorio.salvarLivro(new Livro(0, "Livro 1", "Autor 1", "9781234567890"));
+        assertThrows(IllegalArgumentException.class,
+                () -> repositorio.salvarLivro(new Livro(0, "Livro 2", "Autor 2", "9781234567890")));
+        repositorio.salvarLivro(new Livro(0, "Livro 3", "Autor 3", "9781234567891"));
+        assertEquals(2, repositorio.buscarLivroPorISBN("9781234567891").getId());
+    }
+
+    @Test
+    @DisplayName("ISBN alterado na instância guardada deve ser liberado pela atualização")
+    void testISBNAlteradoForaDoRepositorio() {
+        LivroRepositoryImpl repositorio = new LivroRepositoryImpl(false);
+        repositorio.salvarLivro(new Livro(0, "Livro 1", "Autor 1", "9781234567890"));
+        Livro guardado = repositorio.buscarLivroPorId(1);
+        guardado.setIsbn("9781234567899");
+        repositorio.atualizarLivro(guardado);
+
+        assertFalse(repositorio.existeISBN("9781234567890"));
+        assertDoesNotThrow(() -> repositorio.salvarLivro(new Livro(0, "Livro 2", "Autor 2", "9781234567890")));
+        assertThrows(IllegalArgumentException.class,
+                () -> repositorio.salvarLivro(new Livro(0, "Livro 3", "Autor 3", "9781234567899")));
+    }
+
+    @Test
+    @DisplayName("Cadastros concorrentes com a troca de ISBN de outro livro não devem duplicar o ISBN")
+    void testTrocaDeISBNConcorrenteComCadastro() throws Exception {
+        LivroRepositoryImpl repositorio = new LivroRepositoryImpl(false);
+        repositorio.salvarLivro(new Livro(0, "Alternado", "Autor", "9781000000000"));
+        int id = repositorio.buscarLivroPorISBN("9781000000000").getId();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            Future<?> trocas = executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < 2_000; i++) {
+                    String isbn = i % 2 == 0 ? "9782000000000" : "9781000000000";
+                    repositorio.atualizarLivro(new Livro(id, "Alternado", "Autor", isbn));
+                }
+                return null;
+            });
+            Future<?> cadastros = executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < 2_000; i++) {
+                    try {
+                        repositorio.salvarLivro(new Livro(0, "Cadastro", "Autor", "9782000000000"));
+                    } catch (IllegalArgumentException ignored) {
+                        //Esperado enquanto o outro livro detém o ISBN
+                    }
+                }
+                return null;
+            });
+            largada.countDown();
+            cadastros.get(30, TimeUnit.SECONDS);
+            try {
+                trocas.get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                //A troca falha quando o cadastro levou o ISBN primeiro
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Integer> porISBN = new HashMap<>();
+        for (Livro livro : repositorio.listarLivros()) {
+            porISBN.merge(livro.getIsbn(), 1, Integer::sum);
+        }
+        assertTrue(porISBN.values().stream().allMatch(quantidade -> quantidade == 1), porISBN.toString());
+    }
+
+    @Test
+    @DisplayName("Empréstimos concorrentes não devem tirar o livro das buscas nem expirar o cursor")
+    void testAtualizacaoDeEstadoNaoDesindexa() throws Exception {
+        LivroRepositoryImpl repositorio = new LivroRepositoryImpl(false);
+        repositorio.salvarLivro(new Livro(0, "Dom Casmurro", "Machado de Assis", "9788525406958"));
+        repositorio.salvarLivro(new Livro(0, "Quincas Borba", "Machado de Assis", "9788525406959"));
+        Livro livro = repositorio.buscarLivroPorId(1);
+        AtomicBoolean parar = new AtomicBoolean();
+        Thread emprestimos = new Thread(() -> {
+            while (!parar.get()) {
+                livro.setDisponivel(!livro.isDisponivel());
+                repositorio.atualizarLivro(livro);
+            }
+        });
+        emprestimos.start();
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                assertEquals(1, repositorio.listarLivrosPorTitulo("casmurro").size());
+                assertEquals(List.of(2), repositorio.listarLivrosOrdenadosAPartirDe(OrdemListagem.TITULO,
+                        new CursorOrdenacao("Dom Casmurro", 1), 10)
+                        .stream().map(Livro::getId).toList());
+            }
+        } finally {
+            parar.set(true);
+            emprestimos.join();
+        }
+    }
+
+    @Test
+    @DisplayName("Busca por título deve refletir atualizações e remoções")
+    void testBuscaPorTituloAposAtualizacaoERemocao() {
+        livroRepository.salvarLivro(new Livro(0, "Título Antigo", "Autor", "9781234567890"));
+        Livro livro = livroRepository.buscarLivroPorISBN("9781234567890");
+
+        livroRepository.atualizarLivro(new Livro(livro.getId(), "Título Novo", "Autor", "9781234567890"));
+        assertTrue(livroRepository.listarLivrosPorTitulo("antigo").isEmpty());
+        assertEquals(1, livroRepository.listarLivrosPorTitulo("título novo").size());
+
+        livroRepository.removerLivro(livro.getId());
+        assertTrue(livroRepository.listarLivrosPorTitulo("título novo").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Busca deve ignorar acentos e caixa")
+    void testBuscaSemAcentos() {
+        //Repositório vazio: o catálogo de teste já tem um livro de João Guimarães Rosa
+        LivroRepositoryImpl repositorio = new LivroRepositoryImpl(false);
+        repositorio.salvarLivro(new Livro(0, "Memórias do Cárcere", "João Guimarães", "9781234567890"));
+
+        assertEquals(1, repositorio.listarLivrosPorAutor("joao guimaraes").size());
+        assertEquals(1, repositorio.listarLivrosPorTitulo("MEMORIAS do carc").size());
+        assertEquals(1, repositorio.listarLivrosPorTitulo("cárcere").size());
+    }
+
+    @Test
+    @DisplayName("Deve paginar livros por cursor em ordem de id")
+    void testListarLivrosAPartirDe() {
+        int total = livroRepository.listarLivros().size();
+        List<Livro> primeira = livroRepository.listarLivrosAPartirDe(0, 2);
+        List<Livro> segunda = livroRepository.listarLivrosAPartirDe(primeira.getLast().getId(), 2);
+
+        assertEquals(Math.min(2, total), primeira.size());
+        assertTrue(primeira.getFirst().getId() < primeira.getLast().getId());
+        assertTrue(segunda.stream().allMatch(l -> l.getId() > primeira.getLast().getId()));
+    }
+
+    @Test
+    @DisplayName("Paginação deve pular livros removidos")
+    void testListarLivrosAPartirDeComRemocao() {
+        livroRepository.salvarLivro(new Livro(0, "Livro 1", "Autor", "9781234567890"));
+        livroRepository.salvarLivro(new Livro(0, "Livro 2", "Autor", "9781234567891"));
+        livroRepository.salvarLivro(new Livro(0, "Livro 3", "Autor", "9781234567892"));
+        int id1 = livroRepository.buscarLivroPorISBN("9781234567890").getId();
+        int id3 = livroRepository.buscarLivroPorISBN("9781234567892").getId();
+        livroRepository.removerLivro(id1 + 1);
+
+        List<Livro> pagina = livroRepository.listarLivrosAPartirDe(id1 - 1, 2);
+
+        assertEquals(List.of(id1, id3), pagina.stream().map(Livro::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Deve paginar resultados de busca por título")
+    void testListarLivrosPorTituloAPartirDe() {
+        for (int i = 0; i < 5; i++) {
+            livroRepository.salvarLivro(new Livro(0, "Coleção Paginada " + i, "Autor", String.format("978000000000%d", i)));
+        }
+        List<Livro> primeira = livroRepository.listarLivrosPorTituloAPartirDe("paginada", 0, 3);
+        List<Livro> segunda = livroRepository.listarLivrosPorTituloAPartirDe("paginada", primeira.getLast().getId(), 3);
+
+        assertEquals(3, primeira.size());
+        assertEquals(2, segunda.size());
+        assertTrue(segunda.getFirst().getId() > primeira.getLast().getId());
+    }
+
+    @Test
+    @DisplayName("Deve percorrer apenas os livros aceitos pelo filtro")
+    void testParaCadaLivro() {
+        livroRepository.salvarLivro(new Livro(0, "Livro Filtrado", "Autor Exportado", "9781234567890"));
+        livroRepository.salvarLivro(new Livro(0, "Outro Livro", "Autor Exportado", "9781234567891"));
+        List<String> titulos = new ArrayList<>();
+
+        livroRepository.paraCadaLivro(l -> l.getAutor().equals("Autor Exportado"), l -> titulos.add(l.getTitulo()));
+
+        assertEquals(2, titulos.size());
+        assertTrue(titulos.containsAll(List.of("Livro Filtrado", "Outro Livro")));
+    }
+
+    @Test
+    @DisplayName("Deve listar em ordem alfabética pt-BR, paginando e acompanhando atualizações")
+    void testListarLivrosOrdenadosPorTitulo() {
+        iLivroRepository vazio = new LivroRepositoryImpl();
+        vazio.listarLivros().forEach(l -> vazio.removerLivro(l.getId()));
+        vazio.salvarLivro(new Livro(0, "Zero Hora", "Autor", "9781234567890"));
+        vazio.salvarLivro(new Livro(0, "Árvore Alta", "Autor", "9781234567891"));
+        vazio.salvarLivro(new Livro(0, "abismo", "Autor", "9781234567892"));
+
+        List<Livro> primeira = vazio.listarLivrosOrdenadosAPartirDe(OrdemListagem.TITULO, null, 2);
+        CursorOrdenacao cursor = CursorOrdenacao.doLivro(primeira.getLast(), OrdemListagem.TITULO);
+        List<Livro> segunda = vazio.listarLivrosOrdenadosAPartirDe(OrdemListagem.TITULO, cursor, 2);
+        assertEquals(List.of("abismo", "Árvore Alta"), primeira.stream().map(Livro::getTitulo).toList());
+        assertEquals(List.of("Zero Hora"), segunda.stream().map(Livro::getTitulo).toList());
+
+        Livro zero = segunda.getFirst();
+        vazio.atualizarLivro(new Livro(zero.getId(), "Abóbora", zero.getAutor(), zero.getIsbn()));
+        assertEquals(List.of("abismo", "Abóbora", "Árvore Alta"),
+                vazio.listarLivrosOrdenadosAPartirDe(OrdemListagem.TITULO, null, 10).stream().map(Livro::getTitulo).toList());
+
+        //O cursor guarda a chave de ordenação: remover ou renomear o último livro da página não o invalida
+        Livro ultimo = primeira.getLast();
+        vazio.atualizarLivro(new Livro(ultimo.getId(), "Zzz", ultimo.getAutor(), ultimo.getIsbn()));
+        assertEquals(List.of("Zzz"), vazio.listarLivrosOrdenadosAPartirDe(OrdemListagem.TITULO, cursor, 2)
+                .stream().map(Livro::getTitulo).toList());
+        vazio.removerLivro(ultimo.getId());
+        assertEquals(List.of(), vazio.listarLivrosOrdenadosAPartirDe(OrdemListagem.TITULO, cursor, 2)
+                .stream().map(Livro::getTitulo).toList());
+    }
+
+    @Test
+    @DisplayName("Carga do catálogo em paralelo deve produzir o mesmo acervo da carga sequencial")
+    void testCarregarCatalogoEmParalelo() {
+        LivroRepositoryImpl paralelo = new LivroRepositoryImpl(false);
+        AtomicInteger validadas = new AtomicInteger();
+        AtomicInteger total = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        paralelo.carregarCatalogoEmParalelo(executor, 1, new LivroRepositoryImpl.ProgressoCarga() {
+            @Override
+            public void linhasLidas(int linhas) {
+                total.set(linhas);
+            }
+
+            @Override
+            public void linhasValidadas(int quantidade) {
+                validadas.addAndGet(quantidade);
+            }
+
+            @Override
+            public void indexando() {
+            }
+        });
+        executor.shutdown();
+
+        assertEquals(total.get(), validadas.get());
+        List<Livro> esperado = livroRepository.listarLivrosAPartirDe(0, 1000);
+        List<Livro> obtido = paralelo.listarLivrosAPartirDe(0, 1000);
+        assertEquals(esperado.stream().map(Livro::getId).toList(), obtido.stream().map(Livro::getId).toList());
+        assertEquals(esperado.stream().map(Livro::getIsbn).toList(), obtido.stream().map(Livro::getIsbn).toList());
+        Livro primeiro = esperado.getFirst();
+        assertEquals(primeiro.getId(), paralelo.listarLivrosPorTitulo(primeiro.getTituloNormalizado()).getFirst().getId());
+        assertEquals(livroRepository.gerarProximoId(), paralelo.gerarProximoId());
+    }
+
+    @Test
+    @DisplayName("Livros do mesmo autor devem compartilhar as strings e o código do autor")
+    void testAutorCompartilhado() {
+        LivroRepositoryImpl repositorio = new LivroRepositoryImpl(false);
+        repositorio.salvarLivro(new Livro(0, "Dom Casmurro", new String("Machado de Assis"), "9788525406958"));
+        repositorio.salvarLivro(new Livro(0, "Quincas Borba", new String("Machado de Assis"), "9788525406959"));
+        repositorio.salvarLivro(new Livro(0, "Helena", new String("MACHADO DE ASSÍS"), "9788525406960"));
+        repositorio.salvarLivro(new Livro(0, "O Cortiço", "Aluísio Azevedo", "9788508133031"));
+
+        Livro dom = repositorio.buscarLivroPorId(1);
+        Livro quincas = repositorio.buscarLivroPorId(2);
+        Livro helena = repositorio.buscarLivroPorId(3);
+        assertSame(dom.getAutor(), quincas.getAutor());
+        assertSame(dom.getAutorNormalizado(), helena.getAutorNormalizado());
+        assertEquals("MACHADO DE ASSÍS", helena.getAutor());
+
+        int codigo = repositorio.codigoAutor("machado de assis");
+        assertNotEquals(DicionarioTextos.AUSENTE, codigo);
+        assertEquals(codigo, dom.getCodigoAutor());
+        assertEquals(codigo, helena.getCodigoAutor());
+        assertNotEquals(codigo, repositorio.buscarLivroPorId(4).getCodigoAutor());
+        assertEquals(DicionarioTextos.AUSENTE, repositorio.codigoAutor("José de Alencar"));
+        assertEquals(List.of(1, 2, 3),
+                repositorio.listarLivrosPorCodigoAutor(codigo, 0, 10).stream().map(Livro::getId).toList());
+        assertEquals(List.of(2, 3),
+                repositorio.listarLivrosPorCodigoAutor(codigo, 1, 10).stream().map(Livro::getId).toList());
+
+        //Atualização troca o autor; a busca por substring e a por código acompanham
+        repositorio.atualizarLivro(new Livro(2, "Quincas Borba", "Aluísio Azevedo", "9788525406959"));
+        assertSame(repositorio.buscarLivroPorId(4).getAutor(), repositorio.buscarLivroPorId(2).getAutor());
+        assertEquals(List.of(1, 3),
+                repositorio.listarLivrosPorCodigoAutor(codigo, 0, 10).stream().map(Livro::getId).toList());
+        assertEquals(List.of(1, 3), repositorio.listarLivrosPorAutor("assis").stream().map(Livro::getId).toList());
+        assertEquals(List.of(2, 4), repositorio.listarLivrosPorAutor("azevedo").stream().map(Livro::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Carga do CSV deve compartilhar as strings dos autores repetidos")
+    void testCargaCSVCompartilhaAutores() {
+        Set<String> instancias = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<String> distintos = new HashSet<>();
+        for (Livro livro : livroRepository.listarLivros()) {
+            instancias.add(livro.getAutor());
+            distintos.add(livro.getAutor());
+        }
+        assertEquals(distintos.size(), instancias.size());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Benchmark: heap economizado pelo dicionário de autores num catálogo gerado")
+    void benchmarkHeapDicionarioAutores() {
+        int quantidadeLivros = 300_000;
+        int quantidadeAutores = 6_000;
+        String[] sobrenomes = {"Silva", "Santos", "Oliveira", "Souza", "Rodrigues", "Ferreira", "Alves", "Pereira",
+                "Lima", "Gomes", "Ribeiro", "Carvalho", "Almeida", "Lopes", "Araújo", "Conceição"};
+        String[] nomes = new String[quantidadeAutores];
+        Random random = new Random(42);
+        for (int i = 0; i < quantidadeAutores; i++) {
+            nomes[i] = "Autor " + i + " " + sobrenomes[random.nextInt(sobrenomes.length)] + " de "
+                    + sobrenomes[random.nextInt(sobrenomes.length)];
+        }
+
+        //Cada livro recebe uma cópia nova do nome, como uma linha de CSV; poucos autores concentram muitos livros
+        long base = heapUsado();
+        List<Livro> livros = new ArrayList<>(quantidadeLivros);
+        for (int i = 0; i < quantidadeLivros; i++) {
+            int autor = (int) (Math.pow(random.nextDouble(), 3) * quantidadeAutores);
+            livros.add(new Livro(i + 1, "Título gerado " + i, new String(nomes[autor]),
+                    String.format("978%010d", i)));
+        }
+        long comCopias = heapUsado() - base;
+
+        DicionarioTextos dicionario = new DicionarioTextos();
+        for (Livro livro : livros) {
+            livro.compartilharAutor(dicionario.canonizar(livro.getAutor()),
+                    dicionario.canonizar(livro.getAutorNormalizado()), dicionario.codigo(livro.getAutorNormalizado()));
+        }
+        long compartilhado = heapUsado() - base;
+        Set<String> instancias = Collections.newSetFromMap(new IdentityHashMap<>());
+        livros.forEach(livro -> instancias.add(livro.getAutor()));
+        System.out.printf("%d livros, %d autores distintos (%d textos no dicionário)%n",
+                quantidadeLivros, instancias.size(), dicionario.tamanho());
+        System.out.printf("Heap com cópias: %.1f MB, compartilhado: %.1f MB, economia: %.1f MB (%.0f B/livro)%n",
+                comCopias / 1e6, compartilhado / 1e6, (comCopias - compartilhado) / 1e6,
+                (comCopias - compartilhado) / (double) quantidadeLivros);
+        assertTrue(compartilhado < comCopias);
+
+        LivroRepositoryImpl repositorio = new LivroRepositoryImpl(false);
+        repositorio.iniciarCargaEmLote();
+        livros.forEach(repositorio::atualizarLivro);
+        repositorio.concluirCargaEmLote();
+        for (int i = 0; i < 5; i++) {
+            repositorio.listarLivrosPorAutor("silva");
+        }
+        long inicio = System.nanoTime();
+        int encontrados = 0;
+        for (int i = 0; i < 20; i++) {
+            encontrados = repositorio.listarLivrosPorAutor("silva").size();
+        }
+        System.out.printf("Busca por autor \"silva\": %d livros, %.2f ms por consulta%n",
+                encontrados, (System.nanoTime() - inicio) / 20 / 1e6);
+    }
+
+    private static long heapUsado() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
 }
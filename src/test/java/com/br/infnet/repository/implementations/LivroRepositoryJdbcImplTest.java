@@ -0,0 +1,238 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do LivroRepositoryJdbcImpl e EmprestimoRepositoryJdbcImpl")
+class LivroRepositoryJdbcImplTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Deve gravar o catálogo inicial em lote com os mesmos ids da carga em memória, só no banco vazio")
+    void testCatalogoInicial() {
+        List<Livro> esperado = new LivroRepositoryImpl().listarLivros().stream()
+                .sorted(Comparator.comparingInt(Livro::getId))
+                .toList();
+        try (BibliotecaJdbc banco = BibliotecaJdbc.abrir(diretorio, 2, true)) {
+            assertEquals(ids(esperado), ids(banco.getLivros().listarLivros()));
+            banco.getLivros().removerLivro(esperado.get(0).getId());
+        }
+
+        try (BibliotecaJdbc banco = BibliotecaJdbc.abrir(diretorio, 2, true)) {
+            assertEquals(esperado.size() - 1, banco.getLivros().listarLivros().size());
+            assertNull(banco.getLivros().buscarLivroPorISBN(esperado.get(0).getIsbn()));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve cadastrar, atualizar, remover e rejeitar ISBN duplicado")
+    void testOperacoesBasicas() {
+        try (BibliotecaJdbc banco = BibliotecaJdbc.abrir(diretorio, 2, false)) {
+            LivroRepositoryJdbcImpl repositorio = banco.getLivros();
+            repositorio.salvarLivro(new Livro(0, "Dom Casmurro", "Machado de Assis", "9780000000001"));
+            repositorio.salvarLivro(new Livro(0, "Quincas Borba", "Machado de Assis", "9780000000002"));
+            Livro livro = repositorio.buscarLivroPorISBN("9780000000001");
+            assertEquals(1, livro.getId());
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> repositorio.salvarLivro(new Livro(0, "Outro", "Autor", "9780000000001")));
+            Livro conflitante = repositorio.buscarLivroPorId(2);
+            conflitante.setIsbn("9780000000001");
+            assertThrows(IllegalArgumentException.class, () -> repositorio.atualizarLivro(conflitante));
+
+            livro.setTitulo("Dom Casmurro Revisto");
+            livro.setDisponivel(false);
+            livro.setDataEmprestimo(LocalDate.of(2024, 3, 1));
+            repositorio.atualizarLivro(livro);
+            Livro relido = repositorio.buscarLivroPorId(1);
+            assertFalse(relido.isDisponivel());
+            assertEquals(LocalDate.of(2024, 3, 1), relido.getDataEmprestimo());
+            assertEquals(1, repositorio.listarLivrosPorTitulo("revisto").size());
+
+            repositorio.removerLivro(1);
+            assertNull(repositorio.buscarLivroPorId(1));
+            assertFalse(repositorio.existeISBN("9780000000001"));
+            assertTrue(banco.getPool().getStatementsReaproveitados() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("O upsert com id explícito deve avançar a sequência, e ids não devem ser reaproveitados ao reabrir")
+    void testUpsertESequencia() {
+        try (BibliotecaJdbc banco = BibliotecaJdbc.abrir(diretorio, 2, false)) {
+            banco.getLivros().atualizarLivro(Livro.restaurar(5_000, "Restaurado", "Autor", "9780000000005"));
+            banco.getLivros().salvarLivro(new Livro(0, "Novo", "Autor", "9780000000006"));
+            assertEquals(5_001, banco.getLivros().buscarLivroPorISBN("9780000000006").getId());
+            banco.getLivros().removerLivro(5_001);
+        }
+
+        try (BibliotecaJdbc banco = BibliotecaJdbc.abrir(diretorio, 2, false)) {
+            assertEquals("Restaurado", banco.getLivros().buscarLivroPorId(5_000).getTitulo());
+            assertTrue(banco.getLivros().gerarProximoId() > 5_001);
+        }
+    }
+
+    @Test
+    @DisplayName("A reserva de ids não deve ser desfeita pelo rollback da transação que gerou os ids")
+    void testReservaSobreviveRollback() {
+        int[] ultimo = new int[1];
+        try (BibliotecaJdbc banco = BibliotecaJdbc.abrir(diretorio, 1, false)) {
+            LivroRepositoryJdbcImpl livros = banco.getLivros();
+            assertThrows(IllegalStateException.class, () -> livros.executarEmLote(() -> {
+                for (int i = 0; i <= SequenciaIds.BLOCO; i++) {
+                    ultimo[0] = livros.gerarProximoId();
+                }
+                throw new IllegalStateException("falha simulada");
+            }));
+            assertTrue(livros.gerarProximoId() > ultimo[0]);
+        }
+
+        try (BibliotecaJdbc banco = BibliotecaJdbc.abrir(diretorio, 1, false)) {
+            assertTrue(banco.getLivros().gerarProximoId() > ultimo[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("Buscas por trecho devem tratar % e _ literalmente e ignorar acentos")
+    void testBuscaPorTrecho() {
+        try (BibliotecaJdbc banco = BibliotecaJdbc.abrir(diretorio, 2, false)) {
+            LivroRepositoryJdbcImpl repositorio = banco.getLivros();
+            repositorio.salvarLivro(new Livro(0, "Cem por cento", "João Guimarães", "9780000000001"));
+            repositorio.salvarLivro(new Livro(0, "100% Java", "Autor_Um", "9780000000002"));
+
+            assertEquals(1, repositorio.listarLivrosPorTitulo("%").size());
+            assertEquals(1, repositorio.listarLivrosPorAutor("r_u").size());
+            assertEquals(1, repositorio.listarLivrosPorAutor("JOAO").size());
+            assertEquals(2, repositorio.listarLivrosPorTitulo("").size());
+        }
+    }
+
+    @Test
+    @DisplayName("Buscas e paginação devem coincidir com o repositório em memória")
+    void testEquivalenciaComRepositorioEmMemoria() {
+        LivroRepositoryImpl referencia = new LivroRepositoryImpl(false);
+        Random aleatorio = new Random(42);
+        try (BibliotecaJdbc banco = BibliotecaJdbc.abrir(diretorio, 2, false)) {
+            LivroRepositoryJdbcImpl repositorio = banco.getLivros();
+            for (int i = 0; i < 500; i++) {
+                Livro livro = new Livro(0, "Crônica " + (i % 7 == 0 ? "Ávida " : "") + i, "Autor " + (i % 13),
+                        String.format("978%010d", i));
+                referencia.salvarLivro(livro);
+                repositorio.salvarLivro(livro);
+            }
+            for (int i = 0; i < 100; i++) {
+                int id = 1 + aleatorio.nextInt(500);
+                referencia.removerLivro(id);
+                repositorio.removerLivro(id);
+            }
+
+            for (String termo : new String[]{"avida", "cr", "1", "autor 1", "inexistente"}) {
+                assertEquals(ids(referencia.listarLivrosPorTitulo(termo)), ids(repositorio.listarLivrosPorTitulo(termo)));
+                assertEquals(ids(referencia.listarLivrosPorAutor(termo)), ids(repositorio.listarLivrosPorAutor(termo)));
+                assertEquals(ids(referencia.listarLivrosPorTituloAPartirDe(termo, 100, 20)),
+                        ids(repositorio.listarLivrosPorTituloAPartirDe(termo, 100, 20)));
+            }
+            assertEquals(ids(referencia.listarLivrosAPartirDe(100, 50)), ids(repositorio.listarLivrosAPartirDe(100, 50)));
+            for (OrdemListagem ordem : OrdemListagem.values()) {
+                assertEquals(ids(referencia.listarLivrosOrdenadosAPartirDe(ordem, null, 100)),
+                        ids(repositorio.listarLivrosOrdenadosAPartirDe(ordem, null, 100)));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Empréstimo e devolução devem gravar o livro na mesma transação")
+    void testEmprestimoAtomico() {
+        LocalDate hoje = LocalDate.now();
+        try (BibliotecaJdbc banco = BibliotecaJdbc.abrir(diretorio, 2, false)) {
+            banco.getLivros().salvarLivro(new Livro(0, "Dom Casmurro", "Machado de Assis", "9780000000001"));
+            EmprestimoRepositoryJdbcImpl emprestimos = banco.getEmprestimos();
+
+            emprestimos.realizarEmprestimo(new Emprestimo(0, 1, hoje, hoje.plusDays(10), 10, 0));
+            assertFalse(banco.getLivros().buscarLivroPorId(1).isDisponivel());
+            assertThrows(IllegalStateException.class,
+                    () -> emprestimos.realizarEmprestimo(new Emprestimo(0, 1, hoje, hoje.plusDays(10), 10, 0)));
+            //Livro inexistente: o empréstimo já inserido é desfeito junto
+            assertThrows(NoSuchElementException.class,
+                    () -> emprestimos.realizarEmprestimo(new Emprestimo(0, 99, hoje, hoje.plusDays(10), 10, 0)));
+            assertNull(emprestimos.buscarLivroPorId(99));
+            assertEquals(1, emprestimos.listarEmprestimos().size());
+        }
+
+        try (BibliotecaJdbc banco = BibliotecaJdbc.abrir(diretorio, 2, false)) {
+            Emprestimo ativo = banco.getEmprestimos().buscarLivroPorId(1);
+            assertEquals(hoje.plusDays(10), ativo.getDataEstimadaDevolucao());
+            banco.getEmprestimos().removerEmprestimo(ativo);
+            assertTrue(banco.getLivros().buscarLivroPorId(1).isDisponivel());
+            assertTrue(banco.getEmprestimos().listarEmprestimos().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve escapar os curingas do LIKE")
+    void testEscaparLike() {
+        assertEquals("100\\% a\\_b \\\\", LivroRepositoryJdbcImpl.escaparLike("100% a_b \\"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Cadastro, busca por id e por ISBN: banco embutido x memória")
+    void benchmarkJdbcContraMemoria() {
+        int livros = 100_000;
+        medir("Memória", new LivroRepositoryImpl(false), livros);
+        try (BibliotecaJdbc banco = BibliotecaJdbc.abrir(diretorio, 4, false)) {
+            medir("H2 + JDBC", banco.getLivros(), livros);
+        }
+    }
+
+    private static void medir(String nome, iLivroRepository repositorio, int livros) {
+        //Aquecimento do JIT e do cache de statements antes das medições
+        for (int i = 0; i < 10_000; i++) {
+            repositorio.buscarLivroPorId(i);
+        }
+        long inicio = System.nanoTime();
+        for (int i = 0; i < livros; i++) {
+            repositorio.salvarLivro(new Livro(0, "Título do livro " + i, "Autor " + (i % 5_000),
+                    String.format("978%010d", i)));
+        }
+        long cadastro = System.nanoTime() - inicio;
+
+        Random aleatorio = new Random(1);
+        inicio = System.nanoTime();
+        for (int i = 0; i < 100_000; i++) {
+            assertNotNull(repositorio.buscarLivroPorId(1 + aleatorio.nextInt(livros)));
+        }
+        long porId = System.nanoTime() - inicio;
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < 100_000; i++) {
+            assertNotNull(repositorio.buscarLivroPorISBN(String.format("978%010d", aleatorio.nextInt(livros))));
+        }
+        long porIsbn = System.nanoTime() - inicio;
+        System.out.printf("%s: %d cadastros/s | busca por id: %d ns/op | por ISBN: %d ns/op%n", nome,
+                (long) (livros / (cadastro / 1e9)), porId / 100_000, porIsbn / 100_000);
+    }
+
+    private static List<Integer> ids(List<Livro> livros) {
+        return livros.stream().map(Livro::getId).toList();
+    }
+}
@@ -0,0 +1,233 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import com.br.infnet.repository.lsm.MotorLsm;
+import com.br.infnet.repository.persistencia.LogEscritaAntecipada;
+import com.br.infnet.repository.persistencia.PoliticaDurabilidade;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do LivroRepositoryLsmImpl")
+class LivroRepositoryLsmImplTest {
+
+    //Memtable e segmentos pequenos para forçar descartes e compactações com poucos livros
+    private static final long MEMTABLE_TESTE = 16 * 1024;
+    private static final long SEGMENTO_TESTE = 32 * 1024;
+
+    @TempDir
+    Path diretorio;
+
+    private LivroRepositoryLsmImpl abrir() throws IOException {
+        return new LivroRepositoryLsmImpl(new MotorLsm(diretorio, PoliticaDurabilidade.PERIODICA,
+                MEMTABLE_TESTE, SEGMENTO_TESTE));
+    }
+
+    @Test
+    @DisplayName("Deve carregar o catálogo inicial só num diretório vazio")
+    void testCatalogoInicial() throws IOException {
+        List<Livro> esperado = new LivroRepositoryImpl().listarLivros();
+        try (LivroRepositoryLsmImpl repositorio = LivroRepositoryLsmImpl.abrir(diretorio, PoliticaDurabilidade.PERIODICA)) {
+            assertEquals(esperado.size(), repositorio.listarLivros().size());
+            repositorio.removerLivro(repositorio.buscarLivroPorISBN(esperado.get(0).getIsbn()).getId());
+        }
+
+        try (LivroRepositoryLsmImpl repositorio = LivroRepositoryLsmImpl.abrir(diretorio, PoliticaDurabilidade.PERIODICA)) {
+            assertEquals(esperado.size() - 1, repositorio.listarLivros().size());
+            assertNull(repositorio.buscarLivroPorISBN(esperado.get(0).getIsbn()));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve cadastrar, atualizar, remover e rejeitar ISBN duplicado")
+    void testOperacoesBasicas() throws IOException {
+        try (LivroRepositoryLsmImpl repositorio = abrir()) {
+            repositorio.salvarLivro(new Livro(0, "Dom Casmurro", "Machado de Assis", "9780000000001"));
+            Livro livro = repositorio.buscarLivroPorISBN("9780000000001");
+            assertEquals(1, livro.getId());
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> repositorio.salvarLivro(new Livro(0, "Outro", "Autor", "9780000000001")));
+
+            livro.setDisponivel(false);
+            livro.setTitulo("Dom Casmurro Revisto");
+            repositorio.atualizarLivro(livro);
+            assertFalse(repositorio.buscarLivroPorId(1).isDisponivel());
+            assertEquals(1, repositorio.listarLivrosPorTitulo("revisto").size());
+
+            repositorio.removerLivro(1);
+            assertNull(repositorio.buscarLivroPorId(1));
+            assertFalse(repositorio.existeISBN("9780000000001"));
+            repositorio.salvarLivro(new Livro(0, "Dom Casmurro", "Machado de Assis", "9780000000001"));
+            assertEquals(2, repositorio.buscarLivroPorISBN("9780000000001").getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Um ISBN trocado de livro deve apontar só para o dono atual, mesmo em segmentos antigos")
+    void testIsbnTrocadoEntreSegmentos() throws IOException {
+        try (LivroRepositoryLsmImpl repositorio = abrir()) {
+            repositorio.salvarLivro(new Livro(0, "Primeiro", "Autor", "9780000000001"));
+            repositorio.descartarMemtable();
+
+            Livro primeiro = repositorio.buscarLivroPorId(1);
+            primeiro.setIsbn("9780000000002");
+            repositorio.atualizarLivro(primeiro);
+            repositorio.salvarLivro(new Livro(0, "Segundo", "Autor", "9780000000001"));
+            repositorio.descartarMemtable();
+
+            assertEquals(2, repositorio.buscarLivroPorISBN("9780000000001").getId());
+            assertEquals(1, repositorio.buscarLivroPorISBN("9780000000002").getId());
+            Livro segundo = repositorio.buscarLivroPorId(2);
+            segundo.setIsbn("9780000000002");
+            assertThrows(IllegalArgumentException.class, () -> repositorio.atualizarLivro(segundo));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve reproduzir o log ao reabrir e manter as remoções gravadas em segmentos")
+    void testReabrirReproduzLog() throws IOException {
+        try (LivroRepositoryLsmImpl repositorio = abrir()) {
+            for (int i = 0; i < 500; i++) {
+                repositorio.salvarLivro(new Livro(0, "Livro " + i, "Autor", String.format("978%010d", i)));
+            }
+            repositorio.descartarMemtable();
+            repositorio.removerLivro(10);
+            repositorio.salvarLivro(new Livro(0, "Só no log", "Autor", "9790000000001"));
+        }
+
+        try (LivroRepositoryLsmImpl repositorio = abrir()) {
+            assertNull(repositorio.buscarLivroPorId(10));
+            assertEquals(500, repositorio.listarLivros().size());
+            assertEquals("Só no log", repositorio.buscarLivroPorISBN("9790000000001").getTitulo());
+            assertEquals(502, repositorio.gerarProximoId());
+        }
+        try (var arquivos = Files.list(diretorio)) {
+            assertEquals(1, arquivos.filter(arquivo -> arquivo.toString().endsWith(".wal")).count());
+        }
+    }
+
+    @Test
+    @DisplayName("Buscas, paginação e ordenação devem coincidir com o repositório em memória após compactações")
+    void testEquivalenciaComRepositorioEmMemoria() throws IOException {
+        LivroRepositoryImpl referencia = new LivroRepositoryImpl(false);
+        Random aleatorio = new Random(42);
+        try (LivroRepositoryLsmImpl repositorio = abrir()) {
+            for (int i = 0; i < 3_000; i++) {
+                Livro livro = new Livro(0, "Crônica " + (i % 7 == 0 ? "Ávida " : "") + i, "Autor " + (i % 13),
+                        String.format("978%010d", i));
+                referencia.salvarLivro(livro);
+                repositorio.salvarLivro(livro);
+            }
+            for (int i = 0; i < 2_000; i++) {
+                int id = 1 + aleatorio.nextInt(3_000);
+                if (i % 5 == 0) {
+                    referencia.removerLivro(id);
+                    repositorio.removerLivro(id);
+                } else if (referencia.buscarLivroPorId(id) != null) {
+                    Livro livro = referencia.buscarLivroPorId(id);
+                    Livro editado = Livro.restaurar(id, livro.getTitulo() + " revisto", livro.getAutor(), livro.getIsbn());
+                    editado.setDisponivel(aleatorio.nextBoolean());
+                    referencia.atualizarLivro(editado);
+                    repositorio.atualizarLivro(editado);
+                }
+            }
+            repositorio.descartarMemtable();
+            assertTrue(repositorio.getMotor().getCompactacoes() > 0);
+
+            List<Livro> esperados = referencia.listarLivros().stream()
+                    .sorted(Comparator.comparingInt(Livro::getId))
+                    .toList();
+            List<Livro> obtidos = repositorio.listarLivros();
+            assertEquals(ids(esperados), ids(obtidos));
+            for (int i = 0; i < esperados.size(); i++) {
+                assertEquals(esperados.get(i).getTitulo(), obtidos.get(i).getTitulo());
+                assertEquals(esperados.get(i).isDisponivel(), obtidos.get(i).isDisponivel());
+                assertEquals(esperados.get(i).getId(), repositorio.buscarLivroPorISBN(esperados.get(i).getIsbn()).getId());
+            }
+            for (String termo : new String[]{"avida", "revisto", "1", "autor 1", "inexistente"}) {
+                assertEquals(ids(referencia.listarLivrosPorTitulo(termo)), ids(repositorio.listarLivrosPorTitulo(termo)));
+                assertEquals(ids(referencia.listarLivrosPorAutor(termo)), ids(repositorio.listarLivrosPorAutor(termo)));
+            }
+            assertEquals(ids(referencia.listarLivrosAPartirDe(1_000, 50)), ids(repositorio.listarLivrosAPartirDe(1_000, 50)));
+            for (OrdemListagem ordem : OrdemListagem.values()) {
+                assertEquals(ids(referencia.listarLivrosOrdenadosAPartirDe(ordem, null, 100)),
+                        ids(repositorio.listarLivrosOrdenadosAPartirDe(ordem, null, 100)));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar um segmento corrompido ao abrir")
+    void testSegmentoCorrompido() throws IOException {
+        try (LivroRepositoryLsmImpl repositorio = abrir()) {
+            repositorio.salvarLivro(new Livro(0, "Primeiro", "Autor", "9780000000001"));
+            repositorio.descartarMemtable();
+        }
+        Path segmento;
+        try (var arquivos = Files.list(diretorio)) {
+            segmento = arquivos.filter(arquivo -> arquivo.toString().endsWith(".seg")).findFirst().orElseThrow();
+        }
+        byte[] conteudo = Files.readAllBytes(segmento);
+        conteudo[12] ^= 1;
+        Files.write(segmento, conteudo);
+
+        assertThrows(IllegalStateException.class, this::abrir);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Vazão de ingestão (inclusões + edições) e busca por id: LSM x log com índices em memória")
+    void benchmarkIngestao() throws IOException {
+        int livros = 300_000;
+        try (LivroRepositoryLsmImpl repositorio = LivroRepositoryLsmImpl.abrir(diretorio.resolve("lsm"),
+                PoliticaDurabilidade.PERIODICA)) {
+            medir("LSM", repositorio, livros);
+        }
+        LivroRepositoryDuravelImpl duravel = new LivroRepositoryDuravelImpl(new LivroRepositoryImpl(false),
+                new LogEscritaAntecipada(diretorio.resolve("livros.wal"), PoliticaDurabilidade.PERIODICA));
+        medir("Log + memória", duravel, livros / 5);
+    }
+
+    private static void medir(String nome, iLivroRepository repositorio, int livros) {
+        long inicio = System.nanoTime();
+        for (int i = 0; i < livros; i++) {
+            repositorio.salvarLivro(new Livro(0, "Título do livro " + i, "Autor " + (i % 5_000),
+                    String.format("978%010d", i)));
+        }
+        Random aleatorio = new Random(1);
+        for (int i = 0; i < livros / 3; i++) {
+            int id = 1 + aleatorio.nextInt(livros);
+            Livro livro = repositorio.buscarLivroPorId(id);
+            repositorio.atualizarLivro(Livro.restaurar(id, livro.getTitulo() + " (2ª ed.)", livro.getAutor(),
+                    livro.getIsbn()));
+        }
+        long ingestao = System.nanoTime() - inicio;
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < 100_000; i++) {
+            assertNotNull(repositorio.buscarLivroPorId(1 + aleatorio.nextInt(livros)));
+        }
+        long buscas = System.nanoTime() - inicio;
+        System.out.printf("%s: %d escritas/s | busca por id: %d ns/op%n", nome,
+                (long) ((livros + livros / 3) / (ingestao / 1e9)), buscas / 100_000);
+    }
+
+    private static List<Integer> ids(List<Livro> livros) {
+        return livros.stream().map(Livro::getId).toList();
+    }
+}
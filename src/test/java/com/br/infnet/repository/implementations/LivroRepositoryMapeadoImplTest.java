@@ -0,0 +1,428 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.repository.armazenamento.CompactadorFundo;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do LivroRepositoryMapeadoImpl")
+class LivroRepositoryMapeadoImplTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Deve carregar o catálogo inicial só em arquivos novos e restaurá-lo ao reabrir")
+    void testCatalogoInicial() throws IOException {
+        List<Livro> esperado = new LivroRepositoryImpl().listarLivros();
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio)) {
+            assertEquals(esperado.size(), repositorio.listarLivros().size());
+            repositorio.removerLivro(esperado.get(0).getId());
+        }
+
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio)) {
+            assertEquals(esperado.size() - 1, repositorio.listarLivros().size());
+            for (Livro livro : esperado.subList(1, esperado.size())) {
+                Livro lido = repositorio.buscarLivroPorISBN(livro.getIsbn());
+                assertNotNull(lido);
+                assertEquals(livro.getTitulo(), lido.getTitulo());
+                assertEquals(livro.getAutor(), repositorio.buscarLivroPorId(lido.getId()).getAutor());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Deve restaurar estado de empréstimo, ISBN e próximo id ao reabrir")
+    void testReabrirRestauraEstado() throws IOException {
+        LocalDate hoje = LocalDate.now();
+        int id;
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            repositorio.salvarLivro(new Livro(0, "Memórias Póstumas", "Machado de Assis", "9790000000001"));
+            Livro livro = repositorio.buscarLivroPorISBN("9790000000001");
+            id = livro.getId();
+            livro.setDisponivel(false);
+            livro.setDataEmprestimo(hoje);
+            livro.setDataEstimadaDevolucao(hoje.plusDays(7));
+            livro.setPrazoDevolucao(7);
+            livro.setMulta(2.5);
+            repositorio.atualizarLivro(livro);
+        }
+
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            Livro relido = repositorio.buscarLivroPorId(id);
+            assertEquals("Memórias Póstumas", relido.getTitulo());
+            assertEquals("Machado de Assis", relido.getAutor());
+            assertFalse(relido.isDisponivel());
+            assertEquals(hoje, relido.getDataEmprestimo());
+            assertEquals(hoje.plusDays(7), relido.getDataEstimadaDevolucao());
+            assertNull(relido.getDataEfetivaDevolucao());
+            assertEquals(7, relido.getPrazoDevolucao());
+            assertEquals(2.5, relido.getMulta());
+            assertTrue(repositorio.existeISBN("9790000000001"));
+            assertEquals(1, repositorio.listarLivrosPorTitulo("postumas").size());
+            assertTrue(repositorio.gerarProximoId() > id);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve reaproveitar o slot de um livro removido")
+    void testReaproveitaSlotLivre() throws IOException {
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            for (int i = 0; i < 3; i++) {
+                repositorio.salvarLivro(new Livro(0, "Livro " + i, "Autor", String.format("978%010d", i)));
+            }
+            int removido = repositorio.buscarLivroPorISBN("9780000000001").getId();
+            repositorio.removerLivro(removido);
+            assertNull(repositorio.buscarLivroPorId(removido));
+            assertFalse(repositorio.existeISBN("9780000000001"));
+            //O slot só volta à lista de livres quando a compactação recolhe a lápide
+            repositorio.compactar();
+
+            repositorio.salvarLivro(new Livro(0, "Livro novo", "Autor", "9780000000009"));
+
+            assertEquals(3, repositorio.slotsEmUso());
+            assertEquals(3, repositorio.listarLivros().size());
+            assertEquals("Livro novo", repositorio.buscarLivroPorISBN("9780000000009").getTitulo());
+        }
+
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            repositorio.salvarLivro(new Livro(0, "Outro livro", "Autor", "9780000000010"));
+            assertEquals(4, repositorio.slotsEmUso());
+        }
+    }
+
+    @Test
+    @DisplayName("Mudanças só de estado não devem gravar os textos de novo no heap")
+    void testAtualizarReaproveitaTextos() throws IOException {
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            repositorio.salvarLivro(new Livro(0, "Título Original", "Autora", "9780000000010"));
+            Livro livro = repositorio.buscarLivroPorISBN("9780000000010");
+
+            livro.setDisponivel(false);
+            repositorio.atualizarLivro(livro);
+            assertEquals(0, repositorio.bytesObsoletosHeap());
+
+            livro.setTitulo("Título Revisado");
+            livro.setIsbn("9780000000011");
+            repositorio.atualizarLivro(livro);
+            assertTrue(repositorio.bytesObsoletosHeap() > 0);
+            assertFalse(repositorio.existeISBN("9780000000010"));
+            assertTrue(repositorio.listarLivrosPorTitulo("original").isEmpty());
+            assertEquals(1, repositorio.listarLivrosPorTitulo("revisado").size());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar ISBN duplicado")
+    void testIsbnDuplicado() throws IOException {
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            repositorio.salvarLivro(new Livro(0, "Primeiro", "Autor Um", "0780000000001"));
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> repositorio.salvarLivro(new Livro(0, "Segundo", "Autor Dois", "0780000000001")));
+            assertEquals("0780000000001", repositorio.buscarLivroPorISBN("0780000000001").getIsbn());
+
+            //O cadastro recusado não consome id
+            int idPrimeiro = repositorio.buscarLivroPorISBN("0780000000001").getId();
+            repositorio.salvarLivro(new Livro(0, "Terceiro", "Autor Três", "0780000000003"));
+            assertEquals(idPrimeiro + 1, repositorio.buscarLivroPorISBN("0780000000003").getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Buscas e paginação devem coincidir com o repositório em memória, crescendo os arquivos")
+    void testEquivalenciaComRepositorioEmMemoria() throws IOException {
+        iLivroRepository referencia = new LivroRepositoryImpl(false);
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            for (int i = 0; i < 300; i++) {
+                Livro livro = new Livro(0, "Crônica " + (i % 7 == 0 ? "Ávida " : "") + i, "Autor " + (i % 13),
+                        String.format("978%010d", i));
+                referencia.salvarLivro(livro);
+                repositorio.salvarLivro(livro);
+            }
+
+            for (String termo : new String[]{"avida", "cr", "1", "autor 1", "inexistente"}) {
+                assertEquals(ids(referencia.listarLivrosPorTitulo(termo)), ids(repositorio.listarLivrosPorTitulo(termo)));
+                assertEquals(ids(referencia.listarLivrosPorAutor(termo)), ids(repositorio.listarLivrosPorAutor(termo)));
+            }
+            assertEquals(ids(referencia.listarLivrosAPartirDe(100, 50)), ids(repositorio.listarLivrosAPartirDe(100, 50)));
+            for (OrdemListagem ordem : OrdemListagem.values()) {
+                assertEquals(ids(referencia.listarLivrosOrdenadosAPartirDe(ordem, null, 1000)),
+                        ids(repositorio.listarLivrosOrdenadosAPartirDe(ordem, null, 1000)));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar arquivos que não são de um acervo mapeado")
+    void testArquivoInvalido() throws IOException {
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            repositorio.salvarLivro(new Livro(0, "Primeiro", "Autor Um", "9780000000001"));
+        }
+        try (FileChannel canal = FileChannel.open(diretorio.resolve(LivroRepositoryMapeadoImpl.ARQUIVO_SLOTS),
+                StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.allocate(4).putInt(0, 0xCAFE), 0);
+        }
+
+        assertThrows(IllegalStateException.class, () -> new LivroRepositoryMapeadoImpl(diretorio, 4, false));
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir os índices a partir dos slots quando não foram fechados limpos")
+    void testReconstroiIndices() throws IOException {
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            for (int i = 0; i < 200; i++) {
+                repositorio.salvarLivro(new Livro(0, "Livro " + i, "Autor", String.format("978%010d", i)));
+            }
+            repositorio.removerLivro(50);
+        }
+        //Índice de ids marcado como sujo e índice de ISBN apagado, como após uma queda
+        try (FileChannel canal = FileChannel.open(diretorio.resolve(LivroRepositoryMapeadoImpl.ARQUIVO_INDICE_IDS),
+                StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.allocate(4).putInt(0, 2), 12);
+        }
+        Files.delete(diretorio.resolve(LivroRepositoryMapeadoImpl.ARQUIVO_INDICE_ISBN));
+
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            assertEquals(199, repositorio.listarLivros().size());
+            assertNull(repositorio.buscarLivroPorId(50));
+            assertEquals(120, repositorio.buscarLivroPorISBN("9780000000119").getId());
+            assertFalse(repositorio.existeISBN("9780000000049"));
+            assertEquals(201, repositorio.gerarProximoId());
+        }
+    }
+
+    @Test
+    @DisplayName("Remoção deve gravar só a lápide, e a compactação deve devolver o slot sem perder o ISBN reusado")
+    void testRemocaoComLapide() throws IOException {
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            for (int i = 0; i < 10; i++) {
+                repositorio.salvarLivro(new Livro(0, "Livro " + i, "Autor", String.format("978%010d", i)));
+            }
+            repositorio.removerLivro(3);
+            repositorio.removerLivro(7);
+            repositorio.removerLivro(7);
+            assertEquals(2, repositorio.lapidesPendentes());
+            assertEquals(10, repositorio.slotsEmUso());
+            assertNull(repositorio.buscarLivroPorId(3));
+            assertNull(repositorio.buscarLivroPorISBN("9780000000002"));
+            assertFalse(repositorio.existeISBN("9780000000006"));
+            assertEquals(8, repositorio.listarLivros().size());
+            assertTrue(repositorio.listarLivrosPorTitulo("livro 2").isEmpty());
+
+            //O ISBN de um livro removido fica livre antes de a lápide ser recolhida
+            repositorio.salvarLivro(new Livro(0, "Reedição", "Autor", "9780000000002"));
+            assertEquals("Reedição", repositorio.buscarLivroPorISBN("9780000000002").getTitulo());
+        }
+
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            assertEquals(2, repositorio.lapidesPendentes());
+            assertEquals(9, repositorio.listarLivros().size());
+
+            assertTrue(repositorio.compactar() >= 2L * LivroRepositoryMapeadoImpl.TAMANHO_SLOT);
+            assertEquals(0, repositorio.lapidesPendentes());
+            assertEquals("Reedição", repositorio.buscarLivroPorISBN("9780000000002").getTitulo());
+            assertNull(repositorio.buscarLivroPorId(3));
+
+            repositorio.salvarLivro(new Livro(0, "Novo A", "Autor", "9780000000100"));
+            repositorio.salvarLivro(new Livro(0, "Novo B", "Autor", "9780000000101"));
+            assertEquals(11, repositorio.slotsEmUso());
+            assertEquals(11, repositorio.listarLivros().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Compactação do heap deve recuperar os textos obsoletos sem alterar os livros vivos")
+    void testCompactacaoHeap() throws IOException {
+        iLivroRepository referencia = new LivroRepositoryImpl(false);
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            for (int i = 0; i < 500; i++) {
+                Livro livro = new Livro(0, "Crônica número " + i, "Autora " + (i % 11), String.format("978%010d", i));
+                referencia.salvarLivro(livro);
+                repositorio.salvarLivro(livro);
+            }
+            for (int id = 1; id <= 500; id += 3) {
+                Livro revisado = new Livro(id, "Crônica revisada " + id, "Autora " + (id % 11),
+                        String.format("979%010d", id));
+                referencia.atualizarLivro(revisado);
+                repositorio.atualizarLivro(revisado);
+            }
+            for (int id = 2; id <= 500; id += 5) {
+                referencia.removerLivro(id);
+                repositorio.removerLivro(id);
+            }
+            long obsoletos = repositorio.bytesObsoletosHeap();
+            assertTrue(obsoletos > 0);
+
+            assertTrue(repositorio.compactar() >= obsoletos);
+            assertEquals(0, repositorio.bytesObsoletosHeap());
+            assertLivrosIguais(referencia, repositorio);
+            assertTrue(repositorio.getMetricasCompactacao().bytesRecuperados() >= obsoletos);
+            assertEquals(0, repositorio.getMetricasCompactacao().pendenciaBytes());
+
+            Livro depois = new Livro(0, "Depois da compactação", "Autora", "9770000000001");
+            referencia.salvarLivro(depois);
+            repositorio.salvarLivro(depois);
+        }
+
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio, 4, false)) {
+            assertLivrosIguais(referencia, repositorio);
+        }
+    }
+
+    @Test
+    @DisplayName("A compactação de fundo deve recolher lápides e heap obsoleto enquanto o acervo é lido")
+    void testCompactacaoDeFundo() throws Exception {
+        int livros = 20_000;
+        String sufixo = "x".repeat(100);
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio,
+                LivroRepositoryMapeadoImpl.SLOTS_INICIAIS_PADRAO, false, 64, 64L << 20)) {
+            for (int i = 0; i < livros; i++) {
+                repositorio.salvarLivro(new Livro(0, "Título " + i + sufixo, "Autor " + i, String.format("978%010d", i)));
+            }
+            for (int id = 1; id <= livros; id++) {
+                if (id % 2 == 0) {
+                    repositorio.removerLivro(id);
+                } else {
+                    repositorio.atualizarLivro(new Livro(id, "Revisto " + id + sufixo, "Autor " + id,
+                            String.format("978%010d", id - 1)));
+                }
+            }
+
+            long limite = System.currentTimeMillis() + 20_000;
+            while ((repositorio.lapidesPendentes() > 0 || repositorio.bytesObsoletosHeap() > 0)
+                    && System.currentTimeMillis() < limite) {
+                int id = 1 + 2 * (int) (Math.random() * (livros / 2));
+                assertEquals("Revisto " + id + sufixo, repositorio.buscarLivroPorId(id).getTitulo());
+                Thread.sleep(1);
+            }
+            assertEquals(0, repositorio.lapidesPendentes());
+            assertEquals(0, repositorio.bytesObsoletosHeap());
+            //A compactação de fundo pode começar durante as alterações: o heap obsoleto é conferido pelo que ela
+            //recuperou, depois de uma compactação explícita que não acha mais nada e espera o passo em curso
+            assertEquals(0, repositorio.compactar());
+            assertTrue(repositorio.getMetricasCompactacao().bytesRecuperados() > 1 << 20);
+            assertTrue(repositorio.getMetricasCompactacao().rodadas() >= 1);
+            assertEquals(livros / 2, repositorio.listarLivros().size());
+            assertEquals("Revisto 19999" + sufixo, repositorio.buscarLivroPorISBN("9780000019998").getTitulo());
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Tempo de abertura e de busca por id com 1M livros")
+    void benchmarkAberturaComUmMilhao() throws IOException {
+        int livros = 1_000_000;
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio,
+                LivroRepositoryMapeadoImpl.SLOTS_INICIAIS_PADRAO, false)) {
+            for (int i = 0; i < livros; i++) {
+                repositorio.salvarLivro(new Livro(0, "Título do livro " + i, "Autor " + (i % 5_000),
+                        String.format("978%010d", i)));
+            }
+        }
+
+        long inicio = System.nanoTime();
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio,
+                LivroRepositoryMapeadoImpl.SLOTS_INICIAIS_PADRAO, false)) {
+            long abertura = System.nanoTime() - inicio;
+            inicio = System.nanoTime();
+            for (int id = 1; id <= livros; id += 97) {
+                assertNotNull(repositorio.buscarLivroPorId(id));
+            }
+            long buscas = System.nanoTime() - inicio;
+            System.out.printf("Abertura: %d ms | busca por id: %d ns/op%n", abertura / 1_000_000,
+                    buscas / (livros / 97 + 1));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Latência de busca por id com e sem a compactação de fundo")
+    void benchmarkLatenciaDuranteCompactacao() throws Exception {
+        int livros = 500_000;
+        try (LivroRepositoryMapeadoImpl repositorio = new LivroRepositoryMapeadoImpl(diretorio,
+                LivroRepositoryMapeadoImpl.SLOTS_INICIAIS_PADRAO, false)) {
+            for (int i = 0; i < livros; i++) {
+                repositorio.salvarLivro(new Livro(0, "Título do livro " + i, "Autor " + (i % 5_000),
+                        String.format("978%010d", i)));
+            }
+            long[] ociosa = medirBuscas(repositorio, livros, () -> true, 200_000);
+
+            long inicio = System.nanoTime();
+            for (int id = 1; id <= livros; id++) {
+                if (id % 2 == 0) {
+                    repositorio.removerLivro(id);
+                } else {
+                    repositorio.atualizarLivro(new Livro(id, "Título revisto " + id, "Autor " + (id % 5_000),
+                            String.format("978%010d", id - 1)));
+                }
+            }
+            long escritasMs = (System.nanoTime() - inicio) / 1_000_000;
+            long pendencia = repositorio.getMetricasCompactacao().pendenciaBytes();
+            long[] durante = medirBuscas(repositorio, livros,
+                    () -> repositorio.getMetricasCompactacao().pendenciaBytes() > 0, Integer.MAX_VALUE);
+
+            CompactadorFundo.Metricas metricas = repositorio.getMetricasCompactacao();
+            System.out.printf("Remoções/atualizações: %d ms | pendência: %.1f MB | recuperados: %.1f MB em %d ms "
+                            + "(%d passos)%n", escritasMs, pendencia / 1e6, metricas.bytesRecuperados() / 1e6,
+                    metricas.tempoGastoMs(), metricas.passos());
+            System.out.printf("Busca por id p50/p99/máx (ns): ociosa %d/%d/%d | durante a compactação %d/%d/%d (%d buscas)%n",
+                    ociosa[0], ociosa[1], ociosa[2], durante[0], durante[1], durante[2], durante[3]);
+        }
+    }
+
+    //Busca ids ímpares aleatórios enquanto "continuar" e até "maximo" buscas; devolve p50, p99, máximo e total
+    private static long[] medirBuscas(iLivroRepository repositorio, int livros, BooleanSupplier continuar,
+                                      int maximo) {
+        long[] latencias = new long[1 << 22];
+        int total = 0;
+        Random aleatorio = new Random(5);
+        while (total < maximo && total < latencias.length && continuar.getAsBoolean()) {
+            int id = 1 + 2 * aleatorio.nextInt(livros / 2);
+            long inicio = System.nanoTime();
+            assertNotNull(repositorio.buscarLivroPorId(id));
+            latencias[total++] = System.nanoTime() - inicio;
+        }
+        long[] medidas = Arrays.copyOf(latencias, total);
+        Arrays.sort(medidas);
+        return new long[]{medidas[total / 2], medidas[(int) (total * 0.99)], medidas[total - 1], total};
+    }
+
+    private static void assertLivrosIguais(iLivroRepository esperado, iLivroRepository obtido) {
+        List<Livro> livros = esperado.listarLivros();
+        assertEquals(livros.size(), obtido.listarLivros().size());
+        for (Livro livro : livros) {
+            Livro lido = obtido.buscarLivroPorId(livro.getId());
+            assertNotNull(lido, "livro " + livro.getId());
+            assertEquals(livro.getTitulo(), lido.getTitulo());
+            assertEquals(livro.getAutor(), lido.getAutor());
+            assertEquals(livro.getIsbn(), lido.getIsbn());
+            assertEquals(livro.getId(), obtido.buscarLivroPorISBN(livro.getIsbn()).getId());
+        }
+    }
+
+    private List<Integer> ids(List<Livro> livros) {
+        return livros.stream().map(Livro::getId).toList();
+    }
+}
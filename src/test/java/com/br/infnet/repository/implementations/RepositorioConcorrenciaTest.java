@@ -0,0 +1,183 @@
+package com.br.infnet.repository.implementations;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.model.Livro;
+import com.br.infnet.repository.interfaces.iEmprestimoRepository;
+import com.br.infnet.repository.interfaces.iLivroRepository;
+import com.br.infnet.service.LivroService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes de concorrência dos repositórios")
+class RepositorioConcorrenciaTest {
+
+    private static final int LIVROS_POR_ESCRITOR = 500;
+
+    private iLivroRepository livroRepository;
+
+    @BeforeEach
+    void setUp() {
+        livroRepository = new LivroRepositoryImpl();
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @DisplayName("Listagens concorrentes com cadastros não devem falhar")
+    void testLeiturasDuranteEscritas() throws InterruptedException {
+        int escritores = 4;
+        int leitores = 4;
+        int tamanhoInicial = livroRepository.listarLivros().size();
+        ExecutorService executor = Executors.newFixedThreadPool(escritores + leitores);
+        CountDownLatch escritasConcluidas = new CountDownLatch(escritores);
+        Queue<Throwable> erros = new ConcurrentLinkedQueue<>();
+
+        for (int e = 0; e < escritores; e++) {
+            int escritor = e;
+            executor.submit(() -> {
+                try {
+                    for (int i = 0; i < LIVROS_POR_ESCRITOR; i++) {
+                        String isbn = String.format("97%d%010d", escritor, i);
+                        livroRepository.salvarLivro(new Livro(0, "Livro " + isbn, "Autor Concorrente", isbn));
+                    }
+                } catch (Throwable t) {
+                    erros.add(t);
+                } finally {
+                    escritasConcluidas.countDown();
+                }
+            });
+        }
+        for (int l = 0; l < leitores; l++) {
+            executor.submit(() -> {
+                try {
+                    while (escritasConcluidas.getCount() > 0) {
+                        for (Livro livro : livroRepository.listarLivros()) {
+                            assertNotNull(livro.getTitulo());
+                        }
+                        livroRepository.listarLivrosPorAutor("concorrente");
+                    }
+                } catch (Throwable t) {
+                    erros.add(t);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+
+        assertTrue(erros.isEmpty(), () -> "Erros durante o acesso concorrente: " + erros);
+        assertEquals(tamanhoInicial + escritores * LIVROS_POR_ESCRITOR, livroRepository.listarLivros().size());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @DisplayName("Empréstimos concorrentes de livros distintos devem ser todos registrados")
+    void testEmprestimosConcorrentes() throws InterruptedException {
+        LivroService livroService = new LivroService(livroRepository);
+        iEmprestimoRepository emprestimoRepository = new EmprestimoRepositoryImpl(livroService);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String isbn = String.format("979%010d", i);
+            livroRepository.salvarLivro(new Livro(0, "Emprestável " + i, "Autor", isbn));
+            ids.add(livroRepository.buscarLivroPorISBN(isbn).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Queue<Throwable> erros = new ConcurrentLinkedQueue<>();
+        LocalDate hoje = LocalDate.now();
+        for (int id : ids) {
+            executor.submit(() -> {
+                try {
+                    emprestimoRepository.realizarEmprestimo(new Emprestimo(0, id, hoje, hoje.plusDays(7), 7, 0));
+                } catch (Throwable t) {
+                    erros.add(t);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+
+        assertTrue(erros.isEmpty(), () -> "Erros durante o acesso concorrente: " + erros);
+        assertEquals(ids.size(), emprestimoRepository.listarEmprestimos().size());
+        assertEquals(ids.size(), emprestimoRepository.listarEmprestimos().stream().map(Emprestimo::getId).distinct().count());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Benchmark: vazão de leitura por número de threads")
+    void benchmarkEscalabilidadeLeitura() throws InterruptedException {
+        for (int i = 0; i < 20_000; i++) {
+            String isbn = String.format("978%010d", i);
+            livroRepository.salvarLivro(new Livro(0, "Livro " + i, "Autor " + (i % 100), isbn));
+        }
+        int maxIdExclusivo = livroRepository.gerarProximoId();
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        //Potências de 2 até o número de processadores, que também é medido mesmo quando não é potência de 2
+        List<Integer> quantidades = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            quantidades.add(threads);
+        }
+        quantidades.add(maxThreads);
+
+        System.out.println("Threads | leituras/s");
+        long vazaoUmaThread = 0;
+        long vazaoTodas = 0;
+        for (int threads : quantidades) {
+            long vazao = medirLeiturasPorSegundo(threads, maxIdExclusivo);
+            System.out.printf("%7d | %,d%n", threads, vazao);
+            if (threads == 1) {
+                vazaoUmaThread = vazao;
+            }
+            vazaoTodas = vazao;
+        }
+        //Leituras não disputam trava: com mais de um processador, uma thread por processador não pode ler menos
+        //que uma thread só
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            assertTrue(vazaoTodas >= vazaoUmaThread, "vazão não escalou: " + vazaoTodas + " x " + vazaoUmaThread);
+        }
+    }
+
+    private long medirLeiturasPorSegundo(int threads, int maxIdExclusivo) throws InterruptedException {
+        long duracaoMs = 300;
+        LongAdder leituras = new LongAdder();
+        AtomicBoolean executando = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int semente = t;
+            executor.submit(() -> {
+                int id = semente;
+                long locais = 0;
+                while (executando.get()) {
+                    id = (id + 7919) % maxIdExclusivo;
+                    livroRepository.buscarLivroPorId(id);
+                    livroRepository.existeISBN(String.format("978%010d", id));
+                    locais++;
+                }
+                leituras.add(locais);
+            });
+        }
+        Thread.sleep(duracaoMs);
+        executando.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        return leituras.sum() * 1000 / duracaoMs;
+    }
+}
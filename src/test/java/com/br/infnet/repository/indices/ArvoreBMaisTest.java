@@ -0,0 +1,239 @@
+package com.br.infnet.repository.indices;
+
+import com.br.infnet.repository.armazenamento.PoolPaginas;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes da ArvoreBMais")
+class ArvoreBMaisTest {
+
+    //Páginas de 96 bytes (5 chaves por folha) e um pool de 8 páginas forçam divisões em vários níveis e despejos
+    private static final int PAGINA_TESTE = 96;
+    private static final int CACHE_TESTE = 8;
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Inserções, substituições e remoções devem coincidir com um TreeMap")
+    void testEquivalenciaComTreeMap() throws IOException {
+        TreeMap<Long, Long> referencia = new TreeMap<>();
+        Random aleatorio = new Random(7);
+        try (ArvoreBMais arvore = new ArvoreBMais(diretorio.resolve("t.idx"), PAGINA_TESTE, CACHE_TESTE)) {
+            for (int operacao = 0; operacao < 20_000; operacao++) {
+                long chave = aleatorio.nextInt(5_000) - 1_000;
+                if (aleatorio.nextInt(4) == 0) {
+                    assertEquals(valorOuAusente(referencia.remove(chave)), arvore.remover(chave));
+                } else {
+                    long valor = aleatorio.nextInt(1_000_000);
+                    assertEquals(valorOuAusente(referencia.put(chave, valor)), arvore.inserir(chave, valor));
+                }
+            }
+
+            assertEquals(referencia.size(), arvore.quantidade());
+            assertTrue(arvore.altura() > 3);
+            assertTrue(arvore.getPool().getFaltas() > 0);
+            verificar(arvore, referencia);
+            assertEquals(ArvoreBMais.AUSENTE, arvore.buscar(10_000));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve percorrer faixas de chaves em ordem, a partir de qualquer chave")
+    void testPercorrerFaixa() throws IOException {
+        try (ArvoreBMais arvore = new ArvoreBMais(diretorio.resolve("t.idx"), PAGINA_TESTE, CACHE_TESTE)) {
+            for (long chave = 100; chave > 0; chave--) {
+                arvore.inserir(chave * 10, chave);
+            }
+            List<Long> chaves = new ArrayList<>();
+            arvore.percorrer(555, (chave, valor) -> {
+                chaves.add(chave);
+                return chaves.size() < 3;
+            });
+
+            assertEquals(List.of(560L, 570L, 580L), chaves);
+        }
+    }
+
+    @Test
+    @DisplayName("A carga em lote deve montar uma árvore equivalente e que aceita novas inserções")
+    void testCargaEmLote() throws IOException {
+        TreeMap<Long, Long> referencia = new TreeMap<>();
+        Random aleatorio = new Random(11);
+        while (referencia.size() < 3_000) {
+            referencia.put(aleatorio.nextLong() >>> 20, (long) referencia.size());
+        }
+        long[] chaves = new long[referencia.size()];
+        long[] valores = new long[referencia.size()];
+        List<Long> embaralhadas = new ArrayList<>(referencia.keySet());
+        Collections.shuffle(embaralhadas, aleatorio);
+        for (int i = 0; i < chaves.length; i++) {
+            chaves[i] = embaralhadas.get(i);
+            valores[i] = referencia.get(chaves[i]);
+        }
+
+        try (ArvoreBMais arvore = new ArvoreBMais(diretorio.resolve("t.idx"), PAGINA_TESTE, CACHE_TESTE)) {
+            assertThrows(IllegalArgumentException.class, () -> arvore.carregarEmLote(chaves, valores, chaves.length));
+            ArvoreBMais.ordenarPares(chaves, valores, chaves.length);
+            arvore.carregarEmLote(chaves, valores, chaves.length);
+            verificar(arvore, referencia);
+
+            for (int i = 0; i < 1_000; i++) {
+                long chave = aleatorio.nextLong() >>> 20;
+                assertEquals(valorOuAusente(referencia.put(chave, (long) i)), arvore.inserir(chave, i));
+            }
+            verificar(arvore, referencia);
+            assertThrows(IllegalStateException.class, () -> arvore.carregarEmLote(chaves, valores, 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Inserções em ordem crescente devem deixar as folhas cheias")
+    void testInsercaoSequencial() throws IOException {
+        try (ArvoreBMais arvore = new ArvoreBMais(diretorio.resolve("t.idx"))) {
+            for (int id = 1; id <= 100_000; id++) {
+                arvore.inserir(id, id);
+            }
+            int porFolha = (PoolPaginas.TAMANHO_PAGINA_PADRAO - 16) / 16;
+            long folhasMinimas = 100_000 / porFolha + 1;
+
+            assertTrue(arvore.getPool().quantidadePaginas() < folhasMinimas * 1.05,
+                    "Páginas: " + arvore.getPool().quantidadePaginas());
+            assertEquals(3, arvore.altura());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve reabrir consistente após close e descartar um arquivo que não foi fechado limpo")
+    void testConsistenciaAoReabrir() throws IOException {
+        Path arquivo = diretorio.resolve("t.idx");
+        try (ArvoreBMais arvore = new ArvoreBMais(arquivo, PAGINA_TESTE, CACHE_TESTE)) {
+            assertFalse(arvore.isConsistente());
+            for (long chave = 0; chave < 500; chave++) {
+                arvore.inserir(chave, chave * 2);
+            }
+        }
+
+        try (ArvoreBMais arvore = new ArvoreBMais(arquivo, PAGINA_TESTE, CACHE_TESTE)) {
+            assertTrue(arvore.isConsistente());
+            assertEquals(500, arvore.quantidade());
+            assertEquals(998, arvore.buscar(499));
+            arvore.inserir(1_000, 1);
+            //Simula uma queda: o cabeçalho já foi marcado como sujo no disco
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                ByteBuffer estado = ByteBuffer.allocate(4);
+                canal.read(estado, 12);
+                assertNotEquals(1, estado.getInt(0));
+            }
+        }
+
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.allocate(4).putInt(0, 2), 12);
+        }
+        try (ArvoreBMais arvore = new ArvoreBMais(arquivo, PAGINA_TESTE, CACHE_TESTE)) {
+            assertFalse(arvore.isConsistente());
+            assertEquals(0, arvore.quantidade());
+            assertEquals(ArvoreBMais.AUSENTE, arvore.buscar(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar um arquivo que não é uma árvore B+")
+    void testArquivoInvalido() throws IOException {
+        Path arquivo = diretorio.resolve("t.idx");
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.allocate(PAGINA_TESTE).putInt(0, 0xCAFE));
+        }
+
+        assertThrows(IllegalStateException.class, () -> new ArvoreBMais(arquivo, PAGINA_TESTE, CACHE_TESTE));
+    }
+
+    @Test
+    @DisplayName("Deve ordenar pares com chaves negativas levando os valores junto")
+    void testOrdenarPares() {
+        long[] chaves = {5, -3, Long.MAX_VALUE, 0, Long.MIN_VALUE + 1, 42};
+        long[] valores = {50, -30, 1, 0, 2, 420};
+
+        ArvoreBMais.ordenarPares(chaves, valores, chaves.length);
+
+        assertArrayEquals(new long[]{Long.MIN_VALUE + 1, -3, 0, 5, 42, Long.MAX_VALUE}, chaves);
+        assertArrayEquals(new long[]{2, -30, 0, 50, 420, 1}, valores);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Carga em lote e latência de busca a frio e a quente com 10M ISBNs")
+    void benchmarkBuscaFriaEQuente() throws IOException {
+        int total = 10_000_000;
+        long[] isbns = new long[total];
+        long[] ids = new long[total];
+        for (int i = 0; i < total; i++) {
+            isbns[i] = 9_780_000_000_000L + i * 7L;
+            ids[i] = i + 1;
+        }
+
+        //Pool de 16 MB para um índice de ~170 MB: o conjunto quente cabe, o índice inteiro não
+        try (ArvoreBMais arvore = new ArvoreBMais(diretorio.resolve("isbn.idx"), PoolPaginas.TAMANHO_PAGINA_PADRAO,
+                4096)) {
+            long inicio = System.nanoTime();
+            arvore.carregarEmLote(isbns, ids, total);
+            arvore.sincronizar();
+            long carga = System.nanoTime() - inicio;
+
+            Random aleatorio = new Random(1);
+            arvore.getPool().esvaziar();
+            long fria = medir(arvore, aleatorio, 10_000, total);
+            long faltasFrias = arvore.getPool().getFaltas();
+            for (int i = 0; i < 200_000; i++) {
+                arvore.buscar(9_780_000_000_000L + aleatorio.nextInt(1_000) * 7L);
+            }
+            //Só 1.000 chaves: todas as páginas do caminho ficam no pool
+            long quente = medir(arvore, aleatorio, 200_000, 1_000);
+            System.out.printf("Carga em lote: %d ms (%d páginas, altura %d) | busca a frio: %d ns/op "
+                            + "(%d faltas) | busca a quente: %d ns/op%n", carga / 1_000_000,
+                    arvore.getPool().quantidadePaginas(), arvore.altura(), fria, faltasFrias, quente);
+        }
+    }
+
+    private static long medir(ArvoreBMais arvore, Random aleatorio, int buscas, int faixa) {
+        long inicio = System.nanoTime();
+        for (int i = 0; i < buscas; i++) {
+            assertNotEquals(ArvoreBMais.AUSENTE, arvore.buscar(9_780_000_000_000L + aleatorio.nextInt(faixa) * 7L));
+        }
+        return (System.nanoTime() - inicio) / buscas;
+    }
+
+    private static void verificar(ArvoreBMais arvore, TreeMap<Long, Long> referencia) {
+        for (Map.Entry<Long, Long> entrada : referencia.entrySet()) {
+            assertEquals(entrada.getValue(), arvore.buscar(entrada.getKey()));
+        }
+        List<Long> chaves = new ArrayList<>();
+        arvore.percorrer(Long.MIN_VALUE, (chave, valor) -> {
+            assertEquals(referencia.get(chave), valor);
+            return chaves.add(chave);
+        });
+        assertEquals(new ArrayList<>(referencia.keySet()), chaves);
+    }
+
+    private static long valorOuAusente(Long valor) {
+        return valor == null ? ArvoreBMais.AUSENTE : valor;
+    }
+}
@@ -0,0 +1,76 @@
+package com.br.infnet.repository.indices;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do IndiceOrdenadoCompacto")
+class IndiceOrdenadoCompactoTest {
+
+    private final Map<Integer, String> textos = new HashMap<>();
+    private IndiceOrdenadoCompacto indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceOrdenadoCompacto(textos::get);
+        gravar(1, "Zumbi");
+        gravar(2, "árvore");
+        gravar(3, "Ébano");
+        gravar(4, "abacate");
+        gravar(5, "Árvore");
+    }
+
+    @Test
+    @DisplayName("Deve ordenar e paginar como o IndiceOrdenado")
+    void testOrdemEPaginacao() {
+        assertArrayEquals(new int[]{4, 2, 5, 3, 1}, indice.idsAPartirDe(null, 0, 10));
+        assertArrayEquals(new int[]{5, 3}, indice.idsAPartirDe("árvore", 2, 2));
+        assertArrayEquals(new int[]{1}, indice.idsAPartirDe("Ébano", 3, 2));
+    }
+
+    @Test
+    @DisplayName("Deve reposicionar textos alterados e remover ids desindexados")
+    void testReindexar() {
+        indice.idsAPartirDe(null, 0, 10);
+        gravar(1, "Aaa");
+        textos.remove(3);
+        indice.desindexar(3);
+
+        assertArrayEquals(new int[]{1, 4, 2, 5}, indice.idsAPartirDe(null, 0, 10));
+        assertEquals(4, indice.tamanho());
+    }
+
+    @Test
+    @DisplayName("Intercalações sucessivas devem coincidir com o IndiceOrdenado")
+    void testEquivalencia() {
+        IndiceOrdenado referencia = new IndiceOrdenado();
+        textos.forEach(referencia::indexar);
+        Random aleatorio = new Random(42);
+        for (int rodada = 0; rodada < 20; rodada++) {
+            for (int i = 0; i < 1 + rodada * 10; i++) {
+                int id = 1 + aleatorio.nextInt(500);
+                if (aleatorio.nextInt(5) == 0) {
+                    textos.remove(id);
+                    indice.desindexar(id);
+                    referencia.desindexar(id);
+                } else {
+                    String texto = "Título " + aleatorio.nextInt(100);
+                    gravar(id, texto);
+                    referencia.indexar(id, texto);
+                }
+            }
+            assertArrayEquals(referencia.idsAPartirDe(null, 0, 1_000), indice.idsAPartirDe(null, 0, 1_000));
+        }
+    }
+
+    private void gravar(int id, String texto) {
+        textos.put(id, texto);
+        indice.indexar(id);
+    }
+}
@@ -0,0 +1,56 @@
+package com.br.infnet.repository.indices;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do IndiceOrdenado")
+class IndiceOrdenadoTest {
+
+    private IndiceOrdenado indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceOrdenado();
+        indice.indexar(1, "Zumbi");
+        indice.indexar(2, "árvore");
+        indice.indexar(3, "Ébano");
+        indice.indexar(4, "abacate");
+        indice.indexar(5, "Árvore");
+    }
+
+    @Test
+    @DisplayName("Deve ordenar pela colação pt-BR, com acentos e maiúsculas junto das letras base")
+    void testOrdemPtBr() {
+        assertArrayEquals(new int[]{4, 2, 5, 3, 1}, indice.idsAPartirDe(null, 0, 10));
+    }
+
+    @Test
+    @DisplayName("Deve paginar a partir do texto e do id do último item")
+    void testPaginacao() {
+        assertArrayEquals(new int[]{4, 2}, indice.idsAPartirDe(null, 0, 2));
+        assertArrayEquals(new int[]{5, 3}, indice.idsAPartirDe("árvore", 2, 2));
+        assertArrayEquals(new int[]{1}, indice.idsAPartirDe("Ébano", 3, 2));
+    }
+
+    @Test
+    @DisplayName("Cursor de um item removido ou renomeado deve continuar da mesma posição")
+    void testCursorDeItemAlterado() {
+        indice.desindexar(2);
+        assertArrayEquals(new int[]{5, 3}, indice.idsAPartirDe("árvore", 2, 2));
+        indice.indexar(3, "Aaa");
+        assertArrayEquals(new int[]{1}, indice.idsAPartirDe("Árvore", 5, 2));
+    }
+
+    @Test
+    @DisplayName("Deve reposicionar ao reindexar e remover ao desindexar")
+    void testReindexar() {
+        indice.indexar(1, "Aaa");
+        indice.desindexar(3);
+
+        assertArrayEquals(new int[]{1, 4, 2, 5}, indice.idsAPartirDe(null, 0, 10));
+        assertEquals(4, indice.tamanho());
+    }
+}
@@ -0,0 +1,156 @@
+package com.br.infnet.repository.indices;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do IndiceTrigramas")
+class IndiceTrigramasTest {
+
+    private IndiceTrigramas indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceTrigramas();
+        indice.indexar(1, "dom casmurro");
+        indice.indexar(2, "o dom");
+        indice.indexar(3, "memórias póstumas de brás cubas");
+    }
+
+    @Test
+    @DisplayName("Deve encontrar candidatos por substring no meio de palavras")
+    void testBuscarCandidatosPorSubstring() {
+        assertArrayEquals(new int[]{1}, indice.buscarCandidatos("smur"));
+        assertArrayEquals(new int[]{1, 2}, indice.buscarCandidatos("dom"));
+        assertArrayEquals(new int[]{3}, indice.buscarCandidatos("rás cu"));
+        assertArrayEquals(new int[0], indice.buscarCandidatos("xyz"));
+    }
+
+    @Test
+    @DisplayName("Deve retornar null para consultas menores que um trigrama")
+    void testConsultaCurta() {
+        assertNull(indice.buscarCandidatos("do"));
+    }
+
+    @Test
+    @DisplayName("Deve remover ids desindexados e descartar postagens vazias")
+    void testDesindexar() {
+        int trigramasAntes = indice.quantidadeTrigramas();
+        indice.desindexar(1, "dom casmurro");
+
+        assertArrayEquals(new int[]{2}, indice.buscarCandidatos("dom"));
+        assertArrayEquals(new int[0], indice.buscarCandidatos("smur"));
+        assertTrue(indice.quantidadeTrigramas() < trigramasAntes);
+    }
+
+    @Test
+    @DisplayName("Reindexar deve trocar só os trigramas que mudaram")
+    void testReindexar() {
+        indice.reindexar(1, "dom casmurro", "dom quixote");
+
+        assertArrayEquals(new int[]{1, 2}, indice.buscarCandidatos("dom"));
+        assertArrayEquals(new int[]{1}, indice.buscarCandidatos("quixo"));
+        assertArrayEquals(new int[0], indice.buscarCandidatos("smur"));
+
+        int trigramas = indice.quantidadeTrigramas();
+        indice.reindexar(1, "dom quixote", "dom quixote");
+        assertEquals(trigramas, indice.quantidadeTrigramas());
+        assertArrayEquals(new int[]{1}, indice.buscarCandidatos("quixo"));
+    }
+
+    @Test
+    @DisplayName("Lista de postagens deve se manter ordenada e sem repetições")
+    void testListaPostagens() {
+        ListaPostagens lista = new ListaPostagens();
+        lista.adicionar(5);
+        lista.adicionar(1);
+        lista.adicionar(9);
+        lista.adicionar(5);
+        lista.remover(1);
+
+        assertArrayEquals(new int[]{5, 9}, lista.paraArray());
+        assertTrue(lista.contem(9));
+        assertFalse(lista.contem(1));
+    }
+
+    @Test
+    @DisplayName("Remoções devem virar lápides no mesmo array até a compactação")
+    void testLapides() {
+        ListaPostagens lista = new ListaPostagens();
+        for (int id = 1; id <= 100; id++) {
+            lista.adicionar(id);
+        }
+        int[] array = lista.bloco().ids();
+        for (int id = 10; id <= 30; id += 2) {
+            lista.remover(id);
+        }
+        assertSame(array, lista.bloco().ids());
+        assertEquals(89, lista.tamanho());
+        assertFalse(lista.contem(20));
+        assertTrue(lista.contem(21));
+
+        //Um id removido volta para o lugar da própria lápide
+        lista.adicionar(20);
+        assertSame(array, lista.bloco().ids());
+        assertTrue(lista.contem(20));
+
+        //Lápides em mais de um quarto das posições: compacta num array novo, só com os vivos
+        for (int id = 40; id <= 100; id++) {
+            lista.remover(id);
+        }
+        assertNotSame(array, lista.bloco().ids());
+        assertTrue(lista.bloco().removidos() * 4 <= lista.bloco().tamanho());
+        assertEquals(29, lista.tamanho());
+
+        ListaPostagens outra = new ListaPostagens();
+        for (int id = 1; id <= 39; id += 3) {
+            outra.adicionar(id);
+        }
+        outra.remover(1);
+        outra.remover(4);
+        ListaPostagens.Bloco a = lista.bloco();
+        ListaPostagens.Bloco b = outra.bloco();
+        int[] esperado = ListaPostagens.intersectar(lista.paraArray(), outra.paraArray());
+        assertArrayEquals(esperado, ListaPostagens.intersectar(a.ids(), a.tamanho(), b.ids(), b.tamanho()));
+        assertArrayEquals(new int[]{7, 13, 19, 25, 31, 34, 37}, esperado);
+    }
+
+    @Test
+    @DisplayName("Lista de postagens deve equivaler a um conjunto ordenado em operações aleatórias")
+    void testListaPostagensAleatoria() {
+        Random aleatorio = new Random(17);
+        ListaPostagens lista = new ListaPostagens();
+        TreeSet<Integer> esperado = new TreeSet<>();
+        for (int operacao = 0; operacao < 20_000; operacao++) {
+            int id = aleatorio.nextInt(500);
+            if (aleatorio.nextInt(3) == 0) {
+                lista.remover(id);
+                esperado.remove(id);
+            } else {
+                lista.adicionar(id);
+                esperado.add(id);
+            }
+            if (operacao % 97 == 0) {
+                assertArrayEquals(esperado.stream().mapToInt(Integer::intValue).toArray(), lista.paraArray());
+                assertEquals(esperado.size(), lista.tamanho());
+            }
+            assertEquals(esperado.contains(id), lista.contem(id));
+        }
+    }
+
+    @Test
+    @DisplayName("Interseção deve funcionar com listas de tamanhos muito diferentes")
+    void testIntersectar() {
+        int[] grande = new int[1000];
+        for (int i = 0; i < grande.length; i++) {
+            grande[i] = i * 2;
+        }
+
+        assertArrayEquals(new int[]{0, 500, 1998}, ListaPostagens.intersectar(new int[]{0, 3, 500, 1998, 2001}, grande));
+    }
+}
@@ -0,0 +1,82 @@
+package com.br.infnet.repository.persistencia;
+
+import com.br.infnet.model.Emprestimo;
+import com.br.infnet.model.Livro;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do ArquivoInstantaneo")
+class ArquivoInstantaneoTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Deve restaurar livros, empréstimos e contadores gravados")
+    void testIdaEVolta() throws IOException {
+        LocalDate hoje = LocalDate.now();
+        Livro emprestado = new Livro(7, "Memórias Póstumas", "Machado de Assis", "9788535910663");
+        emprestado.setDisponivel(false);
+        emprestado.setDataEmprestimo(hoje);
+        emprestado.setPrazoDevolucao(10);
+        List<Livro> livros = List.of(new Livro(3, "Dom Casmurro", "Machado de Assis", "9788535902778"), emprestado);
+        Emprestimo emprestimo = new Emprestimo(4, 7, hoje, hoje.plusDays(10), 10, 0);
+        Path arquivo = diretorio.resolve("biblioteca.snap");
+
+        ArquivoInstantaneo.gravar(arquivo, 12, 5, livros::forEach, List.of(emprestimo));
+
+        List<Livro> livrosLidos = new ArrayList<>();
+        List<Emprestimo> emprestimosLidos = new ArrayList<>();
+        ArquivoInstantaneo.Resumo resumo = ArquivoInstantaneo.ler(arquivo, livrosLidos::add, emprestimosLidos::add);
+        assertEquals(new ArquivoInstantaneo.Resumo(12, 5, 2, 1), resumo);
+        assertEquals(List.of(3, 7), livrosLidos.stream().map(Livro::getId).toList());
+        Livro relido = livrosLidos.get(1);
+        assertEquals("Memórias Póstumas", relido.getTitulo());
+        assertEquals("9788535910663", relido.getIsbn());
+        assertFalse(relido.isDisponivel());
+        assertEquals(hoje, relido.getDataEmprestimo());
+        assertEquals(4, emprestimosLidos.get(0).getId());
+        assertEquals(hoje.plusDays(10), emprestimosLidos.get(0).getDataEstimadaDevolucao());
+        assertFalse(Files.exists(diretorio.resolve("biblioteca.snap.tmp")));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar instantâneo corrompido sem entregar nenhum registro")
+    void testCorrompido() throws IOException {
+        Path arquivo = diretorio.resolve("biblioteca.snap");
+        List<Livro> livros = List.of(new Livro(1, "Dom Casmurro", "Machado de Assis", "9788535902778"));
+        ArquivoInstantaneo.gravar(arquivo, 2, 1, livros::forEach, List.of());
+        byte[] conteudo = Files.readAllBytes(arquivo);
+        conteudo[30] ^= 0x01;
+        Files.write(arquivo, conteudo);
+
+        List<Livro> lidos = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> ArquivoInstantaneo.ler(arquivo, lidos::add, e -> { }));
+        assertTrue(lidos.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar versão desconhecida do formato")
+    void testVersaoDesconhecida() throws IOException {
+        Path arquivo = diretorio.resolve("biblioteca.snap");
+        ArquivoInstantaneo.gravar(arquivo, 1, 1, acao -> { }, List.of());
+        byte[] conteudo = Files.readAllBytes(arquivo);
+        ByteBuffer.wrap(conteudo).putInt(4, ArquivoInstantaneo.VERSAO + 1);
+        Files.write(arquivo, conteudo);
+
+        IllegalStateException erro = assertThrows(IllegalStateException.class,
+                () -> ArquivoInstantaneo.ler(arquivo, l -> { }, e -> { }));
+        assertTrue(erro.getMessage().contains("Versão"));
+    }
+}
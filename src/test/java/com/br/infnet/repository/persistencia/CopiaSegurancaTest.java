@@ -0,0 +1,93 @@
+package com.br.infnet.repository.persistencia;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes da CopiaSeguranca")
+class CopiaSegurancaTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Deve copiar o log só até o marco, mesmo com registros anexados depois")
+    void testLogAteOMarco() throws IOException {
+        Path copia = diretorio.resolve("copia" + CopiaSeguranca.EXTENSAO);
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(diretorio.resolve("dados.wal"),
+                PoliticaDurabilidade.LOTE)) {
+            for (int i = 1; i <= 3; i++) {
+                log.anexar(("antes " + i).getBytes(StandardCharsets.UTF_8));
+            }
+            LogEscritaAntecipada.Marco marco = log.marcar();
+            //Enfileirado depois do marco, possivelmente ainda sem ter chegado ao arquivo
+            log.enfileirar("depois".getBytes(StandardCharsets.UTF_8));
+
+            CopiaSeguranca escrita = CopiaSeguranca.criar(copia);
+            escrita.adicionarSecao("dados.wal", marco.bytes(), saida -> log.copiarAte(marco, saida));
+            assertTrue(escrita.concluir() > 0);
+        }
+
+        Path restaurado = diretorio.resolve("restaurado");
+        assertEquals(List.of("dados.wal"), CopiaSeguranca.restaurar(copia, restaurado));
+        List<String> registros = new ArrayList<>();
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(restaurado.resolve("dados.wal"),
+                PoliticaDurabilidade.POR_OPERACAO)) {
+            log.reproduzir(registro -> registros.add(StandardCharsets.UTF_8.decode(registro).toString()));
+        }
+        assertEquals(List.of("antes 1", "antes 2", "antes 3"), registros);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar cópia truncada sem deixar arquivos parciais")
+    void testCopiaTruncada() throws IOException {
+        byte[] conteudo = new byte[200_000];
+        new Random(7).nextBytes(conteudo);
+        Path origem = diretorio.resolve("origem.bin");
+        Files.write(origem, conteudo);
+        Path copia = diretorio.resolve("copia" + CopiaSeguranca.EXTENSAO);
+        CopiaSeguranca escrita = CopiaSeguranca.criar(copia);
+        escrita.adicionarArquivo("origem.bin", origem);
+        escrita.concluir();
+
+        Path restaurado = diretorio.resolve("restaurado");
+        CopiaSeguranca.restaurar(copia, restaurado);
+        assertArrayEquals(conteudo, Files.readAllBytes(restaurado.resolve("origem.bin")));
+
+        byte[] bytes = Files.readAllBytes(copia);
+        Files.write(copia, Arrays.copyOf(bytes, bytes.length - 100));
+        Path outro = diretorio.resolve("outro");
+        assertThrows(IllegalStateException.class, () -> CopiaSeguranca.restaurar(copia, outro));
+        try (var arquivos = Files.list(outro)) {
+            assertEquals(0, arquivos.count());
+        }
+        assertThrows(IllegalStateException.class, () -> CopiaSeguranca.restaurar(copia, restaurado));
+    }
+
+    @Test
+    @DisplayName("Seções com nome fora do diretório de restauração devem ser rejeitadas")
+    void testNomeForaDoDiretorio() throws IOException {
+        Path copia = diretorio.resolve("copia" + CopiaSeguranca.EXTENSAO);
+        CopiaSeguranca escrita = CopiaSeguranca.criar(copia);
+        escrita.adicionarSecao("../fora.bin", 1, saida -> {
+            saida.write(1);
+            return 1;
+        });
+        escrita.concluir();
+
+        assertThrows(IllegalStateException.class,
+                () -> CopiaSeguranca.restaurar(copia, diretorio.resolve("restaurado")));
+        assertFalse(Files.exists(diretorio.resolve("fora.bin")));
+    }
+}
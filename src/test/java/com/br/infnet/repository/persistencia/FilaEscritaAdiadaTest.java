@@ -0,0 +1,130 @@
+package com.br.infnet.repository.persistencia;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes da FilaEscritaAdiada")
+class FilaEscritaAdiadaTest {
+
+    @Test
+    @DisplayName("Operações pendentes da mesma chave devem virar uma só escrita com o valor mais recente")
+    void testCombinaPorChave() {
+        List<List<String>> lotes = Collections.synchronizedList(new ArrayList<>());
+        FilaEscritaAdiada<String> fila = new FilaEscritaAdiada<>("teste", lote -> {
+            lotes.add(lote);
+            return List.of();
+        }, 100, 100, 10_000, 1_000);
+        for (int versao = 1; versao <= 50; versao++) {
+            fila.enfileirar(1, "livro 1 v" + versao);
+            fila.enfileirar(2, "livro 2 v" + versao);
+        }
+        fila.descarregar();
+
+        assertEquals(List.of(List.of("livro 1 v50", "livro 2 v50")), lotes);
+        assertEquals(100, fila.getEnfileiradas());
+        assertEquals(98, fila.getCombinadas());
+        assertEquals(2, fila.getGravadas());
+        fila.close();
+    }
+
+    @Test
+    @DisplayName("Deve gravar sozinha depois do atraso máximo e em lotes limitados")
+    void testAtrasoMaximoETamanhoDoLote() throws InterruptedException {
+        CountDownLatch gravou = new CountDownLatch(1);
+        List<Integer> tamanhos = Collections.synchronizedList(new ArrayList<>());
+        FilaEscritaAdiada<Integer> fila = new FilaEscritaAdiada<>("teste", lote -> {
+            tamanhos.add(lote.size());
+            gravou.countDown();
+            return List.of();
+        }, 1_000, 10, 20, 1_000);
+
+        fila.enfileirar(1, 1);
+        assertTrue(gravou.await(2, TimeUnit.SECONDS));
+        for (int chave = 0; chave < 95; chave++) {
+            fila.enfileirar(chave, chave);
+        }
+        fila.close();
+
+        assertEquals(0, fila.getPendentes());
+        assertEquals(96, tamanhos.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(tamanhos.stream().allMatch(tamanho -> tamanho <= 10));
+        assertThrows(IllegalStateException.class, () -> fila.enfileirar(1, 1));
+    }
+
+    @Test
+    @DisplayName("Com a fila cheia, quem enfileira chave nova deve esperar e desistir após a espera máxima")
+    void testContrapressao() throws InterruptedException {
+        CountDownLatch liberar = new CountDownLatch(1);
+        FilaEscritaAdiada<Integer> fila = new FilaEscritaAdiada<>("teste", lote -> {
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        }, 4, 2, 0, 100);
+
+        for (int chave = 0; chave < 4; chave++) {
+            fila.enfileirar(chave, chave);
+        }
+        //Chave já pendente (ou em gravação não conta): substituir não precisa de espaço
+        fila.enfileirar(3, 30);
+        assertThrows(IllegalStateException.class, () -> fila.enfileirar(99, 99));
+        assertTrue(fila.getEsperasPorEspaco() > 0);
+
+        liberar.countDown();
+        fila.enfileirar(99, 99);
+        fila.close();
+        assertEquals(0, fila.getPendentes());
+    }
+
+    @Test
+    @DisplayName("Lotes que falham devem ser repetidos, e recusas devem voltar para o fim da fila")
+    void testFalhasERecusas() {
+        AtomicInteger chamadas = new AtomicInteger();
+        List<String> gravadas = Collections.synchronizedList(new ArrayList<>());
+        FilaEscritaAdiada<String> fila = new FilaEscritaAdiada<>("teste", lote -> {
+            if (chamadas.incrementAndGet() == 1) {
+                throw new IllegalStateException("disco indisponível");
+            }
+            List<String> recusadas = new ArrayList<>();
+            for (String operacao : lote) {
+                //"b" só é aceito depois de "a" ter sido gravado
+                if (operacao.equals("b") && !gravadas.contains("a")) {
+                    recusadas.add(operacao);
+                } else {
+                    gravadas.add(operacao);
+                }
+            }
+            return recusadas;
+        }, 100, 100, 1, 5_000);
+
+        fila.enfileirar(2, "b");
+        fila.enfileirar(1, "a");
+        fila.descarregar();
+        fila.close();
+
+        assertEquals(List.of("a", "b"), gravadas);
+        assertEquals(1, fila.getFalhas());
+        assertEquals(1, fila.getRecusadas());
+    }
+
+    @Test
+    @DisplayName("Escritas que o destino sempre recusa devem ser descartadas e relatadas ao fechar")
+    void testFecharComRecusasPermanentes() {
+        FilaEscritaAdiada<String> fila = new FilaEscritaAdiada<>("teste", lote -> lote, 100, 100, 1, 200);
+        fila.enfileirar(1, "impossível");
+
+        assertThrows(IllegalStateException.class, fila::descarregar);
+        assertThrows(IllegalStateException.class, fila::close);
+    }
+}
@@ -0,0 +1,184 @@
+package com.br.infnet.repository.persistencia;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do LogEscritaAntecipada")
+class LogEscritaAntecipadaTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Deve reproduzir os registros na ordem em que foram anexados")
+    void testReproduzirEmOrdem() throws IOException {
+        Path arquivo = diretorio.resolve("dados/teste.wal");
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.PERIODICA)) {
+            log.anexar(bytes("primeiro"));
+            log.anexar(new byte[0]);
+            log.anexar(bytes("terceiro"));
+        }
+
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.PERIODICA)) {
+            List<String> lidos = new ArrayList<>();
+            assertEquals(3, log.reproduzir(registro -> lidos.add(texto(registro))));
+            assertEquals(List.of("primeiro", "", "terceiro"), lidos);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve descartar registro incompleto no fim e continuar a partir do último íntegro")
+    void testRegistroIncompleto() throws IOException {
+        Path arquivo = diretorio.resolve("teste.wal");
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.POR_OPERACAO)) {
+            log.anexar(bytes("íntegro"));
+        }
+        long tamanhoIntegro = Files.size(arquivo);
+        Files.write(arquivo, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.PERIODICA)) {
+            assertEquals(1, log.reproduzir(registro -> { }));
+            assertEquals(tamanhoIntegro, log.tamanhoEmBytes());
+            log.anexar(bytes("depois"));
+        }
+
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.PERIODICA)) {
+            List<String> lidos = new ArrayList<>();
+            log.reproduzir(registro -> lidos.add(texto(registro)));
+            assertEquals(List.of("íntegro", "depois"), lidos);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve parar no registro com CRC divergente")
+    void testCrcDivergente() throws IOException {
+        Path arquivo = diretorio.resolve("teste.wal");
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.PERIODICA)) {
+            log.anexar(bytes("bom"));
+            log.anexar(bytes("corrompido"));
+        }
+        byte[] conteudo = Files.readAllBytes(arquivo);
+        conteudo[conteudo.length - 1] ^= 0x7F;
+        Files.write(arquivo, conteudo);
+
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.PERIODICA)) {
+            List<String> lidos = new ArrayList<>();
+            assertEquals(1, log.reproduzir(registro -> lidos.add(texto(registro))));
+            assertEquals(List.of("bom"), lidos);
+            assertEquals(LogEscritaAntecipada.TAMANHO_CABECALHO + 3, log.tamanhoEmBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Commit em grupo deve confirmar escritas concorrentes com menos fsyncs que registros")
+    void testCommitEmGrupo() throws Exception {
+        Path arquivo = diretorio.resolve("lote.wal");
+        int escritores = 16;
+        int registrosPorEscritor = 50;
+        long sincronizacoes;
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.LOTE, 5, 64)) {
+            ExecutorService executor = Executors.newFixedThreadPool(escritores);
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int e = 0; e < escritores; e++) {
+                int escritor = e;
+                tarefas.add(executor.submit(() -> {
+                    for (int i = 0; i < registrosPorEscritor; i++) {
+                        log.anexar(bytes(escritor + ":" + i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+            executor.shutdown();
+            sincronizacoes = log.getSincronizacoes();
+        }
+
+        assertTrue(sincronizacoes < escritores * registrosPorEscritor);
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.LOTE)) {
+            Set<String> lidos = new HashSet<>();
+            assertEquals(escritores * registrosPorEscritor, log.reproduzir(registro -> lidos.add(texto(registro))));
+            assertEquals(escritores * registrosPorEscritor, lidos.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Registros enfileirados devem ser gravados ao fechar o log")
+    void testFecharGravaPendentes() throws IOException {
+        Path arquivo = diretorio.resolve("lote.wal");
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.LOTE, 1000, 1000)) {
+            log.enfileirar(bytes("pendente"));
+        }
+
+        try (LogEscritaAntecipada log = new LogEscritaAntecipada(arquivo, PoliticaDurabilidade.POR_OPERACAO)) {
+            List<String> lidos = new ArrayList<>();
+            log.reproduzir(registro -> lidos.add(texto(registro)));
+            assertEquals(List.of("pendente"), lidos);
+            assertThrows(IOException.class, () -> {
+                log.close();
+                log.anexar(bytes("depois de fechar"));
+            });
+        }
+    }
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    @DisplayName("Falha no fsync periódico deve fazer as próximas escritas falharem")
+    void testFalhaSincronizacaoPeriodica() throws Exception {
+        //No Linux, fsync em /dev/null falha (EINVAL), mas a escrita funciona
+        LogEscritaAntecipada log = new LogEscritaAntecipada(Path.of("/dev/null"), PoliticaDurabilidade.PERIODICA, 5, 1);
+        try {
+            long sequencia = log.enfileirar(bytes("antes da falha"));
+            IOException erro = null;
+            for (int tentativa = 0; tentativa < 400 && erro == null; tentativa++) {
+                Thread.sleep(5);
+                try {
+                    log.enfileirar(bytes("depois"));
+                } catch (IOException e) {
+                    erro = e;
+                }
+            }
+            assertNotNull(erro);
+            assertThrows(IOException.class, () -> log.aguardarDurabilidade(sequencia));
+        } finally {
+            assertThrows(IOException.class, log::close);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve interpretar o nome da política de durabilidade")
+    void testPoliticaDoParametro() {
+        assertEquals(PoliticaDurabilidade.LOTE, PoliticaDurabilidade.doParametro(null));
+        assertEquals(PoliticaDurabilidade.POR_OPERACAO, PoliticaDurabilidade.doParametro(" Por-Operacao "));
+        assertEquals(PoliticaDurabilidade.PERIODICA, PoliticaDurabilidade.doParametro("periodica"));
+        assertThrows(IllegalArgumentException.class, () -> PoliticaDurabilidade.doParametro("sempre"));
+    }
+
+    private byte[] bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String texto(ByteBuffer registro) {
+        return StandardCharsets.UTF_8.decode(registro).toString();
+    }
+}
@@ -0,0 +1,73 @@
+package com.br.infnet.service;
+
+import com.br.infnet.repository.implementations.LivroRepositoryImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testes do CarregamentoAcervo")
+class CarregamentoAcervoTest {
+
+    @Test
+    @DisplayName("Deve carregar o catálogo em segundo plano e ficar pronto")
+    void testCargaEmSegundoPlano() throws InterruptedException {
+        LivroRepositoryImpl repositorio = new LivroRepositoryImpl(false);
+        CarregamentoAcervo carregamento = new CarregamentoAcervo(repositorio, 2, 1);
+        assertFalse(carregamento.isPronto());
+        assertEquals(CarregamentoAcervo.Etapa.AGUARDANDO, carregamento.getEtapa());
+
+        carregamento.iniciar();
+        long limite = System.currentTimeMillis() + 10_000;
+        while (!carregamento.isPronto() && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(carregamento.isPronto());
+        assertEquals(carregamento.getTotalLinhas(), carregamento.getLinhasValidadas());
+        assertEquals(new LivroRepositoryImpl().listarLivros().size(), repositorio.listarLivros().size());
+        assertThrows(IllegalStateException.class, carregamento::iniciar);
+    }
+
+    @Test
+    @DisplayName("Carga concluída deve estar pronta desde o início")
+    void testConcluido() {
+        CarregamentoAcervo carregamento = CarregamentoAcervo.concluido();
+
+        assertTrue(carregamento.isPronto());
+        assertEquals(CarregamentoAcervo.Etapa.PRONTO, carregamento.getEtapa());
+    }
+
+    @Test
+    @DisplayName("Retry-After deve ter um valor padrão antes de haver ritmo medido")
+    void testSegundosParaNovaTentativa() {
+        CarregamentoAcervo carregamento = new CarregamentoAcervo(new LivroRepositoryImpl(false), 1, 100);
+
+        assertTrue(carregamento.segundosParaNovaTentativa() > 0);
+        assertThrows(IllegalArgumentException.class, () -> new CarregamentoAcervo(null, 0, 100));
+    }
+
+    @Test
+    @DisplayName("Erro durante a carga deve deixar a etapa em FALHOU")
+    void testFalhaComError() throws InterruptedException {
+        LivroRepositoryImpl repositorio = new LivroRepositoryImpl(false) {
+            @Override
+            public void carregarCatalogoEmParalelo(ExecutorService executor, int tamanhoBloco, ProgressoCarga progresso) {
+                throw new OutOfMemoryError();
+            }
+        };
+        CarregamentoAcervo carregamento = new CarregamentoAcervo(repositorio, 1, 100);
+
+        carregamento.iniciar();
+        long limite = System.currentTimeMillis() + 10_000;
+        while (!carregamento.isFalhou() && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(carregamento.isFalhou());
+        assertFalse(carregamento.isPronto());
+        assertEquals("OutOfMemoryError", carregamento.getErro());
+    }
+}
@@ -2,6 +2,7 @@ package com.br.infnet.service;
 
 import com.br.infnet.model.Emprestimo;
 import com.br.infnet.model.Livro;
+import com.br.infnet.repository.historico.HistoricoEmprestimos;
 import com.br.infnet.repository.interfaces.iEmprestimoRepository;
 import com.br.infnet.repository.interfaces.iLivroRepository;
 import net.jqwik.api.*;
@@ -93,6 +94,31 @@ public class EmprestimoServiceTest {
         verify(mockEmprestimoRepository).removerEmprestimo(emprestimo);
     }
 
+    @Test
+    @DisplayName("Deve arquivar o empréstimo devolvido, com a data de devolução, depois de removê-lo")
+    void devolverLivroArquivaNoHistorico() throws MultaPendenteException {
+        HistoricoEmprestimos historico = mock(HistoricoEmprestimos.class);
+        emprestimoService = new EmprestimoService(mockEmprestimoRepository, mockLivroRepository, historico);
+        Livro livro = new Livro(1, "Teste", "Teste", "1234567890123");
+        livro.setDisponivel(false);
+        livro.setDataEmprestimo(LocalDate.now().minusDays(5));
+        Emprestimo emprestimo = new Emprestimo(1, 1, LocalDate.now().minusDays(5), LocalDate.now().plusDays(5),10, 0);
+        when(mockLivroRepository.buscarLivroPorId(1)).thenReturn(livro);
+        when(mockEmprestimoRepository.buscarLivroPorId(1)).thenReturn(emprestimo);
+        emprestimoService.devolverLivro(1);
+        var ordem = inOrder(mockEmprestimoRepository, historico);
+        ordem.verify(mockEmprestimoRepository).removerEmprestimo(emprestimo);
+        ordem.verify(historico).arquivar(emprestimo);
+        assertEquals(LocalDate.now(), emprestimo.getDataEfetivaDevolucao());
+    }
+
+    @Test
+    @DisplayName("Consultar o histórico sem ele estar habilitado deve lançar exceção")
+    void historicoDesabilitado() {
+        assertThrows(IllegalStateException.class,
+                () -> emprestimoService.listarHistoricoPorPeriodo(LocalDate.now().minusDays(1), LocalDate.now()));
+    }
+
     //----------------- TESTES MULTA ----------------//
     @Test
     @DisplayName("Deve calcular a multa corretamente após o prazo gratuito")
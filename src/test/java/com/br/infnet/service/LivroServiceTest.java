@@ -1,6 +1,9 @@
 package com.br.infnet.service;
 
+import com.br.infnet.model.CursorOrdenacao;
 import com.br.infnet.model.Livro;
+import com.br.infnet.model.OrdemListagem;
+import com.br.infnet.model.Pagina;
 import com.br.infnet.repository.interfaces.iLivroRepository;
 import net.jqwik.api.*;
 import org.junit.jupiter.api.BeforeEach;
@@ -122,6 +125,73 @@ class LivroServiceTest {
         verifyNoInteractions(mockRepository);
     }
 
+    @Test
+    @DisplayName("Deve paginar listagem indicando o próximo cursor")
+    void listarLivrosPaginado() {
+        List<Livro> livros = List.of(
+                new Livro(3, "Livro A", "Autor", "1234567890123"),
+                new Livro(4, "Livro B", "Autor", "1234567890124"),
+                new Livro(7, "Livro C", "Autor", "1234567890125"));
+        when(mockRepository.listarLivrosAPartirDe(2, 3)).thenReturn(livros);
+
+        Pagina<Livro> pagina = livroService.listarLivrosDoAcervo(2, 2);
+
+        assertEquals(2, pagina.itens().size());
+        assertTrue(pagina.temProxima());
+        assertEquals(4, pagina.proximoCursor());
+    }
+
+    @Test
+    @DisplayName("Ordenação por título deve usar o índice ordenado do repositório")
+    void listarLivrosOrdenadosPorTitulo() {
+        when(mockRepository.listarLivrosOrdenadosAPartirDe(OrdemListagem.TITULO, null, 3))
+                .thenReturn(List.of(
+                        new Livro(9, "Água Viva", "Autor", "1234567890123"),
+                        new Livro(2, "Bom Crioulo", "Autor", "1234567890124"),
+                        new Livro(5, "Capitães da Areia", "Autor", "1234567890125")));
+
+        Pagina<Livro> pagina = livroService.listarLivrosDoAcervo(0, null, 2, OrdemListagem.TITULO);
+
+        assertEquals(List.of(9, 2), pagina.itens().stream().map(Livro::getId).toList());
+        assertEquals(2, pagina.proximoCursor());
+        verify(mockRepository, never()).listarLivrosAPartirDe(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Páginas seguintes da ordenação por título devem retomar pelo texto e id do cursor")
+    void listarLivrosOrdenadosPorTituloComCursor() {
+        when(mockRepository.listarLivrosOrdenadosAPartirDe(OrdemListagem.TITULO, new CursorOrdenacao("Bom Crioulo", 2), 3))
+                .thenReturn(List.of(new Livro(5, "Capitães da Areia", "Autor", "1234567890125")));
+
+        Pagina<Livro> pagina = livroService.listarLivrosDoAcervo(2, "Bom Crioulo", 2, OrdemListagem.TITULO);
+
+        assertEquals(List.of(5), pagina.itens().stream().map(Livro::getId).toList());
+        assertFalse(pagina.temProxima());
+        assertThrows(IllegalArgumentException.class,
+                () -> livroService.listarLivrosDoAcervo(2, null, 2, OrdemListagem.TITULO));
+    }
+
+    @Test
+    @DisplayName("Última página não deve ter próximo cursor")
+    void listarLivrosUltimaPagina() {
+        when(mockRepository.listarLivrosPorTituloAPartirDe("Livro", 0, 11))
+                .thenReturn(List.of(new Livro(1, "Livro A", "Autor", "1234567890123")));
+
+        Pagina<Livro> pagina = livroService.buscarLivroPorTituloNoAcervo("Livro", 0, 10);
+
+        assertEquals(1, pagina.itens().size());
+        assertFalse(pagina.temProxima());
+        assertTrue(pagina.isPrimeira());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar tamanho de página inválido")
+    void listarLivrosLimiteInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> livroService.listarLivrosDoAcervo(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> livroService.listarLivrosDoAcervo(0, LivroService.LIMITE_PAGINA_MAXIMO + 1));
+        assertThrows(IllegalArgumentException.class, () -> livroService.listarLivrosDoAcervo(-1, 10));
+    }
+
     //----------------------------------TESTES ATUALIZAÇÃO------------------------------------//
     @Test
     @DisplayName("Deve atualizar nome de livro existente")
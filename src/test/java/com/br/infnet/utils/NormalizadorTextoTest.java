@@ -0,0 +1,30 @@
+package com.br.infnet.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NormalizadorTextoTest {
+
+    @Test
+    @DisplayName("Deve converter para minúsculas e remover acentos")
+    void testNormalizar() {
+        assertEquals("joao guimaraes rosa", NormalizadorTexto.normalizar("João Guimarães Rosa"));
+        assertEquals("eca de queiros", NormalizadorTexto.normalizar("Eça de Queirós"));
+        assertEquals("dom casmurro", NormalizadorTexto.normalizar("Dom Casmurro"));
+    }
+
+    @Test
+    @DisplayName("Deve retornar o próprio texto quando já está normalizado")
+    void testTextoJaNormalizado() {
+        String texto = "dom casmurro";
+        assertSame(texto, NormalizadorTexto.normalizar(texto));
+    }
+
+    @Test
+    @DisplayName("Deve tratar nulo")
+    void testNulo() {
+        assertNull(NormalizadorTexto.normalizar(null));
+    }
+}